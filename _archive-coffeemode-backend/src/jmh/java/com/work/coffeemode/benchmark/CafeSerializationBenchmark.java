@@ -0,0 +1,55 @@
+package com.work.coffeemode.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.work.coffeemode.model.Cafe;
+import com.work.coffeemode.model.UnifiedResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson encoding of cafes with the application's mapper configuration: a single cafe in the
+ * response envelope, and a list of 100 as returned by {@code GET /api/cafes}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CafeSerializationBenchmark {
+
+    @Param({ "minimal", "typical", "full" })
+    public String shape;
+
+    private ObjectWriter writer;
+    private UnifiedResponse<Cafe> single;
+    private UnifiedResponse<List<Cafe>> list;
+
+    @Setup
+    public void setUp() {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        writer = objectMapper.writer();
+        Cafe cafe = Fixtures.cafe(shape);
+        single = UnifiedResponse.success(cafe);
+        list = UnifiedResponse.success(Collections.nCopies(100, cafe));
+    }
+
+    @Benchmark
+    public byte[] single() throws Exception {
+        return writer.writeValueAsBytes(single);
+    }
+
+    @Benchmark
+    public byte[] list() throws Exception {
+        return writer.writeValueAsBytes(list);
+    }
+}
@@ -0,0 +1,104 @@
+package com.work.coffeemode.benchmark;
+
+import com.google.maps.places.v1.Place;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.util.JsonFormat;
+import com.work.coffeemode.dto.cafe.ImageDTO;
+import com.work.coffeemode.model.Cafe;
+import com.work.coffeemode.model.QuietnessLevel;
+import com.work.coffeemode.model.Temperature;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Benchmark inputs. Places details are Places API (New) responses for a Singapore cafe kept under
+ * {@code fixtures/places} in three shapes: {@code minimal} (id, name, address, location),
+ * {@code typical} (hours, 5 photos, 3 reviews) and {@code full} (every field a details call with
+ * {@code FieldMask=*} returns, 10 photos, 5 long reviews). Cafes come in matching sizes.
+ */
+public final class Fixtures {
+
+    private Fixtures() {
+    }
+
+    public static Place place(String shape) {
+        String resource = "/fixtures/places/place-" + shape + ".json";
+        try (InputStream in = Fixtures.class.getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IllegalArgumentException("No fixture " + resource);
+            }
+            Place.Builder builder = Place.newBuilder();
+            JsonFormat.parser().ignoringUnknownFields().merge(new String(in.readAllBytes(), StandardCharsets.UTF_8),
+                    builder);
+            return builder.build();
+        } catch (InvalidProtocolBufferException e) {
+            throw new IllegalArgumentException("Fixture " + resource + " is not a Place", e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * A cafe as stored in MongoDB: {@code minimal} is what a resolve creates without features,
+     * {@code typical} a curated cafe, {@code full} one with a large photo gallery.
+     */
+    public static Cafe cafe(String shape) {
+        Cafe.CafeBuilder cafe = Cafe.builder()
+                .id(new ObjectId("665f1c2e9b1e8a3d4c5b6a70"))
+                .name("Nylon Coffee Roasters")
+                .location(new GeoJsonPoint(103.8396012, 1.2762641))
+                .address("4 Everton Park, #01-40, Singapore 080004")
+                .averageRating(4.6)
+                .totalReviews(1487)
+                .externalReferences(Cafe.ExternalReferences.builder()
+                        .googlePlace("ChIJR3xI7hAZ2jERkq6d0Wm2xAs")
+                        .build())
+                .version(7L)
+                .updatedAt(Instant.parse("2025-08-10T09:12:01Z"))
+                .changeSeq(10_421L);
+        if ("minimal".equals(shape)) {
+            return cafe.build();
+        }
+        int imageCount = "full".equals(shape) ? 40 : 4;
+        List<ImageDTO> images = new ArrayList<>(imageCount);
+        for (int i = 0; i < imageCount; i++) {
+            images.add(ImageDTO.builder()
+                    .url("https://cdn.coffeemode.app/cafes/665f1c2e9b1e8a3d4c5b6a70/" + i + "-1600w.jpg")
+                    .caption(i % 3 == 0 ? "Espresso bar from the counter, morning light" : null)
+                    .build());
+        }
+        Map<String, String> hours = new LinkedHashMap<>();
+        for (String day : List.of("monday", "tuesday", "wednesday", "thursday", "friday", "saturday", "sunday")) {
+            hours.put(day, day.startsWith("s") ? "08:30-17:00" : "07:30-17:00");
+        }
+        return cafe
+                .features(Cafe.Features.builder()
+                        .wifiAvailable(true)
+                        .outletsAvailable(false)
+                        .quietnessLevel(QuietnessLevel.MODERATE)
+                        .temperature(Temperature.JUST_RIGHT)
+                        .unlimitedDuration(false)
+                        .limitDuration(Duration.ofMinutes(90))
+                        .googleRating(4.6)
+                        .build())
+                .images(images)
+                .website("http://www.nyloncoffee.sg/")
+                .openingHours(hours)
+                .externalReferences(Cafe.ExternalReferences.builder()
+                        .googlePlace("ChIJR3xI7hAZ2jERkq6d0Wm2xAs")
+                        .redbookId("5f3c9a0e000000000101f7a2")
+                        .build())
+                .build();
+    }
+}
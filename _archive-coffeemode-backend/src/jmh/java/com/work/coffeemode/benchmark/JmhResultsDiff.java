@@ -0,0 +1,108 @@
+package com.work.coffeemode.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares two JMH JSON result files benchmark by benchmark: score and allocated bytes per
+ * operation ({@code gc.alloc.rate.norm}). A change beyond the threshold that is also larger than
+ * the combined score error is marked; the exit code is 1 if any benchmark got worse.
+ * <pre>
+ * JmhResultsDiff baseline.json candidate.json [threshold-percent, default 10]
+ * </pre>
+ * Scores are assumed to be time per operation (lower is better), as in every benchmark here.
+ */
+public final class JmhResultsDiff {
+
+    private static final String ALLOC = "gc.alloc.rate.norm";
+
+    private JmhResultsDiff() {
+    }
+
+    record Result(double score, double error, String unit, Double allocBytes) {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: JmhResultsDiff <baseline.json> <candidate.json> [threshold-percent]");
+            System.exit(2);
+        }
+        Map<String, Result> baseline = read(new File(args[0]));
+        Map<String, Result> candidate = read(new File(args[1]));
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) / 100 : 0.10;
+
+        boolean regressed = false;
+        System.out.printf("%-70s %12s %12s %8s %22s%n", "benchmark", "baseline", "candidate", "change", "alloc B/op");
+        for (Map.Entry<String, Result> entry : candidate.entrySet()) {
+            Result before = baseline.get(entry.getKey());
+            Result after = entry.getValue();
+            if (before == null) {
+                System.out.printf("%-70s %12s %12.3f %8s%n", entry.getKey(), "-", after.score(), "new");
+                continue;
+            }
+            double change = (after.score() - before.score()) / before.score();
+            boolean significant = Math.abs(after.score() - before.score()) > before.error() + after.error();
+            String mark = !significant || Math.abs(change) < threshold ? "" : change > 0 ? "  WORSE" : "  better";
+            boolean allocWorse = before.allocBytes() != null && after.allocBytes() != null
+                    && after.allocBytes() > before.allocBytes() * (1 + threshold);
+            if (allocWorse && mark.isEmpty()) {
+                mark = "  MORE ALLOC";
+            }
+            regressed |= mark.startsWith("  WORSE") || allocWorse;
+            System.out.printf(Locale.ROOT, "%-70s %12.3f %12.3f %+7.1f%% %22s%s%n", entry.getKey(), before.score(),
+                    after.score(), change * 100, alloc(before, after), mark);
+        }
+        baseline.keySet().stream()
+                .filter(name -> !candidate.containsKey(name))
+                .forEach(name -> System.out.printf("%-70s %12s%n", name, "removed"));
+        System.exit(regressed ? 1 : 0);
+    }
+
+    private static String alloc(Result before, Result after) {
+        if (before.allocBytes() == null || after.allocBytes() == null) {
+            return "-";
+        }
+        return String.format(Locale.ROOT, "%.0f -> %.0f", before.allocBytes(), after.allocBytes());
+    }
+
+    // JMH prefixes profiler metrics with a separator character that varies between versions
+    private static JsonNode secondary(JsonNode metrics, String suffix) {
+        Iterator<Map.Entry<String, JsonNode>> fields = metrics.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            if (field.getKey().endsWith(suffix)) {
+                return field.getValue();
+            }
+        }
+        return metrics.path(suffix);
+    }
+
+    private static Map<String, Result> read(File file) throws IOException {
+        Map<String, Result> results = new TreeMap<>();
+        for (JsonNode run : new ObjectMapper().readTree(file)) {
+            StringBuilder name = new StringBuilder(run.path("benchmark").asText()
+                    .replace("com.work.coffeemode.", ""));
+            Iterator<Map.Entry<String, JsonNode>> params = run.path("params").fields();
+            while (params.hasNext()) {
+                Map.Entry<String, JsonNode> param = params.next();
+                name.append(' ').append(param.getKey()).append('=').append(param.getValue().asText());
+            }
+            JsonNode primary = run.path("primaryMetric");
+            JsonNode alloc = secondary(run.path("secondaryMetrics"), ALLOC);
+            double error = primary.path("scoreError").asDouble(0);
+            results.put(name.toString(), new Result(
+                    primary.path("score").asDouble(),
+                    Double.isNaN(error) ? 0 : error,
+                    primary.path("scoreUnit").asText(),
+                    alloc.isMissingNode() ? null : alloc.path("score").asDouble()));
+        }
+        return results;
+    }
+}
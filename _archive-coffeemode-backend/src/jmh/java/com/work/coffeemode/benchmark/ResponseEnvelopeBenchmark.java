@@ -0,0 +1,145 @@
+package com.work.coffeemode.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.work.coffeemode.aop.UnifiedResponseAspect;
+import com.work.coffeemode.aop.UnifiedResponseBodyAdvice;
+import com.work.coffeemode.controller.BenchmarkCafeController;
+import com.work.coffeemode.exception.CafeNotFoundException;
+import com.work.coffeemode.exception.GlobalExceptionHandler;
+import com.work.coffeemode.model.Cafe;
+import com.work.coffeemode.service.CafeService;
+import io.micrometer.observation.ObservationRegistry;
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * Full MockMvc round trip of a cafe lookup through both envelope mechanisms, for a found cafe and
+ * for a not-found lookup (the exception path).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ResponseEnvelopeBenchmark {
+
+    @Param({ "aspect", "advice" })
+    public String envelope;
+
+    private MockMvc mockMvc;
+
+    @Setup
+    public void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        BenchmarkCafeController controller = new BenchmarkCafeController(new FixedCafeService());
+
+        if ("aspect".equals(envelope)) {
+            AspectJProxyFactory proxyFactory = new AspectJProxyFactory(controller);
+            proxyFactory.setProxyTargetClass(true);
+            proxyFactory.addAspect(new UnifiedResponseAspect());
+            mockMvc = MockMvcBuilders.standaloneSetup((Object) proxyFactory.getProxy())
+                    .setMessageConverters(new MappingJackson2HttpMessageConverter(objectMapper))
+                    .build();
+        } else {
+            mockMvc = MockMvcBuilders.standaloneSetup(controller)
+                    .setControllerAdvice(new UnifiedResponseBodyAdvice(objectMapper, ObservationRegistry.NOOP),
+                            new GlobalExceptionHandler())
+                    .setMessageConverters(new MappingJackson2HttpMessageConverter(objectMapper))
+                    .build();
+        }
+    }
+
+    @Benchmark
+    public MvcResult found() throws Exception {
+        return mockMvc.perform(get("/bench/cafes/{id}", FixedCafeService.KNOWN_ID)).andReturn();
+    }
+
+    @Benchmark
+    public MvcResult notFound() throws Exception {
+        return mockMvc.perform(get("/bench/cafes/{id}", "missing")).andReturn();
+    }
+
+    /**
+     * One fixed cafe; every other id is not found. Writes succeed without storing anything, so any
+     * endpoint a benchmark adds gets a real response instead of an exception.
+     */
+    static final class FixedCafeService implements CafeService {
+
+        static final String KNOWN_ID = "665f1c2e9b1e8a3d4c5b6a70";
+
+        private final Cafe cafe = Cafe.builder()
+                .id(new ObjectId(KNOWN_ID))
+                .name("Benchmark Roasters")
+                .address("1 Bench St")
+                .location(new GeoJsonPoint(103.85, 1.29))
+                .averageRating(4.5)
+                .totalReviews(12)
+                .version(3L)
+                .build();
+
+        @Override
+        public Cafe getCafeById(String id) {
+            if (KNOWN_ID.equals(id)) {
+                return cafe;
+            }
+            throw new CafeNotFoundException();
+        }
+
+        @Override
+        public long getCafeVersion(String id) {
+            return getCafeById(id).getVersion();
+        }
+
+        @Override
+        public String getCafesListVersion() {
+            return "1-0";
+        }
+
+        @Override
+        public Cafe createCafe(Cafe cafe) {
+            return cafe;
+        }
+
+        @Override
+        public Creation createCafeIfAbsent(Cafe cafe) {
+            return new Creation(cafe, true);
+        }
+
+        @Override
+        public List<Cafe> findNearbyCafes(double longitude, double latitude, double radiusInKm) {
+            return List.of(cafe);
+        }
+
+        @Override
+        public List<Cafe> getAllCafes() {
+            return List.of(cafe);
+        }
+
+        @Override
+        public Cafe updateCafe(String id, Cafe cafe) {
+            getCafeById(id);
+            return cafe;
+        }
+
+        @Override
+        public void deleteCafe(String id) {
+            getCafeById(id);
+        }
+    }
+}
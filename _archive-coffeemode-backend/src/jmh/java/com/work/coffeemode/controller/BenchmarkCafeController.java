@@ -0,0 +1,29 @@
+package com.work.coffeemode.controller;
+
+import com.work.coffeemode.service.CafeService;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Mirror of {@code CafeController#getCafeById} for envelope benchmarks. It has to live in the
+ * controller package to match the aspect's pointcut, and returns {@code Object} because the
+ * aspect replaces the return value with a {@code ResponseEntity}, which a CGLIB proxy can only
+ * hand back from methods whose declared type can hold it.
+ */
+@RestController
+@RequestMapping("/bench/cafes")
+public class BenchmarkCafeController {
+
+    private final CafeService cafeService;
+
+    public BenchmarkCafeController(CafeService cafeService) {
+        this.cafeService = cafeService;
+    }
+
+    @GetMapping("/{id}")
+    public Object getCafeById(@PathVariable String id) {
+        return cafeService.getCafeById(id);
+    }
+}
@@ -0,0 +1,72 @@
+package com.work.coffeemode.service;
+
+import com.google.maps.places.v1.Place;
+import com.work.coffeemode.benchmark.Fixtures;
+import com.work.coffeemode.client.GooglePlacesClient;
+import com.work.coffeemode.model.CompressedPlaceDetails;
+import com.work.coffeemode.model.GooglePlacePOI;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The CPU-bound part of a resolve once the Places calls have returned: query building, the
+ * {@code Place} to JSON map conversion, POI mapping and details compression. Lives in the
+ * service package because {@link GooglePlacesService#mapDetailsToPoi} and
+ * {@link GooglePlacesService#buildQuery} are package-private.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PlaceDetailsBenchmark {
+
+    @Param({ "minimal", "typical", "full" })
+    public String shape;
+
+    private Place place;
+    private Map<String, Object> detailsMap;
+
+    @Setup
+    public void setUp() {
+        place = Fixtures.place(shape);
+        detailsMap = GooglePlacesClient.toDetailsMap(place);
+    }
+
+    @Benchmark
+    public String buildQuery() {
+        return GooglePlacesService.buildQuery("  Nylon Coffee Roasters ", "Everton Park, Singapore ");
+    }
+
+    @Benchmark
+    public Map<String, Object> toDetailsMap() {
+        return GooglePlacesClient.toDetailsMap(place);
+    }
+
+    @Benchmark
+    public GooglePlacePOI mapDetailsToPoi() {
+        return GooglePlacesService.mapDetailsToPoi(detailsMap, place.getId());
+    }
+
+    @Benchmark
+    public CompressedPlaceDetails compress() {
+        return CompressedPlaceDetails.of(place);
+    }
+
+    /**
+     * Everything {@code resolvePlaceFromMetadata} does with a fresh details response.
+     */
+    @Benchmark
+    public GooglePlacePOI detailsToPoi() {
+        GooglePlacePOI poi = GooglePlacesService.mapDetailsToPoi(GooglePlacesClient.toDetailsMap(place), place.getId());
+        poi.setRawDetails(CompressedPlaceDetails.of(place));
+        return poi;
+    }
+}
@@ -0,0 +1,121 @@
+package com.work.coffeemode.loadtest;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.model.Projections;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Writes synthetic cafes straight into MongoDB in the stored encoding (feature codes, GeoJSON
+ * points), spread over the city with {@link SyntheticCity}. {@code changeSeq} is left out on
+ * purpose: the application's tracking backfill numbers the cafes after it starts, as it would
+ * for legacy data.
+ */
+final class CafeSeeder {
+
+    private static final int BATCH_SIZE = 1000;
+    private static final String[] DAYS = {
+            "monday", "tuesday", "wednesday", "thursday", "friday", "saturday", "sunday" };
+
+    private CafeSeeder() {
+    }
+
+    /**
+     * Drops {@code database} and fills it with {@code count} cafes. Refuses databases whose name
+     * does not contain {@code loadtest}, so a mistyped argument cannot wipe real data.
+     */
+    static List<Workload.CafeRef> seed(String uri, String database, int count, long seed) {
+        if (!database.contains("loadtest")) {
+            throw new IllegalArgumentException("Refusing to drop database '" + database
+                    + "'; seeding only runs against databases named *loadtest*");
+        }
+        Random random = new Random(seed);
+        List<Workload.CafeRef> cafes = new ArrayList<>(count);
+        try (MongoClient client = MongoClients.create(uri)) {
+            MongoDatabase db = client.getDatabase(database);
+            db.drop();
+            MongoCollection<Document> collection = db.getCollection("cafes");
+            List<Document> batch = new ArrayList<>(BATCH_SIZE);
+            for (int i = 0; i < count; i++) {
+                Document cafe = cafe(random, i);
+                batch.add(cafe);
+                @SuppressWarnings("unchecked")
+                List<Double> coordinates = (List<Double>) cafe.get("location", Document.class).get("coordinates");
+                cafes.add(new Workload.CafeRef(cafe.getObjectId("_id").toHexString(), cafe.getString("name"),
+                        cafe.getString("address"), coordinates.get(0), coordinates.get(1)));
+                if (batch.size() == BATCH_SIZE) {
+                    collection.insertMany(batch, new InsertManyOptions().ordered(false));
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                collection.insertMany(batch, new InsertManyOptions().ordered(false));
+            }
+        }
+        return cafes;
+    }
+
+    /**
+     * The cafes already in {@code database}, for runs that reuse earlier seed data.
+     */
+    static List<Workload.CafeRef> load(String uri, String database) {
+        List<Workload.CafeRef> cafes = new ArrayList<>();
+        try (MongoClient client = MongoClients.create(uri)) {
+            client.getDatabase(database).getCollection("cafes")
+                    .find()
+                    .projection(Projections.include("name", "address", "location"))
+                    .forEach(cafe -> {
+                        List<?> coordinates = cafe.get("location", Document.class).getList("coordinates", Object.class);
+                        cafes.add(new Workload.CafeRef(cafe.getObjectId("_id").toHexString(), cafe.getString("name"),
+                                cafe.getString("address"), ((Number) coordinates.get(0)).doubleValue(),
+                                ((Number) coordinates.get(1)).doubleValue()));
+                    });
+        }
+        return cafes;
+    }
+
+    private static Document cafe(Random random, int n) {
+        double[] point = SyntheticCity.point(random);
+        Document cafe = new Document("_id", new ObjectId())
+                .append("name", SyntheticCity.cafeName(random, n))
+                .append("location", new Document("type", "Point").append("coordinates", List.of(point[0], point[1])))
+                .append("address", SyntheticCity.address(random))
+                .append("averageRating", Math.round((3.0 + random.nextDouble() * 2.0) * 10) / 10.0)
+                .append("totalReviews", random.nextInt(2000))
+                .append("version", 0L)
+                .append("updatedAt", new Date())
+                .append("_class", "com.work.coffeemode.model.Cafe");
+        // Curated cafes carry features, photos and hours; the rest are bare resolve results
+        if (random.nextInt(10) < 6) {
+            cafe.append("features", new Document("wifiAvailable", random.nextBoolean())
+                    .append("outletsAvailable", random.nextBoolean())
+                    .append("quietnessLevel", 1 + random.nextInt(3))
+                    .append("temperature", 1 + random.nextInt(3)));
+            List<Document> images = new ArrayList<>();
+            for (int i = random.nextInt(8); i > 0; i--) {
+                images.add(new Document("url", "https://cdn.coffeemode.app/cafes/" + cafe.getObjectId("_id")
+                        + "/" + i + ".jpg").append("caption", random.nextBoolean() ? "Counter view" : null));
+            }
+            cafe.append("images", images);
+            Map<String, String> hours = new LinkedHashMap<>();
+            int opens = 7 + random.nextInt(3);
+            for (String day : DAYS) {
+                hours.put(day, String.format("%02d:00-%02d:00", opens, 17 + random.nextInt(5)));
+            }
+            cafe.append("openingHours", hours);
+            cafe.append("website", "https://example.com/" + cafe.getObjectId("_id"));
+        }
+        return cafe;
+    }
+}
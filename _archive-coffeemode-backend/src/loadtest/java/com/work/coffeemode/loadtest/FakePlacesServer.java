@@ -0,0 +1,205 @@
+package com.work.coffeemode.loadtest;
+
+import com.google.maps.places.v1.GetPlaceRequest;
+import com.google.maps.places.v1.Place;
+import com.google.maps.places.v1.SearchTextRequest;
+import com.google.maps.places.v1.SearchTextResponse;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.util.JsonFormat;
+import io.grpc.Grpc;
+import io.grpc.InsecureServerCredentials;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Server;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.ServerInterceptors;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.Status;
+import io.grpc.protobuf.ProtoUtils;
+import io.grpc.stub.ServerCalls;
+import io.grpc.stub.StreamObserver;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * In-process stand-in for the Places API (New) gRPC service, serving {@code SearchText} and
+ * {@code GetPlace} over plaintext with configurable latency and error rate.
+ * <p>
+ * Like the real service it rejects calls without {@code x-goog-fieldmask} metadata. A text search
+ * always finds one place whose id is derived from the query, so the same title resolves to the
+ * same place; details are a typical cafe payload with that id and a location from
+ * {@link SyntheticCity}.
+ */
+final class FakePlacesServer implements AutoCloseable {
+
+    private static final String SERVICE = "google.maps.places.v1.Places";
+    private static final Metadata.Key<String> FIELD_MASK =
+            Metadata.Key.of("x-goog-fieldmask", Metadata.ASCII_STRING_MARSHALLER);
+
+    record Settings(Duration latency, Duration jitter, double errorRate) {
+    }
+
+    private final Settings settings;
+    private final String detailsTemplate;
+    // Display names by place id, so details match what was searched for
+    private final Map<String, String> queries = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("fake-places-latency").daemon().factory());
+    private final AtomicLong searches = new AtomicLong();
+    private final AtomicLong details = new AtomicLong();
+    private final AtomicLong injectedErrors = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final Server server;
+
+    private FakePlacesServer(int port, Settings settings) throws IOException {
+        this.settings = settings;
+        this.detailsTemplate = resource("/fake-places/place-details.json");
+        ServerServiceDefinition service = ServerServiceDefinition.builder(SERVICE)
+                .addMethod(method("SearchText", SearchTextRequest.getDefaultInstance(),
+                                SearchTextResponse.getDefaultInstance()),
+                        ServerCalls.asyncUnaryCall((SearchTextRequest request, StreamObserver<SearchTextResponse> out) ->
+                                respond(out, () -> searchText(request))))
+                .addMethod(method("GetPlace", GetPlaceRequest.getDefaultInstance(), Place.getDefaultInstance()),
+                        ServerCalls.asyncUnaryCall((GetPlaceRequest request, StreamObserver<Place> out) ->
+                                respond(out, () -> getPlace(request))))
+                .build();
+        this.server = Grpc.newServerBuilderForPort(port, InsecureServerCredentials.create())
+                .addService(ServerInterceptors.intercept(service, new RequireFieldMask()))
+                .build()
+                .start();
+    }
+
+    static FakePlacesServer start(int port, Settings settings) throws IOException {
+        return new FakePlacesServer(port, settings);
+    }
+
+    int port() {
+        return server.getPort();
+    }
+
+    String stats() {
+        return String.format(Locale.ROOT, "searchText %d, getPlace %d, injected errors %d, rejected (no field mask) %d",
+                searches.get(), details.get(), injectedErrors.get(), rejected.get());
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        server.shutdownNow();
+        scheduler.shutdownNow();
+        server.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    private SearchTextResponse searchText(SearchTextRequest request) {
+        searches.incrementAndGet();
+        String query = request.getTextQuery().trim();
+        String id = "fake" + UUID.nameUUIDFromBytes(query.toLowerCase(Locale.ROOT).getBytes(StandardCharsets.UTF_8))
+                .toString().replace("-", "");
+        queries.putIfAbsent(id, query);
+        return SearchTextResponse.newBuilder()
+                .addPlaces(Place.newBuilder().setId(id).build())
+                .build();
+    }
+
+    private Place getPlace(GetPlaceRequest request) {
+        details.incrementAndGet();
+        String id = request.getName().substring(request.getName().lastIndexOf('/') + 1);
+        Random random = new Random(id.hashCode());
+        double[] point = SyntheticCity.point(random);
+        String json = detailsTemplate
+                .replace("{{ID}}", id)
+                .replace("{{NAME}}", jsonEscape(queries.getOrDefault(id, "Fake Cafe " + id)))
+                .replace("{{ADDRESS}}", jsonEscape(SyntheticCity.address(random)))
+                .replace("{{LAT}}", String.format(Locale.ROOT, "%.7f", point[1]))
+                .replace("{{LNG}}", String.format(Locale.ROOT, "%.7f", point[0]))
+                .replace("{{CID}}", Long.toUnsignedString(random.nextLong()));
+        try {
+            Place.Builder place = Place.newBuilder();
+            JsonFormat.parser().ignoringUnknownFields().merge(json, place);
+            return place.build();
+        } catch (InvalidProtocolBufferException e) {
+            throw new IllegalStateException("Fake place details template is not a Place", e);
+        }
+    }
+
+    /**
+     * Answers after the configured latency (plus uniform jitter) without holding a thread, or
+     * fails with {@code UNAVAILABLE} at the configured rate.
+     */
+    private <T> void respond(StreamObserver<T> out, Supplier<T> response) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long delayMillis = settings.latency().toMillis()
+                + (settings.jitter().isZero() ? 0 : random.nextLong(settings.jitter().toMillis() + 1));
+        boolean fail = random.nextDouble() < settings.errorRate();
+        scheduler.schedule(() -> {
+            if (fail) {
+                injectedErrors.incrementAndGet();
+                out.onError(Status.UNAVAILABLE.withDescription("Injected by FakePlacesServer").asRuntimeException());
+                return;
+            }
+            try {
+                out.onNext(response.get());
+                out.onCompleted();
+            } catch (RuntimeException e) {
+                out.onError(Status.INTERNAL.withDescription(e.getMessage()).asRuntimeException());
+            }
+        }, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private final class RequireFieldMask implements ServerInterceptor {
+        @Override
+        public <Q, R> ServerCall.Listener<Q> interceptCall(ServerCall<Q, R> call, Metadata headers,
+                ServerCallHandler<Q, R> next) {
+            String mask = headers.get(FIELD_MASK);
+            if (mask == null || mask.isBlank()) {
+                rejected.incrementAndGet();
+                call.close(Status.INVALID_ARGUMENT.withDescription("FieldMask is a required parameter."),
+                        new Metadata());
+                return new ServerCall.Listener<>() {
+                };
+            }
+            return next.startCall(call, headers);
+        }
+    }
+
+    private static <Q extends com.google.protobuf.Message, R extends com.google.protobuf.Message>
+            MethodDescriptor<Q, R> method(String name, Q request, R response) {
+        return MethodDescriptor.<Q, R>newBuilder()
+                .setType(MethodDescriptor.MethodType.UNARY)
+                .setFullMethodName(MethodDescriptor.generateFullMethodName(SERVICE, name))
+                .setRequestMarshaller(ProtoUtils.marshaller(request))
+                .setResponseMarshaller(ProtoUtils.marshaller(response))
+                .build();
+    }
+
+    private static String resource(String path) {
+        try (InputStream in = FakePlacesServer.class.getResourceAsStream(path)) {
+            if (in == null) {
+                throw new IllegalStateException("Missing resource " + path);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String jsonEscape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+}
@@ -0,0 +1,507 @@
+package com.work.coffeemode.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Closed-loop HTTP load driver for comparing the servlet stack on platform and virtual threads,
+ * and against the {@code reactive} profile. {@link LoadHarness} runs it against a self-contained
+ * local setup; used directly, it drives any running instance.
+ * <p>
+ * Each simulated user is a virtual thread that sends a request, waits for the answer, optionally
+ * thinks, and repeats, so the driver itself can hold thousands of requests in flight. Run it once
+ * against an instance started with {@code VIRTUAL_THREADS_ENABLED=false} and once with
+ * {@code true}, same data and arguments, and compare throughput, tail latency and the server's
+ * thread and heap figures printed at the end. For the reactive stack, start the instance with
+ * {@code SPRING_PROFILES_ACTIVE=reactive} instead ({@code nearby}, {@code pan} and {@code list}
+ * only; it does not serve the resolve endpoint).
+ * <p>
+ * The instance should run with {@code RATE_LIMIT_ENABLED=false} (every user shares one IP) and
+ * {@code MANAGEMENT_ENDPOINTS_WEB_EXPOSURE_INCLUDE=health,metrics} for the server figures, which
+ * are read with the instance's actuator login. Arguments, all optional:
+ * <pre>
+ * --base-url=http://localhost:8080  --scenario=nearby|list|resolve|pan|resolve-burst|edit|mixed
+ * --users=1000  --duration=60s  --warmup=10s  --think=0ms  --timeout=30s  --label=virtual
+ * --token-prefix=  (sends "Authorization: Bearer &lt;prefix&gt;&lt;user&gt;" when set)
+ * --actuator-login=admin:admin  (ADMIN_USERNAME:ADMIN_PASSWORD of the instance)
+ * </pre>
+ */
+public final class LoadDriver {
+
+    private static final Pattern METRIC_VALUE = Pattern.compile("\"value\"\\s*:\\s*([0-9.Ee+-]+)");
+
+    private static final String[] RESOLVE_TITLES = {
+            "Common Man Coffee Roasters", "Chye Seng Huat Hardware", "Nylon Coffee Roasters",
+            "Apartment Coffee", "Tiong Hoe Specialty Coffee", "Homeground Coffee Roasters",
+            "Alchemist Beans", "Glasshouse", "Atlas Coffeehouse", "PPP Coffee"
+    };
+
+    /**
+     * One request of a scenario. {@code label} groups latencies in the report; {@code pauseAfter}
+     * is extra idle time on top of {@code --think}.
+     */
+    record Call(String label, HttpRequest.Builder request, Duration pauseAfter) {
+
+        Call(String label, HttpRequest.Builder request) {
+            this(label, request, Duration.ZERO);
+        }
+    }
+
+    /**
+     * Scenario state of one simulated user: where its map is, which cafe it is editing. Confined
+     * to that user's thread.
+     */
+    static final class UserState {
+        final int index;
+        long step;
+        double[] center;
+        double radiusKm;
+        Workload.CafeRef editing;
+
+        UserState(int index) {
+            this.index = index;
+        }
+    }
+
+    enum Scenario {
+        // GET with a JSON body, matching the controller contract
+        NEARBY {
+            @Override
+            Call next(Workload workload, UserState user) {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                return nearby(workload.baseUrl(), 103.80 + random.nextDouble(0.10), 1.27 + random.nextDouble(0.10),
+                        0.5 + random.nextInt(4) * 0.5);
+            }
+        },
+        // Whole collection, streamed by the reactive profile and buffered by the servlet one
+        LIST {
+            @Override
+            Call next(Workload workload, UserState user) {
+                return new Call("list", HttpRequest.newBuilder(URI.create(workload.baseUrl() + "/api/cafes")).GET());
+            }
+        },
+        RESOLVE {
+            @Override
+            Call next(Workload workload, UserState user) {
+                return resolve(workload.baseUrl(),
+                        RESOLVE_TITLES[ThreadLocalRandom.current().nextInt(RESOLVE_TITLES.length)]);
+            }
+        },
+        // Map panning: each user drags its viewport a few hundred metres at a time around a
+        // hotspot, zooms now and then, and occasionally jumps to another part of town
+        PAN {
+            @Override
+            Call next(Workload workload, UserState user) {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                if (user.center == null || random.nextInt(50) == 0) {
+                    SyntheticCity.Hotspot hotspot = SyntheticCity.hotspot(random);
+                    user.center = SyntheticCity.near(random, hotspot.lat(), hotspot.lng(), hotspot.sigmaKm());
+                    user.radiusKm = 1.0;
+                } else {
+                    user.center = SyntheticCity.pan(random, user.center, user.radiusKm * random.nextDouble(0.2, 0.6));
+                    if (random.nextInt(10) == 0) {
+                        user.radiusKm = new double[] { 0.5, 1.0, 2.0 }[random.nextInt(3)];
+                    }
+                }
+                return nearby(workload.baseUrl(), user.center[0], user.center[1], user.radiusKm);
+            }
+        },
+        // Link resolve bursts: a user pastes five links back to back, then pauses. Most titles
+        // name seeded cafes, which repeat and soon hit the POI cache; the rest are new places
+        // that always need a details call.
+        RESOLVE_BURST {
+            @Override
+            Call next(Workload workload, UserState user) {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                String title = workload.cafes().isEmpty() || random.nextInt(10) < 3
+                        ? SyntheticCity.cafeName(random, random.nextInt(1_000_000)) + " " + random.nextInt(1000)
+                        : pick(workload).name();
+                Call call = resolve(workload.baseUrl(), title);
+                return ++user.step % 5 == 0
+                        ? new Call(call.label(), call.request(), Duration.ofMillis(random.nextLong(1000, 3000)))
+                        : call;
+            }
+
+            @Override
+            boolean needsCafes() {
+                return true;
+            }
+        },
+        // Read-modify-write of a cafe: GET the detail, then PUT it back with a change
+        EDIT {
+            @Override
+            Call next(Workload workload, UserState user) {
+                if (user.step++ % 2 == 0) {
+                    user.editing = pick(workload);
+                    return detail(workload.baseUrl(), user.editing);
+                }
+                return update(workload.baseUrl(), user.editing);
+            }
+
+            @Override
+            boolean needsCafes() {
+                return true;
+            }
+        },
+        // A typical traffic mix: 80% map panning, 15% cafe details, 4% edits, 1% resolves
+        MIXED {
+            @Override
+            Call next(Workload workload, UserState user) {
+                int pick = ThreadLocalRandom.current().nextInt(100);
+                if (pick < 80) {
+                    return PAN.next(workload, user);
+                }
+                if (pick < 95) {
+                    return detail(workload.baseUrl(), pick(workload));
+                }
+                if (pick < 99) {
+                    return update(workload.baseUrl(), pick(workload));
+                }
+                return resolve(workload.baseUrl(), pick(workload).name());
+            }
+
+            @Override
+            boolean needsCafes() {
+                return true;
+            }
+        };
+
+        abstract Call next(Workload workload, UserState user);
+
+        boolean needsCafes() {
+            return false;
+        }
+
+        static Scenario parse(String name) {
+            return valueOf(name.replace('-', '_').toUpperCase(Locale.ROOT));
+        }
+
+        String label() {
+            return name().replace('_', '-').toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private static Workload.CafeRef pick(Workload workload) {
+        return workload.cafes().get(ThreadLocalRandom.current().nextInt(workload.cafes().size()));
+    }
+
+    private static Call nearby(String baseUrl, double longitude, double latitude, double radiusInKm) {
+        String body = String.format(Locale.ROOT, "{\"longitude\":%.5f,\"latitude\":%.5f,\"radiusInKm\":%.1f}",
+                longitude, latitude, radiusInKm);
+        return new Call("nearby", HttpRequest.newBuilder(URI.create(baseUrl + "/api/cafes/nearby"))
+                .method("GET", HttpRequest.BodyPublishers.ofString(body)));
+    }
+
+    private static Call resolve(String baseUrl, String title) {
+        String body = "{\"title\":\"" + title + "\",\"description\":\"Singapore\",\"url\":null}";
+        return new Call("resolve", HttpRequest.newBuilder(URI.create(baseUrl + "/api/google-maps/resolve"))
+                .POST(HttpRequest.BodyPublishers.ofString(body)));
+    }
+
+    private static Call detail(String baseUrl, Workload.CafeRef cafe) {
+        return new Call("detail", HttpRequest.newBuilder(URI.create(baseUrl + "/api/cafes/" + cafe.id())).GET());
+    }
+
+    private static Call update(String baseUrl, Workload.CafeRef cafe) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String body = String.format(Locale.ROOT,
+                "{\"name\":\"%s\",\"location\":{\"type\":\"Point\",\"coordinates\":[%.7f,%.7f]},\"address\":\"%s\","
+                        + "\"features\":{\"wifiAvailable\":%b,\"outletsAvailable\":%b,\"quietnessLevel\":\"%s\"},"
+                        + "\"openingHours\":{\"monday\":\"08:00-%d:00\",\"saturday\":\"09:00-18:00\"}}",
+                cafe.name(), cafe.lng(), cafe.lat(), cafe.address(), random.nextBoolean(), random.nextBoolean(),
+                new String[] { "quiet", "moderate", "noisy" }[random.nextInt(3)], 17 + random.nextInt(6));
+        return new Call("edit", HttpRequest.newBuilder(URI.create(baseUrl + "/api/cafes/" + cafe.id()))
+                .PUT(HttpRequest.BodyPublishers.ofString(body)));
+    }
+
+    record Options(String baseUrl, Scenario scenario, int users, Duration duration, Duration warmup,
+            Duration think, Duration timeout, String label, String tokenPrefix, String actuatorLogin) {
+
+        static Options parse(String[] args) {
+            Map<String, String> values = new HashMap<>();
+            for (String arg : args) {
+                if (arg.isBlank()) {
+                    continue;
+                }
+                if (!arg.startsWith("--") || !arg.contains("=")) {
+                    throw new IllegalArgumentException("Expected --name=value, got " + arg);
+                }
+                int eq = arg.indexOf('=');
+                values.put(arg.substring(2, eq), arg.substring(eq + 1));
+            }
+            Scenario scenario = Scenario.parse(values.getOrDefault("scenario", "nearby"));
+            return new Options(
+                    values.getOrDefault("base-url", "http://localhost:8080"),
+                    scenario,
+                    Integer.parseInt(values.getOrDefault("users", "1000")),
+                    duration(values.getOrDefault("duration", "60s")),
+                    duration(values.getOrDefault("warmup", "10s")),
+                    duration(values.getOrDefault("think", "0ms")),
+                    duration(values.getOrDefault("timeout", "30s")),
+                    values.getOrDefault("label", scenario.label()),
+                    values.getOrDefault("token-prefix", ""),
+                    values.getOrDefault("actuator-login", "admin:admin"));
+        }
+
+        Options withScenario(Scenario scenario) {
+            return new Options(baseUrl, scenario, users, duration, warmup, think, timeout, scenario.label(),
+                    tokenPrefix, actuatorLogin);
+        }
+
+        // Authorization header value for the actuator endpoints
+        String actuatorAuthorization() {
+            return "Basic " + Base64.getEncoder().encodeToString(actuatorLogin.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static Duration duration(String value) {
+            if (value.endsWith("ms")) {
+                return Duration.ofMillis(Long.parseLong(value.substring(0, value.length() - 2)));
+            }
+            if (value.endsWith("s")) {
+                return Duration.ofSeconds(Long.parseLong(value.substring(0, value.length() - 1)));
+            }
+            if (value.endsWith("m")) {
+                return Duration.ofMinutes(Long.parseLong(value.substring(0, value.length() - 1)));
+            }
+            return Duration.ofSeconds(Long.parseLong(value));
+        }
+    }
+
+    /**
+     * Latencies of one request label. Confined to one user's thread until the run ends, so no
+     * locking on the hot path.
+     */
+    static final class Latencies {
+        long[] nanos = new long[1024];
+        int count;
+
+        void record(long value) {
+            if (count == nanos.length) {
+                nanos = Arrays.copyOf(nanos, count * 2);
+            }
+            nanos[count++] = value;
+        }
+    }
+
+    /**
+     * Results of one simulated user, by request label.
+     */
+    static final class UserStats {
+        final Map<String, Latencies> latencies = new HashMap<>();
+        final Map<String, Integer> failures = new HashMap<>();
+
+        void record(String label, long nanos) {
+            latencies.computeIfAbsent(label, l -> new Latencies()).record(nanos);
+        }
+
+        void fail(String label, String reason) {
+            failures.merge(label + ": " + reason, 1, Integer::sum);
+        }
+    }
+
+    /**
+     * Headline figures of one run, for comparison tables.
+     */
+    record Summary(String label, String scenario, int users, long ok, long failed, double throughput,
+            double p50Millis, double p99Millis) {
+    }
+
+    private LoadDriver() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        try (ExecutorService clientExecutor = Executors.newVirtualThreadPerTaskExecutor()) {
+            HttpClient client = newClient(clientExecutor);
+            Workload workload = options.scenario().needsCafes()
+                    ? Workload.fetch(client, options.baseUrl())
+                    : new Workload(options.baseUrl(), List.of());
+            if (options.scenario().needsCafes() && workload.cafes().isEmpty()) {
+                throw new IllegalStateException("Scenario " + options.scenario().label() + " needs existing cafes");
+            }
+            run(client, options, workload);
+        }
+    }
+
+    static HttpClient newClient(ExecutorService executor) {
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .executor(executor)
+                .build();
+    }
+
+    static Summary run(HttpClient client, Options options, Workload workload) throws InterruptedException {
+        System.out.printf("%s: %d users, %s warmup, %s measured against %s%n", options.label(),
+                options.users(), options.warmup(), options.duration(), options.baseUrl());
+        long start = System.nanoTime();
+        long measureFrom = start + options.warmup().toNanos();
+        long deadline = measureFrom + options.duration().toNanos();
+
+        List<UserStats> stats = new ArrayList<>(options.users());
+        List<Thread> users = new ArrayList<>(options.users());
+        for (int i = 0; i < options.users(); i++) {
+            UserStats userStats = new UserStats();
+            UserState state = new UserState(i);
+            stats.add(userStats);
+            users.add(Thread.ofVirtual().name("load-user-", i)
+                    .start(() -> runUser(client, options, workload, state, userStats, measureFrom, deadline)));
+        }
+        // Sample server gauges at peak concurrency, not after the users have drained
+        Thread.sleep(Duration.ofNanos(Math.max(0, (measureFrom + deadline) / 2 - System.nanoTime())));
+        Map<String, String> server = serverMetrics(client, options);
+        for (Thread user : users) {
+            user.join();
+        }
+        return report(options, stats, server);
+    }
+
+    private static void runUser(HttpClient client, Options options, Workload workload, UserState state,
+            UserStats stats, long measureFrom, long deadline) {
+        while (true) {
+            long sent = System.nanoTime();
+            if (sent >= deadline) {
+                return;
+            }
+            Call call = options.scenario().next(workload, state);
+            String failure = null;
+            try {
+                HttpRequest.Builder request = call.request()
+                        .timeout(options.timeout())
+                        .header("Content-Type", "application/json")
+                        .header("Accept", "application/json");
+                if (!options.tokenPrefix().isEmpty()) {
+                    request.header("Authorization", "Bearer " + options.tokenPrefix() + state.index);
+                }
+                HttpResponse<Void> response = client.send(request.build(), HttpResponse.BodyHandlers.discarding());
+                if (response.statusCode() >= 400) {
+                    failure = "HTTP " + response.statusCode();
+                }
+            } catch (IOException e) {
+                failure = e.getClass().getSimpleName();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (sent >= measureFrom) {
+                if (failure == null) {
+                    stats.record(call.label(), System.nanoTime() - sent);
+                } else {
+                    stats.fail(call.label(), failure);
+                }
+            }
+            Duration pause = options.think().plus(call.pauseAfter());
+            if (!pause.isZero()) {
+                try {
+                    Thread.sleep(pause);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private static Summary report(Options options, List<UserStats> stats, Map<String, String> server) {
+        Map<String, List<Latencies>> perUser = new TreeMap<>();
+        Map<String, Integer> failures = new TreeMap<>();
+        for (UserStats userStats : stats) {
+            userStats.latencies.forEach((label, latencies) ->
+                    perUser.computeIfAbsent(label, l -> new ArrayList<>()).add(latencies));
+            userStats.failures.forEach((reason, n) -> failures.merge(reason, n, Integer::sum));
+        }
+        Map<String, long[]> byLabel = new TreeMap<>();
+        perUser.forEach((label, latencies) -> byLabel.put(label, merge(latencies)));
+        long[] all = merge(perUser.values().stream().flatMap(List::stream).toList());
+        Arrays.sort(all);
+        int total = all.length;
+        int failed = failures.values().stream().mapToInt(Integer::intValue).sum();
+        double seconds = options.duration().toNanos() / 1e9;
+
+        System.out.printf("%n== %s (%s, %d users) ==%n", options.label(), options.scenario().label(), options.users());
+        System.out.printf("ok %d, failed %d, throughput %.1f req/s%n", total, failed, total / seconds);
+        if (total > 0) {
+            printPercentiles("latency ms", all);
+        }
+        if (byLabel.size() > 1) {
+            byLabel.forEach((label, latencies) -> {
+                Arrays.sort(latencies);
+                printPercentiles(String.format(Locale.ROOT, "  %-8s %7d", label, latencies.length), latencies);
+            });
+        }
+        failures.forEach((reason, n) -> System.out.printf("  %s: %d%n", reason, n));
+        server.forEach((name, value) -> System.out.printf("server %s: %s%n", name, value));
+        return new Summary(options.label(), options.scenario().label(), options.users(), total, failed,
+                total / seconds, total > 0 ? percentile(all, 0.50) : Double.NaN,
+                total > 0 ? percentile(all, 0.99) : Double.NaN);
+    }
+
+    private static void printPercentiles(String prefix, long[] sorted) {
+        System.out.printf("%s  p50 %.1f  p90 %.1f  p99 %.1f  p99.9 %.1f  max %.1f%n", prefix,
+                percentile(sorted, 0.50), percentile(sorted, 0.90), percentile(sorted, 0.99),
+                percentile(sorted, 0.999), sorted[sorted.length - 1] / 1e6);
+    }
+
+    private static long[] merge(List<Latencies> parts) {
+        long[] merged = new long[parts.stream().mapToInt(part -> part.count).sum()];
+        int offset = 0;
+        for (Latencies part : parts) {
+            System.arraycopy(part.nanos, 0, merged, offset, part.count);
+            offset += part.count;
+        }
+        return merged;
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    private static Map<String, String> serverMetrics(HttpClient client, Options options) {
+        Map<String, String> result = new TreeMap<>();
+        result.put("jvm.threads.live", metric(client, options, "jvm.threads.live", 1));
+        result.put("jvm.memory.used.heap (MB)", metric(client, options, "jvm.memory.used?tag=area:heap", 1 << 20));
+        result.put("jvm.memory.used.nonheap (MB)",
+                metric(client, options, "jvm.memory.used?tag=area:nonheap", 1 << 20));
+        return result;
+    }
+
+    private static String metric(HttpClient client, Options options, String path, double divisor) {
+        try {
+            HttpResponse<String> response = client.send(
+                    HttpRequest.newBuilder(URI.create(options.baseUrl() + "/actuator/metrics/" + path))
+                            .timeout(Duration.ofSeconds(5))
+                            .header("Authorization", options.actuatorAuthorization())
+                            .build(),
+                    HttpResponse.BodyHandlers.ofString());
+            Matcher matcher = METRIC_VALUE.matcher(response.body());
+            if (response.statusCode() != 200 || !matcher.find()) {
+                return "n/a (HTTP " + response.statusCode() + ")";
+            }
+            return String.format(Locale.ROOT, "%.0f", Double.parseDouble(matcher.group(1)) / divisor);
+        } catch (IOException e) {
+            return "n/a (" + e.getClass().getSimpleName() + ")";
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "n/a";
+        }
+    }
+}
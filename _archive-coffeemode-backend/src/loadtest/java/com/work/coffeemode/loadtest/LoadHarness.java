@@ -0,0 +1,205 @@
+package com.work.coffeemode.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Self-contained end-to-end load test: seeds a local MongoDB with synthetic cafes, starts a
+ * {@link FakePlacesServer}, launches the application in its own JVM against both (with stubbed
+ * token verification, see {@link LoadTestApplication}), runs the scripted scenarios one after
+ * another with {@link LoadDriver} and prints a comparison table.
+ * <p>
+ * Needs MongoDB (a single-node replica set, so cache invalidation uses change streams) and Redis
+ * on localhost; {@code docker compose -f docker-compose.loadtest.yml up -d} starts both. The
+ * application inherits this process's environment, so {@code VIRTUAL_THREADS_ENABLED},
+ * {@code SPRING_PROFILES_ACTIVE} and friends select what is measured. Arguments, all optional:
+ * <pre>
+ * --mongo-uri=mongodb://localhost:27017/?directConnection=true  --mongo-db=coffeemode_loadtest
+ * --cafes=20000  --seed=42  --reseed=true
+ * --places-latency=80ms  --places-jitter=40ms  --places-error-rate=0.01
+ * --app-port=18080  --app-jvm-args=-Xmx1g
+ * --scenarios=pan,resolve-burst,edit,mixed  --users=200  --duration=30s  --warmup=10s  --think=0ms
+ * </pre>
+ */
+public final class LoadHarness {
+
+    private static final Duration STARTUP_TIMEOUT = Duration.ofMinutes(2);
+    private static final Path APP_LOG = Path.of("build", "loadtest", "app.log");
+    // Actuator login of the launched application, for the health details and server metrics
+    private static final String ACTUATOR_USER = "loadtest";
+    private static final String ACTUATOR_PASSWORD = "loadtest";
+
+    private LoadHarness() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            if (arg.isBlank()) {
+                continue;
+            }
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            int eq = arg.indexOf('=');
+            values.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        String mongoUri = values.getOrDefault("mongo-uri", "mongodb://localhost:27017/?directConnection=true");
+        String mongoDb = values.getOrDefault("mongo-db", "coffeemode_loadtest");
+        int appPort = Integer.parseInt(values.getOrDefault("app-port", "18080"));
+        String baseUrl = "http://localhost:" + appPort;
+        List<LoadDriver.Scenario> scenarios = Arrays.stream(
+                        values.getOrDefault("scenarios", "pan,resolve-burst,edit,mixed").split(","))
+                .map(String::trim)
+                .map(LoadDriver.Scenario::parse)
+                .toList();
+        LoadDriver.Options driverOptions = new LoadDriver.Options(baseUrl, scenarios.get(0),
+                Integer.parseInt(values.getOrDefault("users", "200")),
+                LoadDriver.Options.duration(values.getOrDefault("duration", "30s")),
+                LoadDriver.Options.duration(values.getOrDefault("warmup", "10s")),
+                LoadDriver.Options.duration(values.getOrDefault("think", "0ms")),
+                Duration.ofSeconds(30), scenarios.get(0).label(), LoadTestIdTokenVerifier.TOKEN_PREFIX,
+                ACTUATOR_USER + ":" + ACTUATOR_PASSWORD);
+        FakePlacesServer.Settings places = new FakePlacesServer.Settings(
+                LoadDriver.Options.duration(values.getOrDefault("places-latency", "80ms")),
+                LoadDriver.Options.duration(values.getOrDefault("places-jitter", "40ms")),
+                Double.parseDouble(values.getOrDefault("places-error-rate", "0.01")));
+
+        List<Workload.CafeRef> cafes;
+        long seedStarted = System.nanoTime();
+        if (Boolean.parseBoolean(values.getOrDefault("reseed", "true"))) {
+            int count = Integer.parseInt(values.getOrDefault("cafes", "20000"));
+            cafes = CafeSeeder.seed(mongoUri, mongoDb, count, Long.parseLong(values.getOrDefault("seed", "42")));
+            System.out.printf("Seeded %d cafes into %s in %d ms%n", cafes.size(), mongoDb,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - seedStarted));
+        } else {
+            cafes = CafeSeeder.load(mongoUri, mongoDb);
+            System.out.printf("Reusing %d cafes in %s%n", cafes.size(), mongoDb);
+        }
+
+        try (FakePlacesServer placesServer = FakePlacesServer.start(0, places);
+                ExecutorService clientExecutor = Executors.newVirtualThreadPerTaskExecutor()) {
+            HttpClient client = LoadDriver.newClient(clientExecutor);
+            Process app = launch(values.getOrDefault("app-jvm-args", "-Xmx1g"), Map.ofEntries(
+                    Map.entry("SERVER_PORT", String.valueOf(appPort)),
+                    Map.entry("MONGO_URI", mongoUri),
+                    Map.entry("MONGO_DB", mongoDb),
+                    Map.entry("GOOGLE_MAPS_API_KEY", "loadtest"),
+                    Map.entry("PLACES_ENDPOINT", "localhost:" + placesServer.port()),
+                    Map.entry("PLACES_PLAINTEXT", "true"),
+                    Map.entry("RATE_LIMIT_ENABLED", "false"),
+                    Map.entry("STARTUP_LAZY_CLIENTS", "true"),
+                    Map.entry("ADMIN_USERNAME", ACTUATOR_USER),
+                    Map.entry("ADMIN_PASSWORD", ACTUATOR_PASSWORD),
+                    Map.entry("MANAGEMENT_ENDPOINTS_WEB_EXPOSURE_INCLUDE", "health,metrics,startup")));
+            try {
+                awaitReady(client, driverOptions, app);
+                Workload workload = new Workload(baseUrl, cafes);
+                List<LoadDriver.Summary> summaries = new ArrayList<>();
+                for (LoadDriver.Scenario scenario : scenarios) {
+                    summaries.add(LoadDriver.run(client, driverOptions.withScenario(scenario), workload));
+                }
+                System.out.printf("%nFake Places: %s%n", placesServer.stats());
+                printTable(summaries);
+            } finally {
+                app.destroy();
+                if (!app.waitFor(30, TimeUnit.SECONDS)) {
+                    app.destroyForcibly();
+                }
+            }
+        }
+    }
+
+    private static Process launch(String jvmArgs, Map<String, String> environment) throws IOException {
+        Files.createDirectories(APP_LOG.getParent());
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        Arrays.stream(jvmArgs.split(" ")).filter(arg -> !arg.isBlank()).forEach(command::add);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(LoadTestApplication.class.getName());
+        ProcessBuilder builder = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(APP_LOG.toFile());
+        builder.environment().putAll(environment);
+        System.out.printf("Starting the application (log: %s)%n", APP_LOG.toAbsolutePath());
+        return builder.start();
+    }
+
+    /**
+     * Waits for readiness, then for the index bootstrap, since nearby queries need the geo index.
+     */
+    private static void awaitReady(HttpClient client, LoadDriver.Options options, Process app) throws Exception {
+        String baseUrl = options.baseUrl();
+        long started = System.nanoTime();
+        long deadline = started + STARTUP_TIMEOUT.toNanos();
+        boolean ready = false;
+        while (System.nanoTime() < deadline) {
+            if (!app.isAlive()) {
+                throw new IllegalStateException("The application exited with " + app.exitValue() + "; see " + APP_LOG);
+            }
+            if (!ready) {
+                ready = status(client, options, baseUrl + "/actuator/health/readiness") != null;
+                if (ready) {
+                    System.out.printf("Ready in %d ms%n", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+                }
+            }
+            if (ready) {
+                // Health details are only shown to the actuator login
+                JsonNode indexes = status(client, options, baseUrl + "/actuator/health/mongoIndexes");
+                String state = indexes == null ? "" : indexes.path("details").path("state").asText();
+                if (state.equals("READY") || state.equals("DEGRADED")) {
+                    System.out.printf("Indexes %s after %d ms%n", state.toLowerCase(Locale.ROOT),
+                            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+                    return;
+                }
+            }
+            Thread.sleep(100);
+        }
+        throw new IllegalStateException("The application was not ready within " + STARTUP_TIMEOUT + "; see " + APP_LOG);
+    }
+
+    private static JsonNode status(HttpClient client, LoadDriver.Options options, String url)
+            throws InterruptedException {
+        try {
+            HttpResponse<String> response = client.send(
+                    HttpRequest.newBuilder(URI.create(url))
+                            .timeout(Duration.ofSeconds(2))
+                            .header("Authorization", options.actuatorAuthorization())
+                            .build(),
+                    HttpResponse.BodyHandlers.ofString());
+            return response.statusCode() == 200 ? new ObjectMapper().readTree(response.body()) : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static void printTable(List<LoadDriver.Summary> summaries) {
+        System.out.printf("%n%-14s %6s %10s %8s %10s %9s %9s%n", "scenario", "users", "ok", "failed", "req/s",
+                "p50 ms", "p99 ms");
+        for (LoadDriver.Summary summary : summaries) {
+            System.out.printf(Locale.ROOT, "%-14s %6d %10d %8d %10.1f %9.1f %9.1f%n", summary.scenario(),
+                    summary.users(), summary.ok(), summary.failed(), summary.throughput(), summary.p50Millis(),
+                    summary.p99Millis());
+        }
+        System.out.printf("%nApplication log: %s%n", APP_LOG.toAbsolutePath());
+    }
+}
@@ -0,0 +1,33 @@
+package com.work.coffeemode.loadtest;
+
+import com.work.coffeemode.CoffeemodeApplication;
+import com.work.coffeemode.security.IdTokenVerifier;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+/**
+ * The application as {@link LoadHarness} starts it: unchanged except that ID tokens are checked
+ * by {@link LoadTestIdTokenVerifier}. Lives in the loadtest source set, so the stub can never
+ * end up in the boot jar.
+ */
+public final class LoadTestApplication {
+
+    private LoadTestApplication() {
+    }
+
+    public static void main(String[] args) {
+        new SpringApplication(CoffeemodeApplication.class, StubTokens.class).run(args);
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    static class StubTokens {
+
+        @Bean
+        @Primary
+        IdTokenVerifier loadTestIdTokenVerifier() {
+            return new LoadTestIdTokenVerifier();
+        }
+    }
+}
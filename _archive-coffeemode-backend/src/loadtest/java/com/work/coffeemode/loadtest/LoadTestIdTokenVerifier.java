@@ -0,0 +1,34 @@
+package com.work.coffeemode.loadtest;
+
+import com.google.firebase.ErrorCode;
+import com.google.firebase.auth.AuthErrorCode;
+import com.google.firebase.auth.FirebaseAuthException;
+import com.work.coffeemode.security.FirebasePrincipal;
+import com.work.coffeemode.security.IdTokenVerifier;
+import com.work.coffeemode.security.VerifiedToken;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Accepts {@code loadtest-<user>} bearer tokens without calling Firebase; anything else is
+ * rejected like a malformed token. Only {@link LoadTestApplication} installs it.
+ */
+final class LoadTestIdTokenVerifier implements IdTokenVerifier {
+
+    static final String TOKEN_PREFIX = "loadtest-";
+
+    @Override
+    public VerifiedToken verify(String idToken) throws FirebaseAuthException {
+        if (!idToken.startsWith(TOKEN_PREFIX)) {
+            throw new FirebaseAuthException(ErrorCode.INVALID_ARGUMENT, "Not a load-test token", null, null,
+                    AuthErrorCode.INVALID_ID_TOKEN);
+        }
+        FirebasePrincipal principal = FirebasePrincipal.builder()
+                .uid(idToken)
+                .email(idToken + "@loadtest.invalid")
+                .displayName(idToken)
+                .build();
+        return new VerifiedToken(principal, Instant.now().plus(1, ChronoUnit.HOURS), "loadtest");
+    }
+}
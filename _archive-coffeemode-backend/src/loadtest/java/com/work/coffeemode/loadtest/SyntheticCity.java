@@ -0,0 +1,108 @@
+package com.work.coffeemode.loadtest;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A Singapore-shaped point distribution for synthetic cafes and map traffic: most cafes cluster
+ * around a handful of hotspots (Gaussian, a few hundred metres to a kilometre wide), the rest are
+ * spread over the whole island. Users pan where the cafes are, so both come from the same model.
+ */
+final class SyntheticCity {
+
+    record Hotspot(String name, double lat, double lng, double sigmaKm, double weight) {
+    }
+
+    static final List<Hotspot> HOTSPOTS = List.of(
+            new Hotspot("Raffles Place", 1.2830, 103.8513, 0.8, 0.18),
+            new Hotspot("Tiong Bahru", 1.2790, 103.8300, 0.7, 0.12),
+            new Hotspot("Orchard", 1.3040, 103.8318, 0.9, 0.12),
+            new Hotspot("Kampong Glam", 1.3008, 103.8590, 0.6, 0.08),
+            new Hotspot("Katong", 1.3050, 103.9050, 0.9, 0.07),
+            new Hotspot("Holland Village", 1.3110, 103.7960, 0.6, 0.05),
+            new Hotspot("Jurong East", 1.3330, 103.7420, 1.0, 0.05),
+            new Hotspot("Tampines", 1.3530, 103.9450, 1.0, 0.05),
+            new Hotspot("Punggol", 1.4040, 103.9020, 1.0, 0.03),
+            new Hotspot("Woodlands", 1.4360, 103.7860, 1.0, 0.03));
+
+    // Everything not in a hotspot: uniform over the main island's bounding box
+    private static final double BACKGROUND_WEIGHT = 0.22;
+    private static final double MIN_LAT = 1.24;
+    private static final double MAX_LAT = 1.46;
+    private static final double MIN_LNG = 103.62;
+    private static final double MAX_LNG = 104.00;
+
+    private static final double KM_PER_DEGREE = 111.32;
+
+    private static final String[] NAME_PREFIXES = {
+            "Common", "Nylon", "Apartment", "Tiong Hoe", "Homeground", "Alchemist", "Glasshouse", "Atlas",
+            "Chye Seng", "Kurasu", "Tanjong", "Everton", "Jalan", "Keong Saik", "Rider", "Sunday", "Bench",
+            "Little", "Hollow", "Quarter", "Dawn", "Ember", "Pebble", "Lantern", "Foundry" };
+    private static final String[] NAME_SUFFIXES = {
+            "Coffee", "Coffee Roasters", "Espresso", "Brew Bar", "Kopi", "Cafe", "Coffeehouse", "Roastery" };
+    private static final String[] STREETS = {
+            "Everton Park", "Neil Road", "Tras Street", "Amoy Street", "Haji Lane", "East Coast Road",
+            "Orchard Road", "Joo Chiat Road", "Yong Siak Street", "Jalan Besar", "Bukit Timah Road",
+            "Tampines Street 81", "Jurong Gateway Road", "Punggol Field", "Woodlands Avenue 6" };
+
+    private SyntheticCity() {
+    }
+
+    /**
+     * A point drawn from the city distribution, as {@code [lng, lat]}.
+     */
+    static double[] point(Random random) {
+        double pick = random.nextDouble();
+        for (Hotspot hotspot : HOTSPOTS) {
+            pick -= hotspot.weight();
+            if (pick < 0) {
+                return near(random, hotspot.lat(), hotspot.lng(), hotspot.sigmaKm());
+            }
+        }
+        return new double[] {
+                MIN_LNG + random.nextDouble() * (MAX_LNG - MIN_LNG),
+                MIN_LAT + random.nextDouble() * (MAX_LAT - MIN_LAT) };
+    }
+
+    /**
+     * A point scattered around the given centre with a Gaussian of {@code sigmaKm}, as {@code [lng, lat]}.
+     */
+    static double[] near(Random random, double lat, double lng, double sigmaKm) {
+        double dLat = random.nextGaussian() * sigmaKm / KM_PER_DEGREE;
+        double dLng = random.nextGaussian() * sigmaKm / (KM_PER_DEGREE * Math.cos(Math.toRadians(lat)));
+        return new double[] { lng + dLng, lat + dLat };
+    }
+
+    /**
+     * Moves {@code [lng, lat]} by {@code km} in a random direction, the way a user drags a map.
+     */
+    static double[] pan(Random random, double[] from, double km) {
+        double bearing = random.nextDouble() * 2 * Math.PI;
+        double dLat = Math.cos(bearing) * km / KM_PER_DEGREE;
+        double dLng = Math.sin(bearing) * km / (KM_PER_DEGREE * Math.cos(Math.toRadians(from[1])));
+        return new double[] { from[0] + dLng, from[1] + dLat };
+    }
+
+    static Hotspot hotspot(Random random) {
+        double pick = random.nextDouble() * (1 - BACKGROUND_WEIGHT);
+        for (Hotspot hotspot : HOTSPOTS) {
+            pick -= hotspot.weight();
+            if (pick < 0) {
+                return hotspot;
+            }
+        }
+        return HOTSPOTS.get(0);
+    }
+
+    static String cafeName(Random random, int n) {
+        String name = NAME_PREFIXES[random.nextInt(NAME_PREFIXES.length)] + " "
+                + NAME_SUFFIXES[random.nextInt(NAME_SUFFIXES.length)];
+        // Chains and common names repeat in real data; keep roughly one in five unique
+        return n % 5 == 0 ? name + " " + (n / 5) : name;
+    }
+
+    static String address(Random random) {
+        return (1 + random.nextInt(300)) + " " + STREETS[random.nextInt(STREETS.length)] + ", Singapore "
+                + String.format("%06d", random.nextInt(830_000));
+    }
+}
@@ -0,0 +1,46 @@
+package com.work.coffeemode.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * What the scenarios run against: the instance and the cafes it holds. Scenarios that read or
+ * edit existing cafes pick from {@link #cafes()}.
+ */
+record Workload(String baseUrl, List<CafeRef> cafes) {
+
+    record CafeRef(String id, String name, String address, double lng, double lat) {
+    }
+
+    /**
+     * Loads the cafe list from the instance itself ({@code GET /api/cafes}), for runs against
+     * data the driver did not seed.
+     */
+    static Workload fetch(HttpClient client, String baseUrl) throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = client.send(
+                HttpRequest.newBuilder(URI.create(baseUrl + "/api/cafes"))
+                        .header("Accept", "application/json")
+                        .timeout(Duration.ofMinutes(2))
+                        .build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            throw new IOException("GET /api/cafes returned HTTP " + response.statusCode());
+        }
+        List<CafeRef> cafes = new ArrayList<>();
+        for (JsonNode cafe : new ObjectMapper().readTree(response.body()).path("data")) {
+            JsonNode coordinates = cafe.path("location").path("coordinates");
+            cafes.add(new CafeRef(cafe.path("id").asText(), cafe.path("name").asText(),
+                    cafe.path("address").asText(), coordinates.path(0).asDouble(), coordinates.path(1).asDouble()));
+        }
+        return new Workload(baseUrl, cafes);
+    }
+}
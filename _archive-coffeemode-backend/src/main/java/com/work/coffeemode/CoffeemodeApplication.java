@@ -2,12 +2,19 @@ package com.work.coffeemode;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
 
 @SpringBootApplication
 public class CoffeemodeApplication {
 
+    // Enough for every startup step of this context, with room to spare
+    private static final int STARTUP_STEP_CAPACITY = 10_000;
+
     public static void main(String[] args) {
-        SpringApplication.run(CoffeemodeApplication.class, args);
+        SpringApplication app = new SpringApplication(CoffeemodeApplication.class);
+        // Records the startup timeline for StartupTimelineReporter and /actuator/startup
+        app.setApplicationStartup(new BufferingApplicationStartup(STARTUP_STEP_CAPACITY));
+        app.run(args);
     }
 
 }
@@ -8,13 +8,22 @@ import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Pointcut;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
 
+/**
+ * Original proxy-based envelope, kept for comparison; {@link UnifiedResponseBodyAdvice} is the
+ * default. Enable with {@code coffeemode.response.envelope=aspect}.
+ */
 @Aspect
 @Component
 @Slf4j
+@ConditionalOnProperty(name = "coffeemode.response.envelope", havingValue = "aspect")
+@Profile("!reactive")
 public class UnifiedResponseAspect {
 
     // Define the pointcut to target all public methods in the controller package
@@ -43,6 +52,11 @@ public class UnifiedResponseAspect {
             UnifiedResponse<?> responseBody = UnifiedResponse.success(result);
             return new ResponseEntity<>(responseBody, HttpStatus.OK);
 
+        } catch (DuplicateKeyException e) {
+            // A unique index caught a concurrent create; expected, so no stack trace
+            log.debug("Duplicate key in controller method {}: {}", joinPoint.getSignature().toShortString(),
+                    e.getMessage());
+            return new ResponseEntity<>(UnifiedResponse.error(409, "Resource already exists"), HttpStatus.CONFLICT);
         } catch (Throwable throwable) {
             log.error("Exception caught in controller method {}: {}", joinPoint.getSignature().toShortString(),
                     throwable.getMessage(), throwable);
@@ -0,0 +1,71 @@
+package com.work.coffeemode.aop;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.work.coffeemode.model.UnifiedResponse;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.MethodParameter;
+import org.springframework.core.io.Resource;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.StringHttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Wraps controller return values in {@link UnifiedResponse} as they are written, replacing the
+ * {@code @Around} proxy in {@link UnifiedResponseAspect}. Bodies that are already a
+ * {@code UnifiedResponse} (including error bodies from the exception handler) pass through, and so
+ * do binary payloads ({@code byte[]}, {@link Resource}), which are served as-is.
+ * <p>
+ * Selected with {@code coffeemode.response.envelope=advice} (the default).
+ */
+@RestControllerAdvice(basePackages = "com.work.coffeemode.controller")
+@ConditionalOnProperty(name = "coffeemode.response.envelope", havingValue = "advice", matchIfMissing = true)
+@Profile("!reactive")
+public class UnifiedResponseBodyAdvice implements ResponseBodyAdvice<Object> {
+
+    private final ObjectMapper objectMapper;
+    private final ObservationRegistry observationRegistry;
+
+    public UnifiedResponseBodyAdvice(ObjectMapper objectMapper, ObservationRegistry observationRegistry) {
+        this.objectMapper = objectMapper;
+        this.observationRegistry = observationRegistry;
+    }
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+            Class<? extends HttpMessageConverter<?>> selectedConverterType, ServerHttpRequest request,
+            ServerHttpResponse response) {
+        if (body instanceof UnifiedResponse<?> || body instanceof byte[] || body instanceof Resource) {
+            return body;
+        }
+        return Observation.createNotStarted("response.envelope", observationRegistry)
+                .observe(() -> envelope(body, selectedConverterType, response));
+    }
+
+    private Object envelope(Object body, Class<? extends HttpMessageConverter<?>> selectedConverterType,
+            ServerHttpResponse response) {
+        UnifiedResponse<?> wrapped = UnifiedResponse.success(body);
+        if (StringHttpMessageConverter.class.isAssignableFrom(selectedConverterType)) {
+            // String returns are bound to the String converter, so the envelope has to be pre-serialised
+            response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+            try {
+                return objectMapper.writeValueAsString(wrapped);
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Failed to serialise response envelope", e);
+            }
+        }
+        return wrapped;
+    }
+}
@@ -0,0 +1,86 @@
+package com.work.coffeemode.cache;
+
+import com.work.coffeemode.cache.CacheInvalidationEvent.Source;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Node-local fan-out point for cache invalidations.
+ * <p>
+ * Write paths call {@link #publish} so caches on this node are evicted immediately; the event is then
+ * forwarded to the remote transport (Redis pub/sub) when one is attached. Events tailed from MongoDB
+ * change streams or received from Redis enter through {@link #dispatch}. Caches register with
+ * {@link #subscribe} and must treat every event as idempotent: the same change can arrive both
+ * locally and from the change stream.
+ */
+@Slf4j
+@Component
+public class CacheInvalidationBus {
+
+    private final String nodeId;
+    private final Map<Source, List<Consumer<CacheInvalidationEvent>>> subscribers = new EnumMap<>(Source.class);
+    private volatile Consumer<CacheInvalidationEvent> remote;
+
+    public CacheInvalidationBus(@Value("${coffeemode.cache.invalidation.node-id:${random.uuid}}") String nodeId) {
+        this.nodeId = nodeId;
+        for (Source source : Source.values()) {
+            subscribers.put(source, new CopyOnWriteArrayList<>());
+        }
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public void subscribe(Source source, Consumer<CacheInvalidationEvent> listener) {
+        subscribers.get(source).add(listener);
+    }
+
+    /**
+     * Publishes a change made by this node.
+     */
+    public void publish(CacheInvalidationEvent event) {
+        event.setOrigin(nodeId);
+        dispatch(event);
+        Consumer<CacheInvalidationEvent> transport = remote;
+        if (transport != null) {
+            transport.accept(event);
+        }
+    }
+
+    /**
+     * Delivers an event to local subscribers only.
+     */
+    public void dispatch(CacheInvalidationEvent event) {
+        log.debug("Cache invalidation: {} {} {} (origin={})", event.getSource(), event.getOperation(),
+                event.getDocumentId(), event.getOrigin());
+        for (Consumer<CacheInvalidationEvent> listener : subscribers.get(event.getSource())) {
+            try {
+                listener.accept(event);
+            } catch (RuntimeException e) {
+                log.warn("Cache invalidation listener failed for {} {}: {}", event.getSource(),
+                        event.getDocumentId(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Flushes every subscriber of every source, used when the change feed cannot vouch for what was missed.
+     */
+    public void dispatchFlushAll() {
+        for (Source source : Source.values()) {
+            dispatch(CacheInvalidationEvent.flush(source));
+        }
+    }
+
+    void attachRemote(Consumer<CacheInvalidationEvent> transport) {
+        this.remote = transport;
+    }
+}
@@ -0,0 +1,85 @@
+package com.work.coffeemode.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Typed invalidation message broadcast to every node's in-process caches.
+ * <p>
+ * {@code documentId} is always the Mongo {@code _id} (hex string). {@code naturalKey} carries the
+ * business key when it is known (e.g. the Google placeId of a POI); change-stream deletes only
+ * expose {@code _id}, so subscribers keyed by a natural key must handle it being {@code null}.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheInvalidationEvent {
+
+    private Source source;
+    private Operation operation;
+    private String documentId;
+    // placeId for GOOGLE_PLACE_POI, redbookId for REDNOTE_POI, firebaseUid for USER
+    private String naturalKey;
+    // Node that produced the event; used to drop our own echoes from Redis
+    private String origin;
+
+    public enum Source {
+        CAFE("cafes"),
+        GOOGLE_PLACE_POI("google_place_poi"),
+        REDNOTE_POI("cafe_rednote_pois"),
+        USER("users");
+
+        private final String collection;
+
+        Source(String collection) {
+            this.collection = collection;
+        }
+
+        public String getCollection() {
+            return collection;
+        }
+
+        public static Source fromCollection(String collection) {
+            for (Source source : values()) {
+                if (source.collection.equals(collection)) {
+                    return source;
+                }
+            }
+            return null;
+        }
+    }
+
+    public enum Operation {
+        UPSERT,
+        DELETE,
+        // Drop everything for the source (e.g. change-stream history lost, collection dropped)
+        FLUSH
+    }
+
+    public static CacheInvalidationEvent upsert(Source source, String documentId, String naturalKey) {
+        return CacheInvalidationEvent.builder()
+                .source(source)
+                .operation(Operation.UPSERT)
+                .documentId(documentId)
+                .naturalKey(naturalKey)
+                .build();
+    }
+
+    public static CacheInvalidationEvent delete(Source source, String documentId) {
+        return CacheInvalidationEvent.builder()
+                .source(source)
+                .operation(Operation.DELETE)
+                .documentId(documentId)
+                .build();
+    }
+
+    public static CacheInvalidationEvent flush(Source source) {
+        return CacheInvalidationEvent.builder()
+                .source(source)
+                .operation(Operation.FLUSH)
+                .build();
+    }
+}
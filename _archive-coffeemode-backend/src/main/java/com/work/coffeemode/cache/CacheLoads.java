@@ -0,0 +1,43 @@
+package com.work.coffeemode.cache;
+
+import io.micrometer.context.ContextExecutorService;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Support for Caffeine caches whose loaders block on I/O.
+ * <p>
+ * A synchronous {@code Cache.get(key, loader)} runs the loader inside
+ * {@code ConcurrentHashMap.compute}, i.e. while holding a monitor. On a virtual thread that pins
+ * the carrier for the whole MongoDB round trip. Such caches are built with {@code buildAsync()}
+ * and {@link #EXECUTOR} instead: the loader runs on its own virtual thread outside any lock, and
+ * the caller parks on the future. An invalidation during the load still discards the result.
+ */
+public final class CacheLoads {
+
+    // Loads run under the caller's observation, so their MongoDB spans join the request's trace
+    public static final Executor EXECUTOR = ContextExecutorService.wrap(Executors.newVirtualThreadPerTaskExecutor());
+
+    private CacheLoads() {
+    }
+
+    /**
+     * Waits for a load and rethrows the loader's own unchecked exception (e.g. a not-found).
+     */
+    public static <V> V join(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.work.coffeemode.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.work.coffeemode.cache.CacheInvalidationEvent.Source;
+import com.work.coffeemode.model.Cafe;
+import com.work.coffeemode.model.UnifiedResponse;
+import com.work.coffeemode.service.CafeService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Finished JSON response bodies for {@code GET /api/cafes/{id}}, already wrapped in
+ * {@link UnifiedResponse}, kept as plain and gzip byte arrays.
+ * <p>
+ * A hit is served without touching MongoDB or Jackson. The cache is bounded by total bytes, and
+ * Caffeine's W-TinyLFU policy keeps the frequently read cafes resident. Entries are dropped by
+ * cafe invalidation events, from local writes synchronously and from other nodes through the bus,
+ * with a TTL as a backstop for lost remote events. Loads run through {@link CacheLoads}, so an
+ * invalidation that arrives mid-load discards the stale result.
+ */
+@Component
+@Profile("!reactive")
+public class CafeResponseCache {
+
+    // Rough per-entry cost of the key, record and array headers
+    private static final int ENTRY_OVERHEAD_BYTES = 128;
+
+    public record CachedCafeResponse(long version, byte[] json, byte[] gzip) {
+    }
+
+    private final CafeService cafeService;
+    private final ObjectMapper objectMapper;
+    private final AsyncCache<String, CachedCafeResponse> responses;
+
+    public CafeResponseCache(CafeService cafeService, ObjectMapper objectMapper,
+            CacheInvalidationBus invalidationBus, MeterRegistry meterRegistry,
+            @Value("${coffeemode.cafes.response-cache.max-size:64MB}") DataSize maxSize,
+            @Value("${coffeemode.cafes.response-cache.ttl:10m}") Duration ttl) {
+        this.cafeService = cafeService;
+        this.objectMapper = objectMapper;
+        this.responses = Caffeine.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .weigher((String id, CachedCafeResponse response) ->
+                        response.json().length + response.gzip().length + ENTRY_OVERHEAD_BYTES)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .executor(CacheLoads.EXECUTOR)
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, responses, "cafe.response");
+        invalidationBus.subscribe(Source.CAFE, this::onInvalidation);
+    }
+
+    /**
+     * @throws com.work.coffeemode.exception.CafeNotFoundException if the cafe does not exist
+     */
+    public CachedCafeResponse get(String id) {
+        return CacheLoads.join(responses.get(id, this::load));
+    }
+
+    /**
+     * The cached response, or {@code null} if it isn't cached (or is still loading); never loads.
+     */
+    public CachedCafeResponse getIfPresent(String id) {
+        CompletableFuture<CachedCafeResponse> response = responses.getIfPresent(id);
+        return response != null && response.state() == Future.State.SUCCESS ? response.resultNow() : null;
+    }
+
+    private CachedCafeResponse load(String id) {
+        Cafe cafe = cafeService.getCafeById(id);
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(UnifiedResponse.success(cafe));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialise cafe " + id, e);
+        }
+        return new CachedCafeResponse(cafe.getVersion() != null ? cafe.getVersion() : 0, json, gzip(json));
+    }
+
+    private void onInvalidation(CacheInvalidationEvent event) {
+        if (event.getOperation() == CacheInvalidationEvent.Operation.FLUSH || event.getDocumentId() == null) {
+            responses.synchronous().invalidateAll();
+        } else {
+            responses.synchronous().invalidate(event.getDocumentId());
+        }
+    }
+
+    private static byte[] gzip(byte[] bytes) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 3 + 32);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,258 @@
+package com.work.coffeemode.cache;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.MongoException;
+import com.mongodb.MongoInterruptedException;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import com.work.coffeemode.cache.CacheInvalidationEvent.Source;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tails MongoDB change streams on the cached collections and feeds them into the
+ * {@link CacheInvalidationBus}, so edits made by any replica (or directly in the database)
+ * evict this node's caches.
+ * <p>
+ * The resume token is kept in memory and used to reconnect after transient failures without
+ * losing events. It is deliberately not persisted: a restarted node starts with empty caches, so
+ * there is nothing to catch up on. When resuming is impossible (history rolled off the oplog)
+ * all caches are flushed instead.
+ */
+@Slf4j
+@Component
+public class MongoChangeStreamInvalidationSource {
+
+    public enum Mode {
+        AUTO,
+        CHANGE_STREAM,
+        REDIS,
+        LOCAL
+    }
+
+    // $changeStream on a standalone server
+    private static final int ERROR_NOT_REPLICA_SET = 40573;
+    // Resume token no longer in the oplog
+    private static final int ERROR_HISTORY_LOST = 286;
+    private static final long MAX_BACKOFF_MILLIS = 30_000;
+
+    private final CacheInvalidationBus bus;
+    private final MongoTemplate mongoTemplate;
+    private final RedisInvalidationTransport redisTransport;
+    private final Mode mode;
+
+    private volatile boolean running;
+    private volatile Thread worker;
+
+    public MongoChangeStreamInvalidationSource(CacheInvalidationBus bus, MongoTemplate mongoTemplate,
+            RedisInvalidationTransport redisTransport,
+            @Value("${coffeemode.cache.invalidation.mode:auto}") Mode mode) {
+        this.bus = bus;
+        this.mongoTemplate = mongoTemplate;
+        this.redisTransport = redisTransport;
+        this.mode = mode;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        switch (mode) {
+            case LOCAL -> log.info("Cache invalidation is node-local only");
+            case REDIS -> redisTransport.start();
+            case CHANGE_STREAM -> startTailing();
+            // The topology probe is a round trip to MongoDB; keep it off the startup thread
+            case AUTO -> Thread.ofPlatform()
+                    .name("cache-invalidation-probe")
+                    .daemon()
+                    .start(() -> {
+                        if (supportsChangeStreams()) {
+                            startTailing();
+                        } else {
+                            log.info("MongoDB deployment has no change streams; falling back to Redis pub/sub");
+                            redisTransport.start();
+                        }
+                    });
+        }
+    }
+
+    private boolean supportsChangeStreams() {
+        try {
+            Document hello = mongoTemplate.getDb().runCommand(new Document("hello", 1));
+            return hello.containsKey("setName") || "isdbgrid".equals(hello.getString("msg"));
+        } catch (MongoException e) {
+            log.warn("Could not determine MongoDB topology: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private void startTailing() {
+        running = true;
+        worker = Thread.ofPlatform()
+                .name("cache-invalidation-change-stream")
+                .daemon()
+                .start(this::tail);
+        log.info("Cache invalidation tailing change streams on {}", collections());
+    }
+
+    private void tail() {
+        BsonDocument resumeToken = null;
+        long backoff = 500;
+        while (running) {
+            ChangeStreamIterable<Document> stream = mongoTemplate.getDb()
+                    .watch(pipeline())
+                    .fullDocument(FullDocument.UPDATE_LOOKUP)
+                    .maxAwaitTime(1, TimeUnit.SECONDS);
+            if (resumeToken != null) {
+                stream = stream.resumeAfter(resumeToken);
+            }
+            try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = stream.cursor()) {
+                backoff = 500;
+                while (running) {
+                    ChangeStreamDocument<Document> change = cursor.tryNext();
+                    if (change == null) {
+                        // Post-batch token keeps us current even when nothing we watch changes
+                        BsonDocument token = cursor.getResumeToken();
+                        if (token != null) {
+                            resumeToken = token;
+                        }
+                        continue;
+                    }
+                    resumeToken = change.getResumeToken();
+                    if (handle(change)) {
+                        resumeToken = null;
+                        break;
+                    }
+                }
+            } catch (MongoCommandException e) {
+                if (e.getErrorCode() == ERROR_NOT_REPLICA_SET) {
+                    log.warn("Change streams unsupported by this MongoDB deployment; falling back to Redis pub/sub");
+                    running = false;
+                    redisTransport.start();
+                    return;
+                }
+                if (e.getErrorCode() == ERROR_HISTORY_LOST) {
+                    log.warn("Change stream resume token expired; flushing local caches");
+                    resumeToken = null;
+                    bus.dispatchFlushAll();
+                    continue;
+                }
+                backoff = pause(backoff, e);
+            } catch (MongoInterruptedException e) {
+                return;
+            } catch (MongoException e) {
+                backoff = pause(backoff, e);
+            }
+        }
+    }
+
+    /**
+     * @return {@code true} if the stream was invalidated and must be reopened from scratch
+     */
+    private boolean handle(ChangeStreamDocument<Document> change) {
+        switch (change.getOperationType()) {
+            case INSERT, UPDATE, REPLACE -> {
+                Source source = sourceOf(change);
+                if (source != null) {
+                    bus.dispatch(CacheInvalidationEvent.upsert(source, documentId(change), naturalKey(source, change)));
+                }
+            }
+            case DELETE -> {
+                Source source = sourceOf(change);
+                if (source != null) {
+                    bus.dispatch(CacheInvalidationEvent.delete(source, documentId(change)));
+                }
+            }
+            case DROP, RENAME -> {
+                Source source = sourceOf(change);
+                if (source != null) {
+                    bus.dispatch(CacheInvalidationEvent.flush(source));
+                }
+            }
+            case DROP_DATABASE, INVALIDATE -> {
+                bus.dispatchFlushAll();
+                return true;
+            }
+            default -> {
+            }
+        }
+        return false;
+    }
+
+    private Source sourceOf(ChangeStreamDocument<Document> change) {
+        return change.getNamespace() == null ? null
+                : Source.fromCollection(change.getNamespace().getCollectionName());
+    }
+
+    private String documentId(ChangeStreamDocument<Document> change) {
+        BsonDocument key = change.getDocumentKey();
+        if (key == null) {
+            return null;
+        }
+        BsonValue id = key.get("_id");
+        if (id == null) {
+            return null;
+        }
+        return id.isObjectId() ? id.asObjectId().getValue().toHexString() : id.toString();
+    }
+
+    private String naturalKey(Source source, ChangeStreamDocument<Document> change) {
+        Document full = change.getFullDocument();
+        if (full == null) {
+            return null;
+        }
+        return switch (source) {
+            case GOOGLE_PLACE_POI -> full.getString("placeId");
+            case REDNOTE_POI -> full.getString("redbookId");
+            case USER -> full.getString("firebaseUid");
+            default -> null;
+        };
+    }
+
+    private List<Bson> pipeline() {
+        return Arrays.asList(
+                Aggregates.match(Filters.in("ns.coll", collections())),
+                // Only ship what the bus needs; keeps update lookups from dragging whole documents over
+                Aggregates.project(Projections.include("operationType", "ns", "documentKey",
+                        "fullDocument.placeId", "fullDocument.redbookId", "fullDocument.firebaseUid")));
+    }
+
+    private List<String> collections() {
+        return Arrays.stream(Source.values()).map(Source::getCollection).toList();
+    }
+
+    private long pause(long backoff, MongoException e) {
+        log.warn("Change stream interrupted ({}); reconnecting in {} ms", e.getMessage(), backoff);
+        try {
+            Thread.sleep(backoff);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+        return Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+        }
+    }
+}
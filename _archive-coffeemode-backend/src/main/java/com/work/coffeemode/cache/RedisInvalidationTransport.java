@@ -0,0 +1,81 @@
+package com.work.coffeemode.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Redis pub/sub fallback for deployments where MongoDB change streams are unavailable
+ * (standalone mongod). Only changes made through this application are seen, so direct
+ * database edits are not propagated in this mode.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RedisInvalidationTransport {
+
+    static final String CHANNEL = "coffeemode:cache-invalidation";
+
+    private final CacheInvalidationBus bus;
+    private final StringRedisTemplate redisTemplate;
+    private final RedisConnectionFactory connectionFactory;
+    private final ObjectMapper objectMapper;
+
+    private final AtomicBoolean started = new AtomicBoolean();
+    private RedisMessageListenerContainer container;
+
+    public void start() {
+        if (!started.compareAndSet(false, true)) {
+            return;
+        }
+        container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(this::onMessage, new ChannelTopic(CHANNEL));
+        container.afterPropertiesSet();
+        container.start();
+        bus.attachRemote(this::broadcast);
+        log.info("Cache invalidation using Redis pub/sub channel {}", CHANNEL);
+    }
+
+    private void broadcast(CacheInvalidationEvent event) {
+        try {
+            redisTemplate.convertAndSend(CHANNEL, objectMapper.writeValueAsString(event));
+        } catch (Exception e) {
+            // Best effort: peers fall back to their cache TTLs if a broadcast is lost
+            log.warn("Failed to broadcast cache invalidation {} {}: {}", event.getSource(), event.getDocumentId(),
+                    e.getMessage());
+        }
+    }
+
+    private void onMessage(Message message, byte[] pattern) {
+        try {
+            CacheInvalidationEvent event = objectMapper.readValue(message.getBody(), CacheInvalidationEvent.class);
+            if (bus.getNodeId().equals(event.getOrigin())) {
+                return;
+            }
+            bus.dispatch(event);
+        } catch (Exception e) {
+            log.warn("Dropping malformed cache invalidation message: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (container != null) {
+            try {
+                container.destroy();
+            } catch (Exception e) {
+                log.debug("Error stopping Redis invalidation listener", e);
+            }
+        }
+    }
+}
@@ -8,9 +8,10 @@ import com.google.maps.places.v1.PlaceName;
 import com.google.maps.places.v1.PlacesClient;
 import com.google.maps.places.v1.SearchTextRequest;
 import com.google.maps.places.v1.SearchTextResponse;
+import com.google.protobuf.util.JsonFormat;
+import com.google.type.LatLng;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.stereotype.Component;
 
 import java.util.HashMap;
@@ -20,24 +21,23 @@ import java.util.Map;
 @Component
 public class GooglePlacesClient {
 
-    private final PlacesClient placesTextClient;
-    private final PlacesClient placesDetailsClient;
+    private static final ObjectMapper MAPPER = new ObjectMapper();
 
-    public GooglePlacesClient(
-            @Qualifier("placesTextClient") PlacesClient placesTextClient,
-            @Qualifier("placesDetailsClient") PlacesClient placesDetailsClient) {
-        this.placesTextClient = placesTextClient;
-        this.placesDetailsClient = placesDetailsClient;
+    // Resolved on first call; see GooglePlacesSdkConfig
+    private final ObjectProvider<PlacesClient> placesClient;
+
+    public GooglePlacesClient(ObjectProvider<PlacesClient> placesClient) {
+        this.placesClient = placesClient;
     }
 
     public String findPlaceIdFromText(String query) {
-        // Build Text Search (New) request using SDK; FieldMask=places.id configured on
-        // client
+        // Build Text Search (New) request using SDK; FieldMask=places.id set per call
         SearchTextRequest request = SearchTextRequest.newBuilder()
                 .setTextQuery(query)
                 .build();
 
-        SearchTextResponse response = placesTextClient.searchText(request);
+        SearchTextResponse response = placesClient.getObject().searchTextCallable()
+                .call(request, PlacesFieldMask.SEARCH_IDS.context());
         if (response.getPlacesCount() == 0) {
             log.warn("Text search returned no places for query: {}", query);
             return null;
@@ -48,22 +48,41 @@ public class GooglePlacesClient {
         return id;
     }
 
-    public Map<String, Object> getPlaceDetails(String placeId) {
-        // Build GetPlace request using SDK; FieldMask=* configured on client
+    /**
+     * Coordinates of the best text search match, or {@code null} when nothing matches.
+     */
+    public LatLng findLocationFromText(String query) {
+        SearchTextRequest request = SearchTextRequest.newBuilder()
+                .setTextQuery(query)
+                .build();
+
+        SearchTextResponse response = placesClient.getObject().searchTextCallable()
+                .call(request, PlacesFieldMask.SEARCH_LOCATIONS.context());
+        if (response.getPlacesCount() == 0 || !response.getPlaces(0).hasLocation()) {
+            return null;
+        }
+        return response.getPlaces(0).getLocation();
+    }
+
+    public Place getPlaceDetails(String placeId) {
+        // Build GetPlace request using SDK; FieldMask=* set per call
         GetPlaceRequest request = GetPlaceRequest.newBuilder()
                 .setName(PlaceName.of(placeId).toString())
                 .build();
 
-        Place place = placesDetailsClient.getPlace(request);
+        return placesClient.getObject().getPlaceCallable()
+                .call(request, PlacesFieldMask.DETAILS_ALL.context());
+    }
 
-        // Convert typed Place protobuf message to a JSON-backed Map and wrap under
-        // 'result'
+    /**
+     * Converts a typed Place protobuf message to a JSON-backed Map and wraps it under 'result'.
+     */
+    public static Map<String, Object> toDetailsMap(Place place) {
         try {
-            String json = com.google.protobuf.util.JsonFormat.printer()
+            String json = JsonFormat.printer()
                     .includingDefaultValueFields()
                     .print(place);
-            ObjectMapper mapper = new ObjectMapper();
-            Map<String, Object> resultMap = mapper.readValue(json, new TypeReference<Map<String, Object>>() {
+            Map<String, Object> resultMap = MAPPER.readValue(json, new TypeReference<Map<String, Object>>() {
             });
             Map<String, Object> wrapper = new HashMap<>();
             wrapper.put("result", resultMap);
@@ -73,4 +92,4 @@ public class GooglePlacesClient {
             return new HashMap<>();
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,75 @@
+package com.work.coffeemode.client;
+
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.ForwardingClientCall;
+import io.grpc.ForwardingClientCallListener;
+import io.grpc.ManagedChannelBuilder;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Metrics for the shared Places channel pool:
+ * <ul>
+ * <li>{@code places.grpc.calls}: timer per RPC method and gRPC status code</li>
+ * <li>{@code places.grpc.calls.active}: calls in flight across the pool</li>
+ * <li>{@code places.grpc.channels.opened}: channels created, including pool growth and refreshes</li>
+ * </ul>
+ */
+@Component
+public class PlacesChannelMetrics implements ClientInterceptor {
+
+    private final MeterRegistry meterRegistry;
+    private final AtomicInteger active = new AtomicInteger();
+    private final Counter channelsOpened;
+
+    public PlacesChannelMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("places.grpc.calls.active", active, AtomicInteger::get).register(meterRegistry);
+        this.channelsOpened = Counter.builder("places.grpc.channels.opened").register(meterRegistry);
+    }
+
+    /**
+     * Channel configurator hook; called once for every channel the pool opens.
+     */
+    public ManagedChannelBuilder<?> onChannelCreated(ManagedChannelBuilder<?> builder) {
+        channelsOpened.increment();
+        return builder;
+    }
+
+    @Override
+    public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(MethodDescriptor<ReqT, RespT> method,
+            CallOptions callOptions, Channel next) {
+        String rpc = method.getBareMethodName();
+        return new ForwardingClientCall.SimpleForwardingClientCall<>(next.newCall(method, callOptions)) {
+            @Override
+            public void start(Listener<RespT> responseListener, Metadata headers) {
+                long started = System.nanoTime();
+                active.incrementAndGet();
+                super.start(new ForwardingClientCallListener.SimpleForwardingClientCallListener<>(responseListener) {
+                    @Override
+                    public void onClose(Status status, Metadata trailers) {
+                        active.decrementAndGet();
+                        Timer.builder("places.grpc.calls")
+                                .tag("method", rpc)
+                                .tag("status", status.getCode().name())
+                                .register(meterRegistry)
+                                .record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+                        super.onClose(status, trailers);
+                    }
+                }, headers);
+            }
+        };
+    }
+}
@@ -0,0 +1,31 @@
+package com.work.coffeemode.client;
+
+import com.google.api.gax.grpc.GrpcCallContext;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Response field masks for Places calls. All calls share one client and channel pool; the mask is
+ * sent per call as {@code x-goog-fieldmask} metadata, so a new call type only needs an entry here.
+ */
+enum PlacesFieldMask {
+
+    // Text Search 只返回 id
+    SEARCH_IDS("places.id"),
+    // Text Search used as a geocoder: only the coordinates
+    SEARCH_LOCATIONS("places.location"),
+    // Place Details 返回全部字段
+    DETAILS_ALL("*");
+
+    private final GrpcCallContext context;
+
+    PlacesFieldMask(String mask) {
+        this.context = GrpcCallContext.createDefault()
+                .withExtraHeaders(Map.of("x-goog-fieldmask", List.of(mask)));
+    }
+
+    GrpcCallContext context() {
+        return context;
+    }
+}
@@ -3,10 +3,14 @@ package com.work.coffeemode.config;
 import com.google.auth.oauth2.GoogleCredentials;
 import com.google.firebase.FirebaseApp;
 import com.google.firebase.FirebaseOptions;
-import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.core.io.ClassPathResource;
 
 import java.io.IOException;
@@ -17,33 +21,49 @@ public class FirebaseConfig {
 
     private static final Logger logger = LoggerFactory.getLogger(FirebaseConfig.class);
 
-    @PostConstruct
-    public void initialize() {
-        try {
-            // IMPORTANT: Replace "classpath:serviceAccountKey.json" with the actual path to
-            // your service account key.
-            // Consider loading this path from application properties or environment
-            // variables.
-            InputStream serviceAccount = new ClassPathResource("serviceAccountKey.json").getInputStream();
-
+    /**
+     * Created when first needed, i.e. by the first token verification; public reads never need it.
+     * Unless {@code coffeemode.startup.lazy-clients} is set it is still created during
+     * startup by {@link #firebaseEagerInit}.
+     */
+    @Bean
+    @Lazy
+    public FirebaseApp firebaseApp() throws IOException {
+        if (!FirebaseApp.getApps().isEmpty()) { // Check if already initialized
+            logger.info("Firebase Admin SDK already initialized.");
+            return FirebaseApp.getInstance();
+        }
+        // IMPORTANT: Replace "classpath:serviceAccountKey.json" with the actual path to
+        // your service account key.
+        // Consider loading this path from application properties or environment
+        // variables.
+        try (InputStream serviceAccount = new ClassPathResource("serviceAccountKey.json").getInputStream()) {
             FirebaseOptions options = FirebaseOptions.builder()
                     .setCredentials(GoogleCredentials.fromStream(serviceAccount))
                     // Optionally set your database URL if using Firebase Realtime Database or
                     // Firestore
                     // .setDatabaseUrl("https://<DATABASE_NAME>.firebaseio.com")
                     .build();
+            FirebaseApp app = FirebaseApp.initializeApp(options);
+            logger.info("Firebase Admin SDK initialized successfully.");
+            return app;
+        }
+    }
 
-            if (FirebaseApp.getApps().isEmpty()) { // Check if already initialized
-                FirebaseApp.initializeApp(options);
-                logger.info("Firebase Admin SDK initialized successfully.");
-            } else {
-                logger.info("Firebase Admin SDK already initialized.");
+    // A runtime check rather than @ConditionalOnProperty, which AOT processing would freeze
+    @Bean
+    SmartInitializingSingleton firebaseEagerInit(ObjectProvider<FirebaseApp> firebaseApp,
+            @Value("${coffeemode.startup.lazy-clients:false}") boolean lazyClients) {
+        return () -> {
+            if (lazyClients) {
+                return;
             }
-        } catch (IOException e) {
-            logger.error("Error initializing Firebase Admin SDK", e);
-            // Consider throwing a runtime exception or handling this critical error
-            // appropriately
-            // throw new RuntimeException("Could not initialize Firebase Admin SDK", e);
-        }
+            try {
+                firebaseApp.getObject();
+            } catch (RuntimeException e) {
+                // Startup continues without it, as before; token verification will report the failure
+                logger.error("Error initializing Firebase Admin SDK", e);
+            }
+        };
     }
-}
\ No newline at end of file
+}
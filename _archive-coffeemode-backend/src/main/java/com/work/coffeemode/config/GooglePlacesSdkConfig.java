@@ -1,58 +1,112 @@
 package com.work.coffeemode.config;
 
 import com.google.api.gax.core.NoCredentialsProvider;
+import com.google.api.gax.grpc.ChannelPoolSettings;
+import com.google.api.gax.grpc.InstantiatingGrpcChannelProvider;
 import com.google.api.gax.rpc.FixedHeaderProvider;
-import com.google.api.gax.rpc.HeaderProvider;
 import com.google.maps.places.v1.PlacesClient;
 import com.google.maps.places.v1.PlacesSettings;
+import com.work.coffeemode.client.PlacesChannelMetrics;
+import io.grpc.ClientInterceptor;
+import io.micrometer.core.instrument.binder.grpc.ObservationGrpcClientInterceptor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Lazy;
 
 import java.io.IOException;
-import java.util.HashMap;
+import java.time.Duration;
 import java.util.Map;
+import java.util.stream.Stream;
 
+/**
+ * One Places gRPC client over a shared, dynamically sized channel pool. Field masks are set per
+ * call (see {@code PlacesFieldMask}), so every call type reuses the same connections. By default
+ * the client and its pool are created during startup (see {@link #placesEagerInit}); with
+ * {@code coffeemode.startup.lazy-clients} they are created by the first call that needs them,
+ * which keeps them off the startup path of pods that mostly serve cafe reads.
+ */
 @Configuration
 public class GooglePlacesSdkConfig {
 
     @Value("${google.maps.api.key}")
     private String googleApiKey;
 
-    private PlacesSettings buildSettingsWithHeaders(Map<String, String> headers) throws IOException {
-        HeaderProvider headerProvider = FixedHeaderProvider.create(headers);
-        return PlacesSettings.newBuilder()
-                .setHeaderProvider(headerProvider)
-                .setCredentialsProvider(NoCredentialsProvider.create())
-                .build();
-    }
+    // Overrides for pointing the client at a local stand-in (the load harness's fake server)
+    @Value("${coffeemode.places.endpoint:}")
+    private String endpoint;
+
+    @Value("${coffeemode.places.plaintext:false}")
+    private boolean plaintext;
+
+    @Value("${coffeemode.places.channel.min-channels:1}")
+    private int minChannels;
+
+    @Value("${coffeemode.places.channel.max-channels:4}")
+    private int maxChannels;
+
+    @Value("${coffeemode.places.channel.max-calls-per-channel:50}")
+    private int maxCallsPerChannel;
+
+    @Value("${coffeemode.places.channel.keepalive-time:2m}")
+    private Duration keepAliveTime;
+
+    @Value("${coffeemode.places.channel.keepalive-timeout:20s}")
+    private Duration keepAliveTimeout;
 
     @Bean
-    @Qualifier("placesTextClient")
-    PlacesClient placesTextClient() throws IOException {
+    @Lazy
+    PlacesClient placesClient(PlacesChannelMetrics channelMetrics,
+            ObjectProvider<ObservationGrpcClientInterceptor> observationInterceptor) throws IOException {
         if (googleApiKey == null || googleApiKey.isBlank()) {
             throw new RuntimeException(
                     "Google Maps API key is not configured (env GOOGLE_MAPS_API_KEY or property google.maps.api.key)");
         }
-        Map<String, String> headers = new HashMap<>();
-        headers.put("x-goog-api-key", googleApiKey);
-        // Text Search 只返回 id：places.id
-        headers.put("x-goog-fieldmask", "places.id");
-        return PlacesClient.create(buildSettingsWithHeaders(headers));
+        InstantiatingGrpcChannelProvider.Builder channelProvider = PlacesSettings.defaultGrpcTransportProviderBuilder()
+                .setChannelPoolSettings(ChannelPoolSettings.builder()
+                        .setInitialChannelCount(minChannels)
+                        .setMinChannelCount(minChannels)
+                        .setMaxChannelCount(maxChannels)
+                        // Grow once the average channel carries this many concurrent streams
+                        .setMaxRpcsPerChannel(maxCallsPerChannel)
+                        .build())
+                // Notices dead connections (e.g. dropped by a NAT) before a request does
+                .setKeepAliveTime(org.threeten.bp.Duration.ofMillis(keepAliveTime.toMillis()))
+                .setKeepAliveTimeout(org.threeten.bp.Duration.ofMillis(keepAliveTimeout.toMillis()))
+                .setKeepAliveWithoutCalls(false)
+                .setChannelConfigurator(builder -> {
+                    if (plaintext) {
+                        builder.usePlaintext();
+                    }
+                    return channelMetrics.onChannelCreated(builder);
+                })
+                // Plus a grpc.client span per call when tracing is enabled (see TracingConfig)
+                .setInterceptorProvider(() -> Stream.<ClientInterceptor>concat(
+                        Stream.of(channelMetrics), observationInterceptor.stream()).toList());
+        if (!endpoint.isBlank()) {
+            channelProvider.setEndpoint(endpoint);
+        }
+        return PlacesClient.create(PlacesSettings.newBuilder()
+                .setTransportChannelProvider(channelProvider.build())
+                .setHeaderProvider(FixedHeaderProvider.create(Map.of("x-goog-api-key", googleApiKey)))
+                .setCredentialsProvider(NoCredentialsProvider.create())
+                .build());
     }
 
+    /**
+     * Unless {@code coffeemode.startup.lazy-clients} is set, the client is created during startup,
+     * so a missing API key still fails the boot.
+     */
     @Bean
-    @Qualifier("placesDetailsClient")
-    PlacesClient placesDetailsClient() throws IOException {
-        if (googleApiKey == null || googleApiKey.isBlank()) {
-            throw new RuntimeException(
-                    "Google Maps API key is not configured (env GOOGLE_MAPS_API_KEY or property google.maps.api.key)");
-        }
-        Map<String, String> headers = new HashMap<>();
-        headers.put("x-goog-api-key", googleApiKey);
-        // Place Details 返回全部字段：*
-        headers.put("x-goog-fieldmask", "*");
-        return PlacesClient.create(buildSettingsWithHeaders(headers));
+    SmartInitializingSingleton placesEagerInit(ObjectProvider<PlacesClient> placesClient,
+            @Value("${coffeemode.startup.lazy-clients:false}") boolean lazyClients) {
+        return () -> {
+            if (lazyClients) {
+                return;
+            }
+            placesClient.getObject();
+        };
     }
-}
\ No newline at end of file
+}
@@ -1,41 +1,55 @@
 package com.work.coffeemode.config;
 
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.context.annotation.Configuration;
-import org.springframework.data.mongodb.core.MongoTemplate;
-import org.springframework.data.mongodb.core.index.GeoSpatialIndexType;
-import org.springframework.data.mongodb.core.index.GeospatialIndex;
-import org.springframework.data.mongodb.core.index.Index;
-import org.springframework.data.domain.Sort;
-import org.springframework.boot.CommandLineRunner;
+import com.work.coffeemode.index.RequiredIndexes;
+import com.work.coffeemode.profiling.SlowQueryLog;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.config.EnableMongoAuditing;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
 
 @Configuration
+@EnableMongoAuditing
 public class MongoConfig {
 
-    @Autowired
-    private MongoTemplate mongoTemplate;
-
     @Bean
-    CommandLineRunner commandLineRunner(MongoTemplate mongoTemplate) {
-        return strings -> {
-            // cafes: 2dsphere for nearby queries
-            mongoTemplate.indexOps("cafes")
-                    .ensureIndex(new GeospatialIndex("location")
-                            .typed(GeoSpatialIndexType.GEO_2DSPHERE));
-
-            // cafes: unique index on externalReferences.googlePlace (one cafe per placeId)
-            mongoTemplate.indexOps("cafes")
-            .ensureIndex(new Index().on("externalReferences.googlePlace", Sort.Direction.ASC).unique().sparse());
+    MongoCustomConversions mongoCustomConversions() {
+        return new MongoCustomConversions(MongoConverters.all());
+    }
 
-            // google_place_poi: unique index on placeId for cache lookup
-            mongoTemplate.indexOps("google_place_poi")
-                    .ensureIndex(new Index().on("placeId", Sort.Direction.ASC).unique());
+    /**
+     * Slow query shapes and their explain plans, for both the blocking and the reactive client.
+     */
+    @Bean
+    MongoClientSettingsBuilderCustomizer slowQueryLogCustomizer(SlowQueryLog slowQueryLog) {
+        return settings -> settings.addCommandListener(slowQueryLog);
+    }
 
-            // google_place_poi: 2dsphere index for spatial queries (if any)
-            mongoTemplate.indexOps("google_place_poi")
-                    .ensureIndex(new GeospatialIndex("location")
-                            .typed(GeoSpatialIndexType.GEO_2DSPHERE));
-        };
+    /**
+     * Every index the application depends on. This is the only place indexes are declared; entity
+     * annotations are not used, and {@link com.work.coffeemode.index.MongoIndexManager} builds
+     * whatever is missing in the background after startup.
+     */
+    @Bean
+    RequiredIndexes requiredIndexes() {
+        return new RequiredIndexes()
+                // cafes: 2dsphere for nearby queries
+                .geo2dsphere("cafes", "location")
+                // cafes: unique index on externalReferences.googlePlace (one cafe per placeId)
+                .ascending("cafes", "externalReferences.googlePlace", true, true)
+                // cafes: RedNote POI link lookups
+                .ascending("cafes", "externalReferences.redbookId", false, true)
+                // cafes / cafe_tombstones: delta sync range scans over the change sequence
+                .ascending("cafes", "changeSeq", true, true)
+                .ascending("cafe_tombstones", "changeSeq", true, false)
+                // rednote_link_reviews: one review per RedNote POI, replaced by each linking run
+                .ascending("rednote_link_reviews", "redbookId", true, false)
+                // google_place_poi: unique index on placeId for cache lookup
+                .ascending("google_place_poi", "placeId", true, false)
+                // google_place_poi: 2dsphere index for spatial queries (if any)
+                .geo2dsphere("google_place_poi", "location")
+                // users: one record per Firebase user
+                .ascending("users", "firebaseUid", true, false)
+                .ascending("users", "email", false, true);
     }
-}
\ No newline at end of file
+}
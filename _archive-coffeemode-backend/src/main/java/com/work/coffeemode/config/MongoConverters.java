@@ -0,0 +1,156 @@
+package com.work.coffeemode.config;
+
+import com.work.coffeemode.model.CompressedPlaceDetails;
+import com.work.coffeemode.model.QuietnessLevel;
+import com.work.coffeemode.model.Temperature;
+import org.bson.Document;
+import org.bson.types.Binary;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.data.convert.ReadingConverter;
+import org.springframework.data.convert.WritingConverter;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Compact storage encodings, registered in {@link MongoConfig}.
+ * <p>
+ * Readers also accept the legacy representations (label strings, nested raw-details documents) so
+ * documents written before the migration keep loading.
+ */
+final class MongoConverters {
+
+    private MongoConverters() {
+    }
+
+    static List<Converter<?, ?>> all() {
+        return List.of(
+                QuietnessLevelToCode.INSTANCE, CodeToQuietnessLevel.INSTANCE, LabelToQuietnessLevel.INSTANCE,
+                TemperatureToCode.INSTANCE, CodeToTemperature.INSTANCE, LabelToTemperature.INSTANCE,
+                DurationToSeconds.INSTANCE, SecondsToDuration.INSTANCE,
+                PlaceDetailsToBinary.INSTANCE, BinaryToPlaceDetails.INSTANCE, BytesToPlaceDetails.INSTANCE,
+                DocumentToPlaceDetails.INSTANCE);
+    }
+
+    @WritingConverter
+    enum QuietnessLevelToCode implements Converter<QuietnessLevel, Integer> {
+        INSTANCE;
+
+        @Override
+        public Integer convert(QuietnessLevel source) {
+            return source.getCode();
+        }
+    }
+
+    @ReadingConverter
+    enum CodeToQuietnessLevel implements Converter<Number, QuietnessLevel> {
+        INSTANCE;
+
+        @Override
+        public QuietnessLevel convert(Number source) {
+            return QuietnessLevel.fromCode(source.intValue());
+        }
+    }
+
+    @ReadingConverter
+    enum LabelToQuietnessLevel implements Converter<String, QuietnessLevel> {
+        INSTANCE;
+
+        @Override
+        public QuietnessLevel convert(String source) {
+            return QuietnessLevel.fromLabel(source);
+        }
+    }
+
+    @WritingConverter
+    enum TemperatureToCode implements Converter<Temperature, Integer> {
+        INSTANCE;
+
+        @Override
+        public Integer convert(Temperature source) {
+            return source.getCode();
+        }
+    }
+
+    @ReadingConverter
+    enum CodeToTemperature implements Converter<Number, Temperature> {
+        INSTANCE;
+
+        @Override
+        public Temperature convert(Number source) {
+            return Temperature.fromCode(source.intValue());
+        }
+    }
+
+    @ReadingConverter
+    enum LabelToTemperature implements Converter<String, Temperature> {
+        INSTANCE;
+
+        @Override
+        public Temperature convert(String source) {
+            return Temperature.fromLabel(source);
+        }
+    }
+
+    // Whole seconds as int32 instead of the default ISO-8601 string ("PT2H")
+    @WritingConverter
+    enum DurationToSeconds implements Converter<Duration, Integer> {
+        INSTANCE;
+
+        @Override
+        public Integer convert(Duration source) {
+            return (int) Math.min(source.getSeconds(), Integer.MAX_VALUE);
+        }
+    }
+
+    @ReadingConverter
+    enum SecondsToDuration implements Converter<Number, Duration> {
+        INSTANCE;
+
+        @Override
+        public Duration convert(Number source) {
+            return Duration.ofSeconds(source.longValue());
+        }
+    }
+
+    @WritingConverter
+    enum PlaceDetailsToBinary implements Converter<CompressedPlaceDetails, Binary> {
+        INSTANCE;
+
+        @Override
+        public Binary convert(CompressedPlaceDetails source) {
+            return new Binary(source.getEncoded());
+        }
+    }
+
+    @ReadingConverter
+    enum BinaryToPlaceDetails implements Converter<Binary, CompressedPlaceDetails> {
+        INSTANCE;
+
+        @Override
+        public CompressedPlaceDetails convert(Binary source) {
+            return CompressedPlaceDetails.fromEncoded(source.getData());
+        }
+    }
+
+    @ReadingConverter
+    enum BytesToPlaceDetails implements Converter<byte[], CompressedPlaceDetails> {
+        INSTANCE;
+
+        @Override
+        public CompressedPlaceDetails convert(byte[] source) {
+            return CompressedPlaceDetails.fromEncoded(source);
+        }
+    }
+
+    // Pre-migration documents stored the details as a nested map
+    @ReadingConverter
+    enum DocumentToPlaceDetails implements Converter<Document, CompressedPlaceDetails> {
+        INSTANCE;
+
+        @Override
+        public CompressedPlaceDetails convert(Document source) {
+            return CompressedPlaceDetails.fromJson(source.toJson());
+        }
+    }
+}
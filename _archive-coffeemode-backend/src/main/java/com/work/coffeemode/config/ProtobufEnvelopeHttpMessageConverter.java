@@ -0,0 +1,86 @@
+package com.work.coffeemode.config;
+
+import com.work.coffeemode.dto.proto.CafeProtoMapper;
+import com.work.coffeemode.model.UnifiedResponse;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.lang.Nullable;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.Collection;
+
+/**
+ * Writes {@link UnifiedResponse} bodies as a {@code cafe.proto} {@code Envelope} when the client
+ * sends {@code Accept: application/x-protobuf}. Only payloads with a protobuf mapping are claimed,
+ * so any other endpoint keeps answering JSON (or 406 if protobuf is the only acceptable type).
+ * <p>
+ * Selection happens on the handler's declared return type, before the envelope is applied, so
+ * both the raw payload types and {@code UnifiedResponse<T>} are checked.
+ */
+public class ProtobufEnvelopeHttpMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+
+    public static final MediaType PROTOBUF = new MediaType("application", "x-protobuf");
+
+    public ProtobufEnvelopeHttpMessageConverter() {
+        super(PROTOBUF);
+    }
+
+    @Override
+    public boolean canRead(Type type, @Nullable Class<?> contextClass, @Nullable MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected boolean canRead(@Nullable MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    public boolean canWrite(@Nullable Type type, Class<?> clazz, @Nullable MediaType mediaType) {
+        if (!canWrite(mediaType)) {
+            return false;
+        }
+        // Handlers declared as ResponseEntity<?> only reveal the payload through its runtime class
+        return (type != null && isMapped(ResolvableType.forType(type))) || isMapped(ResolvableType.forClass(clazz));
+    }
+
+    private static boolean isMapped(ResolvableType type) {
+        Class<?> raw = type.resolve();
+        if (raw == null) {
+            return false;
+        }
+        if (UnifiedResponse.class.isAssignableFrom(raw)) {
+            Class<?> data = type.getGeneric(0).resolve();
+            // Error bodies and data-less successes carry no payload
+            return data == null || data == Void.class || data == Object.class || isMapped(type.getGeneric(0));
+        }
+        if (Collection.class.isAssignableFrom(raw)) {
+            Class<?> element = type.asCollection().getGeneric(0).resolve();
+            return element != null && CafeProtoMapper.supports(element);
+        }
+        return CafeProtoMapper.supports(raw);
+    }
+
+    @Override
+    protected void writeInternal(Object body, @Nullable Type type, HttpOutputMessage outputMessage)
+            throws IOException {
+        UnifiedResponse<?> response = body instanceof UnifiedResponse<?> unified ? unified
+                : UnifiedResponse.success(body);
+        CafeProtoMapper.toEnvelope(response).writeTo(outputMessage.getBody());
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Protobuf request bodies are not supported", inputMessage);
+    }
+
+    @Override
+    public Object read(Type type, @Nullable Class<?> contextClass, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Protobuf request bodies are not supported", inputMessage);
+    }
+}
@@ -0,0 +1,66 @@
+package com.work.coffeemode.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.work.coffeemode.security.RateLimiter;
+import com.work.coffeemode.security.ReactiveFirebaseTokenFilter;
+import com.work.coffeemode.security.ReactiveRateLimitFilter;
+import com.work.coffeemode.security.VerifiedTokenCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.autoconfigure.security.reactive.EndpointRequest;
+import org.springframework.boot.actuate.health.HealthEndpoint;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.annotation.Order;
+import org.springframework.security.config.Customizer;
+import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
+import org.springframework.security.config.web.server.SecurityWebFiltersOrder;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.context.NoOpServerSecurityContextRepository;
+
+/**
+ * {@link SecurityConfig} for the reactive profile: same stateless, permit-all setup, with the
+ * Firebase and rate limit filters in the same order, and the same login for the actuator.
+ */
+@Configuration
+@Profile("reactive")
+@EnableWebFluxSecurity
+public class ReactiveSecurityConfig {
+
+    @Bean
+    @Order(1)
+    public SecurityWebFilterChain actuatorSecurityWebFilterChain(ServerHttpSecurity http) {
+        return http
+                .securityMatcher(EndpointRequest.toAnyEndpoint())
+                .csrf(ServerHttpSecurity.CsrfSpec::disable)
+                .formLogin(ServerHttpSecurity.FormLoginSpec::disable)
+                .httpBasic(Customizer.withDefaults())
+                .securityContextRepository(NoOpServerSecurityContextRepository.getInstance())
+                .authorizeExchange(exchanges -> exchanges
+                        .matchers(EndpointRequest.to(HealthEndpoint.class)).permitAll()
+                        .anyExchange().hasRole(SecurityConfig.ACTUATOR_ROLE))
+                .build();
+    }
+
+    @Bean
+    public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http, VerifiedTokenCache tokenCache,
+            RateLimiter rateLimiter, ObjectMapper objectMapper, MeterRegistry meterRegistry,
+            @Value("${coffeemode.rate-limit.enabled:true}") boolean rateLimitEnabled) {
+        // Plain objects rather than beans, so WebFlux doesn't also run them outside the chain
+        ReactiveFirebaseTokenFilter firebaseTokenFilter = new ReactiveFirebaseTokenFilter(tokenCache);
+        ReactiveRateLimitFilter rateLimitFilter = new ReactiveRateLimitFilter(rateLimiter, objectMapper,
+                meterRegistry, rateLimitEnabled);
+        return http
+                .csrf(ServerHttpSecurity.CsrfSpec::disable)
+                .formLogin(ServerHttpSecurity.FormLoginSpec::disable)
+                .httpBasic(ServerHttpSecurity.HttpBasicSpec::disable)
+                // Stateless: no WebSession is created or read
+                .securityContextRepository(NoOpServerSecurityContextRepository.getInstance())
+                .authorizeExchange(exchanges -> exchanges.anyExchange().permitAll())
+                .addFilterAt(firebaseTokenFilter, SecurityWebFiltersOrder.AUTHENTICATION)
+                .addFilterAfter(rateLimitFilter, SecurityWebFiltersOrder.AUTHENTICATION)
+                .build();
+    }
+}
@@ -0,0 +1,39 @@
+package com.work.coffeemode.config;
+
+import com.work.coffeemode.controller.ReactiveCafeHandler;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.config.EnableReactiveMongoAuditing;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+/**
+ * Non-blocking deployment: {@code SPRING_PROFILES_ACTIVE=reactive} runs the cafe API on Netty with
+ * WebFlux and the reactive MongoDB driver instead of Tomcat (see {@code application-reactive.yml}).
+ * Only the cafe endpoints are served; Places resolution and the users API stay on the servlet
+ * deployment.
+ */
+@Configuration
+@Profile("reactive")
+// ReactiveMongoTemplate only runs reactive entity callbacks, so auditing is enabled separately
+@EnableReactiveMongoAuditing
+public class ReactiveWebConfig {
+
+    @Bean
+    RouterFunction<ServerResponse> cafeRoutes(ReactiveCafeHandler handler) {
+        return RouterFunctions.route()
+                .path("/api/cafes", cafes -> cafes
+                        .POST("", handler::createCafe)
+                        .GET("", handler::getAllCafes)
+                        .GET("/nearby", handler::findNearbyCafes)
+                        .GET("/menu", handler::searchMenus)
+                        .GET("/sync", handler::syncCafes)
+                        .GET("/{id}/similar", handler::findSimilarCafes)
+                        .GET("/{id}", handler::getCafeById)
+                        .PUT("/{id}", handler::updateCafe)
+                        .DELETE("/{id}", handler::deleteCafe))
+                .build();
+    }
+}
@@ -1,8 +1,14 @@
 package com.work.coffeemode.config;
 
 import com.work.coffeemode.security.FirebaseTokenFilter;
+import com.work.coffeemode.security.RateLimitFilter;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
+import org.springframework.boot.actuate.health.HealthEndpoint;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.annotation.Order;
+import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
@@ -14,12 +20,39 @@ import org.springframework.security.web.authentication.UsernamePasswordAuthentic
 @Configuration
 @EnableWebSecurity
 @EnableMethodSecurity(securedEnabled = true, jsr250Enabled = true) // Enable method-level security
+@Profile("!reactive")
 public class SecurityConfig {
 
+    // Granted to spring.security.user, the only account that may use the management endpoints
+    static final String ACTUATOR_ROLE = "ACTUATOR";
+
     private final FirebaseTokenFilter firebaseTokenFilter;
+    private final RateLimitFilter rateLimitFilter;
 
-    public SecurityConfig(FirebaseTokenFilter firebaseTokenFilter) {
+    public SecurityConfig(FirebaseTokenFilter firebaseTokenFilter, RateLimitFilter rateLimitFilter) {
         this.firebaseTokenFilter = firebaseTokenFilter;
+        this.rateLimitFilter = rateLimitFilter;
+    }
+
+    /**
+     * Actuator endpoints other than health need HTTP basic credentials of {@code spring.security.user}:
+     * they expose query plans and startup internals, and some of them reset state or start jobs.
+     * Health stays open for the liveness and readiness probes; its details need the same login.
+     */
+    @Bean
+    @Order(1)
+    public SecurityFilterChain actuatorSecurityFilterChain(HttpSecurity http) throws Exception {
+        http
+                .securityMatcher(EndpointRequest.toAnyEndpoint())
+                .csrf(AbstractHttpConfigurer::disable)
+                .formLogin(AbstractHttpConfigurer::disable)
+                .httpBasic(Customizer.withDefaults())
+                .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                .authorizeHttpRequests(authz -> authz
+                        .requestMatchers(EndpointRequest.to(HealthEndpoint.class)).permitAll()
+                        .anyRequest().hasRole(ACTUATOR_ROLE));
+
+        return http.build();
     }
 
     @Bean
@@ -49,7 +82,9 @@ public class SecurityConfig {
                 )
                 // Add the FirebaseTokenFilter before the standard
                 // UsernamePasswordAuthenticationFilter
-                .addFilterBefore(firebaseTokenFilter, UsernamePasswordAuthenticationFilter.class);
+                .addFilterBefore(firebaseTokenFilter, UsernamePasswordAuthenticationFilter.class)
+                // Rate limit once the caller is known, before any controller touches Mongo or Places
+                .addFilterAfter(rateLimitFilter, FirebaseTokenFilter.class);
 
         return http.build();
     }
@@ -0,0 +1,63 @@
+package com.work.coffeemode.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.boot.context.metrics.buffering.StartupTimeline.TimelineEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Logs the slowest bean initializations once the application is ready, from the timeline
+ * buffered by {@link BufferingApplicationStartup}. Times are the bean's own, excluding the
+ * dependencies it pulled in. The full timeline stays available at {@code /actuator/startup} when
+ * that endpoint is exposed.
+ */
+@Slf4j
+@Component
+public class StartupTimelineReporter {
+
+    private static final String BEAN_INSTANTIATE = "spring.beans.instantiate";
+    private static final int TOP = 15;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void report(ApplicationReadyEvent event) {
+        if (!(event.getApplicationContext().getApplicationStartup() instanceof BufferingApplicationStartup startup)) {
+            return;
+        }
+        List<TimelineEvent> beans = startup.getBufferedTimeline().getEvents().stream()
+                .filter(e -> BEAN_INSTANTIATE.equals(e.getStartupStep().getName()))
+                .toList();
+
+        Map<Long, Duration> self = new HashMap<>();
+        for (TimelineEvent bean : beans) {
+            self.merge(bean.getStartupStep().getId(), bean.getDuration(), Duration::plus);
+            Long parent = bean.getStartupStep().getParentId();
+            if (parent != null) {
+                self.merge(parent, bean.getDuration().negated(), Duration::plus);
+            }
+        }
+
+        log.info("Started in {} ms, {} beans instantiated; slowest:", event.getTimeTaken().toMillis(), beans.size());
+        beans.stream()
+                .sorted(Comparator.comparing((TimelineEvent e) -> self.get(e.getStartupStep().getId())).reversed())
+                .limit(TOP)
+                .forEach(e -> log.info("  {} ms  {}", self.get(e.getStartupStep().getId()).toMillis(), beanName(e)));
+    }
+
+    private static String beanName(TimelineEvent event) {
+        for (StartupStep.Tag tag : event.getStartupStep().getTags()) {
+            if ("beanName".equals(tag.getKey())) {
+                return tag.getValue();
+            }
+        }
+        return "?";
+    }
+}
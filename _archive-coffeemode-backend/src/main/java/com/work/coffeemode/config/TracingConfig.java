@@ -0,0 +1,94 @@
+package com.work.coffeemode.config;
+
+import com.work.coffeemode.tracing.OtlpJsonFileSpanExporter;
+import com.work.coffeemode.tracing.TailSamplingSpanProcessor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.grpc.ObservationGrpcClientInterceptor;
+import io.micrometer.observation.ObservationRegistry;
+import io.opentelemetry.sdk.trace.export.BatchSpanProcessor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.autoconfigure.tracing.SpanProcessors;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.support.ContextPropagatingTaskDecorator;
+import org.springframework.data.mongodb.observability.ContextProviderFactory;
+import org.springframework.data.mongodb.observability.MongoObservationCommandListener;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Distributed tracing on top of Boot's Micrometer/OpenTelemetry setup.
+ * <p>
+ * Spans come from observations: the HTTP server request, {@code auth.token.verify}
+ * (FirebaseTokenFilter), one {@code grpc.client} span per Places RPC, one span per MongoDB command
+ * (every repository and template call) and {@code response.envelope}. The observation context
+ * follows work onto Spring's task executors and {@code CacheLoads.EXECUTOR}; Tomcat's virtual
+ * threads need nothing extra, as a request stays on one thread.
+ * <p>
+ * Export goes through {@link TailSamplingSpanProcessor}: every trace is recorded, but only slow,
+ * failed and a small baseline share are handed to Boot's batch processor, which sends them to
+ * the OTLP collector ({@code management.otlp.tracing.endpoint}) and/or
+ * {@link OtlpJsonFileSpanExporter} ({@code coffeemode.tracing.file}).
+ */
+@Configuration
+public class TracingConfig {
+
+    /**
+     * Carries the current observation (and so the trace) onto Spring's {@code @Async} and
+     * scheduler threads, virtual or not.
+     */
+    @Bean
+    ContextPropagatingTaskDecorator contextPropagatingTaskDecorator() {
+        return new ContextPropagatingTaskDecorator();
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnProperty(prefix = "management.tracing", name = "enabled", matchIfMissing = true)
+    static class Export {
+
+        /**
+         * Replaces Boot's span processor list: the batch processor only sees what tail sampling keeps.
+         */
+        @Bean
+        SpanProcessors tailSampledSpanProcessors(BatchSpanProcessor otelSpanProcessor, MeterRegistry meterRegistry,
+                @Value("${coffeemode.tracing.tail.slow-threshold:500ms}") Duration slowThreshold,
+                @Value("${coffeemode.tracing.tail.keep-ratio:0.01}") double keepRatio,
+                @Value("${coffeemode.tracing.tail.max-pending-traces:10000}") long maxPendingTraces,
+                @Value("${coffeemode.tracing.tail.max-spans-per-trace:1000}") int maxSpansPerTrace,
+                @Value("${coffeemode.tracing.tail.max-trace-duration:1m}") Duration maxTraceDuration) {
+            return SpanProcessors.of(new TailSamplingSpanProcessor(otelSpanProcessor, slowThreshold, keepRatio,
+                    maxPendingTraces, maxSpansPerTrace, maxTraceDuration, meterRegistry));
+        }
+
+        @Bean
+        @ConditionalOnExpression("!'${coffeemode.tracing.file:}'.isBlank()")
+        OtlpJsonFileSpanExporter otlpJsonFileSpanExporter(@Value("${coffeemode.tracing.file}") Path file)
+                throws IOException {
+            return new OtlpJsonFileSpanExporter(file);
+        }
+
+        /**
+         * One span per MongoDB command, parented to the observation current on the calling thread
+         * (blocking driver) or in the subscriber context (reactive driver).
+         */
+        @Bean
+        MongoClientSettingsBuilderCustomizer mongoObservationCustomizer(ObservationRegistry observationRegistry) {
+            return settings -> settings
+                    .contextProvider(ContextProviderFactory.create(observationRegistry))
+                    .addCommandListener(new MongoObservationCommandListener(observationRegistry));
+        }
+
+        /**
+         * Picked up by {@link GooglePlacesSdkConfig}; also propagates {@code traceparent} to Places.
+         */
+        @Bean
+        ObservationGrpcClientInterceptor placesObservationInterceptor(ObservationRegistry observationRegistry) {
+            return new ObservationGrpcClientInterceptor(observationRegistry);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.work.coffeemode.config;
+
+import com.work.coffeemode.image.LocalObjectStore;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.CacheControl;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.time.Duration;
+import java.util.List;
+
+@Configuration
+@Profile("!reactive")
+public class WebConfig implements WebMvcConfigurer {
+
+    private final ObjectProvider<LocalObjectStore> localObjectStore;
+
+    public WebConfig(ObjectProvider<LocalObjectStore> localObjectStore) {
+        this.localObjectStore = localObjectStore;
+    }
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        // Appended after Jackson so JSON stays the default for Accept: */*
+        converters.add(new ProtobufEnvelopeHttpMessageConverter());
+    }
+
+    @Override
+    public void addResourceHandlers(ResourceHandlerRegistry registry) {
+        // Image keys are never reused, so stored objects can be cached for good
+        localObjectStore.ifAvailable(store -> registry.addResourceHandler(store.getBaseUrl() + "/**")
+                .addResourceLocations(store.getRoot().toUri().toString())
+                .setCacheControl(CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable()));
+    }
+}
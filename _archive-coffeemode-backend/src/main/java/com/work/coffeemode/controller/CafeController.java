@@ -1,92 +1,238 @@
 package com.work.coffeemode.controller;
 
+import com.work.coffeemode.cache.CafeResponseCache;
+import com.work.coffeemode.coordination.IdempotencyStore;
 import com.work.coffeemode.dto.cafe.SearchNearbyRequest;
+import com.work.coffeemode.dto.cafe.CafeSyncResponse;
 import com.work.coffeemode.dto.cafe.CreateCafeRequest;
+import com.work.coffeemode.dto.cafe.ImageDTO;
+import com.work.coffeemode.dto.cafe.MenuSearchHit;
+import com.work.coffeemode.dto.cafe.MenuSearchRequest;
+import com.work.coffeemode.dto.cafe.SimilarCafe;
+import com.work.coffeemode.dto.cafe.SimilarCafesRequest;
+import com.work.coffeemode.dto.proto.CafeProtoMapper;
 import com.work.coffeemode.exception.CafeNotFoundException;
+import com.work.coffeemode.image.ImagePipeline;
 import com.work.coffeemode.model.Cafe;
+import com.work.coffeemode.model.UnifiedResponse;
+import com.work.coffeemode.proto.CafeProtos;
+import com.work.coffeemode.recommend.SimilarCafeIndex;
+import com.work.coffeemode.search.MenuIndex;
+import com.work.coffeemode.security.FirebasePrincipal;
 import com.work.coffeemode.service.CafeService;
+import com.work.coffeemode.service.CafeSyncService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+import org.springframework.web.context.request.ServletWebRequest;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.http.HttpStatus;
-import java.util.HashMap;
-import java.util.Map;
 
 @RestController
 @RequestMapping("/api/cafes")
+@Profile("!reactive")
 public class CafeController {
 
     @Autowired
     private CafeService cafeService;
 
+    @Autowired
+    private CafeResponseCache cafeResponseCache;
+
+    @Autowired
+    private CafeSyncService cafeSyncService;
+
+    @Autowired
+    private MenuIndex menuIndex;
+
+    @Autowired
+    private ImagePipeline imagePipeline;
+
+    @Autowired
+    private IdempotencyStore idempotencyStore;
+
+    @Autowired
+    private SimilarCafeIndex similarCafeIndex;
+
+    /**
+     * Creating a cafe for a Google place that already has one returns the existing cafe with 200.
+     * With an {@code Idempotency-Key}, retries get the first attempt's status and the cafe it
+     * wrote, flagged by an {@code Idempotent-Replayed} header. Keys are per caller: the Firebase
+     * UID, or the client address for anonymous requests.
+     */
     @PostMapping
-    public ResponseEntity<Map<String, Object>> createCafe(@Valid @RequestBody CreateCafeRequest request) {
-        GeoJsonPoint geoJsonPoint = new GeoJsonPoint(
-                request.getLocation().getCoordinates()[0], // longitude
-                request.getLocation().getCoordinates()[1] // latitude
-        );
-
-        Cafe.Features features = null;
-        if (request.getFeatures() != null) {
-            features = Cafe.Features.builder()
-                    .wifiAvailable(request.getFeatures().getWifiAvailable())
-                    .outletsAvailable(request.getFeatures().getOutletsAvailable())
-                    .quietnessLevel(request.getFeatures().getQuietnessLevel())
-                    .temperature(request.getFeatures().getTemperature())
-                    .build();
+    public ResponseEntity<UnifiedResponse<Cafe>> createCafe(@Valid @RequestBody CreateCafeRequest request,
+            @RequestHeader(name = IdempotencyStore.HEADER, required = false) String idempotencyKey,
+            @AuthenticationPrincipal FirebasePrincipal principal, HttpServletRequest httpRequest) {
+        if (idempotencyKey == null) {
+            return created(cafeService.createCafeIfAbsent(CafeRequests.toCafe(request)));
         }
+        String caller = principal != null ? "uid:" + principal.getUid() : "ip:" + httpRequest.getRemoteAddr();
+        AtomicReference<Cafe> written = new AtomicReference<>();
+        IdempotencyStore.Outcome outcome = idempotencyStore.execute("create-cafe", caller, idempotencyKey, request,
+                () -> {
+                    CafeService.Creation creation = cafeService.createCafeIfAbsent(CafeRequests.toCafe(request));
+                    written.set(creation.cafe());
+                    return new IdempotencyStore.Outcome(creation.cafe().getStringId(),
+                            creation.created() ? HttpStatus.CREATED.value() : HttpStatus.OK.value(), false);
+                });
+        Cafe cafe = outcome.replayed() ? cafeService.getCafeById(outcome.resourceId()) : written.get();
+        return ResponseEntity.status(outcome.status())
+                .header("Idempotent-Replayed", Boolean.toString(outcome.replayed()))
+                .body(createResponse(cafe, outcome.status() == HttpStatus.CREATED.value()));
+    }
 
-        Cafe.ExternalReferences externalReferences = null;
-        if (request.getExternalReferences() != null) {
-            externalReferences = Cafe.ExternalReferences.builder()
-                    .googlePlace(request.getExternalReferences().getGooglePlace())
-                    .redbookId(request.getExternalReferences().getRedbookId())
-                    .build();
-        }
+    private static ResponseEntity<UnifiedResponse<Cafe>> created(CafeService.Creation creation) {
+        return ResponseEntity.status(creation.created() ? HttpStatus.CREATED : HttpStatus.OK)
+                .body(createResponse(creation.cafe(), creation.created()));
+    }
 
-        Cafe cafe = Cafe.builder()
-                .name(request.getName())
-                .location(geoJsonPoint)
-                .address(request.getAddress())
-                .features(features)
-                .images(request.getImages())
-                .website(request.getWebsite())
-                .openingHours(request.getOpeningHours())
-                .externalReferences(externalReferences)
-                .averageRating(0.0)
-                .totalReviews(0)
+    private static UnifiedResponse<Cafe> createResponse(Cafe cafe, boolean created) {
+        return UnifiedResponse.<Cafe>builder()
+                .code(created ? 201 : 200)
+                .message(created ? "Cafe created successfully" : "Cafe already exists")
+                .data(cafe)
                 .build();
+    }
 
-        Cafe savedCafe = cafeService.createCafe(cafe);
+    @GetMapping("/nearby")
+    public ResponseEntity<List<Cafe>> findNearbyCafes(
+            @Valid @RequestBody SearchNearbyRequest request) {
+        return ResponseEntity.ok()
+                .cacheControl(HttpCaching.NEARBY)
+                .body(cafeService.findNearbyCafes(
+                        request.getLongitude(),
+                        request.getLatitude(),
+                        request.getRadiusInKm()));
+    }
 
-        Map<String, Object> response = new HashMap<>();
-        response.put("code", 201);
-        response.put("message", "Cafe created successfully");
-        response.put("data", savedCafe);
+    /**
+     * Protobuf variant of {@link #findNearbyCafes}: map pins only need summaries, so the binary
+     * response skips the full cafe documents.
+     */
+    @GetMapping(value = "/nearby", produces = "application/x-protobuf")
+    public ResponseEntity<CafeProtos.NearbyCafesResponse> findNearbyCafeSummaries(
+            @Valid @RequestBody SearchNearbyRequest request) {
+        return ResponseEntity.ok()
+                .cacheControl(HttpCaching.NEARBY)
+                .body(CafeProtoMapper.toNearbyResponse(cafeService.findNearbyCafes(
+                        request.getLongitude(),
+                        request.getLatitude(),
+                        request.getRadiusInKm())));
+    }
 
-        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    /**
+     * Cafes by what their RedNote menu highlights offer, answered from the in-process menu index.
+     * <p>
+     * GET /api/cafes/menu?q=latte&maxPrice=6&latitude=31.23&longitude=121.47&radiusInKm=2
+     */
+    @GetMapping("/menu")
+    public ResponseEntity<List<MenuSearchHit>> searchMenus(@Valid MenuSearchRequest request) {
+        return ResponseEntity.ok()
+                .cacheControl(HttpCaching.NEARBY)
+                .body(menuIndex.search(request));
     }
 
-    @GetMapping("/nearby")
-    public List<Cafe> findNearbyCafes(
-            @Valid @RequestBody SearchNearbyRequest request) {
-        return cafeService.findNearbyCafes(
-                request.getLongitude(),
-                request.getLatitude(),
-                request.getRadiusInKm());
+    /**
+     * Cafes with a profile like this one's, from the in-process similarity index.
+     * <p>
+     * GET /api/cafes/{id}/similar?radiusInKm=2&limit=10
+     */
+    @GetMapping("/{id}/similar")
+    public ResponseEntity<List<SimilarCafe>> findSimilarCafes(@PathVariable String id,
+            @Valid SimilarCafesRequest request) {
+        return ResponseEntity.ok()
+                .cacheControl(HttpCaching.SIMILAR)
+                .body(similarCafeIndex.similar(id, request));
     }
 
     @GetMapping
-    public List<Cafe> getAllCafes() {
-        return cafeService.getAllCafes();
+    public ResponseEntity<List<Cafe>> getAllCafes(ServletWebRequest webRequest) {
+        String etag = HttpCaching.etag("list-" + cafeService.getCafesListVersion(), webRequest);
+        if (HttpCaching.notModified(webRequest, etag, HttpCaching.CAFE_LIST)) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(HttpCaching.CAFE_LIST)
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(cafeService.getAllCafes());
+    }
+
+    /**
+     * Delta sync for offline clients: cafes created, updated or deleted after {@code since}.
+     * <p>
+     * GET /api/cafes/sync?since={syncToken}&limit=500
+     */
+    @GetMapping("/sync")
+    public ResponseEntity<CafeSyncResponse> syncCafes(@RequestParam(required = false) String since,
+            @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok()
+                .cacheControl(HttpCaching.SYNC)
+                .body(cafeSyncService.changesSince(since, limit));
     }
 
     @GetMapping("/{id}")
-    public Cafe getCafeById(@PathVariable String id) {
-        return cafeService.getCafeById(id);
+    public ResponseEntity<?> getCafeById(@PathVariable String id, ServletWebRequest webRequest) {
+        if (!HttpCaching.prefersProtobuf(webRequest)) {
+            return cachedCafeJson(id, webRequest);
+        }
+        // A cached JSON body knows the current version, so a hot cafe revalidates without MongoDB
+        CafeResponseCache.CachedCafeResponse cached = cafeResponseCache.getIfPresent(id);
+        if (cached != null && HttpCaching.notModified(webRequest,
+                HttpCaching.etag(id + "-v" + cached.version(), webRequest), HttpCaching.CAFE_DETAIL)) {
+            return null;
+        }
+        // Otherwise one read: the tag compared is the tag sent with the body
+        Cafe cafe = cafeService.getCafeById(id);
+        String etag = HttpCaching.etag(id + "-v" + (cafe.getVersion() != null ? cafe.getVersion() : 0), webRequest);
+        if (HttpCaching.notModified(webRequest, etag, HttpCaching.CAFE_DETAIL)) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(HttpCaching.CAFE_DETAIL)
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(cafe);
+    }
+
+    /**
+     * JSON detail responses come pre-encoded from {@link CafeResponseCache}; a hit touches neither
+     * MongoDB nor Jackson, and the bytes bypass the response envelope advice.
+     */
+    private ResponseEntity<byte[]> cachedCafeJson(String id, ServletWebRequest webRequest) {
+        boolean gzip = HttpCaching.acceptsGzip(webRequest);
+        CafeResponseCache.CachedCafeResponse cached = cafeResponseCache.getIfPresent(id);
+        if (cached != null || webRequest.getHeader(HttpHeaders.IF_NONE_MATCH) != null) {
+            // A revalidation of an uncached cafe reads only its version, rather than loading,
+            // encoding and compressing a body just to answer 304
+            long version = cached != null ? cached.version() : cafeService.getCafeVersion(id);
+            if (HttpCaching.notModified(webRequest, HttpCaching.jsonEtag(id + "-v" + version, gzip),
+                    HttpCaching.CAFE_DETAIL)) {
+                return null;
+            }
+        }
+        if (cached == null) {
+            cached = cafeResponseCache.get(id);
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .eTag(HttpCaching.jsonEtag(id + "-v" + cached.version(), gzip))
+                .cacheControl(HttpCaching.CAFE_DETAIL)
+                .varyBy(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING)
+                .contentType(MediaType.APPLICATION_JSON);
+        if (gzip) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(cached.gzip());
+        }
+        return response.body(cached.json());
     }
 
     @PutMapping("/{id}")
@@ -94,6 +240,23 @@ public class CafeController {
         return cafeService.updateCafe(id, cafe);
     }
 
+    // Raw image body rather than multipart, so the upload streams to the object store unparsed
+    @PostMapping(value = "/{id}/images", consumes = {MediaType.IMAGE_JPEG_VALUE, MediaType.IMAGE_PNG_VALUE})
+    public ResponseEntity<UnifiedResponse<ImageDTO>> uploadImage(@PathVariable String id,
+            @RequestParam(required = false) String caption,
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            InputStream body) throws IOException {
+        ImageDTO image = imagePipeline.accept(id, contentType, body, caption);
+
+        UnifiedResponse<ImageDTO> response = UnifiedResponse.<ImageDTO>builder()
+                .code(202)
+                .message("Image accepted for processing")
+                .data(image)
+                .build();
+
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteCafe(@PathVariable String id) {
         cafeService.deleteCafe(id);
@@ -0,0 +1,52 @@
+package com.work.coffeemode.controller;
+
+import com.work.coffeemode.dto.cafe.CreateCafeRequest;
+import com.work.coffeemode.model.Cafe;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+
+/**
+ * Request-to-model mapping shared by the servlet controller and the reactive handler.
+ */
+final class CafeRequests {
+
+    private CafeRequests() {
+    }
+
+    static Cafe toCafe(CreateCafeRequest request) {
+        GeoJsonPoint geoJsonPoint = new GeoJsonPoint(
+                request.getLocation().getCoordinates()[0], // longitude
+                request.getLocation().getCoordinates()[1] // latitude
+        );
+
+        Cafe.Features features = null;
+        if (request.getFeatures() != null) {
+            features = Cafe.Features.builder()
+                    .wifiAvailable(request.getFeatures().getWifiAvailable())
+                    .outletsAvailable(request.getFeatures().getOutletsAvailable())
+                    .quietnessLevel(request.getFeatures().getQuietnessLevel())
+                    .temperature(request.getFeatures().getTemperature())
+                    .build();
+        }
+
+        Cafe.ExternalReferences externalReferences = null;
+        if (request.getExternalReferences() != null) {
+            externalReferences = Cafe.ExternalReferences.builder()
+                    .googlePlace(request.getExternalReferences().getGooglePlace())
+                    .redbookId(request.getExternalReferences().getRedbookId())
+                    .build();
+        }
+
+        return Cafe.builder()
+                .name(request.getName())
+                .location(geoJsonPoint)
+                .address(request.getAddress())
+                .features(features)
+                .images(request.getImages())
+                .website(request.getWebsite())
+                .openingHours(request.getOpeningHours())
+                .externalReferences(externalReferences)
+                .averageRating(0.0)
+                .totalReviews(0)
+                .build();
+    }
+}
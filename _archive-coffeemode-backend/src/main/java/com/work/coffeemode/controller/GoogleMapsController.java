@@ -6,6 +6,7 @@ import com.work.coffeemode.model.UnifiedResponse;
 import com.work.coffeemode.service.GooglePlacesService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -13,6 +14,7 @@ import org.springframework.web.bind.annotation.*;
 @RestController
 @RequestMapping("/api/google-maps")
 @RequiredArgsConstructor
+@Profile("!reactive")
 public class GoogleMapsController {
 
     private final GooglePlacesService googlePlacesService;
@@ -0,0 +1,108 @@
+package com.work.coffeemode.controller;
+
+import com.work.coffeemode.config.ProtobufEnvelopeHttpMessageConverter;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * ETags and {@code Cache-Control} policies for the cafe endpoints.
+ * <p>
+ * ETags are strong and derived from a version the service can read without loading the
+ * resource. JSON and protobuf are different byte representations of the same version, so the
+ * negotiated representation is part of the tag and responses carry {@code Vary: Accept}.
+ */
+final class HttpCaching {
+
+    // Cafe details change rarely; let clients reuse them briefly, then revalidate for a 304
+    static final CacheControl CAFE_DETAIL = CacheControl.maxAge(Duration.ofSeconds(60))
+            .cachePublic()
+            .staleWhileRevalidate(Duration.ofMinutes(5));
+    // The list is always revalidated; the ETag check makes that nearly free
+    static final CacheControl CAFE_LIST = CacheControl.noCache().cachePublic();
+    // Nearby results depend on the request body, which HTTP caches don't key on
+    static final CacheControl NEARBY = CacheControl.noStore();
+    // Each sync page is specific to the caller's token and consumed once
+    static final CacheControl SYNC = CacheControl.noStore();
+    // Recommendations drift only as cafes change; every view of a detail page asks for them
+    static final CacheControl SIMILAR = CacheControl.maxAge(Duration.ofSeconds(60)).cachePublic();
+
+    private HttpCaching() {
+    }
+
+    static String etag(String version, WebRequest request) {
+        return "\"" + version + "-" + representation(request) + "\"";
+    }
+
+    /**
+     * Tag for a pre-encoded JSON body; the gzip variant is a different byte sequence, so it gets
+     * its own strong tag.
+     */
+    static String jsonEtag(String version, boolean gzip) {
+        return "\"" + version + (gzip ? "-json-gz" : "-json") + "\"";
+    }
+
+    static boolean prefersProtobuf(WebRequest request) {
+        return "pb".equals(representation(request));
+    }
+
+    static boolean acceptsGzip(WebRequest request) {
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                return parts.length == 1 || !parts[1].replace(" ", "").matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks {@code If-None-Match}; on a match the 304 is prepared with the same caching headers
+     * a full response would carry, and the caller should return {@code null}.
+     */
+    static boolean notModified(ServletWebRequest request, String etag, CacheControl policy) {
+        if (!request.checkNotModified(etag)) {
+            return false;
+        }
+        if (request.getResponse() != null) {
+            request.getResponse().setHeader(HttpHeaders.CACHE_CONTROL, policy.getHeaderValue());
+            request.getResponse().setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT + ", " + HttpHeaders.ACCEPT_ENCODING);
+        }
+        return true;
+    }
+
+    private static String representation(WebRequest request) {
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        if (accept == null) {
+            return "json";
+        }
+        List<MediaType> accepted;
+        try {
+            accepted = new ArrayList<>(MediaType.parseMediaTypes(accept));
+        } catch (InvalidMediaTypeException e) {
+            return "json";
+        }
+        accepted.sort(Comparator.comparingDouble(MediaType::getQualityValue).reversed());
+        for (MediaType type : accepted) {
+            if (type.isConcrete() && type.isCompatibleWith(ProtobufEnvelopeHttpMessageConverter.PROTOBUF)) {
+                return "pb";
+            }
+            if (type.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+                return "json";
+            }
+        }
+        return "json";
+    }
+}
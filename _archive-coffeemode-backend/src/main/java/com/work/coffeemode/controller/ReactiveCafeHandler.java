@@ -0,0 +1,302 @@
+package com.work.coffeemode.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.work.coffeemode.coordination.IdempotencyStore;
+import com.work.coffeemode.dto.cafe.CreateCafeRequest;
+import com.work.coffeemode.dto.cafe.MenuSearchRequest;
+import com.work.coffeemode.dto.cafe.SearchNearbyRequest;
+import com.work.coffeemode.dto.cafe.SimilarCafesRequest;
+import com.work.coffeemode.model.Cafe;
+import com.work.coffeemode.model.UnifiedResponse;
+import com.work.coffeemode.recommend.SimilarCafeIndex;
+import com.work.coffeemode.search.MenuIndex;
+import com.work.coffeemode.security.FirebasePrincipal;
+import com.work.coffeemode.service.CafeService;
+import com.work.coffeemode.service.ReactiveCafeService;
+import com.work.coffeemode.service.ReactiveCafeSyncService;
+import jakarta.validation.Validator;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ServerWebInputException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * WebFlux handlers for the {@link CafeController} endpoints, used with the {@code reactive}
+ * profile. Responses are the same {@link UnifiedResponse} JSON, ETags and cache policies.
+ * <p>
+ * List and nearby results are streamed: each cafe is encoded as MongoDB emits it and the cursor
+ * is only pulled as fast as the client reads, so a slow client holds one batch, not the whole
+ * result. {@code Accept: application/x-ndjson} streams bare cafes, one per line, without the
+ * envelope.
+ */
+@Component
+@Profile("reactive")
+public class ReactiveCafeHandler {
+
+    private static final byte[] ENVELOPE_OPEN = "{\"code\":200,\"message\":\"Success\",\"data\":["
+            .getBytes(StandardCharsets.UTF_8);
+    private static final byte[] ENVELOPE_CLOSE = "]}".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] SEPARATOR = ",".getBytes(StandardCharsets.UTF_8);
+
+    private final ReactiveCafeService cafeService;
+    private final ReactiveCafeSyncService cafeSyncService;
+    private final MenuIndex menuIndex;
+    private final SimilarCafeIndex similarCafeIndex;
+    private final IdempotencyStore idempotencyStore;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+
+    public ReactiveCafeHandler(ReactiveCafeService cafeService, ReactiveCafeSyncService cafeSyncService,
+            MenuIndex menuIndex, SimilarCafeIndex similarCafeIndex, IdempotencyStore idempotencyStore,
+            ObjectMapper objectMapper, Validator validator) {
+        this.cafeService = cafeService;
+        this.cafeSyncService = cafeSyncService;
+        this.menuIndex = menuIndex;
+        this.similarCafeIndex = similarCafeIndex;
+        this.idempotencyStore = idempotencyStore;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+    }
+
+    /**
+     * Same contract as {@link CafeController#createCafe}: an existing cafe for the Google place
+     * is returned with 200, and an {@code Idempotency-Key} replays the first attempt's outcome.
+     */
+    public Mono<ServerResponse> createCafe(ServerRequest request) {
+        String idempotencyKey = request.headers().firstHeader(IdempotencyStore.HEADER);
+        return body(request, CreateCafeRequest.class).flatMap(body -> idempotencyKey == null
+                ? cafeService.createCafeIfAbsent(CafeRequests.toCafe(body))
+                        .flatMap(creation -> created(creation.cafe(),
+                                creation.created() ? HttpStatus.CREATED : HttpStatus.OK, null))
+                : caller(request).flatMap(caller -> createOnce(body, caller, idempotencyKey)));
+    }
+
+    // The store waits on its lease with the blocking Redis client, so it runs off the event loop
+    private Mono<ServerResponse> createOnce(CreateCafeRequest body, String caller, String idempotencyKey) {
+        AtomicReference<Cafe> written = new AtomicReference<>();
+        // Same scope as CafeController, so either deployment replays the other's records
+        return Mono.fromCallable(() -> idempotencyStore.execute("create-cafe", caller, idempotencyKey, body, () -> {
+                    CafeService.Creation creation = cafeService.createCafeIfAbsent(CafeRequests.toCafe(body)).block();
+                    written.set(creation.cafe());
+                    return new IdempotencyStore.Outcome(creation.cafe().getStringId(),
+                            creation.created() ? HttpStatus.CREATED.value() : HttpStatus.OK.value(), false);
+                }))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(outcome -> (outcome.replayed()
+                        ? cafeService.getCafeById(outcome.resourceId()) : Mono.just(written.get()))
+                        .flatMap(cafe -> created(cafe, HttpStatus.valueOf(outcome.status()), outcome.replayed())));
+    }
+
+    private static Mono<ServerResponse> created(Cafe cafe, HttpStatus status, Boolean replayed) {
+        ServerResponse.BodyBuilder response = ServerResponse.status(status).contentType(MediaType.APPLICATION_JSON);
+        if (replayed != null) {
+            response.header("Idempotent-Replayed", replayed.toString());
+        }
+        boolean created = status == HttpStatus.CREATED;
+        return response.bodyValue(UnifiedResponse.<Cafe>builder()
+                .code(status.value())
+                .message(created ? "Cafe created successfully" : "Cafe already exists")
+                .data(cafe)
+                .build());
+    }
+
+    // Whom an Idempotency-Key belongs to: the signed-in user, else the client address
+    private static Mono<String> caller(ServerRequest request) {
+        return ReactiveSecurityContextHolder.getContext()
+                .map(SecurityContext::getAuthentication)
+                .filter(authentication -> authentication.getPrincipal() instanceof FirebasePrincipal)
+                .map(authentication -> "uid:" + ((FirebasePrincipal) authentication.getPrincipal()).getUid())
+                .defaultIfEmpty("ip:" + request.remoteAddress()
+                        .filter(address -> address.getAddress() != null)
+                        .map(address -> address.getAddress().getHostAddress())
+                        .orElse("unknown"));
+    }
+
+    public Mono<ServerResponse> findNearbyCafes(ServerRequest request) {
+        return body(request, SearchNearbyRequest.class)
+                .flatMap(body -> stream(request, cafeService.findNearbyCafes(
+                        body.getLongitude(),
+                        body.getLatitude(),
+                        body.getRadiusInKm()), HttpCaching.NEARBY, null));
+    }
+
+    /**
+     * GET /api/cafes/menu?q=latte&maxPrice=6&latitude=31.23&longitude=121.47&radiusInKm=2
+     */
+    public Mono<ServerResponse> searchMenus(ServerRequest request) {
+        // In-memory lookup, cheap enough to run on the event loop
+        return request.bind(MenuSearchRequest.class)
+                .doOnNext(query -> {
+                    if (!validator.validate(query).isEmpty()) {
+                        throw new ServerWebInputException("Invalid " + MenuSearchRequest.class.getSimpleName());
+                    }
+                })
+                .flatMap(query -> ServerResponse.ok()
+                        .cacheControl(HttpCaching.NEARBY)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(UnifiedResponse.success(menuIndex.search(query))));
+    }
+
+    /**
+     * GET /api/cafes/{id}/similar?radiusInKm=2&limit=10
+     */
+    public Mono<ServerResponse> findSimilarCafes(ServerRequest request) {
+        String id = request.pathVariable("id");
+        return request.bind(SimilarCafesRequest.class)
+                .doOnNext(query -> {
+                    if (!validator.validate(query).isEmpty()) {
+                        throw new ServerWebInputException("Invalid " + SimilarCafesRequest.class.getSimpleName());
+                    }
+                })
+                .flatMap(query -> ServerResponse.ok()
+                        .cacheControl(HttpCaching.SIMILAR)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(UnifiedResponse.success(similarCafeIndex.similar(id, query))));
+    }
+
+    public Mono<ServerResponse> getAllCafes(ServerRequest request) {
+        return cafeService.getCafesListVersion().flatMap(version -> {
+            String etag = HttpCaching.jsonEtag("list-" + version, false);
+            return notModified(request, etag, HttpCaching.CAFE_LIST)
+                    .switchIfEmpty(Mono.defer(() -> stream(request, cafeService.getAllCafes(),
+                            HttpCaching.CAFE_LIST, etag)));
+        });
+    }
+
+    /**
+     * GET /api/cafes/sync?since={syncToken}&limit=500
+     */
+    public Mono<ServerResponse> syncCafes(ServerRequest request) {
+        Integer limit = request.queryParam("limit").map(ReactiveCafeHandler::parseLimit).orElse(null);
+        return cafeSyncService.changesSince(request.queryParam("since").orElse(null), limit)
+                .flatMap(page -> ServerResponse.ok()
+                        .cacheControl(HttpCaching.SYNC)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(UnifiedResponse.success(page)));
+    }
+
+    public Mono<ServerResponse> getCafeById(ServerRequest request) {
+        String id = request.pathVariable("id");
+        // Revalidation is answered from the version alone, without loading the cafe
+        return cafeService.getCafeVersion(id).flatMap(version -> {
+            String etag = HttpCaching.jsonEtag(id + "-v" + version, false);
+            return notModified(request, etag, HttpCaching.CAFE_DETAIL)
+                    .switchIfEmpty(Mono.defer(() -> cafeService.getCafeById(id)
+                            .flatMap(cafe -> ServerResponse.ok()
+                                    .eTag(HttpCaching.jsonEtag(
+                                            id + "-v" + (cafe.getVersion() != null ? cafe.getVersion() : 0), false))
+                                    .cacheControl(HttpCaching.CAFE_DETAIL)
+                                    .varyBy(HttpHeaders.ACCEPT)
+                                    .contentType(MediaType.APPLICATION_JSON)
+                                    .bodyValue(UnifiedResponse.success(cafe)))));
+        });
+    }
+
+    public Mono<ServerResponse> updateCafe(ServerRequest request) {
+        String id = request.pathVariable("id");
+        return request.bodyToMono(Cafe.class)
+                .switchIfEmpty(Mono.error(() -> new ServerWebInputException("Request body is missing")))
+                .flatMap(cafe -> cafeService.updateCafe(id, cafe))
+                .flatMap(saved -> ServerResponse.ok()
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(UnifiedResponse.success(saved)));
+    }
+
+    public Mono<ServerResponse> deleteCafe(ServerRequest request) {
+        return cafeService.deleteCafe(request.pathVariable("id"))
+                .then(ServerResponse.ok()
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(UnifiedResponse.success()));
+    }
+
+    private <T> Mono<T> body(ServerRequest request, Class<T> type) {
+        return request.bodyToMono(type)
+                .switchIfEmpty(Mono.error(() -> new ServerWebInputException("Request body is missing")))
+                .doOnNext(body -> {
+                    if (!validator.validate(body).isEmpty()) {
+                        throw new ServerWebInputException("Invalid " + type.getSimpleName());
+                    }
+                });
+    }
+
+    /**
+     * 304 with the caching headers a full response would carry, or empty if the tag does not match.
+     */
+    private Mono<ServerResponse> notModified(ServerRequest request, String etag, CacheControl policy) {
+        return request.checkNotModified(etag)
+                .flatMap(notModified -> ServerResponse.from(notModified)
+                        .cacheControl(policy)
+                        .varyBy(HttpHeaders.ACCEPT)
+                        .build());
+    }
+
+    private Mono<ServerResponse> stream(ServerRequest request, Flux<Cafe> cafes, CacheControl policy, String etag) {
+        ServerResponse.BodyBuilder response = ServerResponse.ok().cacheControl(policy).varyBy(HttpHeaders.ACCEPT);
+        if (etag != null) {
+            response.eTag(etag);
+        }
+        if (request.headers().accept().stream().anyMatch(MediaType.APPLICATION_NDJSON::equalsTypeAndSubtype)) {
+            return response.contentType(MediaType.APPLICATION_NDJSON).body(cafes, Cafe.class);
+        }
+        return response.contentType(MediaType.APPLICATION_JSON)
+                .body(BodyInserters.fromDataBuffers(envelope(cafes, DefaultDataBufferFactory.sharedInstance)));
+    }
+
+    /**
+     * Writes {@code {"code":200,"message":"Success","data":[...]}} incrementally. Nothing is
+     * emitted before the first cafe (or completion), so a failing query still gets a proper
+     * error status instead of a truncated 200.
+     */
+    private Flux<DataBuffer> envelope(Flux<Cafe> cafes, DataBufferFactory bufferFactory) {
+        return Flux.defer(() -> {
+            AtomicBoolean opened = new AtomicBoolean();
+            return cafes
+                    .map(cafe -> encode(bufferFactory, opened.getAndSet(true) ? SEPARATOR : ENVELOPE_OPEN, cafe))
+                    .concatWith(Mono.fromSupplier(() -> opened.get()
+                            ? bufferFactory.wrap(ENVELOPE_CLOSE)
+                            : bufferFactory.wrap(concat(ENVELOPE_OPEN, ENVELOPE_CLOSE))));
+        });
+    }
+
+    private DataBuffer encode(DataBufferFactory bufferFactory, byte[] prefix, Cafe cafe) {
+        try {
+            return bufferFactory.wrap(concat(prefix, objectMapper.writeValueAsBytes(cafe)));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to encode cafe " + cafe.getStringId(), e);
+        }
+    }
+
+    private static byte[] concat(byte[] first, byte[] second) {
+        byte[] joined = new byte[first.length + second.length];
+        System.arraycopy(first, 0, joined, 0, first.length);
+        System.arraycopy(second, 0, joined, first.length, second.length);
+        return joined;
+    }
+
+    private static Integer parseLimit(String limit) {
+        try {
+            return Integer.valueOf(limit);
+        } catch (NumberFormatException e) {
+            throw new ServerWebInputException("Invalid limit");
+        }
+    }
+}
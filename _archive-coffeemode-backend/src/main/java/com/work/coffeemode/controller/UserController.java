@@ -2,62 +2,128 @@ package com.work.coffeemode.controller;
 
 
 import com.work.coffeemode.dto.user.*;
+import com.work.coffeemode.exception.ForbiddenException;
+import com.work.coffeemode.exception.UnauthorizedException;
+import com.work.coffeemode.model.User;
+import com.work.coffeemode.security.FirebasePrincipal;
 import com.work.coffeemode.service.UserService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 /**
  * REST Controller for handling user-related operations.
  * <p>
- * This controller exposes endpoints for creating, retrieving, and listing users.
- * It uses Protocol Buffers (protobuf) for request and response objects.
+ * This controller exposes endpoints for creating, retrieving, and listing users,
+ * and for syncing the authenticated Firebase user into the users collection. Every endpoint needs a
+ * Firebase ID token; other users' records are only visible to admins.
  * <p>
  * Base path: /api/users
  */
 @RestController               // Marks this class as a REST controller
 @RequestMapping("/api/users") // Sets the base URL path for all endpoints in this controller
 @RequiredArgsConstructor      // Lombok annotation to generate a constructor for final fields
+@Profile("!reactive")
 public class UserController {
 
     private final UserService userService; // Dependency injection of the UserService
 
     /**
-     * Creates a new user.
+     * Creates the authenticated user's record.
      * <p>
      * POST /api/users
      *
-     * @param request Protobuf object containing user details to create
+     * @param principal The verified Firebase identity the user is linked to
+     * @param request User details to create
      * @return ResponseEntity containing the created user's details
      */
     @PostMapping
-    public ResponseEntity<CreateUserResponse> createUser(@RequestBody CreateUserRequest request) {
-        return ResponseEntity.ok(userService.createUser(request));
+    public ResponseEntity<CreateUserResponse> createUser(@AuthenticationPrincipal FirebasePrincipal principal,
+            @RequestBody CreateUserRequest request) {
+        if (principal == null) {
+            throw new UnauthorizedException();
+        }
+        return ResponseEntity.ok(userService.createUser(principal, request));
     }
 
     /**
-     * Retrieves a user by ID.
+     * Creates or refreshes the profile of the authenticated Firebase user.
+     * Called by the frontend after every successful Firebase login.
+     * <p>
+     * PUT /api/users/me
+     *
+     * @param principal The verified Firebase identity from the bearer token
+     * @return ResponseEntity containing the stored user
+     */
+    @PutMapping("/me")
+    public ResponseEntity<User> syncCurrentUser(@AuthenticationPrincipal FirebasePrincipal principal) {
+        if (principal == null) {
+            throw new UnauthorizedException();
+        }
+        return ResponseEntity.ok(userService.syncUser(principal));
+    }
+
+    /**
+     * Retrieves the authenticated user's profile.
+     * <p>
+     * GET /api/users/me
+     *
+     * @param principal The verified Firebase identity from the bearer token
+     * @return ResponseEntity containing the user's details if synced
+     */
+    @GetMapping("/me")
+    public ResponseEntity<GetUserResponse> getCurrentUser(@AuthenticationPrincipal FirebasePrincipal principal) {
+        if (principal == null) {
+            throw new UnauthorizedException();
+        }
+        return ResponseEntity.ok(userService.getUser(GetUserRequest.builder().id(principal.getUid()).build()));
+    }
+
+    /**
+     * Retrieves a user by Firebase UID; the authenticated user's own record, or any for admins.
      * <p>
      * GET /api/users/{id}
      *
-     * @param request The request object containing the user ID
+     * @param principal The verified Firebase identity from the bearer token
+     * @param request The request object containing the Firebase UID
      * @return ResponseEntity containing the user's details if found
      */
     @GetMapping("/{id}")
-    public ResponseEntity<GetUserResponse> getUser(@ModelAttribute GetUserRequest request) {
+    public ResponseEntity<GetUserResponse> getUser(@AuthenticationPrincipal FirebasePrincipal principal,
+            @ModelAttribute GetUserRequest request) {
+        if (principal == null) {
+            throw new UnauthorizedException();
+        }
+        if (!principal.getUid().equals(request.getId())) {
+            requireAdmin(principal);
+        }
         return ResponseEntity.ok(userService.getUser(request));
     }
 
     /**
-     * Lists users with pagination.
+     * Lists users with keyset pagination. Admins only.
      * <p>
-     * GET /api/users?page=0&size=10
+     * GET /api/users?pageSize=10&cursor={nextCursor}
      *
+     * @param principal The verified Firebase identity from the bearer token
      * @param request The pagination parameters
-     * @return ResponseEntity containing paginated list of users
+     * @return ResponseEntity containing a page of users and the cursor for the next one
      */
     @GetMapping
-    public ResponseEntity<ListUsersResponse> listUsers(@ModelAttribute ListUsersRequest request) {
+    public ResponseEntity<ListUsersResponse> listUsers(@AuthenticationPrincipal FirebasePrincipal principal,
+            @ModelAttribute ListUsersRequest request) {
+        if (principal == null) {
+            throw new UnauthorizedException();
+        }
+        requireAdmin(principal);
         return ResponseEntity.ok(userService.listUsers(request));
     }
+
+    private void requireAdmin(FirebasePrincipal principal) {
+        if (!userService.isAdmin(principal)) {
+            throw new ForbiddenException();
+        }
+    }
 }
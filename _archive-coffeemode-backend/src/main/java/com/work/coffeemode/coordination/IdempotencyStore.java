@@ -0,0 +1,180 @@
+package com.work.coffeemode.coordination;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.work.coffeemode.exception.ConflictException;
+import com.work.coffeemode.exception.InvalidRequestException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * {@code Idempotency-Key} support: the first request with a key runs, and retries with the same
+ * key and body get its outcome back instead of repeating the write.
+ * <p>
+ * A retry that arrives while the first attempt is still running waits on the key's
+ * {@link LeaseLock} lease, then finds the stored outcome. Outcomes are written with the lease's
+ * fencing token, so an attempt that outlived its lease cannot overwrite the outcome of the retry
+ * that took over. Records are a small Redis hash (the body's fingerprint, the resource id and
+ * the status) kept for {@code coffeemode.idempotency.ttl}; while Redis is unavailable they are
+ * kept on this node only. Keys are chosen by clients, so records and leases are scoped to the
+ * caller: one client cannot replay, or block, another's request by guessing its key.
+ */
+@Slf4j
+@Component
+public class IdempotencyStore {
+
+    public static final String HEADER = "Idempotency-Key";
+
+    private static final String KEY_PREFIX = "coffeemode:idem:";
+    private static final int MAX_KEY_LENGTH = 255;
+
+    /**
+     * What a request produced, enough to answer a retry.
+     *
+     * @param replayed whether this is a stored outcome rather than a fresh one
+     */
+    public record Outcome(String resourceId, int status, boolean replayed) {
+    }
+
+    private final StringRedisTemplate redisTemplate;
+    private final LeaseLock leaseLock;
+    private final ObjectWriter fingerprintWriter;
+    private final DefaultRedisScript<Long> completeScript;
+    private final Duration ttl;
+    private final Duration leaseTime;
+    private final Duration maxWait;
+    private final Cache<String, Map<String, String>> localRecords;
+
+    public IdempotencyStore(StringRedisTemplate redisTemplate, LeaseLock leaseLock, ObjectMapper objectMapper,
+            @Value("${coffeemode.idempotency.ttl:24h}") Duration ttl,
+            @Value("${coffeemode.idempotency.lease-time:30s}") Duration leaseTime,
+            @Value("${coffeemode.idempotency.max-wait:5s}") Duration maxWait) {
+        this.redisTemplate = redisTemplate;
+        this.leaseLock = leaseLock;
+        // Map order must not change the fingerprint of an otherwise identical body
+        this.fingerprintWriter = objectMapper.writer().with(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS);
+        this.completeScript = new DefaultRedisScript<>();
+        this.completeScript.setLocation(new ClassPathResource("scripts/idempotency_complete.lua"));
+        this.completeScript.setResultType(Long.class);
+        this.ttl = ttl;
+        this.leaseTime = leaseTime;
+        this.maxWait = maxWait;
+        this.localRecords = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    /**
+     * Runs {@code action} once per {@code scope}, {@code caller} and {@code key}.
+     *
+     * @param caller who sent the request, e.g. {@code uid:<firebase uid>} or {@code ip:<address>}
+     * @param request the request body, fingerprinted to refuse a key reused for another body
+     * @throws ConflictException if an attempt with the same key is still running after the wait
+     */
+    public Outcome execute(String scope, String caller, String key, Object request, Supplier<Outcome> action) {
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new InvalidRequestException(HEADER + " must be 1 to " + MAX_KEY_LENGTH + " characters");
+        }
+        String name = scope + ":" + caller + ":" + key;
+        String recordKey = KEY_PREFIX + name;
+        String fingerprint = fingerprint(request);
+
+        Outcome stored = replay(recordKey, fingerprint);
+        if (stored != null) {
+            return stored;
+        }
+        // The lease's fencing tokens are compared with the one stored in the record, so the
+        // counter must outlive the record
+        try (LeaseLock.Lease lease = leaseLock.acquire("idem:" + name, leaseTime, maxWait, ttl.plus(leaseTime))) {
+            if (lease == null) {
+                throw new ConflictException("A request with this " + HEADER + " is still in progress");
+            }
+            // The attempt we waited for may have finished
+            stored = replay(recordKey, fingerprint);
+            if (stored != null) {
+                return stored;
+            }
+            Outcome outcome = action.get();
+            complete(recordKey, lease, Map.of(
+                    "fingerprint", fingerprint,
+                    "resource", outcome.resourceId(),
+                    "status", Integer.toString(outcome.status())));
+            return outcome;
+        }
+    }
+
+    private Outcome replay(String recordKey, String fingerprint) {
+        Map<String, String> record = find(recordKey);
+        if (record == null || record.isEmpty()) {
+            return null;
+        }
+        if (!fingerprint.equals(record.get("fingerprint"))) {
+            throw new InvalidRequestException(HEADER + " was already used for a different request");
+        }
+        return new Outcome(record.get("resource"), Integer.parseInt(record.get("status")), true);
+    }
+
+    private Map<String, String> find(String recordKey) {
+        try {
+            Map<Object, Object> entries = redisTemplate.opsForHash().entries(recordKey);
+            if (!entries.isEmpty()) {
+                @SuppressWarnings("unchecked")
+                Map<String, String> record = (Map<String, String>) (Map<?, ?>) entries;
+                return record;
+            }
+        } catch (RuntimeException e) {
+            log.debug("Idempotency record {} unavailable from Redis: {}", recordKey, e.getMessage());
+        }
+        return localRecords.getIfPresent(recordKey);
+    }
+
+    private void complete(String recordKey, LeaseLock.Lease lease, Map<String, String> record) {
+        if (!lease.isLocal()) {
+            String[] args = new String[2 + record.size() * 2];
+            args[0] = Long.toString(lease.getFencingToken());
+            args[1] = Long.toString(ttl.toMillis());
+            int i = 2;
+            for (Map.Entry<String, String> field : record.entrySet()) {
+                args[i++] = field.getKey();
+                args[i++] = field.getValue();
+            }
+            try {
+                Long stored = redisTemplate.execute(completeScript, List.of(recordKey), (Object[]) args);
+                if (stored != null && stored == 0) {
+                    log.warn("Idempotency record {} was taken over by a newer attempt (token {})",
+                            recordKey, lease.getFencingToken());
+                }
+                return;
+            } catch (RuntimeException e) {
+                log.warn("Could not store idempotency record {} in Redis: {}", recordKey, e.getMessage());
+            }
+        }
+        localRecords.put(recordKey, record);
+    }
+
+    private String fingerprint(Object request) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(fingerprintWriter.writeValueAsBytes(request));
+            return Base64.getEncoder().withoutPadding().encodeToString(digest);
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Could not fingerprint request", e);
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.work.coffeemode.coordination;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Named leases shared by all replicas through Redis, for "only one node does this at a time".
+ * <p>
+ * A lease is a key set with {@code NX PX}: it expires on its own if the holder dies, so it must
+ * be long enough for the guarded work. Every acquisition also gets a fencing token from a
+ * per-name counter that only grows; a holder that stalled past its lease can be told apart from
+ * its successor by comparing tokens where the work is written (see {@link IdempotencyStore}).
+ * The counter expires {@code fenceRetention} after the last acquisition, so names that are never
+ * used again don't accumulate in Redis; callers that store tokens must retain the counter at
+ * least as long as what they store.
+ * Leases coordinate, the store's own constraints stay the last line of defence.
+ * <p>
+ * When Redis is unreachable, leases fall back to an in-process table like {@code RateLimiter}
+ * does. They then only exclude callers on the same node.
+ */
+@Slf4j
+@Component
+public class LeaseLock {
+
+    private static final String KEY_PREFIX = "coffeemode:lease:";
+    private static final String FENCE_SUFFIX = ":fence";
+    private static final Duration REDIS_RETRY_AFTER_FAILURE = Duration.ofSeconds(10);
+    private static final Duration DEFAULT_FENCE_RETENTION = Duration.ofDays(1);
+    private static final long MIN_BACKOFF_MILLIS = 10;
+    private static final long MAX_BACKOFF_MILLIS = 200;
+
+    private final StringRedisTemplate redisTemplate;
+    private final DefaultRedisScript<Long> acquireScript;
+    private final DefaultRedisScript<Long> releaseScript;
+
+    // Used only while Redis is unavailable
+    private final Map<String, LocalLease> localLeases = new ConcurrentHashMap<>();
+    private final AtomicLong localFence = new AtomicLong();
+    private volatile long redisDownUntil;
+
+    public LeaseLock(StringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+        this.acquireScript = new DefaultRedisScript<>();
+        this.acquireScript.setLocation(new ClassPathResource("scripts/lease_acquire.lua"));
+        this.acquireScript.setResultType(Long.class);
+        this.releaseScript = new DefaultRedisScript<>();
+        this.releaseScript.setLocation(new ClassPathResource("scripts/lease_release.lua"));
+        this.releaseScript.setResultType(Long.class);
+    }
+
+    /**
+     * A held lease; closing it releases it if it is still ours.
+     */
+    public final class Lease implements AutoCloseable {
+
+        private final String name;
+        private final String owner;
+        private final long fencingToken;
+        private final boolean local;
+
+        private Lease(String name, String owner, long fencingToken, boolean local) {
+            this.name = name;
+            this.owner = owner;
+            this.fencingToken = fencingToken;
+            this.local = local;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getFencingToken() {
+            return fencingToken;
+        }
+
+        /**
+         * Whether the lease only excludes callers on this node, because Redis was unavailable.
+         */
+        public boolean isLocal() {
+            return local;
+        }
+
+        @Override
+        public void close() {
+            release(this);
+        }
+    }
+
+    private record LocalLease(String owner, long expiresAtNanos) {
+    }
+
+    /**
+     * @return the lease, or {@code null} if someone else holds it
+     */
+    public Lease tryAcquire(String name, Duration leaseTime) {
+        return tryAcquire(name, leaseTime, DEFAULT_FENCE_RETENTION);
+    }
+
+    /**
+     * @param fenceRetention how long the fencing counter is kept after this acquisition
+     * @return the lease, or {@code null} if someone else holds it
+     */
+    public Lease tryAcquire(String name, Duration leaseTime, Duration fenceRetention) {
+        String owner = UUID.randomUUID().toString();
+        if (System.currentTimeMillis() >= redisDownUntil) {
+            try {
+                Long token = redisTemplate.execute(acquireScript,
+                        List.of(KEY_PREFIX + name, KEY_PREFIX + name + FENCE_SUFFIX),
+                        owner, Long.toString(leaseTime.toMillis()), Long.toString(fenceRetention.toMillis()));
+                return token == null || token == 0 ? null : new Lease(name, owner, token, false);
+            } catch (RuntimeException e) {
+                redisDownUntil = System.currentTimeMillis() + REDIS_RETRY_AFTER_FAILURE.toMillis();
+                log.warn("Leases falling back to node-local locks for {}s: {}",
+                        REDIS_RETRY_AFTER_FAILURE.toSeconds(), e.getMessage());
+            }
+        }
+        long now = System.nanoTime();
+        LocalLease mine = new LocalLease(owner, now + leaseTime.toNanos());
+        LocalLease holder = localLeases.compute(name,
+                (key, current) -> current == null || current.expiresAtNanos() - now <= 0 ? mine : current);
+        return holder == mine ? new Lease(name, owner, localFence.incrementAndGet(), true) : null;
+    }
+
+    /**
+     * Waits up to {@code maxWait} for the lease, polling with backoff.
+     *
+     * @return the lease, or {@code null} if it was still held when the wait ran out
+     */
+    public Lease acquire(String name, Duration leaseTime, Duration maxWait) {
+        return acquire(name, leaseTime, maxWait, DEFAULT_FENCE_RETENTION);
+    }
+
+    /**
+     * Like {@link #acquire(String, Duration, Duration)}, keeping the fencing counter for
+     * {@code fenceRetention}.
+     */
+    public Lease acquire(String name, Duration leaseTime, Duration maxWait, Duration fenceRetention) {
+        long deadline = System.nanoTime() + maxWait.toNanos();
+        long backoff = MIN_BACKOFF_MILLIS;
+        while (true) {
+            Lease lease = tryAcquire(name, leaseTime, fenceRetention);
+            if (lease != null) {
+                return lease;
+            }
+            long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remaining <= 0) {
+                return null;
+            }
+            try {
+                Thread.sleep(Math.min(remaining, backoff));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            backoff = Math.min(MAX_BACKOFF_MILLIS, backoff * 2);
+        }
+    }
+
+    private void release(Lease lease) {
+        if (lease.local) {
+            localLeases.computeIfPresent(lease.name,
+                    (key, current) -> current.owner().equals(lease.owner) ? null : current);
+            return;
+        }
+        try {
+            Long released = redisTemplate.execute(releaseScript, List.of(KEY_PREFIX + lease.name), lease.owner);
+            if (released == null || released == 0) {
+                log.warn("Lease {} (token {}) expired before it was released", lease.name, lease.fencingToken);
+            }
+        } catch (RuntimeException e) {
+            // It expires on its own
+            log.warn("Could not release lease {}: {}", lease.name, e.getMessage());
+        }
+    }
+}
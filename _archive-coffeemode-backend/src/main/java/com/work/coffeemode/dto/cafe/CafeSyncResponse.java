@@ -0,0 +1,25 @@
+package com.work.coffeemode.dto.cafe;
+
+import com.work.coffeemode.model.Cafe;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CafeSyncResponse {
+    // Created or updated since the token, in change order; replace local copies by id
+    private List<Cafe> cafes;
+    // Ids of cafes deleted since the token
+    private List<String> deletedIds;
+    // Pass as `since` on the next call; may lag behind the last returned change, so a change can
+    // be delivered twice but never skipped
+    private String syncToken;
+    // More changes are waiting; call again immediately with syncToken
+    private boolean hasMore;
+}
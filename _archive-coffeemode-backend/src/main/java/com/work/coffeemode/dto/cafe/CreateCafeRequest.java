@@ -1,5 +1,7 @@
 package com.work.coffeemode.dto.cafe;
 
+import com.work.coffeemode.model.QuietnessLevel;
+import com.work.coffeemode.model.Temperature;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import lombok.AllArgsConstructor;
@@ -48,8 +50,8 @@ public class CreateCafeRequest {
     public static class Features {
         private Boolean wifiAvailable;
         private Boolean outletsAvailable;
-        private String quietnessLevel;  // "quiet", "moderate", "noisy"
-        private String temperature;     // "cold", "just right", "warm"
+        private QuietnessLevel quietnessLevel;  // "quiet", "moderate", "noisy"
+        private Temperature temperature;        // "cold", "just right", "warm"
     }
 
     @Data
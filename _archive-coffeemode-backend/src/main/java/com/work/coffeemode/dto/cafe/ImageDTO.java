@@ -5,11 +5,58 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.List;
+
+/**
+ * A cafe photo. Images added by URL carry only {@code url} and {@code caption}; uploaded images
+ * also get an {@code imageId}, the original's dimensions, a blurred {@code placeholder} data URI
+ * to show while loading, and resized {@code variants} once processing is {@code READY}.
+ */
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
 public class ImageDTO {
+
+    public static final String THUMBNAIL = "thumbnail";
+    public static final String MEDIUM = "medium";
+
+    private String imageId;
     private String url;
     private String caption;
-}
\ No newline at end of file
+    private Integer width;
+    private Integer height;
+    private Status status;
+    private String placeholder;
+    private List<Variant> variants;
+
+    public enum Status {
+        PROCESSING, READY, FAILED
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Variant {
+        private String name;
+        private String url;
+        private int width;
+        private int height;
+        private long bytes;
+    }
+
+    /**
+     * URL of the named variant, falling back to the original.
+     */
+    public String variantUrl(String name) {
+        if (variants != null) {
+            for (Variant variant : variants) {
+                if (name.equals(variant.getName())) {
+                    return variant.getUrl();
+                }
+            }
+        }
+        return url;
+    }
+}
@@ -0,0 +1,23 @@
+package com.work.coffeemode.dto.cafe;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A cafe with its cheapest dish matching a menu search.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MenuSearchHit {
+    private String cafeId;
+    private String cafeName;
+    private String dish;
+    private String category;
+    private double price;
+    // Only set when the search had a location
+    private Double distanceInKm;
+}
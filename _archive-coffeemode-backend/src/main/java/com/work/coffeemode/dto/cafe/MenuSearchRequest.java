@@ -0,0 +1,37 @@
+package com.work.coffeemode.dto.cafe;
+
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Positive;
+import lombok.Data;
+
+/**
+ * Query parameters of {@code GET /api/cafes/menu}. At least one of {@code q} and
+ * {@code category} is required; latitude and longitude together restrict the search to cafes
+ * within {@code radiusInKm}.
+ */
+@Data
+public class MenuSearchRequest {
+    // Dish name, e.g. "latte" or "拿铁"; every word must appear in the dish
+    private String q;
+
+    private String category;
+
+    @DecimalMin(value = "0", message = "minPrice must not be negative")
+    private Double minPrice;
+
+    @DecimalMin(value = "0", message = "maxPrice must not be negative")
+    private Double maxPrice;
+
+    private Double longitude;
+
+    private Double latitude;
+
+    @Positive(message = "radiusInKm must be positive")
+    private Double radiusInKm = 3.0;
+
+    @Min(value = 1, message = "limit must be at least 1")
+    @Max(value = 200, message = "limit must be at most 200")
+    private Integer limit = 20;
+}
@@ -0,0 +1,22 @@
+package com.work.coffeemode.dto.cafe;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A cafe recommended as similar to another, most similar first.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SimilarCafe {
+    private String cafeId;
+    private String name;
+    // Cosine similarity of the two cafes' feature vectors, 1 for identical profiles
+    private double score;
+    // Only set when both cafes have a location
+    private Double distanceInKm;
+}
@@ -0,0 +1,20 @@
+package com.work.coffeemode.dto.cafe;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Positive;
+import lombok.Data;
+
+/**
+ * Query parameters of {@code GET /api/cafes/{id}/similar}. Without {@code radiusInKm},
+ * similar cafes are found anywhere; with it, only within that distance of the cafe.
+ */
+@Data
+public class SimilarCafesRequest {
+    @Positive(message = "radiusInKm must be positive")
+    private Double radiusInKm;
+
+    @Min(value = 1, message = "limit must be at least 1")
+    @Max(value = 50, message = "limit must be at most 50")
+    private Integer limit = 10;
+}
@@ -0,0 +1,235 @@
+package com.work.coffeemode.dto.proto;
+
+import com.work.coffeemode.dto.cafe.ImageDTO;
+import com.work.coffeemode.dto.googlemaps.ResolvePlaceResponse;
+import com.work.coffeemode.model.Cafe;
+import com.work.coffeemode.model.QuietnessLevel;
+import com.work.coffeemode.model.Temperature;
+import com.work.coffeemode.model.UnifiedResponse;
+import com.work.coffeemode.proto.CafeProtos;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Maps API payloads to the messages in {@code cafe.proto}. Unset optional fields are left unset
+ * rather than written as defaults, which is most of the size win over JSON for sparse cafes.
+ */
+public final class CafeProtoMapper {
+
+    private CafeProtoMapper() {
+    }
+
+    /**
+     * @return whether {@link #toEnvelope} can represent this payload type
+     */
+    public static boolean supports(Class<?> dataType) {
+        return Cafe.class.isAssignableFrom(dataType)
+                || ResolvePlaceResponse.class.isAssignableFrom(dataType)
+                || CafeProtos.NearbyCafesResponse.class.isAssignableFrom(dataType)
+                || CafeProtos.Cafe.class.isAssignableFrom(dataType)
+                || CafeProtos.CafeList.class.isAssignableFrom(dataType);
+    }
+
+    public static CafeProtos.Envelope toEnvelope(UnifiedResponse<?> response) {
+        CafeProtos.Envelope.Builder envelope = CafeProtos.Envelope.newBuilder();
+        if (response.getCode() != null) {
+            envelope.setCode(response.getCode());
+        }
+        if (response.getMessage() != null) {
+            envelope.setMessage(response.getMessage());
+        }
+        Object data = response.getData();
+        if (data instanceof Cafe cafe) {
+            envelope.setCafe(toProto(cafe));
+        } else if (data instanceof Collection<?> cafes) {
+            envelope.setCafeList(toCafeList(cafes));
+        } else if (data instanceof ResolvePlaceResponse resolved) {
+            envelope.setResolvePlace(toProto(resolved));
+        } else if (data instanceof CafeProtos.NearbyCafesResponse nearby) {
+            envelope.setNearby(nearby);
+        } else if (data instanceof CafeProtos.Cafe cafe) {
+            envelope.setCafe(cafe);
+        } else if (data instanceof CafeProtos.CafeList list) {
+            envelope.setCafeList(list);
+        } else if (data != null) {
+            throw new IllegalArgumentException("No protobuf mapping for " + data.getClass().getName());
+        }
+        return envelope.build();
+    }
+
+    public static CafeProtos.NearbyCafesResponse toNearbyResponse(List<Cafe> cafes) {
+        CafeProtos.NearbyCafesResponse.Builder response = CafeProtos.NearbyCafesResponse.newBuilder();
+        for (Cafe cafe : cafes) {
+            response.addCafes(toSummary(cafe));
+        }
+        return response.build();
+    }
+
+    public static CafeProtos.CafeSummary toSummary(Cafe cafe) {
+        CafeProtos.CafeSummary.Builder summary = CafeProtos.CafeSummary.newBuilder()
+                .setAverageRating(cafe.getAverageRating())
+                .setTotalReviews(cafe.getTotalReviews());
+        if (cafe.getStringId() != null) {
+            summary.setId(cafe.getStringId());
+        }
+        if (cafe.getName() != null) {
+            summary.setName(cafe.getName());
+        }
+        if (cafe.getLocation() != null) {
+            summary.setLocation(toProto(cafe.getLocation()));
+        }
+        if (cafe.getAddress() != null) {
+            summary.setAddress(cafe.getAddress());
+        }
+        Cafe.Features features = cafe.getFeatures();
+        if (features != null) {
+            if (features.getWifiAvailable() != null) {
+                summary.setWifiAvailable(features.getWifiAvailable());
+            }
+            if (features.getQuietnessLevel() != null) {
+                summary.setQuietnessLevelValue(features.getQuietnessLevel().getCode());
+            }
+        }
+        if (cafe.getImages() != null && !cafe.getImages().isEmpty()) {
+            String thumbnailUrl = cafe.getImages().get(0).variantUrl(ImageDTO.THUMBNAIL);
+            if (thumbnailUrl != null) {
+                summary.setThumbnailUrl(thumbnailUrl);
+            }
+        }
+        return summary.build();
+    }
+
+    public static CafeProtos.Cafe toProto(Cafe cafe) {
+        CafeProtos.Cafe.Builder proto = CafeProtos.Cafe.newBuilder()
+                .setAverageRating(cafe.getAverageRating())
+                .setTotalReviews(cafe.getTotalReviews());
+        if (cafe.getStringId() != null) {
+            proto.setId(cafe.getStringId());
+        }
+        if (cafe.getName() != null) {
+            proto.setName(cafe.getName());
+        }
+        if (cafe.getLocation() != null) {
+            proto.setLocation(toProto(cafe.getLocation()));
+        }
+        if (cafe.getAddress() != null) {
+            proto.setAddress(cafe.getAddress());
+        }
+        if (cafe.getFeatures() != null) {
+            proto.setFeatures(toProto(cafe.getFeatures()));
+        }
+        if (cafe.getImages() != null) {
+            for (ImageDTO image : cafe.getImages()) {
+                CafeProtos.Image.Builder imageProto = CafeProtos.Image.newBuilder();
+                if (image.getUrl() != null) {
+                    imageProto.setUrl(image.getUrl());
+                }
+                if (image.getCaption() != null) {
+                    imageProto.setCaption(image.getCaption());
+                }
+                if (image.getVariants() != null) {
+                    for (ImageDTO.Variant variant : image.getVariants()) {
+                        // Protobuf setters reject null
+                        if (variant.getUrl() == null) {
+                            continue;
+                        }
+                        if (ImageDTO.THUMBNAIL.equals(variant.getName())) {
+                            imageProto.setThumbnailUrl(variant.getUrl());
+                        } else if (ImageDTO.MEDIUM.equals(variant.getName())) {
+                            imageProto.setMediumUrl(variant.getUrl());
+                        }
+                    }
+                }
+                if (image.getPlaceholder() != null) {
+                    imageProto.setPlaceholder(image.getPlaceholder());
+                }
+                if (image.getWidth() != null && image.getHeight() != null) {
+                    imageProto.setWidth(image.getWidth()).setHeight(image.getHeight());
+                }
+                proto.addImages(imageProto);
+            }
+        }
+        if (cafe.getWebsite() != null) {
+            proto.setWebsite(cafe.getWebsite());
+        }
+        if (cafe.getOpeningHours() != null) {
+            cafe.getOpeningHours().forEach((day, hours) -> {
+                if (day != null && hours != null) {
+                    proto.putOpeningHours(day, hours);
+                }
+            });
+        }
+        Cafe.ExternalReferences refs = cafe.getExternalReferences();
+        if (refs != null) {
+            CafeProtos.ExternalReferences.Builder refsProto = CafeProtos.ExternalReferences.newBuilder();
+            if (refs.getGooglePlace() != null) {
+                refsProto.setGooglePlace(refs.getGooglePlace());
+            }
+            if (refs.getRedbookId() != null) {
+                refsProto.setRedbookId(refs.getRedbookId());
+            }
+            proto.setExternalReferences(refsProto);
+        }
+        return proto.build();
+    }
+
+    public static CafeProtos.ResolvePlaceResponse toProto(ResolvePlaceResponse resolved) {
+        CafeProtos.ResolvePlaceResponse.Builder proto = CafeProtos.ResolvePlaceResponse.newBuilder()
+                .setSkippedDetails(resolved.isSkippedDetails());
+        if (resolved.getPlaceId() != null) {
+            proto.setPlaceId(resolved.getPlaceId());
+        }
+        if (resolved.getCafe() != null) {
+            proto.setCafe(toProto(resolved.getCafe()));
+        }
+        return proto.build();
+    }
+
+    private static CafeProtos.CafeList toCafeList(Collection<?> cafes) {
+        CafeProtos.CafeList.Builder list = CafeProtos.CafeList.newBuilder();
+        for (Object cafe : cafes) {
+            if (!(cafe instanceof Cafe c)) {
+                throw new IllegalArgumentException("No protobuf mapping for list of " + cafe.getClass().getName());
+            }
+            list.addCafes(toProto(c));
+        }
+        return list.build();
+    }
+
+    private static CafeProtos.Features toProto(Cafe.Features features) {
+        CafeProtos.Features.Builder proto = CafeProtos.Features.newBuilder();
+        if (features.getWifiAvailable() != null) {
+            proto.setWifiAvailable(features.getWifiAvailable());
+        }
+        if (features.getOutletsAvailable() != null) {
+            proto.setOutletsAvailable(features.getOutletsAvailable());
+        }
+        QuietnessLevel quietness = features.getQuietnessLevel();
+        if (quietness != null) {
+            proto.setQuietnessLevelValue(quietness.getCode());
+        }
+        Temperature temperature = features.getTemperature();
+        if (temperature != null) {
+            proto.setTemperatureValue(temperature.getCode());
+        }
+        if (features.getUnlimitedDuration() != null) {
+            proto.setUnlimitedDuration(features.getUnlimitedDuration());
+        }
+        if (features.getLimitDuration() != null) {
+            proto.setLimitDurationSeconds((int) features.getLimitDuration().toSeconds());
+        }
+        if (features.getGoogleRating() != null) {
+            proto.setGoogleRating(features.getGoogleRating());
+        }
+        return proto.build();
+    }
+
+    private static CafeProtos.GeoPoint toProto(GeoJsonPoint point) {
+        return CafeProtos.GeoPoint.newBuilder()
+                .setLongitude(point.getX())
+                .setLatitude(point.getY())
+                .build();
+    }
+}
@@ -1,6 +1,5 @@
 package com.work.coffeemode.dto.user;
 
-import com.work.coffeemode.model.User;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -11,7 +10,7 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 @AllArgsConstructor
 public class CreateUserRequest {
+    // The Firebase UID and the role are never taken from the client
     private String name;
     private String email;
-    private User.Role role;
-}
\ No newline at end of file
+}
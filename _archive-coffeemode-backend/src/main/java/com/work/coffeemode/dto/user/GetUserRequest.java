@@ -10,6 +10,7 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 @AllArgsConstructor
 public class GetUserRequest {
+    // Firebase UID
     @Builder.Default
-    private Integer id = null;
+    private String id = null;
 }
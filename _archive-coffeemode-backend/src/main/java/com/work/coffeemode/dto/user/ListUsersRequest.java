@@ -10,8 +10,9 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 @AllArgsConstructor
 public class ListUsersRequest {
+    // Opaque cursor from the previous page's nextCursor; omit for the first page
     @Builder.Default
-    private int page = 0;
+    private String cursor = null;
     @Builder.Default
     private int pageSize = 10;
 }
@@ -14,7 +14,7 @@ import java.util.List;
 @AllArgsConstructor
 public class ListUsersResponse {
     private List<User> users;
-    private int totalCount;
-    private int page;
-    private int totalPages;
-}
\ No newline at end of file
+    // null when there are no more users
+    private String nextCursor;
+    private int pageSize;
+}
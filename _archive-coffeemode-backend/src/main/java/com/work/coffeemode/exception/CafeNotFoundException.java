@@ -6,15 +6,15 @@ public class CafeNotFoundException extends RuntimeException implements ClientExc
     private static final String DEFAULT_MESSAGE = "Cafe not found";
 
     public CafeNotFoundException() {
-        super(DEFAULT_MESSAGE);
+        this(DEFAULT_MESSAGE);
     }
 
     public CafeNotFoundException(String message) {
-        super(message);
+        this(message, null);
     }
 
     public CafeNotFoundException(String message, Throwable cause) {
-        super(message, cause);
+        super(message, cause, false, false);
     }
 
     @Override
@@ -5,6 +5,10 @@ package com.work.coffeemode.exception;
  * not found).
  * Typically corresponds to HTTP 4xx status codes.
  * Concrete implementations must provide specific codes and messages.
+ * <p>
+ * Client errors are expected control flow (a missing cafe, a bad cursor), so implementations
+ * should pass {@code writableStackTrace = false} to {@link RuntimeException}; they are answered
+ * by {@link GlobalExceptionHandler} without stack walking or error logging.
  */
 public interface ClientException {
     Integer getCode();
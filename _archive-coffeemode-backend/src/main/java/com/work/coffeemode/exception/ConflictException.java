@@ -0,0 +1,29 @@
+package com.work.coffeemode.exception;
+
+public class ConflictException extends RuntimeException implements ClientException {
+
+    private static final Integer CODE = 409;
+    private static final String DEFAULT_MESSAGE = "Conflict";
+
+    public ConflictException() {
+        this(DEFAULT_MESSAGE);
+    }
+
+    public ConflictException(String message) {
+        this(message, null);
+    }
+
+    public ConflictException(String message, Throwable cause) {
+        super(message, cause, false, false);
+    }
+
+    @Override
+    public Integer getCode() {
+        return CODE;
+    }
+
+    @Override
+    public String getMessage() {
+        return super.getMessage() != null ? super.getMessage() : DEFAULT_MESSAGE;
+    }
+}
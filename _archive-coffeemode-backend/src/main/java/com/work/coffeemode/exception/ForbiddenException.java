@@ -0,0 +1,29 @@
+package com.work.coffeemode.exception;
+
+public class ForbiddenException extends RuntimeException implements ClientException {
+
+    private static final Integer CODE = 403;
+    private static final String DEFAULT_MESSAGE = "Not allowed";
+
+    public ForbiddenException() {
+        this(DEFAULT_MESSAGE);
+    }
+
+    public ForbiddenException(String message) {
+        this(message, null);
+    }
+
+    public ForbiddenException(String message, Throwable cause) {
+        super(message, cause, false, false);
+    }
+
+    @Override
+    public Integer getCode() {
+        return CODE;
+    }
+
+    @Override
+    public String getMessage() {
+        return super.getMessage() != null ? super.getMessage() : DEFAULT_MESSAGE;
+    }
+}
@@ -0,0 +1,112 @@
+package com.work.coffeemode.exception;
+
+import com.work.coffeemode.model.UnifiedResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
+import org.springframework.web.HttpMediaTypeNotSupportedException;
+import org.springframework.web.HttpRequestMethodNotSupportedException;
+import org.springframework.web.bind.MethodArgumentNotValidException;
+import org.springframework.web.bind.MissingServletRequestParameterException;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
+import org.springframework.web.servlet.resource.NoResourceFoundException;
+
+/**
+ * Maps controller exceptions to {@link UnifiedResponse} error bodies.
+ * <p>
+ * {@link ClientException}s are answered with their own 4xx code and logged at DEBUG only; they
+ * carry no stack trace, so a burst of not-found lookups costs little more than a normal response.
+ * {@link ServerException}s and anything unexpected are logged once at ERROR with the stack trace,
+ * except {@link ServiceUnavailableException}, which is expected while an instance warms up and is
+ * answered with 503 and {@code Retry-After}.
+ */
+@Slf4j
+@RestControllerAdvice
+@Profile("!reactive")
+public class GlobalExceptionHandler {
+
+    @ExceptionHandler({ HttpMessageNotReadableException.class, MethodArgumentNotValidException.class,
+            MissingServletRequestParameterException.class, MethodArgumentTypeMismatchException.class })
+    public ResponseEntity<UnifiedResponse<Void>> handleBadRequest(Exception e) {
+        log.debug("Rejected malformed request: {}", e.getMessage());
+        return respond(HttpStatus.BAD_REQUEST, HttpStatus.BAD_REQUEST.value(), "Malformed request");
+    }
+
+    @ExceptionHandler(HttpRequestMethodNotSupportedException.class)
+    public ResponseEntity<UnifiedResponse<Void>> handleMethodNotSupported(HttpRequestMethodNotSupportedException e) {
+        return respond(HttpStatus.METHOD_NOT_ALLOWED, HttpStatus.METHOD_NOT_ALLOWED.value(), e.getMessage());
+    }
+
+    @ExceptionHandler(HttpMediaTypeNotAcceptableException.class)
+    public ResponseEntity<Void> handleNotAcceptable(HttpMediaTypeNotAcceptableException e) {
+        // No body: by definition there is no representation the client accepts
+        return ResponseEntity.status(HttpStatus.NOT_ACCEPTABLE).build();
+    }
+
+    @ExceptionHandler(HttpMediaTypeNotSupportedException.class)
+    public ResponseEntity<UnifiedResponse<Void>> handleMediaTypeNotSupported(HttpMediaTypeNotSupportedException e) {
+        return respond(HttpStatus.UNSUPPORTED_MEDIA_TYPE, HttpStatus.UNSUPPORTED_MEDIA_TYPE.value(), e.getMessage());
+    }
+
+    @ExceptionHandler(NoResourceFoundException.class)
+    public ResponseEntity<UnifiedResponse<Void>> handleNoResource(NoResourceFoundException e) {
+        return respond(HttpStatus.NOT_FOUND, HttpStatus.NOT_FOUND.value(), "Not found");
+    }
+
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<UnifiedResponse<Void>> handleConcurrentUpdate(OptimisticLockingFailureException e) {
+        log.debug("Concurrent update rejected: {}", e.getMessage());
+        return respond(HttpStatus.CONFLICT, HttpStatus.CONFLICT.value(), "Resource was modified concurrently, retry");
+    }
+
+    @ExceptionHandler(DuplicateKeyException.class)
+    public ResponseEntity<UnifiedResponse<Void>> handleDuplicateKey(DuplicateKeyException e) {
+        // A unique index caught a concurrent create of the same resource
+        log.debug("Duplicate key rejected: {}", e.getMessage());
+        return respond(HttpStatus.CONFLICT, HttpStatus.CONFLICT.value(), "Resource already exists");
+    }
+
+    @ExceptionHandler(ServiceUnavailableException.class)
+    public ResponseEntity<UnifiedResponse<Void>> handleUnavailable(ServiceUnavailableException e) {
+        log.debug("Unavailable: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(e.getRetryAfter().toSeconds()))
+                .body(UnifiedResponse.error(e.getCode(), e.getMessage()));
+    }
+
+    @ExceptionHandler(Exception.class)
+    public ResponseEntity<UnifiedResponse<Void>> handleException(Exception e) {
+        if (e instanceof ClientException clientException) {
+            log.debug("Client error {}: {}", clientException.getCode(), clientException.getMessage());
+            return respond(clientStatus(clientException.getCode()), clientException.getCode(),
+                    clientException.getMessage());
+        }
+        if (e instanceof ServerException serverException) {
+            log.error("Server error {}: {}", serverException.getCode(), serverException.getMessage(), e);
+            return respond(HttpStatus.INTERNAL_SERVER_ERROR, serverException.getCode(), serverException.getMessage());
+        }
+        log.error("Unhandled exception: {}", e.getMessage(), e);
+        return respond(HttpStatus.INTERNAL_SERVER_ERROR, 500, "Internal Server Error");
+    }
+
+    /**
+     * Client codes that are real 4xx statuses are used as the HTTP status; business codes
+     * (e.g. 10001) fall back to 400.
+     */
+    static HttpStatus clientStatus(Integer code) {
+        HttpStatus status = code == null ? null : HttpStatus.resolve(code);
+        return status != null && status.is4xxClientError() ? status : HttpStatus.BAD_REQUEST;
+    }
+
+    private static ResponseEntity<UnifiedResponse<Void>> respond(HttpStatus status, Integer code, String message) {
+        return ResponseEntity.status(status).body(UnifiedResponse.error(code, message));
+    }
+}
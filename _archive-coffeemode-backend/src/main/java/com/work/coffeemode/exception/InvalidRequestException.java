@@ -0,0 +1,29 @@
+package com.work.coffeemode.exception;
+
+public class InvalidRequestException extends RuntimeException implements ClientException {
+
+    private static final Integer CODE = 400;
+    private static final String DEFAULT_MESSAGE = "Invalid request";
+
+    public InvalidRequestException() {
+        this(DEFAULT_MESSAGE);
+    }
+
+    public InvalidRequestException(String message) {
+        this(message, null);
+    }
+
+    public InvalidRequestException(String message, Throwable cause) {
+        super(message, cause, false, false);
+    }
+
+    @Override
+    public Integer getCode() {
+        return CODE;
+    }
+
+    @Override
+    public String getMessage() {
+        return super.getMessage() != null ? super.getMessage() : DEFAULT_MESSAGE;
+    }
+}
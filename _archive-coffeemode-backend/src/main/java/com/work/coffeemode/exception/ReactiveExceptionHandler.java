@@ -0,0 +1,101 @@
+package com.work.coffeemode.exception;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.work.coffeemode.model.UnifiedResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.ServerWebInputException;
+import org.springframework.web.server.WebExceptionHandler;
+import reactor.core.publisher.Mono;
+
+/**
+ * {@link GlobalExceptionHandler} for the reactive profile, with the same status and envelope
+ * mapping. As a {@link WebExceptionHandler} it also sees errors raised while a streamed body is
+ * being written, as long as nothing has been committed yet; after that the connection is cut.
+ */
+@Slf4j
+@Component
+@Profile("reactive")
+@Order(-2) // Ahead of Spring Boot's DefaultErrorWebExceptionHandler (-1)
+public class ReactiveExceptionHandler implements WebExceptionHandler {
+
+    private final ObjectMapper objectMapper;
+
+    public ReactiveExceptionHandler(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public Mono<Void> handle(ServerWebExchange exchange, Throwable e) {
+        ServerHttpResponse response = exchange.getResponse();
+        if (response.isCommitted()) {
+            return Mono.error(e);
+        }
+        if (e instanceof ClientException clientException) {
+            log.debug("Client error {}: {}", clientException.getCode(), clientException.getMessage());
+            return respond(response, GlobalExceptionHandler.clientStatus(clientException.getCode()),
+                    clientException.getCode(), clientException.getMessage());
+        }
+        if (e instanceof ServiceUnavailableException unavailable) {
+            log.debug("Unavailable: {}", unavailable.getMessage());
+            response.getHeaders().set(HttpHeaders.RETRY_AFTER,
+                    Long.toString(unavailable.getRetryAfter().toSeconds()));
+            return respond(response, HttpStatus.SERVICE_UNAVAILABLE, unavailable.getCode(), unavailable.getMessage());
+        }
+        if (e instanceof ServerException serverException) {
+            log.error("Server error {}: {}", serverException.getCode(), serverException.getMessage(), e);
+            return respond(response, HttpStatus.INTERNAL_SERVER_ERROR, serverException.getCode(),
+                    serverException.getMessage());
+        }
+        if (e instanceof OptimisticLockingFailureException) {
+            log.debug("Concurrent update rejected: {}", e.getMessage());
+            return respond(response, HttpStatus.CONFLICT, HttpStatus.CONFLICT.value(),
+                    "Resource was modified concurrently, retry");
+        }
+        if (e instanceof DuplicateKeyException) {
+            log.debug("Duplicate key rejected: {}", e.getMessage());
+            return respond(response, HttpStatus.CONFLICT, HttpStatus.CONFLICT.value(), "Resource already exists");
+        }
+        if (e instanceof ServerWebInputException || e instanceof DecodingException) {
+            log.debug("Rejected malformed request: {}", e.getMessage());
+            return respond(response, HttpStatus.BAD_REQUEST, HttpStatus.BAD_REQUEST.value(), "Malformed request");
+        }
+        if (e instanceof ResponseStatusException statusException) {
+            HttpStatusCode status = statusException.getStatusCode();
+            if (status.value() == HttpStatus.NOT_ACCEPTABLE.value()) {
+                // No body: by definition there is no representation the client accepts
+                response.setStatusCode(status);
+                return response.setComplete();
+            }
+            String message = status.value() == HttpStatus.NOT_FOUND.value() ? "Not found" : statusException.getReason();
+            return respond(response, status, status.value(), message);
+        }
+        log.error("Unhandled exception: {}", e.getMessage(), e);
+        return respond(response, HttpStatus.INTERNAL_SERVER_ERROR, 500, "Internal Server Error");
+    }
+
+    private Mono<Void> respond(ServerHttpResponse response, HttpStatusCode status, Integer code, String message) {
+        byte[] body;
+        try {
+            body = objectMapper.writeValueAsBytes(UnifiedResponse.error(code, message));
+        } catch (JsonProcessingException e) {
+            return Mono.error(e);
+        }
+        response.setStatusCode(status);
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        return response.writeWith(Mono.fromSupplier(() -> response.bufferFactory().wrap(body)));
+    }
+}
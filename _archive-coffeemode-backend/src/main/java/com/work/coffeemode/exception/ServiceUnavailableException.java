@@ -0,0 +1,39 @@
+package com.work.coffeemode.exception;
+
+import java.time.Duration;
+
+/**
+ * The request cannot be answered yet, e.g. an in-process index still loading after startup.
+ * Answered with 503 and {@code Retry-After}; it is expected while an instance warms up, so like a
+ * {@link ClientException} it carries no stack trace and is only logged at DEBUG.
+ */
+public class ServiceUnavailableException extends RuntimeException implements ServerException {
+
+    private static final Integer CODE = 503;
+    private static final String DEFAULT_MESSAGE = "Service temporarily unavailable";
+
+    private final Duration retryAfter;
+
+    public ServiceUnavailableException(Duration retryAfter) {
+        this(DEFAULT_MESSAGE, retryAfter);
+    }
+
+    public ServiceUnavailableException(String message, Duration retryAfter) {
+        super(message, null, false, false);
+        this.retryAfter = retryAfter;
+    }
+
+    @Override
+    public Integer getCode() {
+        return CODE;
+    }
+
+    @Override
+    public String getMessage() {
+        return super.getMessage() != null ? super.getMessage() : DEFAULT_MESSAGE;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
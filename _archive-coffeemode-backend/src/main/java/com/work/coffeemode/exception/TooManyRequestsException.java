@@ -0,0 +1,29 @@
+package com.work.coffeemode.exception;
+
+public class TooManyRequestsException extends RuntimeException implements ClientException {
+
+    private static final Integer CODE = 429;
+    private static final String DEFAULT_MESSAGE = "Too many requests";
+
+    public TooManyRequestsException() {
+        this(DEFAULT_MESSAGE);
+    }
+
+    public TooManyRequestsException(String message) {
+        this(message, null);
+    }
+
+    public TooManyRequestsException(String message, Throwable cause) {
+        super(message, cause, false, false);
+    }
+
+    @Override
+    public Integer getCode() {
+        return CODE;
+    }
+
+    @Override
+    public String getMessage() {
+        return super.getMessage() != null ? super.getMessage() : DEFAULT_MESSAGE;
+    }
+}
@@ -0,0 +1,29 @@
+package com.work.coffeemode.exception;
+
+public class UnauthorizedException extends RuntimeException implements ClientException {
+
+    private static final Integer CODE = 401;
+    private static final String DEFAULT_MESSAGE = "Authentication required";
+
+    public UnauthorizedException() {
+        this(DEFAULT_MESSAGE);
+    }
+
+    public UnauthorizedException(String message) {
+        this(message, null);
+    }
+
+    public UnauthorizedException(String message, Throwable cause) {
+        super(message, cause, false, false);
+    }
+
+    @Override
+    public Integer getCode() {
+        return CODE;
+    }
+
+    @Override
+    public String getMessage() {
+        return super.getMessage() != null ? super.getMessage() : DEFAULT_MESSAGE;
+    }
+}
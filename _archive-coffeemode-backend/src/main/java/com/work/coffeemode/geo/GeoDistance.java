@@ -0,0 +1,26 @@
+package com.work.coffeemode.geo;
+
+/**
+ * Distances between coordinates on a spherical earth, for the in-process indexes and matching
+ * that filter by distance without asking MongoDB.
+ */
+public final class GeoDistance {
+
+    public static final double EARTH_RADIUS_METERS = 6_371_000;
+    // Length of a degree of latitude (and of longitude at the equator)
+    public static final double METERS_PER_DEGREE = 111_320;
+
+    private GeoDistance() {
+    }
+
+    /**
+     * Great-circle (haversine) distance in metres.
+     */
+    public static double meters(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2) + Math.cos(Math.toRadians(lat1))
+                * Math.cos(Math.toRadians(lat2)) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+}
@@ -0,0 +1,351 @@
+package com.work.coffeemode.image;
+
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.work.coffeemode.cache.CacheInvalidationBus;
+import com.work.coffeemode.cache.CacheInvalidationEvent;
+import com.work.coffeemode.dto.cafe.ImageDTO;
+import com.work.coffeemode.exception.CafeNotFoundException;
+import com.work.coffeemode.exception.InvalidRequestException;
+import com.work.coffeemode.exception.TooManyRequestsException;
+import com.work.coffeemode.model.Cafe;
+import com.work.coffeemode.sync.ChangeSequence;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cafe photo uploads.
+ * <p>
+ * {@link #accept} streams the original straight into the {@link ObjectStore}, adds a
+ * {@code PROCESSING} entry to the cafe's {@code images} and returns; the request thread never
+ * decodes anything. A small fixed pool then decodes the original once, writes the
+ * thumbnail and medium JPEG variants and a blurred placeholder, and marks the
+ * entry {@code READY} (or {@code FAILED} for data no reader understands). Image decoding is
+ * CPU- and memory-heavy, so the pool and its queue are bounded: when the queue is full, uploads
+ * are refused with 429 before their body is read rather than piling up in memory.
+ * <p>
+ * On shutdown, queued jobs get {@code shutdown-timeout} to finish. Entries still
+ * {@code PROCESSING} when the application next starts, because the process died or the timeout
+ * ran out, are queued again from their stored original, or marked {@code FAILED} when that is
+ * gone or the queue is full.
+ * <p>
+ * Both writes to the cafe bump {@code version}, take a change sequence number and publish a cafe
+ * invalidation, like any other cafe edit.
+ */
+@Slf4j
+@Component
+public class ImagePipeline {
+
+    private static final Map<String, String> EXTENSIONS = Map.of(
+            MediaType.IMAGE_JPEG_VALUE, "jpg",
+            MediaType.IMAGE_PNG_VALUE, "png");
+
+    private final ObjectStore objectStore;
+    private final MongoTemplate mongoTemplate;
+    private final ChangeSequence changeSequence;
+    private final CacheInvalidationBus invalidationBus;
+    private final ThreadPoolExecutor workers;
+    private final Timer processed;
+    private final Timer failed;
+    private final long maxUploadBytes;
+    private final int thumbnailSize;
+    private final int mediumSize;
+    private final int placeholderSize;
+    private final Duration shutdownTimeout;
+
+    public ImagePipeline(ObjectStore objectStore, MongoTemplate mongoTemplate, ChangeSequence changeSequence,
+            CacheInvalidationBus invalidationBus, MeterRegistry meterRegistry,
+            @Value("${coffeemode.images.workers:2}") int workerCount,
+            @Value("${coffeemode.images.queue-capacity:32}") int queueCapacity,
+            @Value("${coffeemode.images.max-upload-size:15MB}") DataSize maxUploadSize,
+            @Value("${coffeemode.images.thumbnail-size:320}") int thumbnailSize,
+            @Value("${coffeemode.images.medium-size:1280}") int mediumSize,
+            @Value("${coffeemode.images.placeholder-size:16}") int placeholderSize,
+            @Value("${coffeemode.images.shutdown-timeout:20s}") Duration shutdownTimeout) {
+        this.objectStore = objectStore;
+        this.mongoTemplate = mongoTemplate;
+        this.changeSequence = changeSequence;
+        this.invalidationBus = invalidationBus;
+        this.maxUploadBytes = maxUploadSize.toBytes();
+        this.thumbnailSize = thumbnailSize;
+        this.mediumSize = mediumSize;
+        this.placeholderSize = placeholderSize;
+        this.shutdownTimeout = shutdownTimeout;
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                Thread.ofPlatform().name("image-worker-", 0).daemon().factory());
+        ExecutorServiceMetrics.monitor(meterRegistry, workers, "images");
+        this.processed = Timer.builder("images.processing").tag("outcome", "ready").register(meterRegistry);
+        this.failed = Timer.builder("images.processing").tag("outcome", "failed").register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        workers.shutdown();
+        if (!workers.awaitTermination(shutdownTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+            // Whatever is left stays PROCESSING and is resumed on the next start
+            log.warn("Stopping with {} images still queued", workers.shutdownNow().size());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeUnfinished() {
+        // On a worker, so a slow or missing MongoDB doesn't hold up the other startup listeners
+        try {
+            workers.execute(this::requeueUnfinished);
+        } catch (RejectedExecutionException e) {
+            log.warn("Could not schedule the unfinished images check");
+        }
+    }
+
+    /**
+     * Stores an uploaded original and queues it for processing.
+     *
+     * @return the new image entry, still {@code PROCESSING}
+     */
+    public ImageDTO accept(String cafeId, String contentType, InputStream body, String caption) throws IOException {
+        String extension = extension(contentType);
+        if (extension == null) {
+            throw new InvalidRequestException("Images must be image/jpeg or image/png");
+        }
+        if (!ObjectId.isValid(cafeId) || !mongoTemplate.exists(byId(cafeId), Cafe.class)) {
+            throw new CafeNotFoundException();
+        }
+        if (workers.getQueue().remainingCapacity() == 0) {
+            throw new TooManyRequestsException("Image processing is busy, try again shortly");
+        }
+
+        String imageId = new ObjectId().toHexString();
+        String originalKey = key(cafeId, imageId, "original." + extension);
+        objectStore.put(originalKey, new LimitedInputStream(body, maxUploadBytes), contentType);
+
+        ImageDTO image = ImageDTO.builder()
+                .imageId(imageId)
+                .url(objectStore.url(originalKey))
+                .caption(caption)
+                .status(ImageDTO.Status.PROCESSING)
+                .build();
+        if (!updateCafe(cafeId, byId(cafeId), new Update().push("images", image))) {
+            objectStore.delete(originalKey);
+            throw new CafeNotFoundException();
+        }
+
+        try {
+            workers.execute(() -> process(cafeId, imageId, originalKey));
+        } catch (RejectedExecutionException e) {
+            // The queue filled up between the check and now
+            finish(cafeId, imageId, new Update().set("images.$[image].status", ImageDTO.Status.FAILED));
+            throw new TooManyRequestsException("Image processing is busy, try again shortly");
+        }
+        return image;
+    }
+
+    private void requeueUnfinished() {
+        int requeued = 0;
+        int failed = 0;
+        try {
+            for (Document cafe : mongoTemplate.getCollection("cafes")
+                    .find(Filters.eq("images.status", ImageDTO.Status.PROCESSING.name()))
+                    .projection(Projections.include("images.imageId", "images.url", "images.status"))) {
+                String cafeId = cafe.getObjectId("_id").toHexString();
+                for (Object entry : cafe.getList("images", Object.class, List.of())) {
+                    if (!(entry instanceof Document image)
+                            || !ImageDTO.Status.PROCESSING.name().equals(image.get("status"))
+                            || !(image.get("imageId") instanceof String imageId)) {
+                        continue;
+                    }
+                    if (requeue(cafeId, imageId, image.get("url"))) {
+                        requeued++;
+                    } else {
+                        finish(cafeId, imageId, new Update().set("images.$[image].status", ImageDTO.Status.FAILED));
+                        failed++;
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("Checking for unfinished images failed", e);
+        }
+        if (requeued > 0 || failed > 0) {
+            log.info("Unfinished images from before the restart: {} queued again, {} marked failed", requeued,
+                    failed);
+        }
+    }
+
+    private boolean requeue(String cafeId, String imageId, Object url) {
+        // The original's key is only recorded in its URL, which ends in "original.<extension>"
+        String suffix = url instanceof String text ? text.substring(text.lastIndexOf('/') + 1) : "";
+        if (!suffix.startsWith("original.") || !EXTENSIONS.containsValue(suffix.substring("original.".length()))) {
+            return false;
+        }
+        String originalKey = key(cafeId, imageId, suffix);
+        try {
+            // A missing original fails in process() and marks the entry FAILED there
+            workers.execute(() -> process(cafeId, imageId, originalKey));
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    private void process(String cafeId, String imageId, String originalKey) {
+        Timer.Sample sample = Timer.start();
+        Update update = new Update();
+        try {
+            ImageVariants.Decoded decoded;
+            try (InputStream original = objectStore.open(originalKey)) {
+                decoded = ImageVariants.decode(original, mediumSize);
+            }
+            if (decoded == null) {
+                log.info("Image {} of cafe {} is not a readable image", imageId, cafeId);
+                finish(cafeId, imageId, update.set("images.$[image].status", ImageDTO.Status.FAILED));
+                sample.stop(failed);
+                return;
+            }
+
+            // Each variant is scaled from the next larger one rather than from the original
+            BufferedImage medium = ImageVariants.fit(decoded.image(), mediumSize);
+            BufferedImage thumbnail = ImageVariants.fit(medium, thumbnailSize);
+            List<ImageDTO.Variant> variants = new ArrayList<>(2);
+            variants.add(storeVariant(cafeId, imageId, ImageDTO.THUMBNAIL, thumbnail, 0.8f));
+            variants.add(storeVariant(cafeId, imageId, ImageDTO.MEDIUM, medium, 0.85f));
+
+            finish(cafeId, imageId, update
+                    .set("images.$[image].width", decoded.originalWidth())
+                    .set("images.$[image].height", decoded.originalHeight())
+                    .set("images.$[image].placeholder", ImageVariants.placeholder(thumbnail, placeholderSize))
+                    .set("images.$[image].variants", variants)
+                    .set("images.$[image].status", ImageDTO.Status.READY));
+            sample.stop(processed);
+        } catch (Exception e) {
+            log.warn("Processing image {} of cafe {} failed", imageId, cafeId, e);
+            sample.stop(failed);
+            try {
+                finish(cafeId, imageId, new Update().set("images.$[image].status", ImageDTO.Status.FAILED));
+            } catch (RuntimeException markFailed) {
+                log.warn("Could not mark image {} of cafe {} as failed", imageId, cafeId, markFailed);
+            }
+        }
+    }
+
+    private ImageDTO.Variant storeVariant(String cafeId, String imageId, String name, BufferedImage image,
+            float quality) throws IOException {
+        byte[] jpeg = ImageVariants.jpeg(image, quality);
+        String key = key(cafeId, imageId, name + ".jpg");
+        objectStore.put(key, new ByteArrayInputStream(jpeg), MediaType.IMAGE_JPEG_VALUE);
+        return ImageDTO.Variant.builder()
+                .name(name)
+                .url(objectStore.url(key))
+                .width(image.getWidth())
+                .height(image.getHeight())
+                .bytes(jpeg.length)
+                .build();
+    }
+
+    /**
+     * Updates one image entry; a no-op if the cafe was deleted or its images replaced meanwhile.
+     */
+    private void finish(String cafeId, String imageId, Update update) {
+        Query query = byId(cafeId).addCriteria(Criteria.where("images.imageId").is(imageId));
+        updateCafe(cafeId, query, update.filterArray(Criteria.where("image.imageId").is(imageId)));
+    }
+
+    private boolean updateCafe(String cafeId, Query query, Update update) {
+        update.inc("version", 1L)
+                .set("changeSeq", changeSequence.next(ChangeSequence.CAFES))
+                .currentDate("updatedAt");
+        if (mongoTemplate.updateFirst(query, update, Cafe.class).getMatchedCount() == 0) {
+            return false;
+        }
+        invalidationBus.publish(CacheInvalidationEvent.upsert(CacheInvalidationEvent.Source.CAFE, cafeId, null));
+        return true;
+    }
+
+    private static String extension(String contentType) {
+        if (contentType == null) {
+            return null;
+        }
+        try {
+            MediaType type = MediaType.parseMediaType(contentType);
+            return EXTENSIONS.get(type.getType() + "/" + type.getSubtype());
+        } catch (InvalidMediaTypeException e) {
+            return null;
+        }
+    }
+
+    private static Query byId(String cafeId) {
+        return Query.query(Criteria.where("_id").is(new ObjectId(cafeId)));
+    }
+
+    private static String key(String cafeId, String imageId, String name) {
+        return "cafes/" + cafeId + "/" + imageId + "/" + name;
+    }
+
+    // Refuses bodies over the upload limit part-way through, before they fill the disk
+    private static final class LimitedInputStream extends FilterInputStream {
+
+        private final long limit;
+        private long remaining;
+
+        private LimitedInputStream(InputStream in, long limit) {
+            super(in);
+            this.limit = limit;
+            this.remaining = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                consumed(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) {
+                consumed(n);
+            }
+            return n;
+        }
+
+        private void consumed(int n) {
+            remaining -= n;
+            if (remaining < 0) {
+                throw new InvalidRequestException("Images must be at most " + DataSize.ofBytes(limit).toMegabytes()
+                        + "MB");
+            }
+        }
+    }
+}
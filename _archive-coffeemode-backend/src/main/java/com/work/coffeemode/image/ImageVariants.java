@@ -0,0 +1,115 @@
+package com.work.coffeemode.image;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Base64;
+import java.util.Iterator;
+
+/**
+ * Decoding, downscaling and JPEG encoding with the JDK's ImageIO, so the pipeline needs no native
+ * codecs.
+ * <p>
+ * Decoding asks the reader for source subsampling: a 6000px photo only ever needs to become a
+ * 1280px variant, so every other (or every fourth) pixel is skipped while decoding instead of
+ * materialising a 100MB raster and throwing most of it away.
+ */
+final class ImageVariants {
+
+    private ImageVariants() {
+    }
+
+    record Decoded(BufferedImage image, int originalWidth, int originalHeight) {
+    }
+
+    /**
+     * Decodes {@code in}, subsampled so that the result is no smaller than {@code maxEdge} on its
+     * longer side (unless the original is).
+     *
+     * @return {@code null} when no installed reader understands the data
+     */
+    static Decoded decode(InputStream in, int maxEdge) throws IOException {
+        try (ImageInputStream stream = ImageIO.createImageInputStream(in)) {
+            Iterator<ImageReader> readers = stream == null ? null : ImageIO.getImageReaders(stream);
+            if (readers == null || !readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(stream, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                ImageReadParam param = reader.getDefaultReadParam();
+                int step = Math.max(1, Math.max(width, height) / maxEdge);
+                param.setSourceSubsampling(step, step, 0, 0);
+                return new Decoded(reader.read(0, param), width, height);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Scales {@code source} so that its longer side is at most {@code maxEdge}, flattening any
+     * transparency onto white. Large reductions are done in halving steps, which keeps bilinear
+     * filtering from aliasing.
+     */
+    static BufferedImage fit(BufferedImage source, int maxEdge) {
+        double scale = Math.min(1.0, (double) maxEdge / Math.max(source.getWidth(), source.getHeight()));
+        int targetWidth = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int targetHeight = Math.max(1, (int) Math.round(source.getHeight() * scale));
+        BufferedImage current = source;
+        int width = source.getWidth();
+        int height = source.getHeight();
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            BufferedImage step = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = step.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g.drawImage(current, 0, 0, width, height, Color.WHITE, null);
+            } finally {
+                g.dispose();
+            }
+            current = step;
+        } while (width != targetWidth || height != targetHeight);
+        return current;
+    }
+
+    static byte[] jpeg(BufferedImage image, float quality) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(image.getWidth() * image.getHeight() / 4 + 1024);
+        try (MemoryCacheImageOutputStream out = new MemoryCacheImageOutputStream(bytes)) {
+            writer.setOutput(out);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * A few hundred bytes of heavily compressed JPEG, inlined as a data URI for clients to blur
+     * and show until the real image arrives.
+     */
+    static String placeholder(BufferedImage image, int maxEdge) throws IOException {
+        return "data:image/jpeg;base64," + Base64.getEncoder().encodeToString(jpeg(fit(image, maxEdge), 0.5f));
+    }
+}
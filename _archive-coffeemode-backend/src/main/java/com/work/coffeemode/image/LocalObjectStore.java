@@ -0,0 +1,91 @@
+package com.work.coffeemode.image;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * {@link ObjectStore} on the local filesystem, for development and tests. Objects are written to
+ * a temporary file next to their final path and moved into place when complete; WebConfig serves
+ * them under {@code coffeemode.images.local.base-url}.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "coffeemode.images.store", havingValue = "local", matchIfMissing = true)
+public class LocalObjectStore implements ObjectStore {
+
+    // Per transferFrom call. The source wraps a servlet InputStream, which the JDK can only copy
+    // through a small heap buffer (no zero-copy from a stream), but the upload is never held whole
+    private static final long TRANSFER_CHUNK = 1 << 20;
+
+    private final Path root;
+    private final String baseUrl;
+
+    public LocalObjectStore(@Value("${coffeemode.images.local.root:data/images}") Path root,
+            @Value("${coffeemode.images.local.base-url:/images}") String baseUrl) throws IOException {
+        this.root = Files.createDirectories(root).toAbsolutePath().normalize();
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        log.info("Storing images under {}", this.root);
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    @Override
+    public long put(String key, InputStream content, String contentType) throws IOException {
+        Path target = resolve(key);
+        Files.createDirectories(target.getParent());
+        Path partial = Files.createTempFile(target.getParent(), ".upload-", ".part");
+        try (ReadableByteChannel source = Channels.newChannel(content);
+                FileChannel file = FileChannel.open(partial, StandardOpenOption.WRITE)) {
+            long position = 0;
+            long transferred;
+            while ((transferred = file.transferFrom(source, position, TRANSFER_CHUNK)) > 0) {
+                position += transferred;
+            }
+            Files.move(partial, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            return position;
+        } finally {
+            Files.deleteIfExists(partial);
+        }
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        return Files.newInputStream(resolve(key));
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        Files.deleteIfExists(resolve(key));
+    }
+
+    @Override
+    public String url(String key) {
+        return baseUrl + "/" + key;
+    }
+
+    private Path resolve(String key) {
+        Path path = root.resolve(key).normalize();
+        if (!path.startsWith(root)) {
+            throw new IllegalArgumentException("Object key escapes the store: " + key);
+        }
+        return path;
+    }
+}
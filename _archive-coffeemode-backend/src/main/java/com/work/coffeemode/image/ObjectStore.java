@@ -0,0 +1,32 @@
+package com.work.coffeemode.image;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Blob storage for image originals and variants. Keys are slash-separated paths
+ * ({@code cafes/{cafeId}/{imageId}/thumbnail.jpg}); every upload gets fresh keys, so stored
+ * objects never change and can be cached by clients forever.
+ * <p>
+ * {@link LocalObjectStore} serves development and tests; a cloud bucket store only needs to
+ * implement this interface and be selected with {@code coffeemode.images.store}.
+ */
+public interface ObjectStore {
+
+    /**
+     * Streams {@code content} to {@code key} without buffering it whole; the object only becomes
+     * visible once it is complete.
+     *
+     * @return the number of bytes stored
+     */
+    long put(String key, InputStream content, String contentType) throws IOException;
+
+    InputStream open(String key) throws IOException;
+
+    void delete(String key) throws IOException;
+
+    /**
+     * URL clients fetch the object from.
+     */
+    String url(String key);
+}
@@ -0,0 +1,80 @@
+package com.work.coffeemode.index;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import org.bson.Document;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Declaration of an index the application relies on.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+public class IndexSpec {
+
+    private String collection;
+    private String name;
+    // Ordered key pattern, e.g. {location: "2dsphere"} or {placeId: 1}
+    private Document keys;
+    private boolean unique;
+    private boolean sparse;
+
+    public String qualifiedName() {
+        return collection + "." + name;
+    }
+
+    Document toCreateDocument() {
+        Document index = new Document("key", keys).append("name", name);
+        if (unique) {
+            index.append("unique", true);
+        }
+        if (sparse) {
+            index.append("sparse", true);
+        }
+        return index;
+    }
+
+    /**
+     * Same key pattern, regardless of the index name the existing index was created under.
+     */
+    boolean hasSameKeys(Document existingKeys) {
+        if (existingKeys == null || existingKeys.size() != keys.size()) {
+            return false;
+        }
+        Iterator<Map.Entry<String, Object>> expected = keys.entrySet().iterator();
+        Iterator<Map.Entry<String, Object>> actual = existingKeys.entrySet().iterator();
+        while (expected.hasNext()) {
+            Map.Entry<String, Object> e = expected.next();
+            Map.Entry<String, Object> a = actual.next();
+            if (!e.getKey().equals(a.getKey()) || !sameDirection(e.getValue(), a.getValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    boolean hasSameOptions(Document existing) {
+        if (unique != Boolean.TRUE.equals(existing.get("unique"))) {
+            return false;
+        }
+        // 2dsphere indexes are implicitly sparse, so only compare for plain indexes
+        return isGeo() || sparse == Boolean.TRUE.equals(existing.get("sparse"));
+    }
+
+    private boolean isGeo() {
+        return keys.values().stream().anyMatch(v -> v instanceof String s && s.startsWith("2d"));
+    }
+
+    private static boolean sameDirection(Object expected, Object actual) {
+        // listIndexes may report 1 as Integer, Long or Double
+        if (expected instanceof Number e && actual instanceof Number a) {
+            return e.intValue() == a.intValue();
+        }
+        return Objects.equals(expected, actual);
+    }
+}
@@ -0,0 +1,12 @@
+package com.work.coffeemode.index;
+
+public enum IndexState {
+    // Not yet compared with listIndexes
+    PENDING,
+    PRESENT,
+    MISSING,
+    BUILDING,
+    FAILED,
+    // Same keys exist with different options (unique/sparse); needs a manual migration
+    CONFLICT
+}
@@ -0,0 +1,39 @@
+package com.work.coffeemode.index;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reports index state under {@code /actuator/health/mongoIndexes}.
+ * <p>
+ * Always UP: queries still work (slower) while an index builds, so this must not fail readiness.
+ * The {@code state} detail is what dashboards and rollout checks should watch.
+ */
+@Component("mongoIndexes")
+@RequiredArgsConstructor
+public class MongoIndexHealthIndicator implements HealthIndicator {
+
+    private final MongoIndexManager indexManager;
+
+    @Override
+    public Health health() {
+        Map<String, Object> indexes = new LinkedHashMap<>();
+        boolean degraded = false;
+        for (Map.Entry<String, MongoIndexManager.IndexStatus> entry : indexManager.getStatuses().entrySet()) {
+            MongoIndexManager.IndexStatus status = entry.getValue();
+            indexes.put(entry.getKey(), status.detail() == null ? status.state()
+                    : status.state() + ": " + status.detail());
+            degraded |= status.state() == IndexState.FAILED || status.state() == IndexState.CONFLICT;
+        }
+        String state = degraded ? "DEGRADED" : indexManager.isSettled() ? "READY" : "BUILDING";
+        return Health.up()
+                .withDetail("state", state)
+                .withDetail("indexes", indexes)
+                .build();
+    }
+}
@@ -0,0 +1,141 @@
+package com.work.coffeemode.index;
+
+import com.mongodb.MongoException;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reconciles {@link RequiredIndexes} with what the database actually has.
+ * <p>
+ * Runs after the application reports ready, on its own thread, so a long index build on a large
+ * collection never holds up startup or readiness. Missing indexes are built one at a time to keep
+ * load on the primary predictable; concurrent pods issuing the same {@code createIndexes} join the
+ * build already in progress. Existing indexes with conflicting options are reported, never dropped.
+ */
+@Slf4j
+@Component
+public class MongoIndexManager {
+
+    private final MongoTemplate mongoTemplate;
+    private final RequiredIndexes requiredIndexes;
+    private final Map<String, IndexStatus> statuses = Collections.synchronizedMap(new LinkedHashMap<>());
+
+    private Thread worker;
+
+    public MongoIndexManager(MongoTemplate mongoTemplate, RequiredIndexes requiredIndexes) {
+        this.mongoTemplate = mongoTemplate;
+        this.requiredIndexes = requiredIndexes;
+        for (IndexSpec spec : requiredIndexes.getSpecs()) {
+            statuses.put(spec.qualifiedName(), new IndexStatus(IndexState.PENDING, null));
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        worker = Thread.ofPlatform()
+                .name("mongo-index-bootstrap")
+                .daemon()
+                .start(this::reconcile);
+    }
+
+    void reconcile() {
+        List<IndexSpec> missing = new ArrayList<>();
+        for (String collection : requiredIndexes.collections()) {
+            List<Document> existing;
+            try {
+                existing = mongoTemplate.getCollection(collection).listIndexes().into(new ArrayList<>());
+            } catch (MongoException e) {
+                log.warn("Could not list indexes for {}: {}", collection, e.getMessage());
+                requiredIndexes.getSpecs().stream()
+                        .filter(spec -> spec.getCollection().equals(collection))
+                        .forEach(spec -> update(spec, IndexState.FAILED, e.getMessage()));
+                continue;
+            }
+            for (IndexSpec spec : requiredIndexes.getSpecs()) {
+                if (!spec.getCollection().equals(collection)) {
+                    continue;
+                }
+                Document match = existing.stream()
+                        .filter(index -> spec.hasSameKeys(index.get("key", Document.class)))
+                        .findFirst()
+                        .orElse(null);
+                if (match == null) {
+                    update(spec, IndexState.MISSING, null);
+                    missing.add(spec);
+                } else if (!spec.hasSameOptions(match)) {
+                    update(spec, IndexState.CONFLICT, "existing index " + match.getString("name") + " differs in options");
+                    log.warn("Index {} exists as {} with different options; leaving it untouched",
+                            spec.qualifiedName(), match.getString("name"));
+                } else {
+                    update(spec, IndexState.PRESENT, null);
+                }
+            }
+        }
+
+        for (IndexSpec spec : missing) {
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            build(spec);
+        }
+        log.info("Mongo index reconciliation finished: {}", summary());
+    }
+
+    private void build(IndexSpec spec) {
+        update(spec, IndexState.BUILDING, null);
+        log.info("Building missing index {}", spec.qualifiedName());
+        long started = System.currentTimeMillis();
+        try {
+            mongoTemplate.getDb().runCommand(new Document("createIndexes", spec.getCollection())
+                    .append("indexes", List.of(spec.toCreateDocument())));
+            update(spec, IndexState.PRESENT, null);
+            log.info("Built index {} in {} ms", spec.qualifiedName(), System.currentTimeMillis() - started);
+        } catch (MongoException e) {
+            update(spec, IndexState.FAILED, e.getMessage());
+            log.error("Failed to build index {}: {}", spec.qualifiedName(), e.getMessage());
+        }
+    }
+
+    private void update(IndexSpec spec, IndexState state, String detail) {
+        statuses.put(spec.qualifiedName(), new IndexStatus(state, detail));
+    }
+
+    public Map<String, IndexStatus> getStatuses() {
+        synchronized (statuses) {
+            return new LinkedHashMap<>(statuses);
+        }
+    }
+
+    public boolean isSettled() {
+        return getStatuses().values().stream()
+                .noneMatch(s -> s.state() == IndexState.PENDING || s.state() == IndexState.MISSING
+                        || s.state() == IndexState.BUILDING);
+    }
+
+    private Map<IndexState, Long> summary() {
+        Map<IndexState, Long> counts = new LinkedHashMap<>();
+        getStatuses().values().forEach(s -> counts.merge(s.state(), 1L, Long::sum));
+        return counts;
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (worker != null) {
+            worker.interrupt();
+        }
+    }
+
+    public record IndexStatus(IndexState state, String detail) {
+    }
+}
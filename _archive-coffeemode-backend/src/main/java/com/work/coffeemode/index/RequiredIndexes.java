@@ -0,0 +1,51 @@
+package com.work.coffeemode.index;
+
+import org.bson.Document;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The single list of indexes the application expects, registered as a bean in
+ * {@link com.work.coffeemode.config.MongoConfig}.
+ */
+public class RequiredIndexes {
+
+    private final List<IndexSpec> specs = new ArrayList<>();
+
+    public RequiredIndexes geo2dsphere(String collection, String field) {
+        return add(IndexSpec.builder()
+                .collection(collection)
+                .name(field + "_2dsphere")
+                .keys(new Document(field, "2dsphere"))
+                .build());
+    }
+
+    public RequiredIndexes ascending(String collection, String field, boolean unique, boolean sparse) {
+        return add(IndexSpec.builder()
+                .collection(collection)
+                .name(field + "_1")
+                .keys(new Document(field, 1))
+                .unique(unique)
+                .sparse(sparse)
+                .build());
+    }
+
+    public RequiredIndexes add(IndexSpec spec) {
+        specs.add(spec);
+        return this;
+    }
+
+    public List<IndexSpec> getSpecs() {
+        return Collections.unmodifiableList(specs);
+    }
+
+    public Set<String> collections() {
+        Set<String> collections = new LinkedHashSet<>();
+        specs.forEach(spec -> collections.add(spec.getCollection()));
+        return collections;
+    }
+}
@@ -0,0 +1,74 @@
+package com.work.coffeemode.linking;
+
+import com.work.coffeemode.geo.GeoDistance;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+/**
+ * Fixed-size cells over latitude/longitude for candidate blocking. Rows are {@code cellMeters}
+ * of latitude; each row's cells are {@code cellMeters} wide at that row's centre latitude, so a
+ * cell is roughly square anywhere outside the poles. Points within {@code cellMeters} of a query
+ * point are always in the 3x3 cells around it.
+ */
+final class GeoGrid {
+
+    private final double cellDegrees;
+    private final Map<Long, Cell> cells = new HashMap<>();
+
+    GeoGrid(double cellMeters) {
+        this.cellDegrees = cellMeters / GeoDistance.METERS_PER_DEGREE;
+    }
+
+    void add(int index, double latitude, double longitude) {
+        int row = row(latitude);
+        cells.computeIfAbsent(key(row, column(row, longitude)), key -> new Cell()).add(index);
+    }
+
+    /**
+     * Calls {@code consumer} with every point in the cells around the given position.
+     */
+    void forEachNear(double latitude, double longitude, IntConsumer consumer) {
+        int row = row(latitude);
+        for (int r = row - 1; r <= row + 1; r++) {
+            int column = column(r, longitude);
+            for (int c = column - 1; c <= column + 1; c++) {
+                Cell cell = cells.get(key(r, c));
+                if (cell != null) {
+                    for (int i = 0; i < cell.size; i++) {
+                        consumer.accept(cell.members[i]);
+                    }
+                }
+            }
+        }
+    }
+
+    private int row(double latitude) {
+        return (int) Math.floor(latitude / cellDegrees);
+    }
+
+    private int column(int row, double longitude) {
+        double centre = Math.max(-89, Math.min(89, (row + 0.5) * cellDegrees));
+        return (int) Math.floor(longitude * Math.cos(Math.toRadians(centre)) / cellDegrees);
+    }
+
+    private static long key(int row, int column) {
+        return ((long) row << 32) | (column & 0xFFFFFFFFL);
+    }
+
+    // Indexes of the points in one cell
+    private static final class Cell {
+
+        private int[] members = new int[4];
+        private int size;
+
+        private void add(int index) {
+            if (size == members.length) {
+                members = Arrays.copyOf(members, size * 2);
+            }
+            members[size++] = index;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.work.coffeemode.linking;
+
+import com.work.coffeemode.model.RedNoteLinkReview;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * {@code /actuator/rednotelinks}: {@code POST} starts a {@link RedNoteLinker} run in the
+ * background, {@code GET} shows whether one is running, the last run's report and how many
+ * matches wait in the review queue. Not exposed by default, since a run writes cafes and may
+ * spend Places quota on geocoding.
+ */
+@Component
+@Endpoint(id = "rednotelinks")
+@RequiredArgsConstructor
+public class RedNoteLinkEndpoint {
+
+    private final RedNoteLinker linker;
+    private final MongoTemplate mongoTemplate;
+
+    @ReadOperation
+    public Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("running", linker.isRunning());
+        status.put("lastRun", linker.getLastReport());
+        status.put("pendingReviews", mongoTemplate.count(
+                Query.query(Criteria.where("status").is(RedNoteLinkReview.Status.PENDING)), RedNoteLinkReview.class));
+        return status;
+    }
+
+    @WriteOperation
+    public Map<String, Object> run() {
+        return Map.of("started", linker.start());
+    }
+}
@@ -0,0 +1,512 @@
+package com.work.coffeemode.linking;
+
+import com.google.type.LatLng;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+import com.work.coffeemode.cache.CacheInvalidationBus;
+import com.work.coffeemode.cache.CacheInvalidationEvent;
+import com.work.coffeemode.client.GooglePlacesClient;
+import com.work.coffeemode.geo.GeoDistance;
+import com.work.coffeemode.model.CafeRedNotePoi;
+import com.work.coffeemode.model.RedNoteLinkReview;
+import com.work.coffeemode.sync.ChangeSequence;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Links RedNote POIs ({@code cafe_rednote_pois}) to cafes by setting
+ * {@code externalReferences.redbookId}.
+ * <p>
+ * Comparing every POI with every cafe does not scale, so candidates are blocked first: cafes
+ * without a RedNote link are loaded once into a {@link GeoGrid} and a street index, and each POI
+ * is only scored against the cafes within {@code radius-meters} of it, or, when it has no
+ * coordinates, against the cafes on the same street ({@link TextSimilarity#roadKey}). POIs
+ * without coordinates can optionally be geocoded through Places first
+ * ({@code geocode-limit} per run, 0 by default since every lookup is a billed call); the result
+ * is stored on the POI, so each address is looked up once.
+ * <p>
+ * Pairs are scored on name and address bigram similarity plus proximity, in parallel over
+ * chunks of POIs. A POI is linked when its best candidate clears {@code link-threshold} with a
+ * {@code min-margin} lead over the runner-up and no other POI claims the same cafe; near misses
+ * go to the {@code rednote_link_reviews} queue with their top candidates. Links are written in
+ * bulk and, like any cafe edit, bump {@code version}, take a change sequence number and evict
+ * the cached cafe. Existing links are never changed, and a run can be repeated at any time.
+ */
+@Slf4j
+@Component
+public class RedNoteLinker {
+
+    private static final int BATCH_SIZE = 500;
+    private static final int SCORE_CHUNK = 5_000;
+    private static final int REVIEW_CANDIDATES = 5;
+
+    private final MongoTemplate mongoTemplate;
+    private final ChangeSequence changeSequence;
+    private final CacheInvalidationBus invalidationBus;
+    private final GooglePlacesClient placesClient;
+    private final double radiusMeters;
+    private final double linkThreshold;
+    private final double reviewThreshold;
+    private final double minMargin;
+    private final int geocodeLimit;
+    private final int geocodeConcurrency;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile LinkReport lastReport;
+
+    public RedNoteLinker(MongoTemplate mongoTemplate, ChangeSequence changeSequence,
+            CacheInvalidationBus invalidationBus, GooglePlacesClient placesClient,
+            @Value("${coffeemode.rednote.linking.radius-meters:300}") double radiusMeters,
+            @Value("${coffeemode.rednote.linking.link-threshold:0.8}") double linkThreshold,
+            @Value("${coffeemode.rednote.linking.review-threshold:0.5}") double reviewThreshold,
+            @Value("${coffeemode.rednote.linking.min-margin:0.1}") double minMargin,
+            @Value("${coffeemode.rednote.linking.geocode-limit:0}") int geocodeLimit,
+            @Value("${coffeemode.rednote.linking.geocode-concurrency:4}") int geocodeConcurrency) {
+        this.mongoTemplate = mongoTemplate;
+        this.changeSequence = changeSequence;
+        this.invalidationBus = invalidationBus;
+        this.placesClient = placesClient;
+        this.radiusMeters = radiusMeters;
+        this.linkThreshold = linkThreshold;
+        this.reviewThreshold = reviewThreshold;
+        this.minMargin = minMargin;
+        this.geocodeLimit = geocodeLimit;
+        this.geocodeConcurrency = geocodeConcurrency;
+    }
+
+    /**
+     * Starts a run in the background.
+     *
+     * @return false when a run is already in progress
+     */
+    public boolean start() {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        Thread.ofPlatform().name("rednote-linker").daemon().start(() -> {
+            try {
+                run();
+            } catch (MongoException e) {
+                log.error("RedNote linking aborted; links written so far are kept", e);
+            } finally {
+                running.set(false);
+            }
+        });
+        return true;
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    public LinkReport getLastReport() {
+        return lastReport;
+    }
+
+    LinkReport run() {
+        Instant started = Instant.now();
+        LinkReport.Builder report = new LinkReport.Builder(started);
+        report.geocoded = geocode();
+
+        CafeIndex index = loadCafes();
+        report.cafesIndexed = index.cafes.size();
+        Set<String> resolved = new HashSet<>();
+        mongoTemplate.getCollection("rednote_link_reviews")
+                .find(Filters.ne("status", RedNoteLinkReview.Status.PENDING.name()))
+                .projection(Projections.include("redbookId"))
+                .forEach(doc -> resolved.add(doc.getString("redbookId")));
+
+        // Cafe index -> POIs confidently matched to it; more than one means none of them is linked
+        Map<Integer, List<Match>> claims = new HashMap<>();
+        List<Match> reviews = new ArrayList<>();
+        List<Candidate> chunk = new ArrayList<>(SCORE_CHUNK);
+        for (Document doc : mongoTemplate.getCollection("cafe_rednote_pois").find()
+                .projection(Projections.include("redbookId", "name", "address", "location"))
+                .batchSize(BATCH_SIZE)) {
+            String redbookId = doc.getString("redbookId");
+            if (redbookId == null || index.linkedRedbookIds.contains(redbookId) || resolved.contains(redbookId)) {
+                report.skipped++;
+                continue;
+            }
+            chunk.add(Candidate.of(doc));
+            if (chunk.size() == SCORE_CHUNK) {
+                collect(score(chunk, index), claims, reviews, report);
+                chunk.clear();
+            }
+        }
+        collect(score(chunk, index), claims, reviews, report);
+
+        List<Match> links = new ArrayList<>(claims.size());
+        for (List<Match> claim : claims.values()) {
+            if (claim.size() == 1) {
+                links.add(claim.get(0));
+            } else {
+                report.contested += claim.size();
+                claim.forEach(match -> reviews.add(match.as(RedNoteLinkReview.Reason.CONTESTED)));
+            }
+        }
+        report.linked = writeLinks(links, index);
+        report.reviews = writeReviews(reviews, index, started);
+
+        LinkReport done = report.build();
+        lastReport = done;
+        log.info("RedNote linking: {}", done);
+        return done;
+    }
+
+    /**
+     * Looks up coordinates for POIs that have an address but were never geocoded.
+     */
+    private long geocode() {
+        if (geocodeLimit <= 0) {
+            return 0;
+        }
+        List<CafeRedNotePoi> pending = mongoTemplate.find(Query.query(Criteria.where("location").exists(false)
+                        .and("geocodedAt").exists(false)
+                        .and("address").exists(true))
+                .limit(geocodeLimit), CafeRedNotePoi.class);
+        AtomicLong found = new AtomicLong();
+        Semaphore permits = new Semaphore(geocodeConcurrency);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (CafeRedNotePoi poi : pending) {
+                executor.submit(() -> {
+                    permits.acquireUninterruptibly();
+                    try {
+                        Update update = new Update().set("geocodedAt", Instant.now());
+                        LatLng location = placesClient.findLocationFromText(poi.getAddress());
+                        if (location != null) {
+                            update.set("location", new GeoJsonPoint(location.getLongitude(), location.getLatitude()));
+                            found.incrementAndGet();
+                        }
+                        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(poi.getId())), update,
+                                CafeRedNotePoi.class);
+                    } catch (RuntimeException e) {
+                        // Left without geocodedAt, so the next run tries again
+                        log.warn("Geocoding RedNote POI {} failed: {}", poi.getRedbookId(), e.getMessage());
+                    } finally {
+                        permits.release();
+                    }
+                });
+            }
+        }
+        log.info("Geocoded {} of {} RedNote POIs", found.get(), pending.size());
+        return found.get();
+    }
+
+    private CafeIndex loadCafes() {
+        CafeIndex index = new CafeIndex(new GeoGrid(radiusMeters));
+        MongoCollection<Document> cafes = mongoTemplate.getCollection("cafes");
+        cafes.find(Filters.ne("externalReferences.redbookId", null))
+                .projection(Projections.include("externalReferences.redbookId"))
+                .forEach(doc -> index.linkedRedbookIds.add(
+                        doc.get("externalReferences", Document.class).getString("redbookId")));
+        for (Document doc : cafes.find(Filters.eq("externalReferences.redbookId", null))
+                .projection(Projections.include("name", "address", "location"))
+                .batchSize(BATCH_SIZE)) {
+            int i = index.cafes.size();
+            Candidate cafe = Candidate.of(doc);
+            index.cafes.add(cafe);
+            if (cafe.hasLocation()) {
+                index.grid.add(i, cafe.latitude(), cafe.longitude());
+            }
+            if (cafe.roadKey() != null) {
+                index.byRoad.computeIfAbsent(cafe.roadKey(), key -> new ArrayList<>()).add(i);
+            }
+        }
+        return index;
+    }
+
+    private List<Match> score(List<Candidate> chunk, CafeIndex index) {
+        return chunk.parallelStream().map(poi -> match(poi, index)).toList();
+    }
+
+    private Match match(Candidate poi, CafeIndex index) {
+        List<Scored> scored = new ArrayList<>();
+        if (poi.hasLocation()) {
+            index.grid.forEachNear(poi.latitude(), poi.longitude(), i -> {
+                Candidate cafe = index.cafes.get(i);
+                double distance = GeoDistance.meters(poi.latitude(), poi.longitude(), cafe.latitude(),
+                        cafe.longitude());
+                if (distance <= radiusMeters) {
+                    double similarity = 0.6 * TextSimilarity.jaccard(poi.nameGrams(), cafe.nameGrams())
+                            + 0.25 * TextSimilarity.jaccard(poi.addressGrams(), cafe.addressGrams())
+                            + 0.15 * (1 - distance / radiusMeters);
+                    scored.add(new Scored(i, similarity, (int) Math.round(distance)));
+                }
+            });
+        } else if (poi.roadKey() != null) {
+            for (int i : index.byRoad.getOrDefault(poi.roadKey(), List.of())) {
+                Candidate cafe = index.cafes.get(i);
+                double similarity = 0.7 * TextSimilarity.jaccard(poi.nameGrams(), cafe.nameGrams())
+                        + 0.3 * TextSimilarity.jaccard(poi.addressGrams(), cafe.addressGrams());
+                scored.add(new Scored(i, similarity, null));
+            }
+        } else {
+            return new Match(poi, List.of(), Outcome.UNBLOCKED);
+        }
+        scored.sort(Comparator.comparingDouble(Scored::score).reversed());
+        List<Scored> top = List.copyOf(scored.subList(0, Math.min(REVIEW_CANDIDATES, scored.size())));
+        if (top.isEmpty() || top.get(0).score() < reviewThreshold) {
+            return new Match(poi, top, Outcome.NO_MATCH);
+        }
+        double best = top.get(0).score();
+        if (best < linkThreshold) {
+            return new Match(poi, top, Outcome.LOW_CONFIDENCE);
+        }
+        if (top.size() > 1 && best - top.get(1).score() < minMargin) {
+            return new Match(poi, top, Outcome.AMBIGUOUS);
+        }
+        return new Match(poi, top, Outcome.LINK);
+    }
+
+    private static void collect(List<Match> matches, Map<Integer, List<Match>> claims, List<Match> reviews,
+            LinkReport.Builder report) {
+        for (Match match : matches) {
+            report.pois++;
+            switch (match.outcome()) {
+                case LINK -> claims.computeIfAbsent(match.candidates().get(0).cafe(), i -> new ArrayList<>(1))
+                        .add(match);
+                case LOW_CONFIDENCE, AMBIGUOUS -> reviews.add(match);
+                case NO_MATCH -> report.unmatched++;
+                case UNBLOCKED -> report.unblocked++;
+            }
+        }
+    }
+
+    private long writeLinks(List<Match> links, CafeIndex index) {
+        MongoCollection<Document> cafes = mongoTemplate.getCollection("cafes");
+        long written = 0;
+        for (int from = 0; from < links.size(); from += BATCH_SIZE) {
+            List<Match> batch = links.subList(from, Math.min(from + BATCH_SIZE, links.size()));
+            long first = changeSequence.reserve(ChangeSequence.CAFES, batch.size()) - batch.size() + 1;
+            Date now = new Date();
+            List<ObjectId> cafeIds = new ArrayList<>(batch.size());
+            List<WriteModel<Document>> writes = new ArrayList<>(batch.size());
+            for (Match link : batch) {
+                ObjectId cafeId = index.cafes.get(link.candidates().get(0).cafe()).id();
+                cafeIds.add(cafeId);
+                // Guarded so a link made meanwhile (by hand or another run) is never overwritten
+                writes.add(new UpdateOneModel<>(
+                        Filters.and(Filters.eq("_id", cafeId), Filters.eq("externalReferences.redbookId", null)),
+                        Updates.combine(
+                                Updates.set("externalReferences.redbookId", link.poi().redbookId()),
+                                Updates.inc("version", 1L),
+                                Updates.set("changeSeq", first + writes.size()),
+                                Updates.set("updatedAt", now))));
+            }
+            long modified;
+            try {
+                modified = cafes.bulkWrite(writes, new BulkWriteOptions().ordered(false)).getModifiedCount();
+            } catch (MongoBulkWriteException e) {
+                modified = e.getWriteResult().getModifiedCount();
+                log.warn("{} RedNote links could not be written, first: {}", e.getWriteErrors().size(),
+                        e.getWriteErrors().get(0).getMessage());
+            }
+            written += modified;
+            List<Match> linked = modified == batch.size() ? batch
+                    : modified == 0 ? List.of()
+                    : applied(cafes, batch, cafeIds, first);
+            for (Match link : linked) {
+                invalidationBus.publish(CacheInvalidationEvent.upsert(CacheInvalidationEvent.Source.CAFE,
+                        index.cafes.get(link.candidates().get(0).cafe()).id().toHexString(), null));
+            }
+            if (linked.isEmpty()) {
+                continue;
+            }
+            // Reviews left over from earlier runs for POIs that are now linked
+            mongoTemplate.getCollection("rednote_link_reviews").deleteMany(Filters.and(
+                    Filters.in("redbookId", linked.stream().map(link -> link.poi().redbookId()).toList()),
+                    Filters.eq("status", RedNoteLinkReview.Status.PENDING.name())));
+        }
+        return written;
+    }
+
+    /**
+     * The links of a partly applied batch that were written. The bulk result only has counts, but
+     * each write took its own change sequence number, so a cafe still carrying it was written by
+     * this batch; one changed since then published its own invalidation.
+     */
+    private static List<Match> applied(MongoCollection<Document> cafes, List<Match> batch, List<ObjectId> cafeIds,
+            long firstSeq) {
+        Set<ObjectId> written = new HashSet<>();
+        cafes.find(Filters.and(Filters.in("_id", cafeIds),
+                        Filters.gte("changeSeq", firstSeq), Filters.lt("changeSeq", firstSeq + batch.size())))
+                .projection(Projections.include("_id"))
+                .forEach(doc -> written.add(doc.getObjectId("_id")));
+        List<Match> linked = new ArrayList<>(written.size());
+        for (int i = 0; i < batch.size(); i++) {
+            if (written.contains(cafeIds.get(i))) {
+                linked.add(batch.get(i));
+            }
+        }
+        return linked;
+    }
+
+    /**
+     * Replaces each POI's pending review and drops pending reviews this run no longer produced.
+     */
+    private long writeReviews(List<Match> reviews, CafeIndex index, Instant runStarted) {
+        MongoCollection<Document> collection = mongoTemplate.getCollection("rednote_link_reviews");
+        List<WriteModel<Document>> batch = new ArrayList<>(BATCH_SIZE);
+        for (Match match : reviews) {
+            Document review = new Document();
+            mongoTemplate.getConverter().write(match.toReview(index.cafes, runStarted), review);
+            review.remove("_class");
+            batch.add(new ReplaceOneModel<>(Filters.eq("redbookId", match.poi().redbookId()), review,
+                    new ReplaceOptions().upsert(true)));
+            if (batch.size() == BATCH_SIZE) {
+                collection.bulkWrite(batch, new BulkWriteOptions().ordered(false));
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            collection.bulkWrite(batch, new BulkWriteOptions().ordered(false));
+        }
+        collection.deleteMany(Filters.and(Filters.eq("status", RedNoteLinkReview.Status.PENDING.name()),
+                Filters.lt("createdAt", Date.from(runStarted))));
+        return reviews.size();
+    }
+
+    /**
+     * Outcome of one run. {@code skipped}: already linked, resolved by hand or without an id;
+     * {@code unblocked}: neither coordinates nor a recognisable street, so nothing to compare with.
+     */
+    public record LinkReport(Instant startedAt, long durationMillis, int cafesIndexed, long geocoded, long pois,
+            long skipped, long linked, long reviews, long contested, long unmatched, long unblocked) {
+
+        private static final class Builder {
+
+            private final Instant startedAt;
+            private int cafesIndexed;
+            private long geocoded;
+            private long pois;
+            private long skipped;
+            private long linked;
+            private long reviews;
+            private long contested;
+            private long unmatched;
+            private long unblocked;
+
+            private Builder(Instant startedAt) {
+                this.startedAt = startedAt;
+            }
+
+            private LinkReport build() {
+                return new LinkReport(startedAt, Duration.between(startedAt, Instant.now()).toMillis(), cafesIndexed, geocoded, pois, skipped, linked, reviews, contested, unmatched, unblocked);
+            }
+        }
+    }
+
+    enum Outcome {
+        LINK,
+        LOW_CONFIDENCE,
+        AMBIGUOUS,
+        NO_MATCH,
+        UNBLOCKED
+    }
+
+    private static final class CafeIndex {
+
+        private final List<Candidate> cafes = new ArrayList<>();
+        private final GeoGrid grid;
+        private final Map<String, List<Integer>> byRoad = new HashMap<>();
+        private final Set<String> linkedRedbookIds = new HashSet<>();
+
+        private CafeIndex(GeoGrid grid) {
+            this.grid = grid;
+        }
+    }
+
+    /**
+     * A cafe or POI reduced to what scoring needs, with its grams computed once. {@code redbookId}
+     * is only set for POIs.
+     */
+    private record Candidate(ObjectId id, String redbookId, String name, String address, boolean hasLocation,
+            double latitude, double longitude, long[] nameGrams, long[] addressGrams, String roadKey) {
+
+        static Candidate of(Document doc) {
+            String name = doc.getString("name");
+            String address = doc.getString("address");
+            Document location = doc.get("location", Document.class);
+            List<?> coordinates = location == null ? null : location.getList("coordinates", Object.class);
+            boolean hasLocation = coordinates != null && coordinates.size() == 2;
+            return new Candidate(doc.getObjectId("_id"), doc.getString("redbookId"), name, address, hasLocation,
+                    hasLocation ? ((Number) coordinates.get(1)).doubleValue() : 0,
+                    hasLocation ? ((Number) coordinates.get(0)).doubleValue() : 0,
+                    TextSimilarity.bigrams(TextSimilarity.normalizeName(name)),
+                    TextSimilarity.bigrams(TextSimilarity.normalizeAddress(address)),
+                    TextSimilarity.roadKey(address));
+        }
+    }
+
+    private record Scored(int cafe, double score, Integer distanceMeters) {
+    }
+
+    private record Match(Candidate poi, List<Scored> candidates, Outcome outcome, RedNoteLinkReview.Reason reason) {
+
+        Match(Candidate poi, List<Scored> candidates, Outcome outcome) {
+            this(poi, candidates, outcome, outcome == Outcome.AMBIGUOUS
+                    ? RedNoteLinkReview.Reason.AMBIGUOUS : RedNoteLinkReview.Reason.LOW_CONFIDENCE);
+        }
+
+        Match as(RedNoteLinkReview.Reason newReason) {
+            return new Match(poi, candidates, outcome, newReason);
+        }
+
+        RedNoteLinkReview toReview(List<Candidate> cafes, Instant createdAt) {
+            return RedNoteLinkReview.builder()
+                    .redbookId(poi.redbookId())
+                    .poiName(poi.name())
+                    .poiAddress(poi.address())
+                    .reason(reason)
+                    .status(RedNoteLinkReview.Status.PENDING)
+                    .candidates(candidates.stream()
+                            .map(scored -> {
+                                Candidate cafe = cafes.get(scored.cafe());
+                                return RedNoteLinkReview.Candidate.builder()
+                                        .cafeId(cafe.id().toHexString())
+                                        .name(cafe.name())
+                                        .address(cafe.address())
+                                        .score(Math.round(scored.score() * 1000) / 1000.0)
+                                        .distanceMeters(scored.distanceMeters())
+                                        .build();
+                            })
+                            .toList())
+                    .createdAt(createdAt)
+                    .build();
+        }
+    }
+}
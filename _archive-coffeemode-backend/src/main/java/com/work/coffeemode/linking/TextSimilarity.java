@@ -0,0 +1,127 @@
+package com.work.coffeemode.linking;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Name and address comparison that works the same for Chinese, Latin and mixed strings.
+ * <p>
+ * Text is NFKC-normalised (full-width letters and digits become ASCII), lower-cased and reduced
+ * to letters and digits; words that every cafe name has ("coffee", "咖啡", "店") are dropped.
+ * What remains is compared as sets of character bigrams: Chinese has no word boundaries, and
+ * bigrams are also forgiving of the spacing and punctuation differences between sources. Bigram
+ * sets are precomputed as sorted {@code long[]} so scoring a pair is a merge without allocation.
+ */
+final class TextSimilarity {
+
+    private static final Pattern GENERIC = Pattern.compile(
+            "coffee|café|cafe|caffe|roasters?|咖啡馆|咖啡店|咖啡厅|咖啡|珈琲|店");
+    private static final Pattern ADMIN_PREFIX = Pattern.compile("^.*?(?:[省市]|自治区|特别行政区)(?=.)");
+    private static final Pattern DISTRICT_PREFIX = Pattern.compile("^.*?[区县](?=.)");
+    private static final Pattern CJK_ROAD = Pattern.compile("^\\p{IsHan}{1,12}?(?:大道|路|街|道|巷|弄)");
+    private static final Pattern LATIN_ROAD = Pattern.compile(
+            "([a-z]+(?: [a-z]+){0,3}) (road|rd|street|st|avenue|ave|lane|ln|boulevard|blvd|way)\\b");
+    private static final long[] NONE = new long[0];
+
+    private TextSimilarity() {
+    }
+
+    static String normalizeName(String name) {
+        return lettersAndDigits(GENERIC.matcher(fold(name)).replaceAll(""));
+    }
+
+    static String normalizeAddress(String address) {
+        return lettersAndDigits(fold(address));
+    }
+
+    /**
+     * The street an address is on ({@code 南京西路}, {@code nanjing west road}), used to block
+     * candidates when a POI has no coordinates; {@code null} when none can be found.
+     */
+    static String roadKey(String address) {
+        String folded = fold(address).replaceAll("[^\\p{L}\\p{N} ]+", " ").replaceAll(" +", " ").trim();
+        if (folded.isEmpty()) {
+            return null;
+        }
+        String cjk = DISTRICT_PREFIX.matcher(ADMIN_PREFIX.matcher(folded.replace(" ", "")).replaceFirst(""))
+                .replaceFirst("");
+        Matcher road = CJK_ROAD.matcher(cjk);
+        if (road.find()) {
+            return road.group();
+        }
+        Matcher latin = LATIN_ROAD.matcher(folded);
+        if (latin.find()) {
+            return latin.group(1) + " " + switch (latin.group(2)) {
+                case "rd" -> "road";
+                case "st" -> "street";
+                case "ave" -> "avenue";
+                case "ln" -> "lane";
+                case "blvd" -> "boulevard";
+                default -> latin.group(2);
+            };
+        }
+        return null;
+    }
+
+    /**
+     * Sorted, distinct character bigrams; a single character is its own gram.
+     */
+    static long[] bigrams(String normalized) {
+        int[] codePoints = normalized.codePoints().toArray();
+        if (codePoints.length == 0) {
+            return NONE;
+        }
+        if (codePoints.length == 1) {
+            return new long[] {codePoints[0]};
+        }
+        long[] grams = new long[codePoints.length - 1];
+        for (int i = 0; i < grams.length; i++) {
+            grams[i] = ((long) codePoints[i] << 21) | codePoints[i + 1];
+        }
+        Arrays.sort(grams);
+        int distinct = 1;
+        for (int i = 1; i < grams.length; i++) {
+            if (grams[i] != grams[distinct - 1]) {
+                grams[distinct++] = grams[i];
+            }
+        }
+        return distinct == grams.length ? grams : Arrays.copyOf(grams, distinct);
+    }
+
+    /**
+     * Jaccard index of two sorted gram sets; 0 when either is empty.
+     */
+    static double jaccard(long[] a, long[] b) {
+        if (a.length == 0 || b.length == 0) {
+            return 0;
+        }
+        int i = 0;
+        int j = 0;
+        int shared = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] == b[j]) {
+                shared++;
+                i++;
+                j++;
+            } else if (a[i] < b[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return (double) shared / (a.length + b.length - shared);
+    }
+
+    private static String fold(String text) {
+        return text == null ? "" : Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+    }
+
+    private static String lettersAndDigits(String text) {
+        StringBuilder kept = new StringBuilder(text.length());
+        text.codePoints().filter(Character::isLetterOrDigit).forEach(kept::appendCodePoint);
+        return kept.toString();
+    }
+}
@@ -0,0 +1,94 @@
+package com.work.coffeemode.migration;
+
+import com.mongodb.MongoException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+import com.mongodb.client.result.UpdateResult;
+import com.work.coffeemode.sync.ChangeSequence;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Brings cafes written before change tracking existed up to date. Always on, idempotent, and only
+ * touches documents still missing a field:
+ * <ul>
+ * <li>{@code version}: set to 0, so ETags and conditional requests see a real version. Edits do
+ * not wait for this: the cafe services give a version-less cafe 0 themselves before saving it.</li>
+ * <li>{@code changeSeq}: numbered from the cafe change sequence in blocks, so the first delta
+ * sync of a client includes them.</li>
+ * </ul>
+ */
+@Slf4j
+@Component
+public class CafeTrackingBackfill {
+
+    private static final int BATCH_SIZE = 500;
+
+    private final MongoTemplate mongoTemplate;
+    private final ChangeSequence changeSequence;
+
+    public CafeTrackingBackfill(MongoTemplate mongoTemplate, ChangeSequence changeSequence) {
+        this.mongoTemplate = mongoTemplate;
+        this.changeSequence = changeSequence;
+    }
+
+    /**
+     * Runs off the startup thread; until it finishes, legacy cafes are merely missing from delta
+     * syncs, which is no reason to hold back readiness.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        Thread.ofPlatform()
+                .name("cafe-tracking-backfill")
+                .daemon()
+                .start(this::run);
+    }
+
+    void run() {
+        try {
+            MongoCollection<Document> cafes = mongoTemplate.getCollection("cafes");
+            UpdateResult versioned = cafes.updateMany(Filters.exists("version", false), Updates.set("version", 0L));
+            long sequenced = backfillChangeSeq(cafes);
+            if (versioned.getModifiedCount() > 0 || sequenced > 0) {
+                log.info("Cafe tracking backfill: {} versions, {} change sequence numbers assigned",
+                        versioned.getModifiedCount(), sequenced);
+            }
+        } catch (MongoException e) {
+            log.error("Cafe tracking backfill failed; it will be retried on next start", e);
+        }
+    }
+
+    private long backfillChangeSeq(MongoCollection<Document> cafes) {
+        long assigned = 0;
+        while (true) {
+            List<Object> ids = new ArrayList<>(BATCH_SIZE);
+            cafes.find(Filters.exists("changeSeq", false))
+                    .projection(Projections.include("_id"))
+                    .limit(BATCH_SIZE)
+                    .forEach(doc -> ids.add(doc.get("_id")));
+            if (ids.isEmpty()) {
+                return assigned;
+            }
+            long next = changeSequence.reserve(ChangeSequence.CAFES, ids.size()) - ids.size() + 1;
+            List<WriteModel<Document>> batch = new ArrayList<>(ids.size());
+            for (Object id : ids) {
+                // Guarded by the filter so a concurrent save keeps its own, newer number
+                batch.add(new UpdateOneModel<>(
+                        Filters.and(Filters.eq("_id", id), Filters.exists("changeSeq", false)),
+                        Updates.set("changeSeq", next++)));
+            }
+            assigned += cafes.bulkWrite(batch).getModifiedCount();
+        }
+    }
+}
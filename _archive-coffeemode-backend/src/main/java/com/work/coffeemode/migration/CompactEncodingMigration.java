@@ -0,0 +1,146 @@
+package com.work.coffeemode.migration;
+
+import com.mongodb.MongoException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+import com.work.coffeemode.model.CompressedPlaceDetails;
+import com.work.coffeemode.model.QuietnessLevel;
+import com.work.coffeemode.model.Temperature;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonType;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.Binary;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Rewrites documents stored before the compact encodings were introduced:
+ * <ul>
+ * <li>{@code cafes.features.quietnessLevel / temperature}: label strings to numeric codes</li>
+ * <li>{@code cafes.features.limitDuration}: ISO-8601 strings to whole seconds</li>
+ * <li>{@code google_place_poi.rawDetails}: nested documents to compressed protobuf binary</li>
+ * </ul>
+ * Enabled with {@code coffeemode.migration.compact-encoding.enabled=true}. Runs once in the
+ * background after startup, is idempotent, and only touches documents still in the old format, so
+ * it is safe to leave enabled across restarts or to run on several pods at once.
+ */
+@Slf4j
+@Component
+public class CompactEncodingMigration {
+
+    private static final int BATCH_SIZE = 500;
+
+    private final MongoTemplate mongoTemplate;
+    private final boolean enabled;
+
+    public CompactEncodingMigration(MongoTemplate mongoTemplate,
+            @Value("${coffeemode.migration.compact-encoding.enabled:false}") boolean enabled) {
+        this.mongoTemplate = mongoTemplate;
+        this.enabled = enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        Thread.ofPlatform().name("compact-encoding-migration").daemon().start(() -> {
+            try {
+                long cafes = migrateCafeFeatures();
+                long pois = migratePoiRawDetails();
+                log.info("Compact encoding migration finished: {} cafes, {} POIs rewritten", cafes, pois);
+            } catch (MongoException e) {
+                log.error("Compact encoding migration aborted; it will resume on next start", e);
+            }
+        });
+    }
+
+    long migrateCafeFeatures() {
+        MongoCollection<Document> cafes = mongoTemplate.getCollection("cafes");
+        Bson legacy = Filters.or(
+                Filters.type("features.quietnessLevel", BsonType.STRING),
+                Filters.type("features.temperature", BsonType.STRING),
+                Filters.type("features.limitDuration", BsonType.STRING));
+
+        List<WriteModel<Document>> batch = new ArrayList<>(BATCH_SIZE);
+        long migrated = 0;
+        for (Document cafe : cafes.find(legacy).projection(Projections.include("features")).batchSize(BATCH_SIZE)) {
+            Document features = cafe.get("features", Document.class);
+            List<Bson> updates = new ArrayList<>(3);
+            if (features.get("quietnessLevel") instanceof String label) {
+                updates.add(encode("features.quietnessLevel", label, QuietnessLevel::fromLabel,
+                        QuietnessLevel::getCode));
+            }
+            if (features.get("temperature") instanceof String label) {
+                updates.add(encode("features.temperature", label, Temperature::fromLabel, Temperature::getCode));
+            }
+            if (features.get("limitDuration") instanceof String iso) {
+                updates.add(encode("features.limitDuration", iso, Duration::parse,
+                        d -> (int) Math.min(d.getSeconds(), Integer.MAX_VALUE)));
+            }
+            batch.add(new UpdateOneModel<>(Filters.eq("_id", cafe.get("_id")), Updates.combine(updates)));
+            migrated += flushIfFull(cafes, batch);
+        }
+        return migrated + flush(cafes, batch);
+    }
+
+    long migratePoiRawDetails() {
+        MongoCollection<Document> pois = mongoTemplate.getCollection("google_place_poi");
+        Bson legacy = Filters.type("rawDetails", BsonType.DOCUMENT);
+
+        List<WriteModel<Document>> batch = new ArrayList<>(BATCH_SIZE);
+        long migrated = 0;
+        for (Document poi : pois.find(legacy).projection(Projections.include("rawDetails")).batchSize(50)) {
+            Document raw = poi.get("rawDetails", Document.class);
+            Bson update;
+            try {
+                CompressedPlaceDetails compact = CompressedPlaceDetails.fromJson(raw.toJson());
+                update = Updates.set("rawDetails", new Binary(compact.getEncoded()));
+            } catch (IllegalArgumentException e) {
+                log.warn("POI {} has unreadable raw details; dropping them: {}", poi.get("_id"), e.getMessage());
+                update = Updates.unset("rawDetails");
+            }
+            batch.add(new UpdateOneModel<>(Filters.eq("_id", poi.get("_id")), update));
+            migrated += flushIfFull(pois, batch);
+        }
+        return migrated + flush(pois, batch);
+    }
+
+    private <T> Bson encode(String field, String value, Function<String, T> parse,
+            ToIntFunction<T> code) {
+        try {
+            T parsed = parse.apply(value);
+            return parsed == null ? Updates.unset(field) : Updates.set(field, code.applyAsInt(parsed));
+        } catch (RuntimeException e) {
+            log.warn("Unrecognised {} value '{}'; removing it", field, value);
+            return Updates.unset(field);
+        }
+    }
+
+    private long flushIfFull(MongoCollection<Document> collection, List<WriteModel<Document>> batch) {
+        return batch.size() >= BATCH_SIZE ? flush(collection, batch) : 0;
+    }
+
+    private long flush(MongoCollection<Document> collection, List<WriteModel<Document>> batch) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        long modified = collection.bulkWrite(batch).getModifiedCount();
+        batch.clear();
+        return modified;
+    }
+}
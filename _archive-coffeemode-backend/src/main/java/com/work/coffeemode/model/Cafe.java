@@ -9,13 +9,13 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.bson.types.ObjectId;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.annotation.Version;
 import org.springframework.data.mongodb.core.mapping.Document;
-import org.springframework.data.mongodb.core.index.GeoSpatialIndexed;
-import org.springframework.data.mongodb.core.index.GeoSpatialIndexType;
-import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
 
 import java.time.Duration;
+import java.time.Instant;
 import java.util.List;
 import java.util.Map;
 
@@ -30,7 +30,7 @@ public class Cafe {
     private ObjectId id;
     private String name;
     // GeoJsonPoint stores location as [longitude, latitude] - MongoDB's preferred format
-    @GeoSpatialIndexed(type = GeoSpatialIndexType.GEO_2DSPHERE)
+    // Indexes are declared in MongoConfig
     private GeoJsonPoint location;
     private String address;
     private Features features;
@@ -40,6 +40,13 @@ public class Cafe {
     private String website;
     private Map<String, String> openingHours;
     private ExternalReferences externalReferences;
+    // Incremented by Spring Data on every save; drives ETags and optimistic locking
+    @Version
+    private Long version;
+    @LastModifiedDate
+    private Instant updatedAt;
+    // Position in the global cafe change sequence, assigned on every save; drives delta sync
+    private Long changeSeq;
 
     // Custom getter for JSON serialization
     @JsonProperty("id")
@@ -59,10 +66,10 @@ public class Cafe {
     public static class Features {
         private Boolean wifiAvailable;
         private Boolean outletsAvailable;
-        private String quietnessLevel;  // "quiet", "moderate", "noisy"
-        private String temperature;      // "cold", "just right", "warm"
+        private QuietnessLevel quietnessLevel;  // stored as code; JSON "quiet", "moderate", "noisy"
+        private Temperature temperature;        // stored as code; JSON "cold", "just right", "warm"
         private Boolean unlimitedDuration;
-        private Duration limitDuration;
+        private Duration limitDuration;         // stored as whole seconds
         private Double googleRating;
 
     }
@@ -72,10 +79,7 @@ public class Cafe {
     @NoArgsConstructor
     @AllArgsConstructor
     public static class ExternalReferences {
-        @Indexed(sparse = true)
         private String googlePlace;   // Google Place ID
-
-        @Indexed(sparse = true)
         private String redbookId;     // RedNote POI ID
     }
 }
\ No newline at end of file
@@ -6,8 +6,10 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.bson.types.ObjectId;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
 import org.springframework.data.mongodb.core.mapping.Document;
 
+import java.time.Instant;
 import java.util.List;
 
 @Data
@@ -22,6 +24,10 @@ public class CafeRedNotePoi {
     private String name;
     private String description;
     private String address;
+    // Imported with the POI, or geocoded from the address by RedNoteLinker; may be absent
+    private GeoJsonPoint location;
+    // Set when geocoding was attempted, so a failed address is not looked up again
+    private Instant geocodedAt;
     private Contact contact;
     private List<MenuHighlight> menuHighlights;
     private List<String> redpostLinks;
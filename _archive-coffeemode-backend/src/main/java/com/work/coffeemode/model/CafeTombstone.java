@@ -0,0 +1,39 @@
+package com.work.coffeemode.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.bson.types.ObjectId;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * Record of a deleted cafe, so syncing clients learn about deletions. Keyed by the cafe's own id.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "cafe_tombstones")
+public class CafeTombstone {
+
+    @Id
+    private ObjectId id;
+    private long changeSeq;
+    private Instant deletedAt;
+
+    @JsonProperty("id")
+    public String getStringId() {
+        return id != null ? id.toString() : null;
+    }
+
+    @JsonIgnore
+    public ObjectId getId() {
+        return id;
+    }
+}
@@ -0,0 +1,124 @@
+package com.work.coffeemode.model;
+
+import com.google.maps.places.v1.Place;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.util.JsonFormat;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Raw Place Details payload kept as deflate-compressed protobuf bytes.
+ * <p>
+ * The full {@code *} field-mask response is tens of KB as a nested BSON document but a few KB as
+ * compressed protobuf. Reads of a {@link GooglePlacePOI} only pay for the bytes; the {@link Place}
+ * message is inflated and parsed the first time {@link #getPlace()} is called.
+ * <p>
+ * Layout: one codec byte followed by the payload, so the codec can change without a migration.
+ */
+public final class CompressedPlaceDetails {
+
+    static final byte CODEC_DEFLATE_PROTOBUF = 1;
+
+    private final byte[] encoded;
+    private volatile Place place;
+
+    private CompressedPlaceDetails(byte[] encoded, Place place) {
+        this.encoded = encoded;
+        this.place = place;
+    }
+
+    public static CompressedPlaceDetails of(Place place) {
+        byte[] raw = place.toByteArray();
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 3 + 16);
+            out.write(CODEC_DEFLATE_PROTOBUF);
+            byte[] buffer = new byte[4096];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(buffer);
+                out.write(buffer, 0, n);
+            }
+            return new CompressedPlaceDetails(out.toByteArray(), place);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Wraps bytes read from MongoDB without decoding them.
+     */
+    public static CompressedPlaceDetails fromEncoded(byte[] encoded) {
+        if (encoded.length == 0 || encoded[0] != CODEC_DEFLATE_PROTOBUF) {
+            throw new IllegalArgumentException("Unsupported place details codec");
+        }
+        return new CompressedPlaceDetails(encoded, null);
+    }
+
+    /**
+     * Converts a legacy document (the Place rendered by {@code JsonFormat}) into the compact form.
+     */
+    public static CompressedPlaceDetails fromJson(String json) {
+        try {
+            Place.Builder builder = Place.newBuilder();
+            JsonFormat.parser().ignoringUnknownFields().merge(json, builder);
+            return of(builder.build());
+        } catch (InvalidProtocolBufferException e) {
+            throw new IllegalArgumentException("Legacy place details are not a Place message", e);
+        }
+    }
+
+    public byte[] getEncoded() {
+        return encoded;
+    }
+
+    public int getEncodedSize() {
+        return encoded.length;
+    }
+
+    public Place getPlace() {
+        Place decoded = place;
+        if (decoded == null) {
+            // Benign race: concurrent readers may both decode, the result is identical
+            decoded = decode();
+            place = decoded;
+        }
+        return decoded;
+    }
+
+    private Place decode() {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(encoded, 1, encoded.length - 1);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(encoded.length * 4);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalStateException("Truncated place details payload");
+                }
+                out.write(buffer, 0, n);
+            }
+            return Place.parseFrom(out.toByteArray());
+        } catch (DataFormatException | InvalidProtocolBufferException e) {
+            throw new IllegalStateException("Corrupt place details payload", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof CompressedPlaceDetails other && Arrays.equals(encoded, other.encoded);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(encoded);
+    }
+}
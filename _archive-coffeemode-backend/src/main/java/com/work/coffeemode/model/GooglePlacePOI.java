@@ -8,8 +8,6 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.bson.types.ObjectId;
 import org.springframework.data.annotation.Id;
-import org.springframework.data.mongodb.core.index.GeoSpatialIndexed;
-import org.springframework.data.mongodb.core.index.GeoSpatialIndexType;
 import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
 import org.springframework.data.mongodb.core.mapping.Document;
 
@@ -30,8 +28,7 @@ public class GooglePlacePOI {
     private String name;
     private String formattedAddress;
 
-    @GeoSpatialIndexed(type = GeoSpatialIndexType.GEO_2DSPHERE)
-    private GeoJsonPoint location; // [lng, lat]
+    private GeoJsonPoint location; // [lng, lat]; indexes are declared in MongoConfig
 
     private String website;
     private String formattedPhoneNumber;
@@ -41,8 +38,8 @@ public class GooglePlacePOI {
     private Double rating;
     private Integer userRatingsTotal;
 
-    // 原始详情字段全量缓存
-    private Map<String, Object> rawDetails;
+    // 原始详情字段全量缓存 (deflate-compressed protobuf, decoded on first access)
+    private CompressedPlaceDetails rawDetails;
 
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
@@ -0,0 +1,56 @@
+package com.work.coffeemode.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+/**
+ * Stored in MongoDB as its numeric {@link #getCode() code}; exposed in JSON as its label.
+ */
+public enum QuietnessLevel {
+    QUIET(1, "quiet"),
+    MODERATE(2, "moderate"),
+    NOISY(3, "noisy");
+
+    private final int code;
+    private final String label;
+
+    QuietnessLevel(int code, String label) {
+        this.code = code;
+        this.label = label;
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    @JsonValue
+    public String getLabel() {
+        return label;
+    }
+
+    public static QuietnessLevel fromCode(int code) {
+        for (QuietnessLevel level : values()) {
+            if (level.code == code) {
+                return level;
+            }
+        }
+        throw new IllegalArgumentException("Unknown quietness level code: " + code);
+    }
+
+    /**
+     * Accepts the label ("quiet") or the constant name ("QUIET"), case-insensitively.
+     */
+    @JsonCreator
+    public static QuietnessLevel fromLabel(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        String normalized = value.trim().replace('_', ' ');
+        for (QuietnessLevel level : values()) {
+            if (level.label.equalsIgnoreCase(normalized) || level.name().equalsIgnoreCase(value.trim())) {
+                return level;
+            }
+        }
+        throw new IllegalArgumentException("Unknown quietness level: " + value);
+    }
+}
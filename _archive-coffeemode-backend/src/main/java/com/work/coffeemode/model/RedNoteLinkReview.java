@@ -0,0 +1,64 @@
+package com.work.coffeemode.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.bson.types.ObjectId;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * A RedNote POI the linker could not match to a cafe with confidence. One document per POI,
+ * replaced on every linking run while still {@link Status#PENDING}.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "rednote_link_reviews")
+public class RedNoteLinkReview {
+
+    public enum Status {
+        PENDING,
+        // Resolved by hand; the linker leaves the POI alone from then on
+        RESOLVED,
+        REJECTED
+    }
+
+    public enum Reason {
+        // Best score between the review and link thresholds
+        LOW_CONFIDENCE,
+        // Two candidates too close to call
+        AMBIGUOUS,
+        // Another POI was confidently matched to the same cafe
+        CONTESTED
+    }
+
+    @Id
+    private ObjectId id;
+    private String redbookId;
+    private String poiName;
+    private String poiAddress;
+    private Reason reason;
+    private Status status;
+    // Best first
+    private List<Candidate> candidates;
+    private Instant createdAt;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Candidate {
+        private String cafeId;
+        private String name;
+        private String address;
+        private double score;
+        // null when the POI has no coordinates
+        private Integer distanceMeters;
+    }
+}
@@ -0,0 +1,56 @@
+package com.work.coffeemode.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+/**
+ * Stored in MongoDB as its numeric {@link #getCode() code}; exposed in JSON as its label.
+ */
+public enum Temperature {
+    COLD(1, "cold"),
+    JUST_RIGHT(2, "just right"),
+    WARM(3, "warm");
+
+    private final int code;
+    private final String label;
+
+    Temperature(int code, String label) {
+        this.code = code;
+        this.label = label;
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    @JsonValue
+    public String getLabel() {
+        return label;
+    }
+
+    public static Temperature fromCode(int code) {
+        for (Temperature temperature : values()) {
+            if (temperature.code == code) {
+                return temperature;
+            }
+        }
+        throw new IllegalArgumentException("Unknown temperature code: " + code);
+    }
+
+    /**
+     * Accepts the label ("just right") or the constant name ("JUST_RIGHT"), case-insensitively.
+     */
+    @JsonCreator
+    public static Temperature fromLabel(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        String normalized = value.trim().replace('_', ' ');
+        for (Temperature temperature : values()) {
+            if (temperature.label.equalsIgnoreCase(normalized) || temperature.name().equalsIgnoreCase(value.trim())) {
+                return temperature;
+            }
+        }
+        throw new IllegalArgumentException("Unknown temperature: " + value);
+    }
+}
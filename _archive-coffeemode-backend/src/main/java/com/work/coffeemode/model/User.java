@@ -1,9 +1,14 @@
 package com.work.coffeemode.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.bson.types.ObjectId;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDateTime;
 
@@ -12,16 +17,32 @@ import java.time.LocalDateTime;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
+@Document(collection = "users")
 public class User {
-    private Integer id;
+    @Id
+    private ObjectId id;
+    // Link to the Firebase Auth user; unique index declared in MongoConfig
+    private String firebaseUid;
     private String name;
     private String email;
+    private String profilePictureUrl;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
+    private LocalDateTime lastLoginAt;
     private Role role;
 
+    @JsonProperty("id")
+    public String getStringId() {
+        return id != null ? id.toString() : null;
+    }
+
+    @JsonIgnore
+    public ObjectId getId() {
+        return id;
+    }
+
     public enum Role {
         USER,
         ADMIN
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,116 @@
+package com.work.coffeemode.profiling;
+
+import org.bson.Document;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The parts of an {@code explain("executionStats")} result worth comparing over time: the winning
+ * plan as a stage chain ({@code FETCH > IXSCAN(name_1)}), whether it scans the whole collection,
+ * which indexes it uses and how much work it did for how many results. Counts are -1 when the explain carried no execution stats.
+ *
+ * @param plan           winning plan stages from the root down, indexes in parentheses
+ * @param collectionScan true when any stage is a {@code COLLSCAN}
+ * @param indexes        index names used by the winning plan
+ */
+public record PlanSummary(
+        String plan,
+        boolean collectionScan,
+        Set<String> indexes,
+        long nReturned,
+        long keysExamined,
+        long docsExamined,
+        long executionMillis,
+        Instant explainedAt) {
+
+    public static PlanSummary of(Document explain) {
+        Document planner = find(explain, "queryPlanner");
+        Document winning = planner == null ? null : planner.get("winningPlan", Document.class);
+        // Slot-based engine: the classic-style tree sits under queryPlan
+        if (winning != null && winning.get("queryPlan") instanceof Document queryPlan) {
+            winning = queryPlan;
+        }
+        List<String> stages = new ArrayList<>();
+        Set<String> indexes = new LinkedHashSet<>();
+        walk(winning, stages, indexes);
+
+        Document stats = find(explain, "executionStats");
+        return new PlanSummary(
+                stages.isEmpty() ? "?" : String.join(" > ", stages),
+                stages.stream().anyMatch(stage -> stage.startsWith("COLLSCAN")),
+                Set.copyOf(indexes),
+                number(stats, "nReturned"),
+                number(stats, "totalKeysExamined"),
+                number(stats, "totalDocsExamined"),
+                number(stats, "executionTimeMillis"),
+                Instant.now());
+    }
+
+    /**
+     * Whether the planner now does more scanning than before: an index plan turned into a
+     * collection scan, or a different set of indexes is used.
+     */
+    public boolean regressedFrom(PlanSummary previous) {
+        return (collectionScan && !previous.collectionScan) || !indexes.equals(previous.indexes);
+    }
+
+    private static void walk(Document stage, List<String> stages, Set<String> indexes) {
+        if (stage == null) {
+            return;
+        }
+        String name = stage.getString("stage");
+        String index = stage.getString("indexName");
+        if (name != null) {
+            stages.add(index == null ? name : name + "(" + index + ")");
+        }
+        if (index != null) {
+            indexes.add(index);
+        }
+        walk(stage.get("inputStage", Document.class), stages, indexes);
+        for (String many : List.of("inputStages", "shards")) {
+            if (stage.get(many) instanceof List<?> children) {
+                for (Object child : children) {
+                    if (child instanceof Document document) {
+                        // shards[] wrap their own winningPlan
+                        walk(document.containsKey("winningPlan")
+                                ? document.get("winningPlan", Document.class) : document, stages, indexes);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * First value under {@code key}, depth first: aggregate explains nest the planner output in
+     * {@code stages[0].$cursor}, sharded ones under {@code shards}.
+     */
+    private static Document find(Object node, String key) {
+        if (node instanceof Document document) {
+            if (document.get(key) instanceof Document found) {
+                return found;
+            }
+            for (Object value : document.values()) {
+                Document found = find(value, key);
+                if (found != null) {
+                    return found;
+                }
+            }
+        } else if (node instanceof List<?> list) {
+            for (Object value : list) {
+                Document found = find(value, key);
+                if (found != null) {
+                    return found;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static long number(Document document, String key) {
+        return document != null && document.get(key) instanceof Number number ? number.longValue() : -1;
+    }
+}
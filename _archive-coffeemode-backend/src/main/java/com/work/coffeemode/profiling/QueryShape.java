@@ -0,0 +1,161 @@
+package com.work.coffeemode.profiling;
+
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The shape of a MongoDB command: collection, command and the structure of its filter, sort,
+ * projection or pipeline with every literal replaced by {@code ?}. Two executions with the same
+ * shape are planned the same way, so slow-query statistics and explain plans are kept per shape.
+ * <p>
+ * Arrays of literals collapse to {@code [?]} whatever their length, so {@code $in} lists of
+ * different sizes share a shape. Sort and projection specs keep their values (directions and
+ * inclusion flags are part of the plan, not user data).
+ */
+final class QueryShape {
+
+    private static final Set<String> TRACKED = Set.of(
+            "find", "aggregate", "count", "distinct", "findAndModify", "update", "delete");
+
+    // Added by the driver to every command; explain rejects several of them and none affect the plan
+    private static final Set<String> SESSION_FIELDS = Set.of("$db", "lsid", "$clusterTime", "txnNumber",
+            "autocommit", "startTransaction", "$readPreference", "readConcern", "writeConcern");
+
+    private QueryShape() {
+    }
+
+    /**
+     * Whether {@code commandName} is a query or a write with a filter, i.e. has a shape.
+     */
+    static boolean tracked(String commandName) {
+        return TRACKED.contains(commandName);
+    }
+
+    /**
+     * @return the shape, or {@code null} for commands that are not queries or writes with a filter
+     */
+    static String of(String commandName, BsonDocument command) {
+        if (!TRACKED.contains(commandName)) {
+            return null;
+        }
+        StringBuilder shape = new StringBuilder(96).append(collection(commandName, command)).append('.')
+                .append(commandName);
+        switch (commandName) {
+            case "find" -> {
+                part(shape, "filter", command.get("filter"), false);
+                part(shape, "sort", command.get("sort"), true);
+                part(shape, "projection", command.get("projection"), true);
+            }
+            case "aggregate" -> part(shape, "pipeline", command.get("pipeline"), false);
+            case "count" -> part(shape, "query", command.get("query"), false);
+            case "distinct" -> {
+                part(shape, "key", command.get("key"), true);
+                part(shape, "query", command.get("query"), false);
+            }
+            case "findAndModify" -> {
+                part(shape, "query", command.get("query"), false);
+                part(shape, "sort", command.get("sort"), true);
+                part(shape, "update", command.get("update"), false);
+            }
+            case "update" -> part(shape, "q", firstStatement(command, "updates", "q"), false);
+            case "delete" -> part(shape, "q", firstStatement(command, "deletes", "q"), false);
+            default -> {
+            }
+        }
+        return shape.toString();
+    }
+
+    static String collection(String commandName, BsonDocument command) {
+        BsonValue target = command.get(commandName);
+        // aggregate: 1 for database-level pipelines
+        return target != null && target.isString() ? target.asString().getValue() : "-";
+    }
+
+    /**
+     * A detached copy of {@code command} that can be wrapped in {@code explain}: session fields are
+     * dropped and multi-statement writes are cut to their first statement.
+     */
+    static BsonDocument explainable(String commandName, BsonDocument command) {
+        BsonDocument copy = new BsonDocument();
+        for (Map.Entry<String, BsonValue> entry : command.entrySet()) {
+            if (SESSION_FIELDS.contains(entry.getKey())) {
+                continue;
+            }
+            BsonValue value = entry.getValue();
+            if ((commandName.equals("update") && entry.getKey().equals("updates"))
+                    || (commandName.equals("delete") && entry.getKey().equals("deletes"))) {
+                value = value.asArray().isEmpty() ? value : new BsonArray(List.of(value.asArray().get(0)));
+            }
+            copy.put(entry.getKey(), value);
+        }
+        // Values may still be views over the driver's network buffer, which is released after the event
+        return copy.clone();
+    }
+
+    private static BsonValue firstStatement(BsonDocument command, String field, String filter) {
+        BsonValue statements = command.get(field);
+        if (statements == null || !statements.isArray() || statements.asArray().isEmpty()) {
+            return null;
+        }
+        BsonValue first = statements.asArray().get(0);
+        return first.isDocument() ? first.asDocument().get(filter) : null;
+    }
+
+    private static void part(StringBuilder shape, String name, BsonValue value, boolean keepLiterals) {
+        if (value == null) {
+            return;
+        }
+        shape.append(' ').append(name).append('=');
+        append(shape, value, keepLiterals);
+    }
+
+    private static void append(StringBuilder shape, BsonValue value, boolean keepLiterals) {
+        if (value.isDocument()) {
+            shape.append('{');
+            boolean first = true;
+            for (Map.Entry<String, BsonValue> entry : value.asDocument().entrySet()) {
+                if (!first) {
+                    shape.append(", ");
+                }
+                first = false;
+                shape.append(entry.getKey()).append(": ");
+                append(shape, entry.getValue(), keepLiterals);
+            }
+            shape.append('}');
+        } else if (value.isArray()) {
+            BsonArray array = value.asArray();
+            if (!keepLiterals && array.stream().noneMatch(v -> v.isDocument() || v.isArray())) {
+                shape.append("[?]");
+                return;
+            }
+            shape.append('[');
+            for (int i = 0; i < array.size(); i++) {
+                if (i > 0) {
+                    shape.append(", ");
+                }
+                append(shape, array.get(i), keepLiterals);
+            }
+            shape.append(']');
+        } else if (keepLiterals) {
+            shape.append(literal(value));
+        } else {
+            shape.append('?');
+        }
+    }
+
+    private static String literal(BsonValue value) {
+        return switch (value.getBsonType()) {
+            case STRING -> value.asString().getValue();
+            case INT32 -> String.valueOf(value.asInt32().getValue());
+            case INT64 -> String.valueOf(value.asInt64().getValue());
+            case DOUBLE -> String.valueOf(value.asDouble().getValue());
+            case BOOLEAN -> String.valueOf(value.asBoolean().getValue());
+            default -> "?";
+        };
+    }
+}
@@ -0,0 +1,285 @@
+package com.work.coffeemode.profiling;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mongodb.MongoException;
+import com.mongodb.client.MongoClient;
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.Document;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records MongoDB commands slower than {@code coffeemode.mongo.slow-query.threshold}, aggregated
+ * per {@link QueryShape} (literals stripped, so nothing user-supplied is kept), and explains a
+ * sample of each slow shape in the background with {@code executionStats}.
+ * <p>
+ * The command document handed to {@link #commandStarted} is only valid during the callback, and
+ * whether a command is slow is only known when it completes. So a tracked command is copied at
+ * start (one byte copy of the driver's buffer) and only shaped once it turns out to be slow; fast
+ * commands never pay for the shape. A slow execution is explained by a single background thread,
+ * each shape at most every {@code explain-interval}; a plan that changes to a collection scan or
+ * to different indexes is
+ * logged at WARN and counted in {@code mongodb.slow.plan.changes}, which is how a dropped or
+ * unused index shows up within minutes instead of in next week's latency report.
+ * <p>
+ * Read with {@code GET /actuator/slowqueries}, cleared with {@code DELETE}.
+ */
+@Slf4j
+@Component
+public class SlowQueryLog implements CommandListener {
+
+    private final ObjectProvider<MongoClient> mongoClient;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final long thresholdNanos;
+    private final long explainIntervalNanos;
+    // requestId -> tracked command in flight
+    private final Map<Integer, Started> inFlight = new ConcurrentHashMap<>();
+    private final Cache<String, ShapeStats> shapes;
+    // Bounded: explains are a diagnostic, dropping some under a burst of slow queries is fine
+    private final BlockingQueue<Explain> explains = new ArrayBlockingQueue<>(32);
+    private final Counter planChanges;
+
+    private volatile boolean running;
+    private volatile Thread worker;
+
+    // ObjectProvider: this listener is part of the MongoClient's own settings
+    public SlowQueryLog(ObjectProvider<MongoClient> mongoClient, MeterRegistry meterRegistry,
+            @Value("${coffeemode.mongo.slow-query.enabled:true}") boolean enabled,
+            @Value("${coffeemode.mongo.slow-query.threshold:100ms}") Duration threshold,
+            @Value("${coffeemode.mongo.slow-query.explain-interval:5m}") Duration explainInterval,
+            @Value("${coffeemode.mongo.slow-query.max-shapes:500}") long maxShapes) {
+        this.mongoClient = mongoClient;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.thresholdNanos = threshold.toNanos();
+        this.explainIntervalNanos = explainInterval.toNanos();
+        this.shapes = Caffeine.newBuilder()
+                .maximumSize(maxShapes)
+                .build();
+        this.planChanges = Counter.builder("mongodb.slow.plan.changes")
+                .description("Slow query shapes whose winning plan regressed between explains")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        worker = Thread.ofPlatform()
+                .name("mongo-slow-query-explain")
+                .daemon()
+                .start(this::explainLoop);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        Thread current = worker;
+        if (current != null) {
+            current.interrupt();
+        }
+    }
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        String commandName = event.getCommandName();
+        if (!QueryShape.tracked(commandName)) {
+            return;
+        }
+        inFlight.put(event.getRequestId(), new Started(event.getDatabaseName(), commandName,
+                event.getCommand().clone()));
+    }
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        completed(event.getRequestId(), event.getElapsedTime(TimeUnit.NANOSECONDS));
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent event) {
+        completed(event.getRequestId(), event.getElapsedTime(TimeUnit.NANOSECONDS));
+    }
+
+    private void completed(int requestId, long elapsedNanos) {
+        Started started = inFlight.remove(requestId);
+        if (started == null || elapsedNanos < thresholdNanos) {
+            return;
+        }
+        String commandName = started.commandName();
+        String shape = QueryShape.of(commandName, started.command());
+        String collection = QueryShape.collection(commandName, started.command());
+        ShapeStats stats = shapes.get(shape, key -> {
+            log.warn("Slow MongoDB {} on {} ({} ms): {}", commandName, collection,
+                    TimeUnit.NANOSECONDS.toMillis(elapsedNanos), key);
+            return new ShapeStats(commandName, collection);
+        });
+        stats.record(elapsedNanos);
+        Counter.builder("mongodb.slow.commands")
+                .description("MongoDB commands slower than coffeemode.mongo.slow-query.threshold")
+                .tag("command", commandName)
+                .tag("collection", collection)
+                .register(meterRegistry)
+                .increment();
+        if (stats.claimExplain(System.nanoTime(), explainIntervalNanos)) {
+            BsonDocument sample = QueryShape.explainable(commandName, started.command());
+            if (!explains.offer(new Explain(shape, started.database(), sample, stats))) {
+                stats.nextExplainAt.set(0);
+            }
+        }
+    }
+
+    private void explainLoop() {
+        while (running) {
+            Explain next;
+            try {
+                next = explains.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            MongoClient client = mongoClient.getIfAvailable();
+            if (client == null) {
+                continue;
+            }
+            try {
+                Document result = client.getDatabase(next.database()).runCommand(
+                        new BsonDocument("explain", next.command())
+                                .append("verbosity", new BsonString("executionStats")),
+                        Document.class);
+                next.stats().explained(next.shape(), PlanSummary.of(result));
+            } catch (MongoException e) {
+                log.debug("Explain failed for {}: {}", next.shape(), e.getMessage());
+            } catch (RuntimeException e) {
+                log.warn("Explain failed for {}", next.shape(), e);
+            }
+        }
+    }
+
+    /**
+     * Slow shapes, most total time first.
+     */
+    public List<SlowQuery> snapshot() {
+        return shapes.asMap().entrySet().stream()
+                .map(entry -> entry.getValue().toSlowQuery(entry.getKey()))
+                .sorted(Comparator.comparingLong(SlowQuery::totalMillis).reversed())
+                .toList();
+    }
+
+    public void reset() {
+        shapes.invalidateAll();
+    }
+
+    /**
+     * One slow query shape. Contains no literal values from the queries themselves.
+     */
+    public record SlowQuery(
+            String shape,
+            String command,
+            String collection,
+            long count,
+            long totalMillis,
+            double meanMillis,
+            long maxMillis,
+            Instant lastSeen,
+            PlanSummary plan,
+            PlanSummary previousPlan,
+            Instant planChangedAt) {
+    }
+
+    // command is a detached copy: the event's document is a view over the driver's network buffer
+    private record Started(String database, String commandName, BsonDocument command) {
+    }
+
+    private record Explain(String shape, String database, BsonDocument command, ShapeStats stats) {
+    }
+
+    private final class ShapeStats {
+
+        private final String commandName;
+        private final String collection;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+        // System.nanoTime() after which the next execution may be sampled; 0 = now
+        private final AtomicLong nextExplainAt = new AtomicLong();
+        private volatile Instant lastSeen;
+        private volatile PlanSummary plan;
+        private volatile PlanSummary previousPlan;
+        private volatile Instant planChangedAt;
+
+        private ShapeStats(String commandName, String collection) {
+            this.commandName = commandName;
+            this.collection = collection;
+        }
+
+        private void record(long elapsedNanos) {
+            count.increment();
+            totalNanos.add(elapsedNanos);
+            maxNanos.accumulateAndGet(elapsedNanos, Math::max);
+            lastSeen = Instant.now();
+        }
+
+        /**
+         * Whether the calling slow execution should be explained; at most one per interval.
+         */
+        private boolean claimExplain(long now, long intervalNanos) {
+            long due = nextExplainAt.get();
+            return now - due >= 0 && nextExplainAt.compareAndSet(due, now + intervalNanos);
+        }
+
+        private void explained(String shape, PlanSummary summary) {
+            PlanSummary last = plan;
+            if (last != null && !last.plan().equals(summary.plan())) {
+                previousPlan = last;
+                planChangedAt = summary.explainedAt();
+                if (summary.regressedFrom(last)) {
+                    planChanges.increment();
+                    log.warn("Plan regressed for slow MongoDB {} on {}: {} -> {} ({})", commandName, collection,
+                            last.plan(), summary.plan(), shape);
+                } else {
+                    log.info("Plan changed for slow MongoDB {} on {}: {} -> {}", commandName, collection,
+                            last.plan(), summary.plan());
+                }
+            }
+            plan = summary;
+        }
+
+        private SlowQuery toSlowQuery(String shape) {
+            long n = count.sum();
+            long total = totalNanos.sum();
+            return new SlowQuery(shape, commandName, collection, n, TimeUnit.NANOSECONDS.toMillis(total),
+                    n == 0 ? 0 : total / 1e6 / n, TimeUnit.NANOSECONDS.toMillis(maxNanos.get()), lastSeen,
+                    plan, previousPlan, planChangedAt);
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.work.coffeemode.recommend;
+
+import com.work.coffeemode.model.QuietnessLevel;
+import com.work.coffeemode.model.Temperature;
+import org.bson.Document;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Encodes a cafe document into a unit-length vector of {@value #DIMENSIONS} floats, so that the
+ * dot product of two vectors is their cosine similarity.
+ * <p>
+ * Every component is centred on "unknown": a yes/no feature is +1 or -1 and 0 when not recorded,
+ * so missing data neither attracts nor repels. The components are
+ * <ul>
+ * <li>wifi, outlets, unlimited stay: +1 / -1;</li>
+ * <li>quietness (quiet +1, noisy -1) and temperature (cold -1, warm +1);</li>
+ * <li>rating and the log of the review count, around a typical cafe;</li>
+ * <li>an opening-hours profile: days open, hours per day, how early it opens, how late it
+ * closes and whether it opens at weekends;</li>
+ * <li>the location on the unit sphere, weighted by {@value #LOCATION_WEIGHT}, which makes
+ * cafes in the same region a little more alike; distance limits are applied separately.</li>
+ * </ul>
+ */
+final class CafeVectors {
+
+    // 15 used; the last is padding so a vector is 64 bytes
+    static final int DIMENSIONS = 16;
+    static final float LOCATION_WEIGHT = 1.0f;
+
+    // "8:00 AM", "08:00", "20" (hour, minutes, meridiem)
+    private static final Pattern TIME = Pattern.compile("(\\d{1,2})(?:[:：.](\\d{2}))?\\s*([ap]\\.?m\\.?)?");
+    private static final double REVIEW_SCALE = Math.log1p(1000);
+
+    private CafeVectors() {
+    }
+
+    static float[] encode(Document cafe) {
+        float[] v = new float[DIMENSIONS];
+        if (cafe.get("features") instanceof Document features) {
+            v[0] = yesNo(features.get("wifiAvailable"));
+            v[1] = yesNo(features.get("outletsAvailable"));
+            v[2] = yesNo(features.get("unlimitedDuration"));
+            if (v[2] == 0 && features.get("limitDuration") != null) {
+                v[2] = -1;
+            }
+            // Codes: quietness 1 quiet .. 3 noisy, temperature 1 cold .. 3 warm
+            QuietnessLevel quietness = quietness(features.get("quietnessLevel"));
+            v[3] = quietness == null ? 0 : 2 - quietness.getCode();
+            Temperature temperature = temperature(features.get("temperature"));
+            v[4] = temperature == null ? 0 : temperature.getCode() - 2;
+        }
+        Number rating = number(cafe.get("averageRating"));
+        Number reviews = number(cafe.get("totalReviews"));
+        int reviewCount = reviews == null ? 0 : reviews.intValue();
+        if (rating != null && rating.doubleValue() > 0) {
+            v[5] = clamp((rating.doubleValue() - 4.0) / 0.75);
+        }
+        if (reviewCount > 0) {
+            v[6] = clamp(Math.log1p(reviewCount) / REVIEW_SCALE * 2 - 1);
+        }
+        if (cafe.get("openingHours") instanceof Document openingHours) {
+            hours(openingHours, v);
+        }
+        location(coordinates(cafe), v);
+        normalize(v);
+        return v;
+    }
+
+    /**
+     * {@code [longitude, latitude]}, or {@code null} when the cafe has no location.
+     */
+    static double[] coordinates(Document cafe) {
+        Object location = cafe.get("location");
+        Object coordinates = location instanceof Document point ? point.get("coordinates") : null;
+        if (!(coordinates instanceof List<?> pair) || pair.size() != 2
+                || !(pair.get(0) instanceof Number longitude) || !(pair.get(1) instanceof Number latitude)) {
+            return null;
+        }
+        return new double[] {longitude.doubleValue(), latitude.doubleValue()};
+    }
+
+    // Cafes the compact-encoding migration has not rewritten yet still hold the labels
+    private static QuietnessLevel quietness(Object value) {
+        try {
+            if (value instanceof Number code) {
+                return QuietnessLevel.fromCode(code.intValue());
+            }
+            return value instanceof String label ? QuietnessLevel.fromLabel(label) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static Temperature temperature(Object value) {
+        try {
+            if (value instanceof Number code) {
+                return Temperature.fromCode(code.intValue());
+            }
+            return value instanceof String label ? Temperature.fromLabel(label) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    // Components 7..11
+    private static void hours(Document openingHours, float[] v) {
+        if (openingHours.isEmpty()) {
+            return;
+        }
+        int daysOpen = 0;
+        int weekendOpen = 0;
+        double totalHours = 0;
+        double totalOpen = 0;
+        double totalClose = 0;
+        for (Map.Entry<String, Object> day : openingHours.entrySet()) {
+            double[] span = span(String.valueOf(day.getValue()));
+            if (span == null) {
+                continue;
+            }
+            daysOpen++;
+            totalHours += span[1] - span[0];
+            totalOpen += span[0];
+            totalClose += span[1];
+            if (isWeekend(day.getKey())) {
+                weekendOpen++;
+            }
+        }
+        v[7] = clamp((Math.min(daysOpen, 7) - 5.5) / 1.5);
+        if (daysOpen > 0) {
+            v[8] = clamp((totalHours / daysOpen - 10) / 3);
+            v[9] = clamp((8.5 - totalOpen / daysOpen) / 1.5);
+            v[10] = clamp((totalClose / daysOpen - 19) / 2.5);
+            v[11] = weekendOpen > 0 ? 1 : -1;
+        }
+    }
+
+    /**
+     * First opening and last closing hour of a day, closing past midnight as {@code > 24};
+     * {@code null} when closed or unreadable.
+     */
+    static double[] span(String text) {
+        String lower = text.toLowerCase(Locale.ROOT);
+        if (lower.contains("24 hours") || lower.contains("24小时")) {
+            return new double[] {0, 24};
+        }
+        if (lower.contains("closed") || lower.contains("休息") || lower.contains("休业")) {
+            return null;
+        }
+        Matcher matcher = TIME.matcher(lower);
+        double[] times = new double[8];
+        String[] meridiems = new String[8];
+        int count = 0;
+        while (matcher.find() && count < times.length) {
+            int hour = Integer.parseInt(matcher.group(1));
+            int minutes = matcher.group(2) == null ? 0 : Integer.parseInt(matcher.group(2));
+            if (hour > 24 || minutes > 59) {
+                continue;
+            }
+            times[count] = hour + minutes / 60.0;
+            meridiems[count] = matcher.group(3);
+            count++;
+        }
+        if (count < 2) {
+            return null;
+        }
+        // "9:00 – 11:30 AM": a time without AM/PM takes the next one's
+        for (int i = count - 2; i >= 0; i--) {
+            if (meridiems[i] == null && meridiems[i + 1] != null) {
+                meridiems[i] = meridiems[i + 1];
+            }
+        }
+        double open = toHours(times[0], meridiems[0]);
+        double close = toHours(times[count - 1], meridiems[count - 1]);
+        if (close <= open) {
+            close += 24;
+        }
+        return new double[] {open, close};
+    }
+
+    private static double toHours(double time, String meridiem) {
+        if (meridiem == null) {
+            return time;
+        }
+        boolean pm = meridiem.charAt(0) == 'p';
+        double hour = time % 12;
+        return pm ? hour + 12 : hour;
+    }
+
+    private static boolean isWeekend(String day) {
+        String lower = day.toLowerCase(Locale.ROOT);
+        return lower.startsWith("sat") || lower.startsWith("sun") || lower.endsWith("六") || lower.endsWith("日")
+                || lower.endsWith("天");
+    }
+
+    // Components 12..14
+    private static void location(double[] coordinates, float[] v) {
+        if (coordinates == null) {
+            return;
+        }
+        double longitude = Math.toRadians(coordinates[0]);
+        double latitude = Math.toRadians(coordinates[1]);
+        v[12] = (float) (Math.cos(latitude) * Math.cos(longitude)) * LOCATION_WEIGHT;
+        v[13] = (float) (Math.cos(latitude) * Math.sin(longitude)) * LOCATION_WEIGHT;
+        v[14] = (float) Math.sin(latitude) * LOCATION_WEIGHT;
+    }
+
+    private static float yesNo(Object value) {
+        return value instanceof Boolean yes ? yes ? 1 : -1 : 0;
+    }
+
+    private static Number number(Object value) {
+        return value instanceof Number number ? number : null;
+    }
+
+    private static float clamp(double value) {
+        return (float) Math.max(-1, Math.min(1, value));
+    }
+
+    private static void normalize(float[] v) {
+        double sum = 0;
+        for (float x : v) {
+            sum += x * x;
+        }
+        if (sum == 0) {
+            return;
+        }
+        float scale = (float) (1 / Math.sqrt(sum));
+        for (int i = 0; i < v.length; i++) {
+            v[i] *= scale;
+        }
+    }
+}
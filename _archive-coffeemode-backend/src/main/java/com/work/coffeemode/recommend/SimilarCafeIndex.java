@@ -0,0 +1,458 @@
+package com.work.coffeemode.recommend;
+
+import com.mongodb.client.model.CountOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.work.coffeemode.cache.CacheInvalidationBus;
+import com.work.coffeemode.cache.CacheInvalidationEvent;
+import com.work.coffeemode.cache.CacheInvalidationEvent.Operation;
+import com.work.coffeemode.cache.CacheInvalidationEvent.Source;
+import com.work.coffeemode.dto.cafe.SimilarCafe;
+import com.work.coffeemode.dto.cafe.SimilarCafesRequest;
+import com.work.coffeemode.exception.CafeNotFoundException;
+import com.work.coffeemode.exception.ServiceUnavailableException;
+import com.work.coffeemode.geo.GeoDistance;
+import com.work.coffeemode.search.BackgroundIndex;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Approximate nearest-neighbour index over {@link CafeVectors}, answering "cafes like this one".
+ * <p>
+ * Vectors live in one direct buffer, {@value CafeVectors#DIMENSIONS} floats per slot, so 100k
+ * cafes cost 6MB outside the heap and nothing for the collector to trace. Candidates come from
+ * random-hyperplane LSH: each of {@code tables} tables hashes a vector to {@code bits} sign bits,
+ * and a query probes its own bucket in every table, plus the buckets one bit away when those hold
+ * few cafes. Candidates are then ranked by their exact dot product. When the probes (after the
+ * distance filter) turn up fewer than {@code limit} cafes, every slot is scanned instead, which is
+ * still a sequential walk over a few megabytes. Hyperplanes come from a fixed seed, so every
+ * replica buckets the same way.
+ * <p>
+ * As a {@link BackgroundIndex}, it is built after startup, patched per cafe from the
+ * {@link CacheInvalidationBus} and rebuilt on a flush or every {@code rebuild-interval}. Until the
+ * first build completes, queries are answered with 503 and {@code Retry-After}.
+ */
+@Slf4j
+@Component
+public class SimilarCafeIndex extends BackgroundIndex {
+
+    private static final int BATCH_SIZE = 500;
+    private static final int DIM = CafeVectors.DIMENSIONS;
+    private static final long HYPERPLANE_SEED = 0x5eed_cafeL;
+    private static final int MIN_CANDIDATES_PER_RESULT = 20;
+    private static final Duration WARMING_UP_RETRY_AFTER = Duration.ofSeconds(10);
+    private static final Bson CAFE_FIELDS = Projections.include("name", "location", "features", "averageRating",
+            "totalReviews", "openingHours");
+
+    private final MongoTemplate mongoTemplate;
+    private final int tables;
+    private final int bits;
+    // tables * bits hyperplane normals
+    private final float[][] hyperplanes;
+    private Data data;
+
+    public SimilarCafeIndex(MongoTemplate mongoTemplate, CacheInvalidationBus invalidationBus,
+            @Value("${coffeemode.recommend.rebuild-interval:6h}") Duration rebuildInterval,
+            @Value("${coffeemode.recommend.lsh.tables:8}") int tables,
+            @Value("${coffeemode.recommend.lsh.bits:10}") int bits) {
+        super("similar-cafe-index", rebuildInterval, invalidationBus, Source.CAFE);
+        if (bits < 1 || bits > 30) {
+            throw new IllegalArgumentException("coffeemode.recommend.lsh.bits must be between 1 and 30");
+        }
+        this.mongoTemplate = mongoTemplate;
+        this.tables = tables;
+        this.bits = bits;
+        this.hyperplanes = new float[tables * bits][DIM];
+        Random random = new Random(HYPERPLANE_SEED);
+        for (float[] hyperplane : hyperplanes) {
+            for (int i = 0; i < DIM; i++) {
+                hyperplane[i] = (float) random.nextGaussian();
+            }
+        }
+        this.data = new Data(16);
+    }
+
+    /**
+     * The cafes most similar to {@code cafeId}, most similar first, excluding the cafe itself.
+     *
+     * @throws ServiceUnavailableException until the first build completes
+     * @throws CafeNotFoundException when no such cafe exists
+     */
+    public List<SimilarCafe> similar(String cafeId, SimilarCafesRequest request) {
+        if (!ObjectId.isValid(cafeId)) {
+            throw new CafeNotFoundException();
+        }
+        if (!isReady()) {
+            throw new ServiceUnavailableException("Similar cafes are still loading", WARMING_UP_RETRY_AFTER);
+        }
+        ObjectId id = new ObjectId(cafeId);
+        int limit = request.getLimit() != null ? request.getLimit() : 10;
+        double radiusMeters = request.getRadiusInKm() != null ? request.getRadiusInKm() * 1000 : Double.NaN;
+
+        lock.readLock().lock();
+        try {
+            Integer slot = data.slotById.get(id);
+            if (slot != null) {
+                return search(slot, radiusMeters, limit);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        // Not indexed: unknown, or created or unreadable since the last build
+        if (mongoTemplate.getCollection("cafes").countDocuments(Filters.eq("_id", id),
+                new CountOptions().limit(1)) == 0) {
+            throw new CafeNotFoundException();
+        }
+        return List.of();
+    }
+
+    // Under the read lock
+    private List<SimilarCafe> search(int slot, double radiusMeters, int limit) {
+        if (!Double.isNaN(radiusMeters) && Double.isNaN(data.latitude[slot])) {
+            // A distance limit means nothing for a cafe without a location
+            return List.of();
+        }
+        Search search = new Search(data, slot, radiusMeters, limit);
+        for (int t = 0; t < tables; t++) {
+            search.probe(data.buckets.get(t).get(data.signatures[t][slot]));
+        }
+        // Neighbouring buckets only when the exact ones were thin
+        if (search.candidates < limit * MIN_CANDIDATES_PER_RESULT) {
+            for (int t = 0; t < tables; t++) {
+                int signature = data.signatures[t][slot];
+                for (int b = 0; b < bits; b++) {
+                    search.probe(data.buckets.get(t).get(signature ^ (1 << b)));
+                }
+            }
+        }
+        if (search.best.size() < limit) {
+            search.scanAll();
+        }
+        return search.results();
+    }
+
+    @Override
+    protected void rebuild() {
+        long started = System.nanoTime();
+        int skipped = 0;
+        Data fresh = new Data((int) Math.min(Integer.MAX_VALUE / (DIM * Float.BYTES),
+                Math.max(16, mongoTemplate.getCollection("cafes").estimatedDocumentCount() * 5 / 4)));
+        for (Document cafe : mongoTemplate.getCollection("cafes")
+                .find()
+                .projection(CAFE_FIELDS)
+                .batchSize(BATCH_SIZE)) {
+            try {
+                fresh.put(cafe);
+            } catch (RuntimeException e) {
+                skipped++;
+                log.debug("Similar cafe index skipped cafe {}", cafe.get("_id"), e);
+            }
+        }
+        if (skipped > 0) {
+            log.warn("Similar cafe index skipped {} unreadable cafes", skipped);
+        }
+        lock.writeLock().lock();
+        try {
+            data = fresh;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Similar cafe index built in {} ms: {} cafes, {} KB off-heap",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started), fresh.slotById.size(),
+                (long) fresh.vectors.capacity() * Float.BYTES / 1024);
+    }
+
+    @Override
+    protected void apply(CacheInvalidationEvent change) {
+        String id = change.getDocumentId();
+        if (id == null || !ObjectId.isValid(id)) {
+            return;
+        }
+        ObjectId objectId = new ObjectId(id);
+        Document cafe = change.getOperation() == Operation.DELETE ? null
+                : mongoTemplate.getCollection("cafes").find(Filters.eq("_id", objectId)).projection(CAFE_FIELDS)
+                        .first();
+        lock.writeLock().lock();
+        try {
+            if (cafe == null) {
+                data.remove(objectId);
+            } else {
+                data.put(cafe);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private record Scored(int slot, float score, double meters) {
+    }
+
+    /**
+     * One query: scores each candidate once, keeping the best {@code limit} in a min-heap.
+     * Distances are only computed for cafes that make the heap, or to apply the radius, after a
+     * bounding-box check has ruled out the clearly distant ones.
+     */
+    private static final class Search {
+
+        private final Data data;
+        private final int slot;
+        private final float[] query = new float[DIM];
+        private final double radiusMeters;
+        private final double maxLatitudeDelta;
+        private final double maxLongitudeDelta;
+        private final int limit;
+        private final BitSet seen;
+        private final PriorityQueue<Scored> best;
+        private int candidates;
+
+        private Search(Data data, int slot, double radiusMeters, int limit) {
+            this.data = data;
+            this.slot = slot;
+            this.radiusMeters = radiusMeters;
+            this.limit = limit;
+            this.maxLatitudeDelta = radiusMeters / GeoDistance.METERS_PER_DEGREE;
+            double cosLatitude = Math.cos(Math.toRadians(data.latitude[slot]));
+            this.maxLongitudeDelta = cosLatitude > 0.01 ? maxLatitudeDelta / cosLatitude : 360;
+            this.seen = new BitSet(data.size);
+            this.best = new PriorityQueue<>(limit + 1, Comparator.comparingDouble(Scored::score));
+            data.vectors.get(slot * DIM, query);
+            seen.set(slot);
+        }
+
+        private void probe(Bucket bucket) {
+            if (bucket != null) {
+                for (int i = 0; i < bucket.size; i++) {
+                    consider(bucket.members[i]);
+                }
+            }
+        }
+
+        private void scanAll() {
+            for (int candidate = 0; candidate < data.size; candidate++) {
+                if (data.ids[candidate] != null) {
+                    consider(candidate);
+                }
+            }
+        }
+
+        private void consider(int candidate) {
+            if (seen.get(candidate)) {
+                return;
+            }
+            seen.set(candidate);
+            candidates++;
+            double meters = Double.NaN;
+            if (!Double.isNaN(radiusMeters)) {
+                // NaN (no location) fails these comparisons too
+                if (!(Math.abs(data.latitude[candidate] - data.latitude[slot]) <= maxLatitudeDelta)
+                        || !(Math.abs(data.longitude[candidate] - data.longitude[slot]) <= maxLongitudeDelta)) {
+                    return;
+                }
+                meters = distanceMeters(candidate);
+                if (!(meters <= radiusMeters)) {
+                    return;
+                }
+            }
+            float score = 0;
+            int base = candidate * DIM;
+            for (int i = 0; i < DIM; i++) {
+                score += query[i] * data.vectors.get(base + i);
+            }
+            if (best.size() == limit) {
+                if (score <= best.peek().score()) {
+                    return;
+                }
+                best.poll();
+            }
+            best.add(new Scored(candidate, score, Double.isNaN(meters) ? distanceMeters(candidate) : meters));
+        }
+
+        private double distanceMeters(int candidate) {
+            return GeoDistance.meters(data.latitude[slot], data.longitude[slot],
+                    data.latitude[candidate], data.longitude[candidate]);
+        }
+
+        private List<SimilarCafe> results() {
+            List<Scored> ranked = new ArrayList<>(best);
+            ranked.sort(Comparator.comparingDouble(Scored::score).reversed());
+            List<SimilarCafe> results = new ArrayList<>(ranked.size());
+            for (Scored scored : ranked) {
+                results.add(SimilarCafe.builder()
+                        .cafeId(data.ids[scored.slot()].toHexString())
+                        .name(data.names[scored.slot()])
+                        .score(Math.round(scored.score() * 1000) / 1000.0)
+                        .distanceInKm(Double.isNaN(scored.meters()) ? null : Math.round(scored.meters()) / 1000.0)
+                        .build());
+            }
+            return results;
+        }
+    }
+
+    // Slots of the vectors sharing one signature
+    private static final class Bucket {
+
+        private int[] members = new int[4];
+        private int size;
+
+        private void add(int slot) {
+            if (size == members.length) {
+                members = Arrays.copyOf(members, size * 2);
+            }
+            members[size++] = slot;
+        }
+
+        private void remove(int slot) {
+            for (int i = 0; i < size; i++) {
+                if (members[i] == slot) {
+                    members[i] = members[--size];
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Index contents. Slots of removed cafes are reused by the next insert.
+     */
+    private final class Data {
+
+        private FloatBuffer vectors;
+        private ObjectId[] ids;
+        private String[] names;
+        private double[] latitude;
+        private double[] longitude;
+        // [table][slot]
+        private int[][] signatures;
+        // High-water mark of used slots
+        private int size;
+        private int[] free = new int[16];
+        private int freeCount;
+        private final Map<ObjectId, Integer> slotById = new HashMap<>();
+        private final List<Map<Integer, Bucket>> buckets = new ArrayList<>(tables);
+
+        private Data(int capacity) {
+            vectors = ByteBuffer.allocateDirect(capacity * DIM * Float.BYTES).order(ByteOrder.nativeOrder())
+                    .asFloatBuffer();
+            ids = new ObjectId[capacity];
+            names = new String[capacity];
+            latitude = new double[capacity];
+            longitude = new double[capacity];
+            signatures = new int[tables][capacity];
+            for (int t = 0; t < tables; t++) {
+                buckets.add(new HashMap<>());
+            }
+        }
+
+        private void put(Document cafe) {
+            ObjectId id = cafe.getObjectId("_id");
+            Integer existing = slotById.get(id);
+            int slot;
+            if (existing != null) {
+                slot = existing;
+                unhash(slot);
+            } else {
+                slot = allocate();
+                slotById.put(id, slot);
+                ids[slot] = id;
+            }
+            float[] vector = CafeVectors.encode(cafe);
+            vectors.put(slot * DIM, vector);
+            names[slot] = cafe.getString("name");
+            double[] coordinates = CafeVectors.coordinates(cafe);
+            longitude[slot] = coordinates == null ? Double.NaN : coordinates[0];
+            latitude[slot] = coordinates == null ? Double.NaN : coordinates[1];
+            for (int t = 0; t < tables; t++) {
+                int signature = signature(t, vector);
+                signatures[t][slot] = signature;
+                buckets.get(t).computeIfAbsent(signature, key -> new Bucket()).add(slot);
+            }
+        }
+
+        private void remove(ObjectId id) {
+            Integer slot = slotById.remove(id);
+            if (slot == null) {
+                return;
+            }
+            unhash(slot);
+            ids[slot] = null;
+            names[slot] = null;
+            if (freeCount == free.length) {
+                free = Arrays.copyOf(free, freeCount * 2);
+            }
+            free[freeCount++] = slot;
+        }
+
+        private void unhash(int slot) {
+            for (int t = 0; t < tables; t++) {
+                Map<Integer, Bucket> table = buckets.get(t);
+                int signature = signatures[t][slot];
+                Bucket bucket = table.get(signature);
+                if (bucket != null) {
+                    bucket.remove(slot);
+                    if (bucket.size == 0) {
+                        table.remove(signature);
+                    }
+                }
+            }
+        }
+
+        private int allocate() {
+            if (freeCount > 0) {
+                return free[--freeCount];
+            }
+            if (size == ids.length) {
+                grow(size * 2);
+            }
+            return size++;
+        }
+
+        private void grow(int capacity) {
+            FloatBuffer grown = ByteBuffer.allocateDirect(capacity * DIM * Float.BYTES).order(ByteOrder.nativeOrder())
+                    .asFloatBuffer();
+            grown.put(0, vectors, 0, size * DIM);
+            vectors = grown;
+            ids = Arrays.copyOf(ids, capacity);
+            names = Arrays.copyOf(names, capacity);
+            latitude = Arrays.copyOf(latitude, capacity);
+            longitude = Arrays.copyOf(longitude, capacity);
+            for (int t = 0; t < tables; t++) {
+                signatures[t] = Arrays.copyOf(signatures[t], capacity);
+            }
+        }
+
+        private int signature(int table, float[] vector) {
+            int signature = 0;
+            for (int b = 0; b < bits; b++) {
+                float[] hyperplane = hyperplanes[table * bits + b];
+                float dot = 0;
+                for (int i = 0; i < DIM; i++) {
+                    dot += hyperplane[i] * vector[i];
+                }
+                if (dot >= 0) {
+                    signature |= 1 << b;
+                }
+            }
+            return signature;
+        }
+    }
+}
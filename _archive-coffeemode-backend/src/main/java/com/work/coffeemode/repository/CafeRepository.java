@@ -6,6 +6,7 @@ import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.data.mongodb.repository.Query;
 import org.springframework.data.geo.Distance;
 import org.springframework.data.geo.Point;
+import org.springframework.data.domain.Pageable;
 
 import java.util.List;
 import java.util.Optional;
@@ -19,6 +20,13 @@ public interface CafeRepository extends MongoRepository<Cafe, ObjectId> {
     // externalReferences.googlePlace
     Optional<Cafe> findByExternalReferencesGooglePlace(String googlePlaceId);
 
+    // Only _id and version are read, for conditional GETs
+    @Query(value = "{'_id': ?0}", fields = "{'version': 1}")
+    Optional<Cafe> findVersionById(ObjectId id);
+
+    // Delta sync: changes after a sync token, in change order
+    List<Cafe> findByChangeSeqGreaterThanOrderByChangeSeqAsc(long changeSeq, Pageable pageable);
+
     // Optional<Cafe> findById(ObjectId id);
     //
     // List<Cafe> findByName(String name);
@@ -0,0 +1,13 @@
+package com.work.coffeemode.repository;
+
+import com.work.coffeemode.model.CafeTombstone;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import java.util.List;
+
+public interface CafeTombstoneRepository extends MongoRepository<CafeTombstone, ObjectId> {
+
+    List<CafeTombstone> findByChangeSeqGreaterThanOrderByChangeSeqAsc(long changeSeq, Pageable pageable);
+}
@@ -0,0 +1,20 @@
+package com.work.coffeemode.repository;
+
+import com.work.coffeemode.model.User;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface UserRepository extends MongoRepository<User, ObjectId> {
+    Optional<User> findByFirebaseUid(String firebaseUid);
+
+    // Keyset pagination on _id: cost is independent of how deep the page is
+    List<User> findAllByOrderByIdAsc(Pageable pageable);
+
+    List<User> findByIdGreaterThanOrderByIdAsc(ObjectId after, Pageable pageable);
+}
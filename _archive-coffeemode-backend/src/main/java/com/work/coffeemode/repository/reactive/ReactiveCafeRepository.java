@@ -0,0 +1,28 @@
+package com.work.coffeemode.repository.reactive;
+
+import com.work.coffeemode.model.Cafe;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking counterpart of {@link com.work.coffeemode.repository.CafeRepository} for the
+ * reactive profile; same collection, same queries.
+ */
+public interface ReactiveCafeRepository extends ReactiveMongoRepository<Cafe, ObjectId> {
+
+    @Query("{'location': {$near: {$geometry: {type: 'Point', coordinates: [?0, ?1]}, $maxDistance: ?2}}}")
+    Flux<Cafe> findNearbyCafes(double longitude, double latitude, double maxDistanceInMeters);
+
+    Mono<Cafe> findByExternalReferencesGooglePlace(String googlePlaceId);
+
+    // Only _id and version are read, for conditional GETs
+    @Query(value = "{'_id': ?0}", fields = "{'version': 1}")
+    Mono<Cafe> findVersionById(ObjectId id);
+
+    // Delta sync: changes after a sync token, in change order
+    Flux<Cafe> findByChangeSeqGreaterThanOrderByChangeSeqAsc(long changeSeq, Pageable pageable);
+}
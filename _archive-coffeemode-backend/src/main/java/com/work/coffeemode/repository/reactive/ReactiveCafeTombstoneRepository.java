@@ -0,0 +1,12 @@
+package com.work.coffeemode.repository.reactive;
+
+import com.work.coffeemode.model.CafeTombstone;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import reactor.core.publisher.Flux;
+
+public interface ReactiveCafeTombstoneRepository extends ReactiveMongoRepository<CafeTombstone, ObjectId> {
+
+    Flux<CafeTombstone> findByChangeSeqGreaterThanOrderByChangeSeqAsc(long changeSeq, Pageable pageable);
+}
@@ -0,0 +1,121 @@
+package com.work.coffeemode.search;
+
+import com.mongodb.MongoInterruptedException;
+import com.work.coffeemode.cache.CacheInvalidationBus;
+import com.work.coffeemode.cache.CacheInvalidationEvent;
+import com.work.coffeemode.cache.CacheInvalidationEvent.Operation;
+import com.work.coffeemode.cache.CacheInvalidationEvent.Source;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+
+import java.time.Duration;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Base of the in-process indexes that are loaded from MongoDB after startup and then kept current
+ * from the {@link CacheInvalidationBus} ({@link MenuIndex},
+ * {@link com.work.coffeemode.recommend.SimilarCafeIndex}).
+ * <p>
+ * A single worker thread makes every change: it calls {@link #rebuild} once the application is
+ * ready, on a flush and every {@code rebuildInterval}, and {@link #apply} for each event in
+ * between. Queries take the read lock of {@link #lock}; the worker only takes the write lock to
+ * publish what it has prepared. Whatever a rebuild or change throws is logged and the worker
+ * carries on: a failed change is caught up by the next rebuild, and a failed rebuild is retried
+ * after a minute.
+ */
+@Slf4j
+public abstract class BackgroundIndex {
+
+    private static final long RETRY_DELAY_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    // Queries take the read lock; the worker thread takes the write lock to apply changes
+    protected final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final String name;
+    private final long rebuildIntervalNanos;
+    private final BlockingQueue<CacheInvalidationEvent> changes = new LinkedBlockingQueue<>();
+
+    private volatile boolean running;
+    private volatile boolean ready;
+    private volatile Thread worker;
+
+    protected BackgroundIndex(String name, Duration rebuildInterval, CacheInvalidationBus invalidationBus,
+            Source... sources) {
+        this.name = name;
+        this.rebuildIntervalNanos = rebuildInterval.toNanos();
+        for (Source source : sources) {
+            invalidationBus.subscribe(source, changes::offer);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        running = true;
+        worker = Thread.ofPlatform()
+                .name(name)
+                .daemon()
+                .start(this::maintain);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        Thread current = worker;
+        if (current != null) {
+            current.interrupt();
+        }
+    }
+
+    /**
+     * Whether the first rebuild has completed; until then the index is empty.
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Loads everything from MongoDB and swaps it in. Changes queued before the call are covered
+     * by it and have already been discarded.
+     */
+    protected abstract void rebuild();
+
+    /**
+     * Reloads the one document a non-flush event is about and patches it in.
+     */
+    protected abstract void apply(CacheInvalidationEvent change);
+
+    private void maintain() {
+        long nextRebuild = System.nanoTime();
+        while (running) {
+            CacheInvalidationEvent change = null;
+            try {
+                long wait = nextRebuild - System.nanoTime();
+                change = wait > 0 ? changes.poll(wait, TimeUnit.NANOSECONDS) : null;
+                if (change == null || change.getOperation() == Operation.FLUSH) {
+                    change = null;
+                    changes.clear();
+                    rebuild();
+                    ready = true;
+                    nextRebuild = System.nanoTime() + rebuildIntervalNanos;
+                } else {
+                    apply(change);
+                }
+            } catch (InterruptedException | MongoInterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                // MongoDB being away or a document nothing here expected; the thread must survive either
+                if (change == null) {
+                    log.warn("{} rebuild failed; retrying in a minute", name, e);
+                    nextRebuild = System.nanoTime() + RETRY_DELAY_NANOS;
+                } else {
+                    log.warn("{} update for {} {} failed", name, change.getSource(), change.getDocumentId(), e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,550 @@
+package com.work.coffeemode.search;
+
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.work.coffeemode.cache.CacheInvalidationBus;
+import com.work.coffeemode.cache.CacheInvalidationEvent;
+import com.work.coffeemode.cache.CacheInvalidationEvent.Operation;
+import com.work.coffeemode.cache.CacheInvalidationEvent.Source;
+import com.work.coffeemode.dto.cafe.MenuSearchHit;
+import com.work.coffeemode.dto.cafe.MenuSearchRequest;
+import com.work.coffeemode.exception.InvalidRequestException;
+import com.work.coffeemode.geo.GeoDistance;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-process inverted index over the menu highlights of RedNote POIs linked to cafes
+ * ({@code cafe_rednote_pois.menuHighlights} via {@code cafes.externalReferences.redbookId}).
+ * <p>
+ * Every dish gets an ordinal; its cafe, price, name and category live in parallel primitive
+ * arrays. Each dish term ({@link MenuTerms}) and each category maps to a posting of dish
+ * ordinals sorted by price, so a price range is two binary searches, plus the same ordinals
+ * sorted by value for intersecting multi-term queries. Cafe coordinates are kept alongside, so
+ * "latte under 6 within 2 km" never touches MongoDB.
+ * <p>
+ * As a {@link BackgroundIndex}, it is built after startup and then kept current from the
+ * {@link CacheInvalidationBus}: a changed POI or cafe is reloaded on its own and only the postings
+ * of the terms it touches are rebuilt. A flush, or {@code rebuild-interval} passing, rebuilds
+ * everything, which also drops the ordinals of replaced dishes. Searches before the first build
+ * completes return nothing.
+ */
+@Slf4j
+@Component
+public class MenuIndex extends BackgroundIndex {
+
+    private static final int BATCH_SIZE = 500;
+    private static final Bson CAFE_FIELDS = Projections.include("name", "location", "externalReferences.redbookId");
+    private static final Bson POI_FIELDS = Projections.include("redbookId", "menuHighlights");
+
+    private final MongoTemplate mongoTemplate;
+    private Data data = new Data();
+
+    public MenuIndex(MongoTemplate mongoTemplate, CacheInvalidationBus invalidationBus,
+            @Value("${coffeemode.menu.index.rebuild-interval:6h}") Duration rebuildInterval) {
+        super("menu-index", rebuildInterval, invalidationBus, Source.CAFE, Source.REDNOTE_POI);
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    /**
+     * Cafes with a dish matching the request, cheapest matching dish first, one hit per cafe.
+     */
+    public List<MenuSearchHit> search(MenuSearchRequest request) {
+        Set<String> terms = MenuTerms.of(request.getQ());
+        String category = MenuTerms.category(request.getCategory());
+        if (terms.isEmpty() && category == null) {
+            throw new InvalidRequestException("q or category is required");
+        }
+        boolean nearby = request.getLatitude() != null && request.getLongitude() != null;
+        double radiusMeters = (request.getRadiusInKm() != null ? request.getRadiusInKm() : 3.0) * 1000;
+        float minPrice = request.getMinPrice() == null ? 0 : request.getMinPrice().floatValue();
+        float maxPrice = request.getMaxPrice() == null ? Float.MAX_VALUE : request.getMaxPrice().floatValue();
+        int limit = request.getLimit() != null ? request.getLimit() : 20;
+
+        lock.readLock().lock();
+        try {
+            List<Posting> postings = new ArrayList<>(terms.size() + 1);
+            for (String term : terms) {
+                postings.add(data.terms.get(term));
+            }
+            if (category != null) {
+                postings.add(data.categories.get(category));
+            }
+            if (postings.contains(null)) {
+                return List.of();
+            }
+            // Walk the rarest posting in price order, probe the others
+            Posting driver = postings.get(0);
+            for (Posting posting : postings) {
+                if (posting.size() < driver.size()) {
+                    driver = posting;
+                }
+            }
+            List<MenuSearchHit> hits = new ArrayList<>(Math.min(limit, 64));
+            Set<Integer> seen = new HashSet<>();
+            for (int i = driver.lowerBound(minPrice), end = driver.upperBound(maxPrice); i < end; i++) {
+                int dish = driver.byPrice[i];
+                if (!containsAll(postings, driver, dish)) {
+                    continue;
+                }
+                int cafe = data.dishCafe[dish];
+                CafeEntry entry = data.cafes.get(cafe);
+                Double distanceInKm = null;
+                if (nearby) {
+                    if (!entry.hasLocation()) {
+                        continue;
+                    }
+                    double meters = GeoDistance.meters(request.getLatitude(), request.getLongitude(), entry.latitude,
+                            entry.longitude);
+                    if (meters > radiusMeters) {
+                        continue;
+                    }
+                    distanceInKm = Math.round(meters) / 1000.0;
+                }
+                if (!seen.add(cafe)) {
+                    continue;
+                }
+                hits.add(MenuSearchHit.builder()
+                        .cafeId(entry.id.toHexString())
+                        .cafeName(entry.name)
+                        .dish(data.dishName[dish])
+                        .category(data.dishCategory[dish])
+                        // Stored as float; round away the widening noise (5.9f -> 5.900000095)
+                        .price(Math.round(data.dishPrice[dish] * 100.0) / 100.0)
+                        .distanceInKm(distanceInKm)
+                        .build());
+                if (hits.size() == limit) {
+                    break;
+                }
+            }
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static boolean containsAll(List<Posting> postings, Posting driver, int dish) {
+        for (Posting posting : postings) {
+            if (posting != driver && !posting.contains(dish)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    protected void rebuild() {
+        long started = System.nanoTime();
+        Data fresh = new Data();
+        int skipped = 0;
+        for (Document cafe : mongoTemplate.getCollection("cafes")
+                .find(Filters.ne("externalReferences.redbookId", null))
+                .projection(CAFE_FIELDS)
+                .batchSize(BATCH_SIZE)) {
+            try {
+                fresh.putCafe(cafe);
+            } catch (RuntimeException e) {
+                skipped++;
+                log.debug("Menu index skipped cafe {}", cafe.get("_id"), e);
+            }
+        }
+        for (Document poi : mongoTemplate.getCollection("cafe_rednote_pois")
+                .find(Filters.exists("menuHighlights.0"))
+                .projection(POI_FIELDS)
+                .batchSize(BATCH_SIZE)) {
+            try {
+                Integer cafe = fresh.linkPoi(poi);
+                if (cafe != null) {
+                    fresh.appendDishes(cafe, highlights(poi));
+                }
+            } catch (RuntimeException e) {
+                skipped++;
+                log.debug("Menu index skipped POI {}", poi.get("_id"), e);
+            }
+        }
+        if (skipped > 0) {
+            log.warn("Menu index skipped {} unreadable cafe and POI documents", skipped);
+        }
+        fresh.buildPostings();
+        lock.writeLock().lock();
+        try {
+            data = fresh;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Menu index built in {} ms: {} dishes, {} terms, {} cafes",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started), fresh.dishCount, fresh.terms.size(),
+                fresh.cafes.size());
+    }
+
+    @Override
+    protected void apply(CacheInvalidationEvent change) {
+        String id = change.getDocumentId();
+        if (id == null || !ObjectId.isValid(id)) {
+            return;
+        }
+        ObjectId objectId = new ObjectId(id);
+        if (change.getSource() == Source.CAFE) {
+            Document cafe = change.getOperation() == Operation.DELETE ? null
+                    : mongoTemplate.getCollection("cafes").find(Filters.eq("_id", objectId))
+                            .projection(CAFE_FIELDS).first();
+            String redbookId = cafe == null ? null : redbookId(cafe);
+            // Only this thread writes, so reading the current link without the lock is safe
+            List<Document> dishes = redbookId == null || redbookId.equals(data.redbookIdOf(objectId)) ? null
+                    : dishesOf(Filters.eq("redbookId", redbookId));
+            lock.writeLock().lock();
+            try {
+                data.updateCafe(objectId, cafe, redbookId, dishes);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } else {
+            Document poi = change.getOperation() == Operation.DELETE ? null
+                    : mongoTemplate.getCollection("cafe_rednote_pois").find(Filters.eq("_id", objectId))
+                            .projection(POI_FIELDS).first();
+            lock.writeLock().lock();
+            try {
+                data.updatePoi(id, poi);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private List<Document> dishesOf(Bson poiFilter) {
+        Document poi = mongoTemplate.getCollection("cafe_rednote_pois").find(poiFilter).projection(POI_FIELDS).first();
+        return poi == null ? List.of() : highlights(poi);
+    }
+
+    // Imported data: entries that aren't documents are skipped rather than failing the whole POI
+    private static List<Document> highlights(Document poi) {
+        if (!(poi.get("menuHighlights") instanceof List<?> entries)) {
+            return List.of();
+        }
+        List<Document> highlights = new ArrayList<>(entries.size());
+        for (Object entry : entries) {
+            if (entry instanceof Document highlight) {
+                highlights.add(highlight);
+            }
+        }
+        return highlights;
+    }
+
+    private static String redbookId(Document cafe) {
+        return cafe.get("externalReferences") instanceof Document references
+                && references.get("redbookId") instanceof String redbookId ? redbookId : null;
+    }
+
+    private static final class CafeEntry {
+
+        private final ObjectId id;
+        private String name;
+        private double latitude = Double.NaN;
+        private double longitude = Double.NaN;
+        private String redbookId;
+        private int[] dishes = new int[0];
+
+        private CafeEntry(ObjectId id) {
+            this.id = id;
+        }
+
+        private boolean hasLocation() {
+            return !Double.isNaN(latitude);
+        }
+
+        private void update(Document cafe) {
+            name = cafe.get("name") instanceof String value ? value : null;
+            List<?> coordinates = cafe.get("location") instanceof Document location
+                    && location.get("coordinates") instanceof List<?> list ? list : null;
+            if (coordinates != null && coordinates.size() == 2 && coordinates.get(0) instanceof Number lng
+                    && coordinates.get(1) instanceof Number lat) {
+                longitude = lng.doubleValue();
+                latitude = lat.doubleValue();
+            } else {
+                latitude = Double.NaN;
+                longitude = Double.NaN;
+            }
+        }
+    }
+
+    /**
+     * Dish ordinals sorted by price ({@code byPrice} / {@code prices}) and by value ({@code sorted}).
+     */
+    private record Posting(int[] byPrice, float[] prices, int[] sorted) {
+
+        static Posting of(int[] dishes, int count, float[] dishPrice) {
+            long[] keyed = new long[count];
+            for (int i = 0; i < count; i++) {
+                // Prices are never negative, so their float bits sort like the prices themselves
+                keyed[i] = ((long) Float.floatToIntBits(dishPrice[dishes[i]]) << 32) | dishes[i];
+            }
+            Arrays.sort(keyed);
+            int[] byPrice = new int[count];
+            float[] prices = new float[count];
+            for (int i = 0; i < count; i++) {
+                byPrice[i] = (int) keyed[i];
+                prices[i] = Float.intBitsToFloat((int) (keyed[i] >>> 32));
+            }
+            int[] sorted = Arrays.copyOf(dishes, count);
+            Arrays.sort(sorted);
+            return new Posting(byPrice, prices, sorted);
+        }
+
+        int size() {
+            return sorted.length;
+        }
+
+        boolean contains(int dish) {
+            return Arrays.binarySearch(sorted, dish) >= 0;
+        }
+
+        // First index with price >= min
+        int lowerBound(float min) {
+            int low = 0;
+            int high = prices.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (prices[mid] < min) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        // First index with price > max
+        int upperBound(float max) {
+            int low = 0;
+            int high = prices.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (prices[mid] <= max) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+
+    /**
+     * Index contents. Dish ordinals are append-only: a replaced dish keeps its slot (no posting
+     * refers to it any more) until the next rebuild.
+     */
+    private static final class Data {
+
+        private int[] dishCafe = new int[256];
+        private float[] dishPrice = new float[256];
+        private String[] dishName = new String[256];
+        private String[] dishCategory = new String[256];
+        private int dishCount;
+        private final List<CafeEntry> cafes = new ArrayList<>();
+        private final Map<ObjectId, Integer> cafeById = new HashMap<>();
+        private final Map<String, Integer> cafeByRedbookId = new HashMap<>();
+        // POI _id -> redbookId, for POI deletes, which only carry the _id
+        private final Map<String, String> redbookIdByPoi = new HashMap<>();
+        private final Map<String, Posting> terms = new HashMap<>();
+        private final Map<String, Posting> categories = new HashMap<>();
+
+        private int putCafe(Document cafe) {
+            ObjectId id = cafe.getObjectId("_id");
+            Integer ordinal = cafeById.get(id);
+            if (ordinal == null) {
+                ordinal = cafes.size();
+                cafes.add(new CafeEntry(id));
+                cafeById.put(id, ordinal);
+            }
+            CafeEntry entry = cafes.get(ordinal);
+            entry.update(cafe);
+            String redbookId = redbookId(cafe);
+            if (entry.redbookId != null && !entry.redbookId.equals(redbookId)) {
+                cafeByRedbookId.remove(entry.redbookId);
+            }
+            entry.redbookId = redbookId;
+            if (redbookId != null) {
+                cafeByRedbookId.put(redbookId, ordinal);
+            }
+            return ordinal;
+        }
+
+        private Integer linkPoi(Document poi) {
+            if (!(poi.get("redbookId") instanceof String redbookId)) {
+                return null;
+            }
+            redbookIdByPoi.put(poi.getObjectId("_id").toHexString(), redbookId);
+            return cafeByRedbookId.get(redbookId);
+        }
+
+        /**
+         * Full build only: adds dishes without touching postings; {@link #buildPostings} follows.
+         */
+        private int[] appendDishes(int cafe, List<Document> highlights) {
+            int[] added = new int[highlights.size()];
+            int count = 0;
+            for (Document highlight : highlights) {
+                if (!(highlight.get("name") instanceof String name) || name.isBlank()) {
+                    continue;
+                }
+                if (dishCount == dishCafe.length) {
+                    int capacity = dishCount * 2;
+                    dishCafe = Arrays.copyOf(dishCafe, capacity);
+                    dishPrice = Arrays.copyOf(dishPrice, capacity);
+                    dishName = Arrays.copyOf(dishName, capacity);
+                    dishCategory = Arrays.copyOf(dishCategory, capacity);
+                }
+                dishCafe[dishCount] = cafe;
+                dishPrice[dishCount] = highlight.get("price") instanceof Number price
+                        ? (float) Math.max(0, price.doubleValue()) : 0;
+                dishName[dishCount] = name;
+                dishCategory[dishCount] = highlight.get("category") instanceof String category ? category : null;
+                added[count++] = dishCount++;
+            }
+            int[] dishes = count == added.length ? added : Arrays.copyOf(added, count);
+            cafes.get(cafe).dishes = dishes;
+            return dishes;
+        }
+
+        private void buildPostings() {
+            Map<String, IntList> byTerm = new HashMap<>();
+            Map<String, IntList> byCategory = new HashMap<>();
+            for (CafeEntry cafe : cafes) {
+                for (int dish : cafe.dishes) {
+                    for (String term : MenuTerms.of(dishName[dish])) {
+                        byTerm.computeIfAbsent(term, t -> new IntList()).add(dish);
+                    }
+                    String category = MenuTerms.category(dishCategory[dish]);
+                    if (category != null) {
+                        byCategory.computeIfAbsent(category, c -> new IntList()).add(dish);
+                    }
+                }
+            }
+            byTerm.forEach((term, dishes) -> terms.put(term, Posting.of(dishes.values, dishes.size, dishPrice)));
+            byCategory.forEach((category, dishes) ->
+                    categories.put(category, Posting.of(dishes.values, dishes.size, dishPrice)));
+        }
+
+        private String redbookIdOf(ObjectId cafe) {
+            Integer ordinal = cafeById.get(cafe);
+            return ordinal == null ? null : cafes.get(ordinal).redbookId;
+        }
+
+        /**
+         * @param highlights the linked POI's dishes, or {@code null} when the link is unchanged
+         */
+        private void updateCafe(ObjectId id, Document cafe, String redbookId, List<Document> highlights) {
+            Integer ordinal = cafeById.get(id);
+            if (cafe == null || redbookId == null) {
+                if (ordinal != null) {
+                    CafeEntry entry = cafes.get(ordinal);
+                    replaceDishes(ordinal, List.of());
+                    if (entry.redbookId != null) {
+                        cafeByRedbookId.remove(entry.redbookId);
+                        entry.redbookId = null;
+                    }
+                }
+                return;
+            }
+            int cafeOrdinal = putCafe(cafe);
+            if (highlights != null) {
+                replaceDishes(cafeOrdinal, highlights);
+            }
+        }
+
+        private void updatePoi(String poiId, Document poi) {
+            String redbookId = poi != null && poi.get("redbookId") instanceof String value ? value : null;
+            String previous = redbookId == null ? redbookIdByPoi.remove(poiId) : redbookIdByPoi.put(poiId, redbookId);
+            if (previous != null && !previous.equals(redbookId) && cafeByRedbookId.containsKey(previous)) {
+                replaceDishes(cafeByRedbookId.get(previous), List.of());
+            }
+            if (redbookId != null && cafeByRedbookId.containsKey(redbookId)) {
+                replaceDishes(cafeByRedbookId.get(redbookId), highlights(poi));
+            }
+        }
+
+        /**
+         * Incremental path: swaps a cafe's dishes and rebuilds only the postings they appear in.
+         */
+        private void replaceDishes(int cafe, List<Document> highlights) {
+            int[] removed = cafes.get(cafe).dishes;
+            int[] added = appendDishes(cafe, highlights);
+            Set<Integer> gone = new HashSet<>();
+            for (int dish : removed) {
+                gone.add(dish);
+            }
+            Map<String, IntList> termChanges = new HashMap<>();
+            Map<String, IntList> categoryChanges = new HashMap<>();
+            for (int[] dishes : List.of(removed, added)) {
+                for (int dish : dishes) {
+                    for (String term : MenuTerms.of(dishName[dish])) {
+                        termChanges.computeIfAbsent(term, t -> new IntList());
+                    }
+                    String category = MenuTerms.category(dishCategory[dish]);
+                    if (category != null) {
+                        categoryChanges.computeIfAbsent(category, c -> new IntList());
+                    }
+                }
+            }
+            for (int dish : added) {
+                MenuTerms.of(dishName[dish]).forEach(term -> termChanges.get(term).add(dish));
+                String category = MenuTerms.category(dishCategory[dish]);
+                if (category != null) {
+                    categoryChanges.get(category).add(dish);
+                }
+            }
+            merge(terms, termChanges, gone);
+            merge(categories, categoryChanges, gone);
+        }
+
+        private void merge(Map<String, Posting> postings, Map<String, IntList> changes, Set<Integer> gone) {
+            changes.forEach((key, added) -> {
+                Posting current = postings.get(key);
+                IntList dishes = new IntList();
+                if (current != null) {
+                    for (int dish : current.sorted()) {
+                        if (!gone.contains(dish)) {
+                            dishes.add(dish);
+                        }
+                    }
+                }
+                for (int i = 0; i < added.size; i++) {
+                    dishes.add(added.values[i]);
+                }
+                if (dishes.size == 0) {
+                    postings.remove(key);
+                } else {
+                    postings.put(key, Posting.of(dishes.values, dishes.size, dishPrice));
+                }
+            });
+        }
+    }
+
+    private static final class IntList {
+
+        private int[] values = new int[8];
+        private int size;
+
+        private void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+}
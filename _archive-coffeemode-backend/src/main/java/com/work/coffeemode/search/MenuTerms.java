@@ -0,0 +1,72 @@
+package com.work.coffeemode.search;
+
+import java.text.Normalizer;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Turns dish names into index terms, the same way for indexing and for queries.
+ * <p>
+ * Text is NFKC-normalised and lower-cased. Latin runs become words, with a trailing plural
+ * {@code s} dropped ({@code lattes} and {@code latte} meet); Chinese runs, which have no word
+ * boundaries, become character bigrams, so {@code 拿铁} finds {@code 燕麦拿铁}. A query matches a
+ * dish when the dish has every one of the query's terms.
+ */
+final class MenuTerms {
+
+    private MenuTerms() {
+    }
+
+    static Set<String> of(String text) {
+        Set<String> terms = new LinkedHashSet<>();
+        if (text == null) {
+            return terms;
+        }
+        String folded = Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+        int[] codePoints = folded.codePoints().toArray();
+        int i = 0;
+        while (i < codePoints.length) {
+            int start = i;
+            if (isHan(codePoints[i])) {
+                while (i < codePoints.length && isHan(codePoints[i])) {
+                    i++;
+                }
+                if (i - start == 1) {
+                    terms.add(new String(codePoints, start, 1));
+                }
+                for (int j = start; j + 1 < i; j++) {
+                    terms.add(new String(codePoints, j, 2));
+                }
+            } else if (Character.isLetterOrDigit(codePoints[i])) {
+                while (i < codePoints.length && Character.isLetterOrDigit(codePoints[i]) && !isHan(codePoints[i])) {
+                    i++;
+                }
+                terms.add(word(new String(codePoints, start, i - start)));
+            } else {
+                i++;
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * Categories match as a whole ({@code "Coffee "} and {@code coffee} are the same category).
+     */
+    static String category(String category) {
+        if (category == null) {
+            return null;
+        }
+        String key = String.join(" ", of(category));
+        return key.isEmpty() ? null : key;
+    }
+
+    private static String word(String word) {
+        return word.length() > 3 && word.endsWith("s") && !word.endsWith("ss")
+                ? word.substring(0, word.length() - 1) : word;
+    }
+
+    private static boolean isHan(int codePoint) {
+        return Character.UnicodeScript.of(codePoint) == Character.UnicodeScript.HAN;
+    }
+}
@@ -0,0 +1,60 @@
+package com.work.coffeemode.security;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.firebase.FirebaseApp;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseAuthException;
+import com.google.firebase.auth.FirebaseToken;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Base64;
+
+@Component
+public class FirebaseIdTokenVerifier implements IdTokenVerifier {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final ObjectProvider<FirebaseApp> firebaseApp;
+
+    public FirebaseIdTokenVerifier(ObjectProvider<FirebaseApp> firebaseApp) {
+        this.firebaseApp = firebaseApp;
+    }
+
+    @Override
+    public VerifiedToken verify(String idToken) throws FirebaseAuthException {
+        // First call initializes the Firebase app (see FirebaseConfig)
+        FirebaseToken decodedToken = FirebaseAuth.getInstance(firebaseApp.getObject()).verifyIdToken(idToken);
+
+        FirebasePrincipal principal = FirebasePrincipal.builder()
+                .uid(decodedToken.getUid())
+                .email(decodedToken.getEmail())
+                .displayName(decodedToken.getName())
+                .picture(decodedToken.getPicture())
+                .build();
+        Object exp = decodedToken.getClaims().get("exp");
+        Instant expiresAt = exp instanceof Number n ? Instant.ofEpochSecond(n.longValue()) : Instant.now();
+        return new VerifiedToken(principal, expiresAt, keyId(idToken));
+    }
+
+    /**
+     * Reads {@code kid} from the JWT header without verifying anything; only used to group
+     * cached tokens by signing key.
+     */
+    static String keyId(String idToken) {
+        int dot = idToken.indexOf('.');
+        if (dot <= 0) {
+            return null;
+        }
+        try {
+            JsonNode header = MAPPER.readTree(Base64.getUrlDecoder().decode(idToken.substring(0, dot)));
+            JsonNode kid = header.get("kid");
+            return kid == null ? null : kid.asText();
+        } catch (IOException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
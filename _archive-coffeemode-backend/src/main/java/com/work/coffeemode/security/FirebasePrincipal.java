@@ -0,0 +1,26 @@
+package com.work.coffeemode.security;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import org.springframework.security.core.AuthenticatedPrincipal;
+
+/**
+ * Authenticated Firebase user, set as the Spring Security principal by {@link FirebaseTokenFilter}.
+ * Carries the profile claims from the ID token so user sync does not need another Firebase call.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+public class FirebasePrincipal implements AuthenticatedPrincipal {
+    private String uid;
+    private String email;
+    private String displayName;
+    private String picture;
+
+    // Spring Security's principal name is the Firebase UID
+    @Override
+    public String getName() {
+        return uid;
+    }
+}
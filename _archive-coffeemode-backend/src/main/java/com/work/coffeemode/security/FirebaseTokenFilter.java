@@ -1,29 +1,57 @@
 package com.work.coffeemode.security;
 
-import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseAuthException;
-import com.google.firebase.auth.FirebaseToken;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
 import java.util.ArrayList; // Using empty authorities for now
+import java.util.Set;
 
 @Component
+@Profile("!reactive")
 public class FirebaseTokenFilter extends OncePerRequestFilter {
 
     private static final Logger logger = LoggerFactory.getLogger(FirebaseTokenFilter.class);
     private static final String HEADER_NAME = "Authorization";
     private static final String TOKEN_PREFIX = "Bearer ";
+    private static final Set<String> SAFE_METHODS = Set.of("GET", "HEAD", "OPTIONS");
+
+    private static final AntPathRequestMatcher USER_ROUTES = new AntPathRequestMatcher("/api/users/**");
+    private static final AntPathRequestMatcher API_ROUTES = new AntPathRequestMatcher("/api/**");
+
+    private final VerifiedTokenCache tokenCache;
+    private final ObservationRegistry observationRegistry;
+
+    public FirebaseTokenFilter(VerifiedTokenCache tokenCache, ObservationRegistry observationRegistry) {
+        this.tokenCache = tokenCache;
+        this.observationRegistry = observationRegistry;
+    }
+
+    /**
+     * Public reads never look at the principal, so the token is only verified where an identity
+     * is actually used: the users API and any mutating API call.
+     */
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (USER_ROUTES.matches(request)) {
+            return false;
+        }
+        return SAFE_METHODS.contains(request.getMethod()) || !API_ROUTES.matches(request);
+    }
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
@@ -33,22 +61,16 @@ public class FirebaseTokenFilter extends OncePerRequestFilter {
 
         if (idToken != null) {
             try {
-                FirebaseToken decodedToken = FirebaseAuth.getInstance().verifyIdToken(idToken);
-                String uid = decodedToken.getUid();
-
-                // Here you could fetch user details from your database (e.g., MongoDB) using
-                // the UID
-                // to get roles/authorities.
-                // For now, we create a simple Authentication object with the UID as principal
-                // and empty authorities.
-
-                // You might want to create a custom UserDetails object holding the Firebase UID
-                // and other info.
-                // Example: UserDetails userDetails = new FirebaseUserDetails(uid,
-                // fetchedAuthorities);
+                // Cached by token digest; a miss falls through to full signature verification.
+                // Roles/authorities could later be fetched from the users collection by UID.
+                // Traced as auth.token.verify, so a slow key fetch shows up under the request's span
+                FirebasePrincipal principal = Observation.createNotStarted("auth.token.verify", observationRegistry)
+                        .observeChecked(() -> tokenCache.verify(idToken))
+                        .principal();
+                String uid = principal.getUid();
 
                 UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
-                        uid, // Use UID as principal, or a custom UserDetails object
+                        principal, // Firebase identity; getName() is the UID
                         null, // No credentials needed for token-based auth
                         new ArrayList<>() // Replace with actual authorities if fetched
                 );
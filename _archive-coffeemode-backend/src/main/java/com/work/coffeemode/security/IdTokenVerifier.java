@@ -0,0 +1,10 @@
+package com.work.coffeemode.security;
+
+import com.google.firebase.auth.FirebaseAuthException;
+
+/**
+ * Performs the full (signature + claims) verification of a bearer ID token.
+ */
+public interface IdTokenVerifier {
+    VerifiedToken verify(String idToken) throws FirebaseAuthException;
+}
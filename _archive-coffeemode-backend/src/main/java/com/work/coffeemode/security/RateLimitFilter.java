@@ -0,0 +1,98 @@
+package com.work.coffeemode.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.work.coffeemode.model.UnifiedResponse;
+import com.work.coffeemode.security.RateLimiter.Decision;
+import com.work.coffeemode.security.RateLimiter.RouteClass;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Sheds abusive traffic before it reaches MongoDB or Google. Runs after {@link FirebaseTokenFilter},
+ * so authenticated calls are limited per Firebase UID as well as per client IP; anonymous calls are
+ * limited per IP only. Rejected requests get a 429 with {@code Retry-After} in the usual envelope.
+ */
+@Component
+@Profile("!reactive")
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final Set<String> SAFE_METHODS = Set.of("GET", "HEAD", "OPTIONS");
+    private static final AntPathRequestMatcher API_ROUTES = new AntPathRequestMatcher("/api/**");
+    private static final AntPathRequestMatcher PLACES_ROUTES = new AntPathRequestMatcher("/api/google-maps/**");
+
+    private final RateLimiter rateLimiter;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+
+    public RateLimitFilter(RateLimiter rateLimiter, ObjectMapper objectMapper, MeterRegistry meterRegistry,
+            @Value("${coffeemode.rate-limit.enabled:true}") boolean enabled) {
+        this.rateLimiter = rateLimiter;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || !API_ROUTES.matches(request);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        RouteClass route = routeClass(request);
+        Decision decision = rateLimiter.tryAcquire(route, subjects(request));
+        if (decision.allowed()) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        meterRegistry.counter("coffeemode.ratelimit.rejected",
+                "route", route.name().toLowerCase(),
+                "backend", decision.local() ? "local" : "redis").increment();
+        long retryAfterSeconds = Math.max(1, (decision.retryAfterMillis() + 999) / 1000);
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(),
+                UnifiedResponse.error(HttpStatus.TOO_MANY_REQUESTS.value(),
+                        "Too many requests, retry in " + retryAfterSeconds + "s"));
+    }
+
+    private RouteClass routeClass(HttpServletRequest request) {
+        if (SAFE_METHODS.contains(request.getMethod())) {
+            return RouteClass.READ;
+        }
+        return PLACES_ROUTES.matches(request) ? RouteClass.RESOLVE : RouteClass.WRITE;
+    }
+
+    private List<String> subjects(HttpServletRequest request) {
+        List<String> subjects = new ArrayList<>(2);
+        // Behind a proxy this relies on server.forward-headers-strategy to surface the client address
+        subjects.add("ip:" + request.getRemoteAddr());
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof FirebasePrincipal principal) {
+            subjects.add("uid:" + principal.getUid());
+        }
+        return subjects;
+    }
+}
@@ -0,0 +1,144 @@
+package com.work.coffeemode.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * GCRA (Generic Cell Rate Algorithm) limiter shared by all replicas through Redis.
+ * <p>
+ * Each subject (a Firebase UID or a client IP) gets one key per {@link RouteClass} holding its
+ * theoretical arrival time; the Lua script checks and advances every key of a request atomically,
+ * so a request is either charged against all of its subjects or none. When Redis is unreachable
+ * the same algorithm runs against an in-process table. Local limits are per node, which is looser
+ * than the shared limit but still keeps a single client from draining the Places quota.
+ */
+@Slf4j
+@Component
+public class RateLimiter {
+
+    public enum RouteClass {
+        // POST /api/google-maps/** - each call can cost Places quota
+        RESOLVE(10, 5),
+        // Any other mutating /api/** call
+        WRITE(30, 10),
+        // GET /api/**
+        READ(300, 60);
+
+        private final int defaultPerMinute;
+        private final int defaultBurst;
+
+        RouteClass(int defaultPerMinute, int defaultBurst) {
+            this.defaultPerMinute = defaultPerMinute;
+            this.defaultBurst = defaultBurst;
+        }
+
+        String propertyPrefix() {
+            return "coffeemode.rate-limit." + name().toLowerCase() + ".";
+        }
+    }
+
+    public record Decision(boolean allowed, long retryAfterMillis, boolean local) {
+    }
+
+    private record Limit(long emissionMillis, long toleranceMillis) {
+    }
+
+    private static final String KEY_PREFIX = "coffeemode:rl:";
+    private static final Duration REDIS_RETRY_AFTER_FAILURE = Duration.ofSeconds(10);
+
+    private final StringRedisTemplate redisTemplate;
+    private final DefaultRedisScript<List> script;
+    private final Map<RouteClass, Limit> limits = new EnumMap<>(RouteClass.class);
+
+    // Key -> theoretical arrival time in ms, used only while Redis is unavailable
+    private final Cache<String, AtomicLong> localTats = Caffeine.newBuilder()
+            .maximumSize(100_000)
+            .expireAfterAccess(Duration.ofMinutes(10))
+            .build();
+    private volatile long redisDownUntil;
+
+    public RateLimiter(StringRedisTemplate redisTemplate, Environment environment) {
+        this.redisTemplate = redisTemplate;
+        this.script = new DefaultRedisScript<>();
+        this.script.setLocation(new ClassPathResource("scripts/gcra.lua"));
+        this.script.setResultType(List.class);
+        for (RouteClass route : RouteClass.values()) {
+            int perMinute = environment.getProperty(route.propertyPrefix() + "per-minute", Integer.class,
+                    route.defaultPerMinute);
+            int burst = environment.getProperty(route.propertyPrefix() + "burst", Integer.class, route.defaultBurst);
+            long emission = Math.max(1, 60_000L / Math.max(1, perMinute));
+            limits.put(route, new Limit(emission, emission * Math.max(0, burst - 1)));
+        }
+    }
+
+    /**
+     * Charges one request of the given class against every subject.
+     *
+     * @param subjects e.g. {@code uid:abc}, {@code ip:203.0.113.7}
+     */
+    public Decision tryAcquire(RouteClass route, List<String> subjects) {
+        Limit limit = limits.get(route);
+        List<String> keys = new ArrayList<>(subjects.size());
+        for (String subject : subjects) {
+            keys.add(KEY_PREFIX + route.name().toLowerCase() + ":" + subject);
+        }
+        if (System.currentTimeMillis() >= redisDownUntil) {
+            try {
+                return acquireRemote(keys, limit);
+            } catch (RuntimeException e) {
+                // Back off so a dead Redis doesn't add a connect timeout to every request
+                redisDownUntil = System.currentTimeMillis() + REDIS_RETRY_AFTER_FAILURE.toMillis();
+                log.warn("Rate limiting falling back to local limits for {}s: {}",
+                        REDIS_RETRY_AFTER_FAILURE.toSeconds(), e.getMessage());
+            }
+        }
+        return acquireLocal(keys, limit);
+    }
+
+    private Decision acquireRemote(List<String> keys, Limit limit) {
+        Object[] args = new Object[keys.size() * 2];
+        for (int i = 0; i < keys.size(); i++) {
+            args[2 * i] = Long.toString(limit.emissionMillis());
+            args[2 * i + 1] = Long.toString(limit.toleranceMillis());
+        }
+        List<?> result = redisTemplate.execute(script, keys, args);
+        if (result == null || result.size() < 2) {
+            throw new IllegalStateException("Unexpected rate limit script result: " + result);
+        }
+        boolean allowed = ((Number) result.get(0)).longValue() == 1;
+        return new Decision(allowed, ((Number) result.get(1)).longValue(), false);
+    }
+
+    private Decision acquireLocal(List<String> keys, Limit limit) {
+        long now = System.currentTimeMillis();
+        List<AtomicLong> tats = new ArrayList<>(keys.size());
+        long retryAfter = 0;
+        for (String key : keys) {
+            AtomicLong tat = localTats.get(key, k -> new AtomicLong(now));
+            tats.add(tat);
+            long allowAt = Math.max(tat.get(), now) - limit.toleranceMillis();
+            retryAfter = Math.max(retryAfter, allowAt - now);
+        }
+        if (retryAfter > 0) {
+            return new Decision(false, retryAfter, true);
+        }
+        // Not atomic across keys like the script; a concurrent overshoot of one request is acceptable
+        for (AtomicLong tat : tats) {
+            tat.accumulateAndGet(now, (current, t) -> Math.max(current, t) + limit.emissionMillis());
+        }
+        return new Decision(true, 0, true);
+    }
+}
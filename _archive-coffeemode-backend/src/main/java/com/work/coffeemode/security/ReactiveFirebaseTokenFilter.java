@@ -0,0 +1,86 @@
+package com.work.coffeemode.security;
+
+import com.google.firebase.auth.FirebaseAuthException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * {@link FirebaseTokenFilter} for the reactive profile, with the same rules: only mutating API
+ * calls are verified, and a bad token leaves the request anonymous rather than rejecting it.
+ * Cache hits are answered inline; a miss needs a signature check (and possibly a key fetch), so
+ * it runs on the bounded elastic scheduler instead of the event loop.
+ * <p>
+ * Not a bean: WebFlux would also install every {@link WebFilter} bean globally, so it is created
+ * by {@code ReactiveSecurityConfig} and only runs inside the security chain.
+ */
+@Slf4j
+public class ReactiveFirebaseTokenFilter implements WebFilter {
+
+    private static final String TOKEN_PREFIX = "Bearer ";
+    private static final Set<HttpMethod> SAFE_METHODS = Set.of(HttpMethod.GET, HttpMethod.HEAD, HttpMethod.OPTIONS);
+    private static final PathPattern API_ROUTES = PathPatternParser.defaultInstance.parse("/api/**");
+
+    private final VerifiedTokenCache tokenCache;
+
+    public ReactiveFirebaseTokenFilter(VerifiedTokenCache tokenCache) {
+        this.tokenCache = tokenCache;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        String idToken = extractToken(exchange);
+        if (idToken == null || SAFE_METHODS.contains(exchange.getRequest().getMethod())
+                || !API_ROUTES.matches(exchange.getRequest().getPath().pathWithinApplication())) {
+            return chain.filter(exchange);
+        }
+        // The chain completes empty, so pick the branch before running it: switchIfEmpty after
+        // the chain would run it a second time, anonymously, after every authenticated request
+        return verify(idToken)
+                .map(token -> Optional.of(
+                        new UsernamePasswordAuthenticationToken(token.principal(), null, List.of())))
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(authentication -> authentication
+                        .map(auth -> chain.filter(exchange)
+                                .contextWrite(ReactiveSecurityContextHolder.withAuthentication(auth)))
+                        .orElseGet(() -> chain.filter(exchange)));
+    }
+
+    private Mono<VerifiedToken> verify(String idToken) {
+        VerifiedToken cached = tokenCache.cached(idToken);
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+        return Mono.fromCallable(() -> tokenCache.verify(idToken))
+                .subscribeOn(Schedulers.boundedElastic())
+                .onErrorResume(FirebaseAuthException.class, e -> {
+                    log.warn("Firebase token verification failed: {}", e.getMessage());
+                    return Mono.empty();
+                })
+                .onErrorResume(e -> {
+                    log.error("Unexpected error during Firebase token verification", e);
+                    return Mono.empty();
+                });
+    }
+
+    private static String extractToken(ServerWebExchange exchange) {
+        String bearerToken = exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+        if (bearerToken != null && bearerToken.startsWith(TOKEN_PREFIX)) {
+            return bearerToken.substring(TOKEN_PREFIX.length());
+        }
+        return null;
+    }
+}
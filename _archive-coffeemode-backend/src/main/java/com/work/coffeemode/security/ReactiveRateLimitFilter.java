@@ -0,0 +1,107 @@
+package com.work.coffeemode.security;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.work.coffeemode.model.UnifiedResponse;
+import com.work.coffeemode.security.RateLimiter.Decision;
+import com.work.coffeemode.security.RateLimiter.RouteClass;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * {@link RateLimitFilter} for the reactive profile. The limiter's Redis round trip is blocking, so
+ * it is made on the bounded elastic scheduler. Created by {@code ReactiveSecurityConfig}, like
+ * {@link ReactiveFirebaseTokenFilter}.
+ */
+public class ReactiveRateLimitFilter implements WebFilter {
+
+    private static final Set<HttpMethod> SAFE_METHODS = Set.of(HttpMethod.GET, HttpMethod.HEAD, HttpMethod.OPTIONS);
+    private static final PathPattern API_ROUTES = PathPatternParser.defaultInstance.parse("/api/**");
+    private static final PathPattern PLACES_ROUTES = PathPatternParser.defaultInstance.parse("/api/google-maps/**");
+
+    private final RateLimiter rateLimiter;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+
+    public ReactiveRateLimitFilter(RateLimiter rateLimiter, ObjectMapper objectMapper, MeterRegistry meterRegistry,
+            boolean enabled) {
+        this.rateLimiter = rateLimiter;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        if (!enabled || !API_ROUTES.matches(exchange.getRequest().getPath().pathWithinApplication())) {
+            return chain.filter(exchange);
+        }
+        RouteClass route = routeClass(exchange);
+        return subjects(exchange)
+                .flatMap(subjects -> Mono.fromCallable(() -> rateLimiter.tryAcquire(route, subjects))
+                        .subscribeOn(Schedulers.boundedElastic()))
+                .flatMap(decision -> decision.allowed() ? chain.filter(exchange) : reject(exchange, route, decision));
+    }
+
+    private Mono<Void> reject(ServerWebExchange exchange, RouteClass route, Decision decision) {
+        meterRegistry.counter("coffeemode.ratelimit.rejected",
+                "route", route.name().toLowerCase(),
+                "backend", decision.local() ? "local" : "redis").increment();
+        long retryAfterSeconds = Math.max(1, (decision.retryAfterMillis() + 999) / 1000);
+        byte[] body;
+        try {
+            body = objectMapper.writeValueAsBytes(UnifiedResponse.error(HttpStatus.TOO_MANY_REQUESTS.value(),
+                    "Too many requests, retry in " + retryAfterSeconds + "s"));
+        } catch (JsonProcessingException e) {
+            return Mono.error(e);
+        }
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        return response.writeWith(Mono.fromSupplier(() -> response.bufferFactory().wrap(body)));
+    }
+
+    private RouteClass routeClass(ServerWebExchange exchange) {
+        if (SAFE_METHODS.contains(exchange.getRequest().getMethod())) {
+            return RouteClass.READ;
+        }
+        return PLACES_ROUTES.matches(exchange.getRequest().getPath().pathWithinApplication())
+                ? RouteClass.RESOLVE : RouteClass.WRITE;
+    }
+
+    private Mono<List<String>> subjects(ServerWebExchange exchange) {
+        List<String> subjects = new ArrayList<>(2);
+        // Behind a proxy this relies on server.forward-headers-strategy to surface the client address
+        InetSocketAddress remote = exchange.getRequest().getRemoteAddress();
+        subjects.add("ip:" + (remote != null && remote.getAddress() != null
+                ? remote.getAddress().getHostAddress() : "unknown"));
+        return ReactiveSecurityContextHolder.getContext()
+                .map(SecurityContext::getAuthentication)
+                .filter(authentication -> authentication.getPrincipal() instanceof FirebasePrincipal)
+                .map(authentication -> {
+                    subjects.add("uid:" + ((FirebasePrincipal) authentication.getPrincipal()).getUid());
+                    return subjects;
+                })
+                .defaultIfEmpty(subjects);
+    }
+}
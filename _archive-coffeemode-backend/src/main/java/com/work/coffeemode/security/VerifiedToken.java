@@ -0,0 +1,13 @@
+package com.work.coffeemode.security;
+
+import java.time.Instant;
+
+/**
+ * Result of a successful ID-token verification.
+ *
+ * @param principal the authenticated user
+ * @param expiresAt the token's own {@code exp}
+ * @param keyId     the {@code kid} of the signing key, used to drop cached tokens when a key is retired
+ */
+public record VerifiedToken(FirebasePrincipal principal, Instant expiresAt, String keyId) {
+}
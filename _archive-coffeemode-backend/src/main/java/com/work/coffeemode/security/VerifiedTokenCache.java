@@ -0,0 +1,137 @@
+package com.work.coffeemode.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.google.firebase.auth.FirebaseAuthException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache of successfully verified ID tokens, in front of {@link IdTokenVerifier}.
+ * <p>
+ * Keyed by the SHA-256 digest of the token so raw bearer tokens are never held in memory as keys.
+ * An entry lives until the earlier of the token's own {@code exp} and {@code revalidate-after}:
+ * the second bound forces a full re-verification against Google's current signing keys every few
+ * minutes, so a retired or revoked key stops being trusted quickly. When a verification fails
+ * because the token's {@code kid} is no longer a published key, every cached token signed with
+ * that key is evicted at once. Failed verifications are never cached.
+ */
+@Slf4j
+@Component
+public class VerifiedTokenCache {
+
+    private static final String UNKNOWN_KEY_MESSAGE = "does not correspond to a known public key";
+
+    private final IdTokenVerifier verifier;
+    private final Cache<String, VerifiedToken> tokens;
+    private final Timer verifySuccess;
+    private final Timer verifyFailure;
+    private final Counter keyRotationEvictions;
+
+    public VerifiedTokenCache(IdTokenVerifier verifier, MeterRegistry meterRegistry,
+            @Value("${coffeemode.security.token-cache.max-size:50000}") long maxSize,
+            @Value("${coffeemode.security.token-cache.revalidate-after:5m}") Duration revalidateAfter) {
+        this.verifier = verifier;
+        this.tokens = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new TokenExpiry(revalidateAfter))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, tokens, "firebase.idtoken");
+        this.verifySuccess = Timer.builder("firebase.idtoken.verify").tag("outcome", "success")
+                .register(meterRegistry);
+        this.verifyFailure = Timer.builder("firebase.idtoken.verify").tag("outcome", "failure")
+                .register(meterRegistry);
+        this.keyRotationEvictions = Counter.builder("firebase.idtoken.key.rotation.evictions")
+                .register(meterRegistry);
+    }
+
+    public VerifiedToken verify(String idToken) throws FirebaseAuthException {
+        VerifiedToken cached = cached(idToken);
+        if (cached != null) {
+            return cached;
+        }
+
+        long start = System.nanoTime();
+        VerifiedToken verified;
+        try {
+            verified = verifier.verify(idToken);
+        } catch (FirebaseAuthException e) {
+            verifyFailure.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            evictIfKeyRetired(idToken, e);
+            throw e;
+        }
+        verifySuccess.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        tokens.put(digest(idToken), verified);
+        return verified;
+    }
+
+    /**
+     * Cache lookup only, never verifies; lets non-blocking callers skip offloading on a hit.
+     *
+     * @return the still-valid cached verification, or {@code null}
+     */
+    public VerifiedToken cached(String idToken) {
+        VerifiedToken cached = tokens.getIfPresent(digest(idToken));
+        return cached != null && cached.expiresAt().isAfter(Instant.now()) ? cached : null;
+    }
+
+    private void evictIfKeyRetired(String idToken, FirebaseAuthException e) {
+        if (e.getMessage() == null || !e.getMessage().contains(UNKNOWN_KEY_MESSAGE)) {
+            return;
+        }
+        String kid = FirebaseIdTokenVerifier.keyId(idToken);
+        if (kid == null) {
+            return;
+        }
+        long before = tokens.estimatedSize();
+        tokens.asMap().values().removeIf(token -> kid.equals(token.keyId()));
+        long evicted = before - tokens.estimatedSize();
+        if (evicted > 0) {
+            keyRotationEvictions.increment(evicted);
+            log.info("Signing key {} retired; evicted {} cached tokens", kid, evicted);
+        }
+    }
+
+    private static String digest(String idToken) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(idToken.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 unavailable", e);
+        }
+    }
+
+    private record TokenExpiry(Duration revalidateAfter) implements Expiry<String, VerifiedToken> {
+
+        @Override
+        public long expireAfterCreate(String key, VerifiedToken value, long currentTime) {
+            long untilExp = Duration.between(Instant.now(), value.expiresAt()).toNanos();
+            return Math.max(0, Math.min(untilExp, revalidateAfter.toNanos()));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, VerifiedToken value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, VerifiedToken value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -8,12 +8,34 @@ import java.util.Optional;
 public interface CafeService {
     Cafe createCafe(Cafe cafe);
 
+    /**
+     * @param created false when an existing cafe was returned instead
+     */
+    record Creation(Cafe cafe, boolean created) {
+    }
+
+    /**
+     * Creates a cafe unless one already exists for its Google place, in which case that one is
+     * returned. Concurrent creates of the same place, on any replica, make a single write.
+     */
+    Creation createCafeIfAbsent(Cafe cafe);
+
     List<Cafe> findNearbyCafes(double longitude, double latitude, double radiusInKm);
 
     List<Cafe> getAllCafes();
 
     Cafe getCafeById(String id);
 
+    /**
+     * Current version of a cafe, read without loading the document.
+     */
+    long getCafeVersion(String id);
+
+    /**
+     * Opaque token that changes whenever a cafe is created, updated or deleted.
+     */
+    String getCafesListVersion();
+
     Cafe updateCafe(String id, Cafe cafe);
 
     void deleteCafe(String id);
@@ -0,0 +1,19 @@
+package com.work.coffeemode.service;
+
+import com.work.coffeemode.dto.cafe.CafeSyncResponse;
+
+public interface CafeSyncService {
+    /**
+     * Returns cafe changes (upserts and deletions) after a sync token, oldest first.
+     *
+     * @param since token from the previous response, or {@code null} for a full sync
+     * @param limit maximum number of changes in this page
+     * @return one page of changes and the token to continue from
+     */
+    CafeSyncResponse changesSince(String since, Integer limit);
+
+    /**
+     * Records a deletion so syncing clients drop the cafe. Called before the cafe is deleted.
+     */
+    void recordDeletion(String cafeId);
+}
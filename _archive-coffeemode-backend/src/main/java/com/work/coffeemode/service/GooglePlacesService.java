@@ -1,13 +1,20 @@
 package com.work.coffeemode.service;
 
+import com.google.maps.places.v1.Place;
+import com.work.coffeemode.cache.CacheInvalidationBus;
+import com.work.coffeemode.cache.CacheInvalidationEvent;
 import com.work.coffeemode.client.GooglePlacesClient;
 import com.work.coffeemode.dto.googlemaps.ResolvePlaceResponse;
 import com.work.coffeemode.model.Cafe;
+import com.work.coffeemode.model.CompressedPlaceDetails;
 import com.work.coffeemode.model.GooglePlacePOI;
 import com.work.coffeemode.repository.CafeRepository;
 import com.work.coffeemode.repository.GooglePlacePoiRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
 import org.springframework.stereotype.Service;
 
@@ -25,53 +32,88 @@ public class GooglePlacesService {
     private final GooglePlacesClient placesClient;
     private final GooglePlacePoiRepository poiRepository;
     private final CafeRepository cafeRepository;
-
+    private final CafeService cafeService;
+    private final CacheInvalidationBus invalidationBus;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Recorded as {@code places.resolve}, tagged with {@code outcome} (cache_hit when the place
+     * details were already stored, details_fetched, not_found or error) and {@code cafe} (existing
+     * or created), so the share of resolves that cost a details call is visible per instance.
+     */
     public ResolvePlaceResponse resolvePlaceFromMetadata(String title, String description, String url) {
-        String query = buildQuery(title, description);
-        log.info("Resolving placeId via text query: {}", query);
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
+        String cafeOutcome = "none";
+        try {
+            String query = buildQuery(title, description);
+            log.info("Resolving placeId via text query: {}", query);
+
+            String placeId = placesClient.findPlaceIdFromText(query);
+            if (placeId == null) {
+                outcome = "not_found";
+                throw new RuntimeException("No place candidates found for query: " + query);
+            }
 
-        String placeId = placesClient.findPlaceIdFromText(query);
-        if (placeId == null) {
-            throw new RuntimeException("No place candidates found for query: " + query);
-        }
+            // 优先从缓存（GooglePlacePOI）读取详情
+            Optional<GooglePlacePOI> cached = poiRepository.findByPlaceId(placeId);
+            GooglePlacePOI poi;
+            boolean skippedDetails;
+            if (cached.isPresent()) {
+                poi = cached.get();
+                skippedDetails = true;
+                log.info("Found cached place details for placeId={}", placeId);
+            } else {
+                Place place = placesClient.getPlaceDetails(placeId);
+                poi = mapDetailsToPoi(GooglePlacesClient.toDetailsMap(place), placeId);
+                poi.setRawDetails(CompressedPlaceDetails.of(place));
+                poi.setCreatedAt(LocalDateTime.now());
+                poi.setUpdatedAt(LocalDateTime.now());
+                try {
+                    poi = poiRepository.save(poi);
+                    invalidationBus.publish(CacheInvalidationEvent.upsert(
+                            CacheInvalidationEvent.Source.GOOGLE_PLACE_POI, poi.getStringId(), placeId));
+                    log.info("Stored place details cache for placeId={}", placeId);
+                } catch (DuplicateKeyException e) {
+                    // A concurrent resolve of the same place stored it first
+                    poi = poiRepository.findByPlaceId(placeId).orElseThrow(() -> e);
+                }
+                skippedDetails = false;
+            }
 
-        // 优先从缓存（GooglePlacePOI）读取详情
-        Optional<GooglePlacePOI> cached = poiRepository.findByPlaceId(placeId);
-        GooglePlacePOI poi;
-        boolean skippedDetails;
-        if (cached.isPresent()) {
-            poi = cached.get();
-            skippedDetails = true;
-            log.info("Found cached place details for placeId={}", placeId);
-        } else {
-            Map<String, Object> detailsResp = placesClient.getPlaceDetails(placeId);
-            poi = mapDetailsToPoi(detailsResp, placeId);
-            poi.setCreatedAt(LocalDateTime.now());
-            poi.setUpdatedAt(LocalDateTime.now());
-            poi = poiRepository.save(poi);
-            skippedDetails = false;
-            log.info("Stored place details cache for placeId={}", placeId);
-        }
+            // 基于 placeId 检查是否已有 Cafe；若不存在则从 POI 创建
+            Optional<Cafe> cafeOpt = cafeRepository.findByExternalReferencesGooglePlace(placeId);
+            Cafe cafe;
+            if (cafeOpt.isPresent()) {
+                cafe = cafeOpt.get();
+                cafeOutcome = "existing";
+            } else {
+                // Another replica may be resolving the same place right now
+                CafeService.Creation creation = cafeService.createCafeIfAbsent(mapPoiToCafe(poi));
+                cafe = creation.cafe();
+                cafeOutcome = creation.created() ? "created" : "existing";
+                if (creation.created()) {
+                    log.info("Created cafe from cached place details. cafeId={}, placeId={}", cafe.getStringId(),
+                            placeId);
+                }
+            }
 
-        // 基于 placeId 检查是否已有 Cafe；若不存在则从 POI 创建
-        Optional<Cafe> cafeOpt = cafeRepository.findByExternalReferencesGooglePlace(placeId);
-        Cafe cafe;
-        if (cafeOpt.isPresent()) {
-            cafe = cafeOpt.get();
-        } else {
-            cafe = mapPoiToCafe(poi);
-            cafe = cafeRepository.save(cafe);
-            log.info("Created cafe from cached place details. cafeId={}, placeId={}", cafe.getStringId(), placeId);
+            outcome = skippedDetails ? "cache_hit" : "details_fetched";
+            return ResolvePlaceResponse.builder()
+                    .placeId(placeId)
+                    .skippedDetails(skippedDetails)
+                    .cafe(cafe)
+                    .build();
+        } finally {
+            sample.stop(Timer.builder("places.resolve")
+                    .tag("outcome", outcome)
+                    .tag("cafe", cafeOutcome)
+                    .register(meterRegistry));
         }
-
-        return ResolvePlaceResponse.builder()
-                .placeId(placeId)
-                .skippedDetails(skippedDetails)
-                .cafe(cafe)
-                .build();
     }
 
-    private String buildQuery(String title, String description) {
+    // Package-private static for the benchmarks in src/jmh
+    static String buildQuery(String title, String description) {
         String t = title == null ? "" : title.trim();
         String d = description == null ? "" : description.trim();
         String q = (t + " " + d).trim();
@@ -81,7 +123,7 @@ public class GooglePlacesService {
         return q;
     }
 
-    private GooglePlacePOI mapDetailsToPoi(Map<String, Object> resp, String placeId) {
+    static GooglePlacePOI mapDetailsToPoi(Map<String, Object> resp, String placeId) {
         Map<String, Object> result = (Map<String, Object>) resp.getOrDefault("result", new HashMap<>());
         String name = asString(result.get("name"));
         String address = asString(result.get("formatted_address"));
@@ -132,7 +174,6 @@ public class GooglePlacesService {
                 .openingHours(openingHours)
                 .rating(rating)
                 .userRatingsTotal(userRatingsTotal)
-                .rawDetails(result)
                 .build();
     }
 
@@ -156,7 +197,7 @@ public class GooglePlacesService {
                 .build();
     }
 
-    private String asString(Object o) { return o == null ? null : o.toString(); }
-    private Double asDouble(Object o) { try { return o == null ? null : Double.valueOf(o.toString()); } catch (Exception e) { return null; } }
-    private Integer asInt(Object o) { try { return o == null ? null : Integer.valueOf(o.toString()); } catch (Exception e) { return null; } }
+    private static String asString(Object o) { return o == null ? null : o.toString(); }
+    private static Double asDouble(Object o) { try { return o == null ? null : Double.valueOf(o.toString()); } catch (Exception e) { return null; } }
+    private static Integer asInt(Object o) { try { return o == null ? null : Integer.valueOf(o.toString()); } catch (Exception e) { return null; } }
 }
\ No newline at end of file
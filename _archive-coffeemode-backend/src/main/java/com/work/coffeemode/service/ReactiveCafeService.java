@@ -0,0 +1,38 @@
+package com.work.coffeemode.service;
+
+import com.work.coffeemode.model.Cafe;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking form of {@link CafeService} for the reactive profile. Each method has the same
+ * semantics and errors as its blocking counterpart; collections are streamed as they are read.
+ */
+public interface ReactiveCafeService {
+    Mono<Cafe> createCafe(Cafe cafe);
+
+    /**
+     * @see CafeService#createCafeIfAbsent(Cafe)
+     */
+    Mono<CafeService.Creation> createCafeIfAbsent(Cafe cafe);
+
+    Flux<Cafe> findNearbyCafes(double longitude, double latitude, double radiusInKm);
+
+    Flux<Cafe> getAllCafes();
+
+    Mono<Cafe> getCafeById(String id);
+
+    /**
+     * @see CafeService#getCafeVersion(String)
+     */
+    Mono<Long> getCafeVersion(String id);
+
+    /**
+     * @see CafeService#getCafesListVersion()
+     */
+    Mono<String> getCafesListVersion();
+
+    Mono<Cafe> updateCafe(String id, Cafe cafe);
+
+    Mono<Void> deleteCafe(String id);
+}
@@ -0,0 +1,19 @@
+package com.work.coffeemode.service;
+
+import com.work.coffeemode.dto.cafe.CafeSyncResponse;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking form of {@link CafeSyncService}.
+ */
+public interface ReactiveCafeSyncService {
+    /**
+     * @see CafeSyncService#changesSince(String, Integer)
+     */
+    Mono<CafeSyncResponse> changesSince(String since, Integer limit);
+
+    /**
+     * @see CafeSyncService#recordDeletion(String)
+     */
+    Mono<Void> recordDeletion(String cafeId);
+}
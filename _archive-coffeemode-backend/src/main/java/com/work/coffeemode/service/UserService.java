@@ -2,29 +2,46 @@ package com.work.coffeemode.service;
 
 
 import com.work.coffeemode.dto.user.*;
+import com.work.coffeemode.model.User;
+import com.work.coffeemode.security.FirebasePrincipal;
 
 public interface UserService {
     /**
-     * Creates a new user.
+     * Creates the user record of an authenticated Firebase user, with the {@code USER} role.
      *
-     * @param request Protobuf message containing user details
+     * @param principal the verified Firebase identity the user is linked to
+     * @param request profile details; the token's email wins over the one given here
      * @return Response containing the created user information
      */
-    CreateUserResponse createUser(CreateUserRequest request);
+    CreateUserResponse createUser(FirebasePrincipal principal, CreateUserRequest request);
 
     /**
-     * Retrieves a user by ID.
+     * Retrieves a user by Firebase UID.
      *
-     * @param request Protobuf message containing the user ID
+     * @param request request carrying the Firebase UID
      * @return Response containing the user information if found
      */
     GetUserResponse getUser(GetUserRequest request);
 
     /**
-     * Lists users with pagination.
+     * Lists users ordered by creation, one keyset page at a time.
      *
-     * @param request Protobuf message containing pagination parameters
-     * @return Response containing the list of users for the requested page
+     * @param request cursor from the previous page and the page size
+     * @return Response containing the page and the cursor for the next one
      */
     ListUsersResponse listUsers(ListUsersRequest request);
+
+    /**
+     * Creates the user record for an authenticated Firebase user on first login, or refreshes the
+     * synced profile fields and {@code lastLoginAt} on later ones.
+     *
+     * @param principal the verified Firebase identity
+     * @return the stored user
+     */
+    User syncUser(FirebasePrincipal principal);
+
+    /**
+     * Whether the user record of an authenticated Firebase user has the {@code ADMIN} role.
+     */
+    boolean isAdmin(FirebasePrincipal principal);
 }
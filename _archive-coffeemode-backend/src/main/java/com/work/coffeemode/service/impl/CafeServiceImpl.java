@@ -1,12 +1,23 @@
 package com.work.coffeemode.service.impl;
 
+import com.work.coffeemode.cache.CacheInvalidationBus;
+import com.work.coffeemode.cache.CacheInvalidationEvent;
+import com.work.coffeemode.coordination.LeaseLock;
 import com.work.coffeemode.exception.CafeNotFoundException;
 import com.work.coffeemode.model.Cafe;
 import com.work.coffeemode.repository.CafeRepository;
 import com.work.coffeemode.service.CafeService;
+import com.work.coffeemode.service.CafeSyncService;
+import com.work.coffeemode.sync.ChangeSequence;
 import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
+import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
 import java.util.HashMap;
@@ -15,12 +26,57 @@ import java.util.Map;
 @Service
 public class CafeServiceImpl implements CafeService {
 
+    static final Duration CREATE_LEASE_TIME = Duration.ofSeconds(10);
+    static final Duration CREATE_MAX_WAIT = Duration.ofSeconds(3);
+
     @Autowired
     private CafeRepository cafeRepository;
 
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private CacheInvalidationBus invalidationBus;
+
+    @Autowired
+    private CafeSyncService cafeSyncService;
+
+    @Autowired
+    private ChangeSequence changeSequence;
+
+    @Autowired
+    private LeaseLock leaseLock;
+
     @Override
     public Cafe createCafe(Cafe cafe) {
-        return cafeRepository.save(cafe);
+        Cafe saved = cafeRepository.save(cafe);
+        invalidationBus.publish(
+                CacheInvalidationEvent.upsert(CacheInvalidationEvent.Source.CAFE, saved.getStringId(), null));
+        return saved;
+    }
+
+    @Override
+    public Creation createCafeIfAbsent(Cafe cafe) {
+        String placeId = cafe.getExternalReferences() != null ? cafe.getExternalReferences().getGooglePlace() : null;
+        if (placeId == null) {
+            return new Creation(createCafe(cafe), true);
+        }
+        // The lease turns a race into one write plus lookups; if it can't be had in time, the
+        // unique index on externalReferences.googlePlace still decides
+        try (LeaseLock.Lease lease = leaseLock.acquire("cafe:google-place:" + placeId, CREATE_LEASE_TIME,
+                CREATE_MAX_WAIT)) {
+            Optional<Cafe> existing = cafeRepository.findByExternalReferencesGooglePlace(placeId);
+            if (existing.isPresent()) {
+                return new Creation(existing.get(), false);
+            }
+            try {
+                return new Creation(createCafe(cafe), true);
+            } catch (DuplicateKeyException e) {
+                return cafeRepository.findByExternalReferencesGooglePlace(placeId)
+                        .map(winner -> new Creation(winner, false))
+                        .orElseThrow(() -> e);
+            }
+        }
     }
 
     @Override
@@ -46,6 +102,22 @@ public class CafeServiceImpl implements CafeService {
         return cafe.get();
     }
 
+    @Override
+    public long getCafeVersion(String id) {
+        if (!ObjectId.isValid(id)) {
+            throw new CafeNotFoundException();
+        }
+        Cafe cafe = cafeRepository.findVersionById(new ObjectId(id))
+                .orElseThrow(() -> new CafeNotFoundException());
+        return cafe.getVersion() != null ? cafe.getVersion() : 0;
+    }
+
+    @Override
+    public String getCafesListVersion() {
+        // Every create, update and delete takes a number from this sequence
+        return Long.toString(changeSequence.current(ChangeSequence.CAFES));
+    }
+
     @Override
     public Cafe updateCafe(String id, Cafe cafeDetails) {
         ObjectId objectId = new ObjectId(id);
@@ -59,12 +131,35 @@ public class CafeServiceImpl implements CafeService {
         cafe.setImages(cafeDetails.getImages());
         cafe.setWebsite(cafeDetails.getWebsite());
         cafe.setOpeningHours(cafeDetails.getOpeningHours());
-        return cafeRepository.save(cafe);
+        if (cafe.getVersion() == null) {
+            claimLegacyVersion(objectId);
+            cafe.setVersion(0L);
+        }
+        Cafe saved = cafeRepository.save(cafe);
+        invalidationBus.publish(CacheInvalidationEvent.upsert(CacheInvalidationEvent.Source.CAFE, id, null));
+        return saved;
+    }
+
+    /**
+     * Gives a cafe written before versioning {@code version} 0, unless a concurrent write already
+     * gave it one. Saved with a null {@code @Version}, it would be inserted as a new entity and
+     * fail on the duplicate id; with 0 the save is an ordinary versioned update.
+     */
+    private void claimLegacyVersion(ObjectId id) {
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(id).and("version").exists(false)),
+                Update.update("version", 0L), Cafe.class);
     }
 
     @Override
     public void deleteCafe(String id) {
         ObjectId objectId = new ObjectId(id);
+        if (!cafeRepository.existsById(objectId)) {
+            return;
+        }
+        // Tombstone first: if the delete never happens, sync clients drop a cafe the retried delete
+        // removes for good, rather than never hearing about a delete that did happen
+        cafeSyncService.recordDeletion(id);
         cafeRepository.deleteById(objectId);
+        invalidationBus.publish(CacheInvalidationEvent.delete(CacheInvalidationEvent.Source.CAFE, id));
     }
 }
\ No newline at end of file
@@ -0,0 +1,134 @@
+package com.work.coffeemode.service.impl;
+
+import com.work.coffeemode.dto.cafe.CafeSyncResponse;
+import com.work.coffeemode.exception.InvalidRequestException;
+import com.work.coffeemode.model.Cafe;
+import com.work.coffeemode.model.CafeTombstone;
+import com.work.coffeemode.repository.CafeRepository;
+import com.work.coffeemode.repository.CafeTombstoneRepository;
+import com.work.coffeemode.service.CafeSyncService;
+import com.work.coffeemode.sync.ChangeSequence;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Delta sync over the cafe change sequence.
+ * <p>
+ * A sequence number is taken just before a write reaches MongoDB, so a write holding a lower
+ * number can still be in flight when a reader already sees a higher one. To never skip such a
+ * write, the returned token only advances past changes older than the settle window; younger
+ * changes are returned anyway and simply delivered again on the next call.
+ */
+@Service
+public class CafeSyncServiceImpl implements CafeSyncService {
+
+    private static final int DEFAULT_LIMIT = 500;
+    private static final int MAX_LIMIT = 1000;
+
+    private final CafeRepository cafeRepository;
+    private final CafeTombstoneRepository tombstoneRepository;
+    private final ChangeSequence changeSequence;
+    private final Duration settleWindow;
+
+    public CafeSyncServiceImpl(CafeRepository cafeRepository, CafeTombstoneRepository tombstoneRepository,
+            ChangeSequence changeSequence,
+            @Value("${coffeemode.cafes.sync.settle-window:5s}") Duration settleWindow) {
+        this.cafeRepository = cafeRepository;
+        this.tombstoneRepository = tombstoneRepository;
+        this.changeSequence = changeSequence;
+        this.settleWindow = settleWindow;
+    }
+
+    @Override
+    public CafeSyncResponse changesSince(String since, Integer limit) {
+        long sinceSeq = parseToken(since);
+        int pageSize = pageSize(limit);
+        // One extra row from each side tells us whether another page exists
+        PageRequest page = PageRequest.of(0, pageSize + 1);
+        List<Cafe> cafes = cafeRepository.findByChangeSeqGreaterThanOrderByChangeSeqAsc(sinceSeq, page);
+        List<CafeTombstone> tombstones = tombstoneRepository
+                .findByChangeSeqGreaterThanOrderByChangeSeqAsc(sinceSeq, page);
+        return merge(sinceSeq, pageSize, cafes, tombstones, Instant.now().minus(settleWindow));
+    }
+
+    /**
+     * Interleaves up to {@code pageSize + 1} cafes and tombstones after {@code sinceSeq} into one
+     * page in change order. Shared with the reactive implementation, which fetches the same rows.
+     */
+    static CafeSyncResponse merge(long sinceSeq, int pageSize, List<Cafe> cafes, List<CafeTombstone> tombstones,
+            Instant settled) {
+        List<Cafe> upserts = new ArrayList<>();
+        List<String> deletedIds = new ArrayList<>();
+        long token = sinceSeq;
+        boolean tokenBlocked = false;
+        int c = 0;
+        int t = 0;
+        while (upserts.size() + deletedIds.size() < pageSize && (c < cafes.size() || t < tombstones.size())) {
+            boolean takeCafe = t >= tombstones.size()
+                    || (c < cafes.size() && cafes.get(c).getChangeSeq() < tombstones.get(t).getChangeSeq());
+            long seq;
+            Instant changedAt;
+            if (takeCafe) {
+                Cafe cafe = cafes.get(c++);
+                upserts.add(cafe);
+                seq = cafe.getChangeSeq();
+                changedAt = cafe.getUpdatedAt();
+            } else {
+                CafeTombstone tombstone = tombstones.get(t++);
+                deletedIds.add(tombstone.getStringId());
+                seq = tombstone.getChangeSeq();
+                changedAt = tombstone.getDeletedAt();
+            }
+            // Token stops at the first unsettled change; backfilled cafes have no timestamp and are settled
+            if (!tokenBlocked && (changedAt == null || changedAt.isBefore(settled))) {
+                token = seq;
+            } else {
+                tokenBlocked = true;
+            }
+        }
+        boolean remaining = c < cafes.size() || t < tombstones.size();
+
+        return CafeSyncResponse.builder()
+                .cafes(upserts)
+                .deletedIds(deletedIds)
+                .syncToken(Long.toString(token))
+                // If nothing settled yet, further pages would just repeat this one; poll later instead
+                .hasMore(remaining && token > sinceSeq)
+                .build();
+    }
+
+    @Override
+    public void recordDeletion(String cafeId) {
+        tombstoneRepository.save(CafeTombstone.builder()
+                .id(new ObjectId(cafeId))
+                .changeSeq(changeSequence.next(ChangeSequence.CAFES))
+                .deletedAt(Instant.now())
+                .build());
+    }
+
+    static int pageSize(Integer limit) {
+        return limit == null || limit <= 0 ? DEFAULT_LIMIT : Math.min(limit, MAX_LIMIT);
+    }
+
+    static long parseToken(String since) {
+        if (since == null || since.isBlank()) {
+            return 0;
+        }
+        try {
+            long seq = Long.parseLong(since);
+            if (seq < 0) {
+                throw new InvalidRequestException("Invalid sync token");
+            }
+            return seq;
+        } catch (NumberFormatException e) {
+            throw new InvalidRequestException("Invalid sync token");
+        }
+    }
+}
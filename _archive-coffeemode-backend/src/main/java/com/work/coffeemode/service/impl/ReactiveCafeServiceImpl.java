@@ -0,0 +1,166 @@
+package com.work.coffeemode.service.impl;
+
+import com.work.coffeemode.cache.CacheInvalidationBus;
+import com.work.coffeemode.cache.CacheInvalidationEvent;
+import com.work.coffeemode.coordination.LeaseLock;
+import com.work.coffeemode.exception.CafeNotFoundException;
+import com.work.coffeemode.model.Cafe;
+import com.work.coffeemode.repository.reactive.ReactiveCafeRepository;
+import com.work.coffeemode.service.CafeService.Creation;
+import com.work.coffeemode.service.ReactiveCafeService;
+import com.work.coffeemode.service.ReactiveCafeSyncService;
+import com.work.coffeemode.sync.ChangeSequence;
+import com.work.coffeemode.sync.ReactiveChangeSequence;
+import org.bson.types.ObjectId;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Optional;
+
+/**
+ * Mirrors {@link CafeServiceImpl} on the reactive driver.
+ */
+@Service
+@Profile("reactive")
+public class ReactiveCafeServiceImpl implements ReactiveCafeService {
+
+    private final ReactiveCafeRepository cafeRepository;
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final ReactiveCafeSyncService cafeSyncService;
+    private final ReactiveChangeSequence changeSequence;
+    private final CacheInvalidationBus invalidationBus;
+    private final LeaseLock leaseLock;
+
+    public ReactiveCafeServiceImpl(ReactiveCafeRepository cafeRepository, ReactiveMongoTemplate mongoTemplate,
+            ReactiveCafeSyncService cafeSyncService, ReactiveChangeSequence changeSequence,
+            CacheInvalidationBus invalidationBus, LeaseLock leaseLock) {
+        this.cafeRepository = cafeRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.cafeSyncService = cafeSyncService;
+        this.changeSequence = changeSequence;
+        this.invalidationBus = invalidationBus;
+        this.leaseLock = leaseLock;
+    }
+
+    @Override
+    public Mono<Cafe> createCafe(Cafe cafe) {
+        return cafeRepository.save(cafe)
+                .flatMap(saved -> publish(CacheInvalidationEvent.upsert(CacheInvalidationEvent.Source.CAFE,
+                        saved.getStringId(), null)).thenReturn(saved));
+    }
+
+    /**
+     * Same lease and re-check as {@link CafeServiceImpl#createCafeIfAbsent}. The lease is taken
+     * with the blocking Redis client, and may wait, so it is acquired and released on the
+     * bounded elastic scheduler.
+     */
+    @Override
+    public Mono<Creation> createCafeIfAbsent(Cafe cafe) {
+        String placeId = cafe.getExternalReferences() != null ? cafe.getExternalReferences().getGooglePlace() : null;
+        if (placeId == null) {
+            return createCafe(cafe).map(saved -> new Creation(saved, true));
+        }
+        return Mono.usingWhen(
+                Mono.fromCallable(() -> Optional.ofNullable(leaseLock.acquire("cafe:google-place:" + placeId,
+                                CafeServiceImpl.CREATE_LEASE_TIME, CafeServiceImpl.CREATE_MAX_WAIT)))
+                        .subscribeOn(Schedulers.boundedElastic()),
+                lease -> cafeRepository.findByExternalReferencesGooglePlace(placeId)
+                        .map(existing -> new Creation(existing, false))
+                        .switchIfEmpty(Mono.defer(() -> createCafe(cafe)
+                                .map(saved -> new Creation(saved, true))
+                                .onErrorResume(DuplicateKeyException.class, e -> cafeRepository
+                                        .findByExternalReferencesGooglePlace(placeId)
+                                        .map(winner -> new Creation(winner, false))
+                                        .switchIfEmpty(Mono.error(e))))),
+                lease -> Mono.fromRunnable(() -> lease.ifPresent(LeaseLock.Lease::close))
+                        .subscribeOn(Schedulers.boundedElastic()));
+    }
+
+    @Override
+    public Flux<Cafe> findNearbyCafes(double longitude, double latitude, double radiusInKm) {
+        // Convert kilometers to meters for MongoDB
+        return cafeRepository.findNearbyCafes(longitude, latitude, radiusInKm * 1000);
+    }
+
+    @Override
+    public Flux<Cafe> getAllCafes() {
+        return cafeRepository.findAll();
+    }
+
+    @Override
+    public Mono<Cafe> getCafeById(String id) {
+        return objectId(id)
+                .flatMap(cafeRepository::findById)
+                .switchIfEmpty(Mono.error(CafeNotFoundException::new));
+    }
+
+    @Override
+    public Mono<Long> getCafeVersion(String id) {
+        return objectId(id)
+                .flatMap(cafeRepository::findVersionById)
+                .switchIfEmpty(Mono.error(CafeNotFoundException::new))
+                .map(cafe -> cafe.getVersion() != null ? cafe.getVersion() : 0L);
+    }
+
+    @Override
+    public Mono<String> getCafesListVersion() {
+        // Every create, update and delete takes a number from this sequence
+        return changeSequence.current(ChangeSequence.CAFES).map(seq -> Long.toString(seq));
+    }
+
+    @Override
+    public Mono<Cafe> updateCafe(String id, Cafe cafeDetails) {
+        return getCafeById(id)
+                .flatMap(cafe -> {
+                    cafe.setName(cafeDetails.getName());
+                    cafe.setLocation(cafeDetails.getLocation());
+                    cafe.setAddress(cafeDetails.getAddress());
+                    cafe.setFeatures(cafeDetails.getFeatures());
+                    cafe.setImages(cafeDetails.getImages());
+                    cafe.setWebsite(cafeDetails.getWebsite());
+                    cafe.setOpeningHours(cafeDetails.getOpeningHours());
+                    if (cafe.getVersion() != null) {
+                        return cafeRepository.save(cafe);
+                    }
+                    // Written before versioning: see CafeServiceImpl#claimLegacyVersion
+                    cafe.setVersion(0L);
+                    return mongoTemplate.updateFirst(
+                                    Query.query(Criteria.where("_id").is(cafe.getId()).and("version").exists(false)),
+                                    Update.update("version", 0L), Cafe.class)
+                            .then(cafeRepository.save(cafe));
+                })
+                .flatMap(saved -> publish(CacheInvalidationEvent.upsert(CacheInvalidationEvent.Source.CAFE, id,
+                        null)).thenReturn(saved));
+    }
+
+    @Override
+    public Mono<Void> deleteCafe(String id) {
+        return objectId(id)
+                .filterWhen(cafeRepository::existsById)
+                // Tombstone first, as in CafeServiceImpl#deleteCafe
+                .flatMap(objectId -> cafeSyncService.recordDeletion(id)
+                        .then(cafeRepository.deleteById(objectId))
+                        .then(publish(CacheInvalidationEvent.delete(CacheInvalidationEvent.Source.CAFE, id))));
+    }
+
+    private static Mono<ObjectId> objectId(String id) {
+        return ObjectId.isValid(id) ? Mono.just(new ObjectId(id)) : Mono.empty();
+    }
+
+    /**
+     * The bus may forward to Redis with a blocking client, so it is kept off the event loop.
+     */
+    private Mono<Void> publish(CacheInvalidationEvent event) {
+        return Mono.fromRunnable(() -> invalidationBus.publish(event))
+                .subscribeOn(Schedulers.boundedElastic())
+                .then();
+    }
+}
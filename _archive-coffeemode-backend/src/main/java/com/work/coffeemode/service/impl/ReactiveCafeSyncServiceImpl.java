@@ -0,0 +1,67 @@
+package com.work.coffeemode.service.impl;
+
+import com.work.coffeemode.dto.cafe.CafeSyncResponse;
+import com.work.coffeemode.model.CafeTombstone;
+import com.work.coffeemode.repository.reactive.ReactiveCafeRepository;
+import com.work.coffeemode.repository.reactive.ReactiveCafeTombstoneRepository;
+import com.work.coffeemode.service.ReactiveCafeSyncService;
+import com.work.coffeemode.sync.ChangeSequence;
+import com.work.coffeemode.sync.ReactiveChangeSequence;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Same paging and settle-window rules as {@link CafeSyncServiceImpl}; the two queries run
+ * concurrently and the page is assembled by the shared merge.
+ */
+@Service
+@Profile("reactive")
+public class ReactiveCafeSyncServiceImpl implements ReactiveCafeSyncService {
+
+    private final ReactiveCafeRepository cafeRepository;
+    private final ReactiveCafeTombstoneRepository tombstoneRepository;
+    private final ReactiveChangeSequence changeSequence;
+    private final Duration settleWindow;
+
+    public ReactiveCafeSyncServiceImpl(ReactiveCafeRepository cafeRepository,
+            ReactiveCafeTombstoneRepository tombstoneRepository, ReactiveChangeSequence changeSequence,
+            @Value("${coffeemode.cafes.sync.settle-window:5s}") Duration settleWindow) {
+        this.cafeRepository = cafeRepository;
+        this.tombstoneRepository = tombstoneRepository;
+        this.changeSequence = changeSequence;
+        this.settleWindow = settleWindow;
+    }
+
+    @Override
+    public Mono<CafeSyncResponse> changesSince(String since, Integer limit) {
+        return Mono.defer(() -> {
+            long sinceSeq = CafeSyncServiceImpl.parseToken(since);
+            int pageSize = CafeSyncServiceImpl.pageSize(limit);
+            PageRequest page = PageRequest.of(0, pageSize + 1);
+            return Mono.zip(
+                            cafeRepository.findByChangeSeqGreaterThanOrderByChangeSeqAsc(sinceSeq, page).collectList(),
+                            tombstoneRepository.findByChangeSeqGreaterThanOrderByChangeSeqAsc(sinceSeq, page)
+                                    .collectList())
+                    .map(rows -> CafeSyncServiceImpl.merge(sinceSeq, pageSize, rows.getT1(), rows.getT2(),
+                            Instant.now().minus(settleWindow)));
+        });
+    }
+
+    @Override
+    public Mono<Void> recordDeletion(String cafeId) {
+        return changeSequence.next(ChangeSequence.CAFES)
+                .flatMap(seq -> tombstoneRepository.save(CafeTombstone.builder()
+                        .id(new ObjectId(cafeId))
+                        .changeSeq(seq)
+                        .deletedAt(Instant.now())
+                        .build()))
+                .then();
+    }
+}
@@ -1,63 +1,98 @@
 package com.work.coffeemode.service.impl;
 
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.work.coffeemode.cache.CacheInvalidationBus;
+import com.work.coffeemode.cache.CacheInvalidationEvent;
+import com.work.coffeemode.cache.CacheLoads;
 import com.work.coffeemode.dto.user.*;
+import com.work.coffeemode.exception.InvalidRequestException;
 import com.work.coffeemode.model.User;
+import com.work.coffeemode.repository.UserRepository;
+import com.work.coffeemode.security.FirebasePrincipal;
 import com.work.coffeemode.service.UserService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Implementation of the UserService interface.
  * <p>
- * This service provides functionality for user management operations:
- * - Creating users
- * - Retrieving users by ID
- * - Listing users with pagination
- * <p>
- * Note: This implementation uses an in-memory store for demonstration purposes.
- * In a production environment, you would typically use a database.
+ * Users live in the MongoDB {@code users} collection keyed by Firebase UID. Profile reads go
+ * through a bounded in-process cache; writes update it and publish an invalidation so other nodes
+ * drop their copy. Listing uses keyset pagination on {@code _id}, so no request scans or counts
+ * the whole collection.
  */
 @Service // Marks this class as a Spring service bean
 public class UserServiceImpl implements UserService {
 
-    // In-memory store for demonstration purposes
-    private final Map<Integer, User> users = new HashMap<>();
-
-    // Counter for generating unique user IDs
-    private final AtomicInteger idCounter = new AtomicInteger(1);
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private final UserRepository userRepository;
+    private final MongoTemplate mongoTemplate;
+    private final CacheInvalidationBus invalidationBus;
+
+    // Firebase UID -> user; only hits are cached, misses always go to MongoDB
+    private final AsyncCache<String, User> usersByUid;
+
+    public UserServiceImpl(UserRepository userRepository, MongoTemplate mongoTemplate,
+            CacheInvalidationBus invalidationBus, MeterRegistry meterRegistry,
+            @Value("${coffeemode.users.cache.max-size:10000}") long maxSize,
+            @Value("${coffeemode.users.cache.ttl:10m}") Duration ttl) {
+        this.userRepository = userRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.invalidationBus = invalidationBus;
+        this.usersByUid = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .executor(CacheLoads.EXECUTOR)
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, usersByUid, "users.uid");
+        invalidationBus.subscribe(CacheInvalidationEvent.Source.USER, this::onInvalidation);
+    }
 
     /**
-     * Creates a new user from the provided request data.
+     * Creates a new user from the provided request data. Roles other than {@code USER} are only
+     * ever granted in the database, never through the API.
      *
-     * @param request Protobuf message containing user details
+     * @param principal the verified Firebase identity
+     * @param request user details
      * @return CreateUserResponse containing the created user
      */
     @Override
-    public CreateUserResponse createUser(CreateUserRequest request) {
-        // Generate a new unique user ID
-        int userId = idCounter.getAndIncrement();
+    public CreateUserResponse createUser(FirebasePrincipal principal, CreateUserRequest request) {
         LocalDateTime now = LocalDateTime.now();
 
-        // Build a new User protobuf object with data from the request
         User user = User.builder()
-                .id(userId)
+                .firebaseUid(principal.getUid())
                 .name(request.getName())
-                .email(request.getEmail())
-                .role(request.getRole())
-                .createdAt(LocalDateTime.parse(now.toString()))
-                .updatedAt(LocalDateTime.parse(now.toString()))
+                .email(principal.getEmail() != null ? principal.getEmail() : request.getEmail())
+                .role(User.Role.USER)
+                .createdAt(now)
+                .updatedAt(now)
                 .build();
 
-        // Store the user in our in-memory map
-        users.put(userId, user);
+        try {
+            user = userRepository.insert(user);
+        } catch (DuplicateKeyException e) {
+            throw new InvalidRequestException("User already exists: " + principal.getUid());
+        }
+        cacheAndPublish(user);
 
-        // Build and return the response
         return CreateUserResponse.builder()
                 .user(user)
                 .success(true)
@@ -66,15 +101,17 @@ public class UserServiceImpl implements UserService {
     }
 
     /**
-     * Retrieves a user by ID.
+     * Retrieves a user by Firebase UID.
      *
-     * @param request Protobuf message containing the user ID to retrieve
+     * @param request request carrying the Firebase UID to retrieve
      * @return GetUserResponse containing the user if found
      */
     @Override
     public GetUserResponse getUser(GetUserRequest request) {
-        // Look up the user in our in-memory store
-        User user = users.get(request.getId());
+        String uid = request.getId();
+        User user = uid == null ? null
+                : CacheLoads.join(usersByUid.get(uid,
+                        key -> userRepository.findByFirebaseUid(key).orElse(null)));
 
         // If the user doesn't exist, return a "not found" response
         if (user == null) {
@@ -83,7 +120,6 @@ public class UserServiceImpl implements UserService {
                     .build();
         }
 
-        // Return the user in the response
         return GetUserResponse.builder()
                 .user(user)
                 .found(true)
@@ -91,36 +127,89 @@ public class UserServiceImpl implements UserService {
     }
 
     /**
-     * Lists users with pagination support.
+     * Lists users with keyset pagination.
      *
-     * @param request Protobuf message containing pagination parameters
-     * @return UserListResponse containing the paginated list of users
+     * @param request cursor and page size
+     * @return ListUsersResponse containing the page and the next cursor
      */
     @Override
     public ListUsersResponse listUsers(ListUsersRequest request) {
-        int page = request.getPage();
-        int pageSize = request.getPageSize();
+        int pageSize = Math.max(1, Math.min(request.getPageSize(), MAX_PAGE_SIZE));
+        // Fetch one extra row to learn whether another page exists without counting
+        PageRequest limit = PageRequest.of(0, pageSize + 1);
+
+        List<User> users;
+        if (request.getCursor() == null || request.getCursor().isBlank()) {
+            users = userRepository.findAllByOrderByIdAsc(limit);
+        } else if (ObjectId.isValid(request.getCursor())) {
+            users = userRepository.findByIdGreaterThanOrderByIdAsc(new ObjectId(request.getCursor()), limit);
+        } else {
+            throw new InvalidRequestException("Invalid cursor");
+        }
+
+        String nextCursor = null;
+        if (users.size() > pageSize) {
+            users = users.subList(0, pageSize);
+            nextCursor = users.get(pageSize - 1).getStringId();
+        }
+
+        return ListUsersResponse.builder()
+                .users(users)
+                .nextCursor(nextCursor)
+                .pageSize(pageSize)
+                .build();
+    }
 
-        // Get all users from our in-memory store
-        List<User> allUsers = new ArrayList<>(users.values());
-        int totalCount = allUsers.size();
+    @Override
+    public User syncUser(FirebasePrincipal principal) {
+        LocalDateTime now = LocalDateTime.now();
+        Update update = new Update()
+                .setOnInsert("createdAt", now)
+                .setOnInsert("role", User.Role.USER)
+                .set("updatedAt", now)
+                .set("lastLoginAt", now);
+        if (principal.getEmail() != null) {
+            update.set("email", principal.getEmail());
+        }
+        if (principal.getDisplayName() != null) {
+            update.set("name", principal.getDisplayName());
+        }
+        if (principal.getPicture() != null) {
+            update.set("profilePictureUrl", principal.getPicture());
+        }
 
-        // Calculate total pages
-        int totalPages = (int) Math.ceil((double) totalCount / pageSize);
+        // Single atomic upsert: concurrent first logins on different nodes converge on one document
+        User user = mongoTemplate.findAndModify(
+                Query.query(Criteria.where("firebaseUid").is(principal.getUid())),
+                update,
+                FindAndModifyOptions.options().upsert(true).returnNew(true),
+                User.class);
+        cacheAndPublish(user);
+        return user;
+    }
 
-        // Calculate the start and end indices for the requested page
-        int start = page * pageSize;
-        int end = Math.min(start + pageSize, totalCount);
+    @Override
+    public boolean isAdmin(FirebasePrincipal principal) {
+        User user = getUser(GetUserRequest.builder().id(principal.getUid()).build()).getUser();
+        return user != null && user.getRole() == User.Role.ADMIN;
+    }
 
-        // Get the subset of users for the requested page
-        List<User> pageUsers = (start < totalCount) ? allUsers.subList(start, end) : new ArrayList<>();
+    private void cacheAndPublish(User user) {
+        usersByUid.synchronous().put(user.getFirebaseUid(), user);
+        invalidationBus.publish(CacheInvalidationEvent.upsert(CacheInvalidationEvent.Source.USER,
+                user.getStringId(), user.getFirebaseUid()));
+    }
 
-        // Build and return the response with the paginated users
-        return ListUsersResponse.builder()
-                .users(pageUsers)
-                .totalCount(totalCount)
-                .page(page)
-                .totalPages(totalPages)
-                .build();
+    private void onInvalidation(CacheInvalidationEvent event) {
+        // Our own publish already cached the fresh copy
+        if (invalidationBus.getNodeId().equals(event.getOrigin())) {
+            return;
+        }
+        if (event.getNaturalKey() != null) {
+            usersByUid.synchronous().invalidate(event.getNaturalKey());
+        } else {
+            // Deletes and flushes only carry _id; user deletes are rare enough to drop everything
+            usersByUid.synchronous().invalidateAll();
+        }
     }
 }
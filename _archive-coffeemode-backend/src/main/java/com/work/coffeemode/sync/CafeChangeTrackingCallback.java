@@ -0,0 +1,35 @@
+package com.work.coffeemode.sync;
+
+import com.work.coffeemode.model.Cafe;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.core.Ordered;
+import org.springframework.data.mongodb.core.mapping.event.BeforeConvertCallback;
+import org.springframework.stereotype.Component;
+
+/**
+ * Stamps every cafe save with the next change sequence number, whichever code path performs it
+ * (CRUD endpoints, the Places resolver, ...). Runs after auditing so {@code updatedAt} and
+ * {@code changeSeq} describe the same write.
+ */
+@Component
+public class CafeChangeTrackingCallback implements BeforeConvertCallback<Cafe>, Ordered {
+
+    // Resolved on first save: the sequence needs the template, whose converter collects this callback
+    private final ObjectProvider<ChangeSequence> changeSequence;
+
+    public CafeChangeTrackingCallback(ObjectProvider<ChangeSequence> changeSequence) {
+        this.changeSequence = changeSequence;
+    }
+
+    @Override
+    public Cafe onBeforeConvert(Cafe cafe, String collection) {
+        cafe.setChangeSeq(changeSequence.getObject().next(ChangeSequence.CAFES));
+        return cafe;
+    }
+
+    @Override
+    public int getOrder() {
+        // AuditingEntityCallback runs at 100
+        return 200;
+    }
+}
@@ -0,0 +1,54 @@
+package com.work.coffeemode.sync;
+
+import org.bson.Document;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+/**
+ * Monotonic per-collection sequence numbers kept in the {@code counters} collection, one document
+ * per sequence: {@code {_id: "cafes", seq: 42}}. Every write that clients must sync takes a number
+ * from here, so "changed since N" is a single indexed range query.
+ */
+@Component
+public class ChangeSequence {
+
+    static final String COLLECTION = "counters";
+    public static final String CAFES = "cafes";
+
+    private final MongoTemplate mongoTemplate;
+
+    public ChangeSequence(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    public long next(String name) {
+        return reserve(name, 1);
+    }
+
+    /**
+     * Reserves {@code count} consecutive numbers.
+     *
+     * @return the last reserved number; the block is {@code [last - count + 1, last]}
+     */
+    public long reserve(String name, int count) {
+        Document counter = mongoTemplate.findAndModify(
+                Query.query(Criteria.where("_id").is(name)),
+                new Update().inc("seq", count),
+                FindAndModifyOptions.options().upsert(true).returnNew(true),
+                Document.class, COLLECTION);
+        return ((Number) counter.get("seq")).longValue();
+    }
+
+    /**
+     * Latest number handed out, or 0 if none.
+     */
+    public long current(String name) {
+        Document counter = mongoTemplate.findOne(Query.query(Criteria.where("_id").is(name)), Document.class,
+                COLLECTION);
+        return counter == null ? 0 : ((Number) counter.get("seq")).longValue();
+    }
+}
@@ -0,0 +1,39 @@
+package com.work.coffeemode.sync;
+
+import com.work.coffeemode.model.Cafe;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import org.springframework.data.mongodb.core.mapping.event.ReactiveBeforeConvertCallback;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reactive twin of {@link CafeChangeTrackingCallback}: {@code ReactiveMongoTemplate} only invokes
+ * reactive entity callbacks, so saves on the reactive stack are stamped here.
+ */
+@Component
+@Profile("reactive")
+public class ReactiveCafeChangeTrackingCallback implements ReactiveBeforeConvertCallback<Cafe>, Ordered {
+
+    // Resolved on first save: the sequence needs the template, whose converter collects this callback
+    private final ObjectProvider<ReactiveChangeSequence> changeSequence;
+
+    public ReactiveCafeChangeTrackingCallback(ObjectProvider<ReactiveChangeSequence> changeSequence) {
+        this.changeSequence = changeSequence;
+    }
+
+    @Override
+    public Publisher<Cafe> onBeforeConvert(Cafe cafe, String collection) {
+        return changeSequence.getObject().next(ChangeSequence.CAFES).map(seq -> {
+            cafe.setChangeSeq(seq);
+            return cafe;
+        });
+    }
+
+    @Override
+    public int getOrder() {
+        // ReactiveAuditingEntityCallback runs at 100
+        return 200;
+    }
+}
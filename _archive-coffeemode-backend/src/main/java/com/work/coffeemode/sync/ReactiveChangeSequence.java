@@ -0,0 +1,45 @@
+package com.work.coffeemode.sync;
+
+import org.bson.Document;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * {@link ChangeSequence} over the reactive driver, for writes made on the reactive stack. Both
+ * increment the same counter documents, so numbers stay unique across the two.
+ */
+@Component
+@Profile("reactive")
+public class ReactiveChangeSequence {
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    public ReactiveChangeSequence(ReactiveMongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    public Mono<Long> next(String name) {
+        return mongoTemplate.findAndModify(
+                        Query.query(Criteria.where("_id").is(name)),
+                        new Update().inc("seq", 1),
+                        FindAndModifyOptions.options().upsert(true).returnNew(true),
+                        Document.class, ChangeSequence.COLLECTION)
+                .map(counter -> ((Number) counter.get("seq")).longValue());
+    }
+
+    /**
+     * Latest number handed out, or 0 if none.
+     */
+    public Mono<Long> current(String name) {
+        return mongoTemplate.findOne(Query.query(Criteria.where("_id").is(name)), Document.class,
+                        ChangeSequence.COLLECTION)
+                .map(counter -> ((Number) counter.get("seq")).longValue())
+                .defaultIfEmpty(0L);
+    }
+}
@@ -0,0 +1,129 @@
+package com.work.coffeemode.tracing;
+
+import io.opentelemetry.exporter.logging.otlp.OtlpJsonLoggingSpanExporter;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+/**
+ * Appends exported spans to a local file as OTLP/JSON, one {@code ExportTraceServiceRequest} per
+ * line: the format the OpenTelemetry Collector's {@code otlpjsonfile} receiver reads, and easy to
+ * load into Jaeger or grep by trace id. Meant for local runs and load tests where no collector is
+ * available; the file is not rotated.
+ * <p>
+ * Encoding is done by {@link OtlpJsonLoggingSpanExporter}, so the output matches what the OTLP
+ * HTTP exporter would send, field for field. That exporter logs each {@code ResourceSpans} as a
+ * JSON line to its {@code java.util.logging} logger; the lines are captured on the exporting
+ * thread, kept out of the application log, and wrapped as a request.
+ */
+@Slf4j
+public class OtlpJsonFileSpanExporter implements SpanExporter {
+
+    // Strongly held: JUL only keeps weak references to loggers, and would lose the handler
+    private static final Logger ENCODER_LOG = Logger.getLogger(OtlpJsonLoggingSpanExporter.class.getName());
+    private static final ThreadLocal<List<String>> CAPTURED = new ThreadLocal<>();
+
+    static {
+        ENCODER_LOG.setUseParentHandlers(false);
+        ENCODER_LOG.setLevel(Level.INFO);
+        ENCODER_LOG.addHandler(new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                List<String> lines = CAPTURED.get();
+                if (lines != null) {
+                    lines.add(record.getMessage());
+                }
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+    }
+
+    private final SpanExporter encoder = OtlpJsonLoggingSpanExporter.create();
+    private final Path path;
+    private final OutputStream out;
+    private boolean closed;
+
+    public OtlpJsonFileSpanExporter(Path path) throws IOException {
+        this.path = path;
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        this.out = new BufferedOutputStream(Files.newOutputStream(path,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE), 64 * 1024);
+        log.info("Writing OTLP/JSON spans to {}", path.toAbsolutePath());
+    }
+
+    // Called from the batch span processor's single worker thread, but flush/shutdown may not be
+    @Override
+    public synchronized CompletableResultCode export(Collection<SpanData> spans) {
+        if (closed) {
+            return CompletableResultCode.ofFailure();
+        }
+        List<String> resourceSpans = new ArrayList<>();
+        CAPTURED.set(resourceSpans);
+        try {
+            encoder.export(spans);
+        } finally {
+            CAPTURED.remove();
+        }
+        if (resourceSpans.isEmpty()) {
+            return CompletableResultCode.ofSuccess();
+        }
+        try {
+            String line = "{\"resourceSpans\":[" + String.join(",", resourceSpans) + "]}\n";
+            out.write(line.getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            return CompletableResultCode.ofSuccess();
+        } catch (IOException e) {
+            log.warn("Failed to write {} spans to {}: {}", spans.size(), path, e.getMessage());
+            return CompletableResultCode.ofFailure();
+        }
+    }
+
+    @Override
+    public synchronized CompletableResultCode flush() {
+        try {
+            out.flush();
+            return CompletableResultCode.ofSuccess();
+        } catch (IOException e) {
+            return CompletableResultCode.ofFailure();
+        }
+    }
+
+    @Override
+    public synchronized CompletableResultCode shutdown() {
+        if (closed) {
+            return CompletableResultCode.ofSuccess();
+        }
+        closed = true;
+        try {
+            out.close();
+            return CompletableResultCode.ofSuccess();
+        } catch (IOException e) {
+            return CompletableResultCode.ofFailure();
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.work.coffeemode.tracing;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.ReadWriteSpan;
+import io.opentelemetry.sdk.trace.ReadableSpan;
+import io.opentelemetry.sdk.trace.SpanProcessor;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Tail-based sampling in front of the exporting span processor.
+ * <p>
+ * Every trace is recorded (the head sampler keeps all), but ended spans are held back per trace
+ * until the local root span ends. The whole trace is then forwarded to {@code delegate} if the
+ * root took at least {@code slowThreshold}, if any span in it ended with an error status, or for
+ * a random {@code keepRatio} of the rest as a baseline; otherwise it is dropped. Spans that end
+ * after their root (work that outlives the request) follow the decision already made for the
+ * trace.
+ * <p>
+ * A span whose parent is remote counts as a local root, so each service decides for its own part
+ * of a distributed trace. Pending traces are bounded in number and age; traces evicted before
+ * their root ends are dropped and counted. Each one holds at most {@code maxSpansPerTrace} spans;
+ * further spans still count towards the error check but are dropped and counted.
+ * <p>
+ * The root's decision and every child's lookup happen inside {@code compute} on the trace's
+ * pending entry, so a child ending while its root decides is either flushed with the trace or
+ * sees the decision; it never starts a new pending trace that nothing would flush.
+ */
+public class TailSamplingSpanProcessor implements SpanProcessor {
+
+    private final SpanProcessor delegate;
+    private final long slowThresholdNanos;
+    private final double keepRatio;
+    private final int maxSpansPerTrace;
+    // Trace id -> spans ended so far, waiting for the local root
+    private final Cache<String, PendingTrace> pending;
+    // Trace id -> whether it was exported, for spans that end after their root
+    private final Cache<String, Boolean> decided;
+    private final Counter keptSlow;
+    private final Counter keptError;
+    private final Counter keptBaseline;
+    private final Counter dropped;
+    private final Counter evicted;
+    private final Counter overflowSpans;
+
+    public TailSamplingSpanProcessor(SpanProcessor delegate, Duration slowThreshold, double keepRatio,
+            long maxPendingTraces, int maxSpansPerTrace, Duration maxTraceDuration, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.slowThresholdNanos = slowThreshold.toNanos();
+        this.keepRatio = keepRatio;
+        this.maxSpansPerTrace = maxSpansPerTrace;
+        this.evicted = decisionCounter(meterRegistry, "evicted");
+        this.pending = Caffeine.newBuilder()
+                .maximumSize(maxPendingTraces)
+                .expireAfterWrite(maxTraceDuration)
+                .removalListener((String traceId, PendingTrace trace, RemovalCause cause) -> {
+                    if (cause.wasEvicted()) {
+                        evicted.increment();
+                    }
+                })
+                .build();
+        this.decided = Caffeine.newBuilder()
+                .maximumSize(maxPendingTraces)
+                .expireAfterWrite(maxTraceDuration)
+                .build();
+        this.keptSlow = decisionCounter(meterRegistry, "slow");
+        this.keptError = decisionCounter(meterRegistry, "error");
+        this.keptBaseline = decisionCounter(meterRegistry, "baseline");
+        this.dropped = decisionCounter(meterRegistry, "dropped");
+        this.overflowSpans = Counter.builder("tracing.tail.overflow.spans")
+                .description("Spans dropped because their pending trace already held the maximum")
+                .register(meterRegistry);
+    }
+
+    private static Counter decisionCounter(MeterRegistry meterRegistry, String decision) {
+        return Counter.builder("tracing.tail.traces")
+                .description("Traces by tail-sampling decision")
+                .tag("decision", decision)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void onStart(Context parentContext, ReadWriteSpan span) {
+    }
+
+    @Override
+    public boolean isStartRequired() {
+        return false;
+    }
+
+    @Override
+    public void onEnd(ReadableSpan span) {
+        SpanContext context = span.getSpanContext();
+        if (!context.isSampled()) {
+            return;
+        }
+        String traceId = context.getTraceId();
+        boolean error = span.toSpanData().getStatus().getStatusCode() == StatusCode.ERROR;
+        SpanContext parent = span.getParentSpanContext();
+        if (parent.isValid() && !parent.isRemote()) {
+            onChildEnd(traceId, span, error);
+        } else {
+            onRootEnd(traceId, span, error);
+        }
+    }
+
+    private void onChildEnd(String traceId, ReadableSpan span, boolean error) {
+        // Set when the root already decided; decisions are made inside compute on the same key
+        Boolean[] decision = new Boolean[1];
+        pending.asMap().compute(traceId, (id, trace) -> {
+            if (trace == null) {
+                decision[0] = decided.getIfPresent(id);
+                if (decision[0] != null) {
+                    return null;
+                }
+                trace = new PendingTrace();
+            }
+            if (trace.spans.size() < maxSpansPerTrace) {
+                trace.spans.add(span);
+            } else {
+                overflowSpans.increment();
+            }
+            trace.error |= error;
+            return trace;
+        });
+        if (Boolean.TRUE.equals(decision[0])) {
+            delegate.onEnd(span);
+        }
+    }
+
+    private void onRootEnd(String traceId, ReadableSpan span, boolean error) {
+        PendingTrace[] removed = new PendingTrace[1];
+        boolean[] keep = new boolean[1];
+        pending.asMap().compute(traceId, (id, trace) -> {
+            removed[0] = trace;
+            keep[0] = decide(span, error || (trace != null && trace.error));
+            decided.put(id, keep[0]);
+            return null;
+        });
+        if (keep[0]) {
+            if (removed[0] != null) {
+                removed[0].spans.forEach(delegate::onEnd);
+            }
+            delegate.onEnd(span);
+        }
+    }
+
+    private boolean decide(ReadableSpan root, boolean error) {
+        if (root.getLatencyNanos() >= slowThresholdNanos) {
+            keptSlow.increment();
+            return true;
+        }
+        if (error) {
+            keptError.increment();
+            return true;
+        }
+        if (ThreadLocalRandom.current().nextDouble() < keepRatio) {
+            keptBaseline.increment();
+            return true;
+        }
+        dropped.increment();
+        return false;
+    }
+
+    @Override
+    public boolean isEndRequired() {
+        return true;
+    }
+
+    @Override
+    public CompletableResultCode forceFlush() {
+        return delegate.forceFlush();
+    }
+
+    @Override
+    public CompletableResultCode shutdown() {
+        pending.invalidateAll();
+        return delegate.shutdown();
+    }
+
+    private static final class PendingTrace {
+        // Only touched inside ConcurrentMap.compute / after removal
+        private final List<ReadableSpan> spans = new ArrayList<>();
+        private boolean error;
+    }
+}
@@ -0,0 +1,34 @@
+-- Generic Cell Rate Algorithm over one or more keys, all-or-nothing.
+-- KEYS[i]           theoretical arrival time (TAT) key, milliseconds
+-- ARGV[2i-1]        emission interval in ms (window / limit)
+-- ARGV[2i]          burst tolerance in ms (emission interval * burst)
+-- Returns {allowed (1|0), retry_after_ms}
+-- Redis' clock is used so every replica agrees on "now".
+local t = redis.call('TIME')
+local now = tonumber(t[1]) * 1000 + math.floor(tonumber(t[2]) / 1000)
+
+local new_tats = {}
+local retry_after = 0
+for i, key in ipairs(KEYS) do
+  local emission = tonumber(ARGV[2 * i - 1])
+  local tolerance = tonumber(ARGV[2 * i])
+  local tat = tonumber(redis.call('GET', key)) or now
+  if tat < now then
+    tat = now
+  end
+  local new_tat = tat + emission
+  local allow_at = new_tat - tolerance - emission
+  if allow_at > now then
+    retry_after = math.max(retry_after, allow_at - now)
+  end
+  new_tats[i] = new_tat
+end
+
+if retry_after > 0 then
+  return {0, retry_after}
+end
+
+for i, key in ipairs(KEYS) do
+  redis.call('SET', key, new_tats[i], 'PX', math.max(1, new_tats[i] - now))
+end
+return {1, 0}
@@ -0,0 +1,15 @@
+-- Stores the outcome of an idempotent request, unless a holder with a newer fencing token has
+-- already stored one (our lease expired mid-request and the retry went ahead).
+-- KEYS[1]           idempotency record (hash)
+-- ARGV[1]           fencing token of the caller's lease
+-- ARGV[2]           record time to live in ms
+-- ARGV[3..]         field, value pairs
+-- Returns 1 if stored, 0 if a newer token won
+local fence = tonumber(redis.call('HGET', KEYS[1], 'fence'))
+if fence and fence > tonumber(ARGV[1]) then
+  return 0
+end
+redis.call('DEL', KEYS[1])
+redis.call('HSET', KEYS[1], 'fence', ARGV[1], unpack(ARGV, 3))
+redis.call('PEXPIRE', KEYS[1], ARGV[2])
+return 1
@@ -0,0 +1,14 @@
+-- Takes a lease if nobody holds it and hands out the next fencing token.
+-- KEYS[1]           lease key, holding the owner id while held
+-- KEYS[2]           fencing counter for the lease; kept ARGV[3] ms past the last acquisition, so
+--                   tokens only grow while anything written with them may still be around
+-- ARGV[1]           owner id (random per acquisition)
+-- ARGV[2]           lease time in ms
+-- ARGV[3]           fencing counter retention in ms
+-- Returns the fencing token, or 0 if the lease is held by someone else
+if redis.call('SET', KEYS[1], ARGV[1], 'NX', 'PX', ARGV[2]) then
+  local token = redis.call('INCR', KEYS[2])
+  redis.call('PEXPIRE', KEYS[2], ARGV[3])
+  return token
+end
+return 0
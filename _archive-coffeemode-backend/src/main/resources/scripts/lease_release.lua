@@ -0,0 +1,9 @@
+-- Releases a lease only if it is still held by the caller, so a holder whose lease expired
+-- cannot release its successor's.
+-- KEYS[1]           lease key
+-- ARGV[1]           owner id
+-- Returns 1 if released, 0 if the lease had expired or changed hands
+if redis.call('GET', KEYS[1]) == ARGV[1] then
+  return redis.call('DEL', KEYS[1])
+end
+return 0
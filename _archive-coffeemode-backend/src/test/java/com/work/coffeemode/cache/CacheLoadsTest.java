@@ -0,0 +1,48 @@
+package com.work.coffeemode.cache;
+
+import com.work.coffeemode.exception.CafeNotFoundException;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CacheLoadsTest {
+
+    @Test
+    void loadsRunOnVirtualThreads() {
+        CompletableFuture<Boolean> virtual = CompletableFuture.supplyAsync(
+                () -> Thread.currentThread().isVirtual(), CacheLoads.EXECUTOR);
+
+        assertThat(CacheLoads.join(virtual)).isTrue();
+    }
+
+    @Test
+    void loaderExceptionIsRethrownUnwrapped() {
+        CafeNotFoundException notFound = new CafeNotFoundException();
+        CompletableFuture<String> load = CompletableFuture.supplyAsync(() -> {
+            throw notFound;
+        }, CacheLoads.EXECUTOR);
+
+        assertThatThrownBy(() -> CacheLoads.join(load)).isSameAs(notFound);
+    }
+
+    @Test
+    void loaderErrorIsRethrownUnwrapped() {
+        StackOverflowError error = new StackOverflowError();
+
+        assertThatThrownBy(() -> CacheLoads.join(CompletableFuture.failedFuture(error))).isSameAs(error);
+    }
+
+    @Test
+    void checkedCauseStaysWrapped() {
+        IOException io = new IOException("connection reset");
+
+        assertThatThrownBy(() -> CacheLoads.join(CompletableFuture.failedFuture(io)))
+                .isInstanceOf(CompletionException.class)
+                .hasCause(io);
+    }
+}
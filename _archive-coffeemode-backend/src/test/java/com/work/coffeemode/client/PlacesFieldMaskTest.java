@@ -0,0 +1,32 @@
+package com.work.coffeemode.client;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PlacesFieldMaskTest {
+
+    @Test
+    void eachCallTypeSendsItsMaskAsMetadata() {
+        assertThat(PlacesFieldMask.SEARCH_IDS.context().getExtraHeaders())
+                .containsEntry("x-goog-fieldmask", List.of("places.id"));
+        assertThat(PlacesFieldMask.SEARCH_LOCATIONS.context().getExtraHeaders())
+                .containsEntry("x-goog-fieldmask", List.of("places.location"));
+        assertThat(PlacesFieldMask.DETAILS_ALL.context().getExtraHeaders())
+                .containsEntry("x-goog-fieldmask", List.of("*"));
+    }
+
+    @Test
+    void contextIsBuiltOnceAndShared() {
+        assertThat(PlacesFieldMask.SEARCH_IDS.context()).isSameAs(PlacesFieldMask.SEARCH_IDS.context());
+    }
+
+    @Test
+    void masksCarryNoOtherHeaders() {
+        for (PlacesFieldMask mask : PlacesFieldMask.values()) {
+            assertThat(mask.context().getExtraHeaders()).containsOnlyKeys("x-goog-fieldmask");
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.work.coffeemode.controller;
+
+import com.work.coffeemode.cache.CafeResponseCache;
+import com.work.coffeemode.cache.CafeResponseCache.CachedCafeResponse;
+import com.work.coffeemode.config.ProtobufEnvelopeHttpMessageConverter;
+import com.work.coffeemode.exception.GlobalExceptionHandler;
+import com.work.coffeemode.exception.ServiceUnavailableException;
+import com.work.coffeemode.model.Cafe;
+import com.work.coffeemode.recommend.SimilarCafeIndex;
+import com.work.coffeemode.service.CafeService;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.converter.ByteArrayHttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ExtendWith(MockitoExtension.class)
+class CafeControllerTest {
+
+    private static final String ID = new ObjectId().toHexString();
+    private static final String PROTOBUF = "application/x-protobuf";
+    private static final byte[] JSON = "{\"code\":200}".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] GZIP = {31, -117, 8};
+
+    @Mock
+    private CafeService cafeService;
+
+    @Mock
+    private CafeResponseCache cafeResponseCache;
+
+    @Mock
+    private SimilarCafeIndex similarCafeIndex;
+
+    @InjectMocks
+    private CafeController cafeController;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.standaloneSetup(cafeController)
+                .setMessageConverters(new ByteArrayHttpMessageConverter(), new MappingJackson2HttpMessageConverter(),
+                        new ProtobufEnvelopeHttpMessageConverter())
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+    }
+
+    @Test
+    void jsonDetailCarriesItsVersionTag() throws Exception {
+        when(cafeResponseCache.get(ID)).thenReturn(new CachedCafeResponse(3, JSON, GZIP));
+
+        mockMvc.perform(get("/api/cafes/{id}", ID))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + ID + "-v3-json\""))
+                .andExpect(header().string(HttpHeaders.VARY, "Accept, Accept-Encoding"))
+                .andExpect(content().bytes(JSON));
+    }
+
+    @Test
+    void gzipBodyHasItsOwnTag() throws Exception {
+        when(cafeResponseCache.get(ID)).thenReturn(new CachedCafeResponse(3, JSON, GZIP));
+
+        mockMvc.perform(get("/api/cafes/{id}", ID).header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + ID + "-v3-json-gz\""))
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andExpect(content().bytes(GZIP));
+    }
+
+    @Test
+    void cachedCafeRevalidatesWithoutMongo() throws Exception {
+        when(cafeResponseCache.getIfPresent(ID)).thenReturn(new CachedCafeResponse(3, JSON, GZIP));
+
+        mockMvc.perform(get("/api/cafes/{id}", ID).header(HttpHeaders.IF_NONE_MATCH, "\"" + ID + "-v3-json\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().exists(HttpHeaders.CACHE_CONTROL));
+        verifyNoInteractions(cafeService);
+    }
+
+    @Test
+    void uncachedCafeRevalidatesFromItsVersionAlone() throws Exception {
+        when(cafeService.getCafeVersion(ID)).thenReturn(3L);
+
+        mockMvc.perform(get("/api/cafes/{id}", ID).header(HttpHeaders.IF_NONE_MATCH, "\"" + ID + "-v3-json\""))
+                .andExpect(status().isNotModified());
+        verify(cafeResponseCache, never()).get(anyString());
+        verify(cafeService, never()).getCafeById(anyString());
+    }
+
+    @Test
+    void staleTagGetsTheCurrentBody() throws Exception {
+        when(cafeService.getCafeVersion(ID)).thenReturn(4L);
+        when(cafeResponseCache.get(ID)).thenReturn(new CachedCafeResponse(4, JSON, GZIP));
+
+        mockMvc.perform(get("/api/cafes/{id}", ID).header(HttpHeaders.IF_NONE_MATCH, "\"" + ID + "-v3-json\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + ID + "-v4-json\""));
+    }
+
+    @Test
+    void protobufDetailIsReadOnceAndTaggedWithThatVersion() throws Exception {
+        when(cafeService.getCafeById(ID)).thenReturn(cafe(5L));
+
+        mockMvc.perform(get("/api/cafes/{id}", ID).accept(PROTOBUF))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + ID + "-v5-pb\""))
+                .andExpect(content().contentTypeCompatibleWith(PROTOBUF));
+        verify(cafeService, never()).getCafeVersion(anyString());
+    }
+
+    @Test
+    void protobufRevalidationUsesTheLoadedVersion() throws Exception {
+        when(cafeService.getCafeById(ID)).thenReturn(cafe(5L));
+
+        mockMvc.perform(get("/api/cafes/{id}", ID).accept(PROTOBUF)
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"" + ID + "-v5-pb\""))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void protobufTagDiffersFromTheJsonTag() throws Exception {
+        when(cafeResponseCache.getIfPresent(ID)).thenReturn(new CachedCafeResponse(5, JSON, GZIP));
+        when(cafeService.getCafeById(ID)).thenReturn(cafe(5L));
+
+        mockMvc.perform(get("/api/cafes/{id}", ID).accept(PROTOBUF)
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"" + ID + "-v5-json\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + ID + "-v5-pb\""));
+    }
+
+    @Test
+    void listRevalidatesAgainstTheChangeSequence() throws Exception {
+        when(cafeService.getCafesListVersion()).thenReturn("42");
+
+        mockMvc.perform(get("/api/cafes").header(HttpHeaders.IF_NONE_MATCH, "\"list-42-json\""))
+                .andExpect(status().isNotModified());
+        verify(cafeService, never()).getAllCafes();
+    }
+
+    @Test
+    void similarCafesAreUnavailableWhileTheIndexLoads() throws Exception {
+        when(similarCafeIndex.similar(eq(ID), any()))
+                .thenThrow(new ServiceUnavailableException("Similar cafes are still loading", Duration.ofSeconds(10)));
+
+        mockMvc.perform(get("/api/cafes/{id}/similar", ID))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "10"))
+                .andExpect(jsonPath("$.code").value(503));
+    }
+
+    private static Cafe cafe(Long version) {
+        return Cafe.builder().id(new ObjectId(ID)).name("Blue Bottle").version(version).build();
+    }
+}
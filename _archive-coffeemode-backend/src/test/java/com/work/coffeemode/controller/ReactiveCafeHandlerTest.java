@@ -0,0 +1,226 @@
+package com.work.coffeemode.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.work.coffeemode.coordination.IdempotencyStore;
+import com.work.coffeemode.dto.cafe.CreateCafeRequest;
+import com.work.coffeemode.exception.CafeNotFoundException;
+import com.work.coffeemode.exception.ReactiveExceptionHandler;
+import com.work.coffeemode.exception.ServiceUnavailableException;
+import com.work.coffeemode.model.Cafe;
+import com.work.coffeemode.recommend.SimilarCafeIndex;
+import com.work.coffeemode.search.MenuIndex;
+import com.work.coffeemode.security.FirebasePrincipal;
+import com.work.coffeemode.service.CafeService.Creation;
+import com.work.coffeemode.service.ReactiveCafeService;
+import com.work.coffeemode.service.ReactiveCafeSyncService;
+import jakarta.validation.Validation;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReactiveCafeHandlerTest {
+
+    private static final String ID = new ObjectId().toHexString();
+
+    private final ReactiveCafeService cafeService = mock(ReactiveCafeService.class);
+    private final IdempotencyStore idempotencyStore = mock(IdempotencyStore.class);
+    private final SimilarCafeIndex similarCafeIndex = mock(SimilarCafeIndex.class);
+    private WebTestClient client;
+
+    @BeforeEach
+    void setUp() {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        ReactiveCafeHandler handler = new ReactiveCafeHandler(cafeService, mock(ReactiveCafeSyncService.class),
+                mock(MenuIndex.class), similarCafeIndex, idempotencyStore, objectMapper,
+                Validation.buildDefaultValidatorFactory().getValidator());
+        client = WebTestClient.bindToRouterFunction(RouterFunctions.route()
+                        .POST("/api/cafes", handler::createCafe)
+                        .GET("/api/cafes", handler::getAllCafes)
+                        .GET("/api/cafes/{id}", handler::getCafeById)
+                        .GET("/api/cafes/{id}/similar", handler::findSimilarCafes)
+                        .build())
+                .handlerStrategies(HandlerStrategies.builder()
+                        .exceptionHandler(new ReactiveExceptionHandler(objectMapper))
+                        .build())
+                // Signed in as alice, as ReactiveFirebaseTokenFilter would leave it
+                .webFilter((exchange, chain) -> chain.filter(exchange)
+                        .contextWrite(ReactiveSecurityContextHolder.withAuthentication(
+                                new UsernamePasswordAuthenticationToken(
+                                        FirebasePrincipal.builder().uid("alice").build(), null, List.of()))))
+                .build();
+    }
+
+    @Test
+    void detailCarriesTheVersionEtag() {
+        when(cafeService.getCafeVersion(ID)).thenReturn(Mono.just(3L));
+        when(cafeService.getCafeById(ID)).thenReturn(Mono.just(cafe("Blue Bottle", 3L)));
+
+        client.get().uri("/api/cafes/{id}", ID)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, HttpCaching.jsonEtag(ID + "-v3", false))
+                .expectBody().jsonPath("$.data.name").isEqualTo("Blue Bottle");
+    }
+
+    @Test
+    void matchingEtagIsAnsweredWithoutLoadingTheCafe() {
+        when(cafeService.getCafeVersion(ID)).thenReturn(Mono.just(3L));
+
+        client.get().uri("/api/cafes/{id}", ID)
+                .header(HttpHeaders.IF_NONE_MATCH, HttpCaching.jsonEtag(ID + "-v3", false))
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectHeader().exists(HttpHeaders.CACHE_CONTROL);
+        verify(cafeService, never()).getCafeById(anyString());
+    }
+
+    @Test
+    void unknownCafeIsNotFound() {
+        when(cafeService.getCafeVersion(ID)).thenReturn(Mono.error(CafeNotFoundException::new));
+
+        client.get().uri("/api/cafes/{id}", ID)
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody().jsonPath("$.code").isEqualTo(404);
+    }
+
+    @Test
+    void listIsStreamedInsideTheEnvelope() {
+        when(cafeService.getCafesListVersion()).thenReturn(Mono.just("7"));
+        when(cafeService.getAllCafes()).thenReturn(Flux.just(cafe("Blue Bottle", 1L), cafe("Harbour", 2L)));
+
+        client.get().uri("/api/cafes")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().exists(HttpHeaders.ETAG)
+                .expectBody()
+                .jsonPath("$.code").isEqualTo(200)
+                .jsonPath("$.data[*].name").isEqualTo(List.of("Blue Bottle", "Harbour"));
+    }
+
+    @Test
+    void emptyListIsStillAValidEnvelope() {
+        when(cafeService.getCafesListVersion()).thenReturn(Mono.just("7"));
+        when(cafeService.getAllCafes()).thenReturn(Flux.empty());
+
+        client.get().uri("/api/cafes")
+                .exchange()
+                .expectBody().json("{\"code\":200,\"message\":\"Success\",\"data\":[]}");
+    }
+
+    @Test
+    void listCanBeStreamedAsNdjson() {
+        when(cafeService.getCafesListVersion()).thenReturn(Mono.just("7"));
+        when(cafeService.getAllCafes()).thenReturn(Flux.just(cafe("Blue Bottle", 1L), cafe("Harbour", 2L)));
+
+        client.get().uri("/api/cafes")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBodyList(Cafe.class).hasSize(2);
+    }
+
+    @Test
+    void invalidCreateIsRejected() {
+        client.post().uri("/api/cafes")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"name\":\"\"}")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void existingCafeForThePlaceIsReturnedWith200() {
+        when(cafeService.createCafeIfAbsent(any()))
+                .thenReturn(Mono.just(new Creation(cafe("Blue Bottle", 1L), false)));
+
+        client.post().uri("/api/cafes")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(createRequest())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.message").isEqualTo("Cafe already exists");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void idempotencyKeyRunsTheCreateForTheSignedInCaller() {
+        when(cafeService.createCafeIfAbsent(any()))
+                .thenReturn(Mono.just(new Creation(cafe("Blue Bottle", 1L), true)));
+        when(idempotencyStore.execute(eq("create-cafe"), eq("uid:alice"), eq("key-1"), any(), any()))
+                .thenAnswer(invocation -> ((Supplier<IdempotencyStore.Outcome>) invocation.getArgument(4)).get());
+
+        client.post().uri("/api/cafes")
+                .header(IdempotencyStore.HEADER, "key-1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(createRequest())
+                .exchange()
+                .expectStatus().isCreated()
+                .expectHeader().valueEquals("Idempotent-Replayed", "false")
+                .expectBody().jsonPath("$.data.name").isEqualTo("Blue Bottle");
+    }
+
+    @Test
+    void replayedCreateReturnsTheStoredCafe() {
+        when(idempotencyStore.execute(eq("create-cafe"), eq("uid:alice"), eq("key-1"), any(), any()))
+                .thenReturn(new IdempotencyStore.Outcome(ID, 201, true));
+        when(cafeService.getCafeById(ID)).thenReturn(Mono.just(cafe("Blue Bottle", 1L)));
+
+        client.post().uri("/api/cafes")
+                .header(IdempotencyStore.HEADER, "key-1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(createRequest())
+                .exchange()
+                .expectStatus().isCreated()
+                .expectHeader().valueEquals("Idempotent-Replayed", "true")
+                .expectBody().jsonPath("$.data.id").isEqualTo(ID);
+        verify(cafeService, never()).createCafeIfAbsent(any());
+    }
+
+    @Test
+    void similarCafesAreUnavailableWhileTheIndexLoads() {
+        when(similarCafeIndex.similar(eq(ID), any()))
+                .thenThrow(new ServiceUnavailableException("Similar cafes are still loading", Duration.ofSeconds(10)));
+
+        client.get().uri("/api/cafes/{id}/similar", ID)
+                .exchange()
+                .expectStatus().isEqualTo(503)
+                .expectHeader().valueEquals(HttpHeaders.RETRY_AFTER, "10")
+                .expectBody().jsonPath("$.code").isEqualTo(503);
+    }
+
+    private static CreateCafeRequest createRequest() {
+        return CreateCafeRequest.builder()
+                .name("Blue Bottle")
+                .address("1 Nanjing Road")
+                .location(new CreateCafeRequest.Location(new double[] {121.47, 31.23}))
+                .externalReferences(new CreateCafeRequest.ExternalReferences("place-1", null))
+                .build();
+    }
+
+    private static Cafe cafe(String name, Long version) {
+        return Cafe.builder().id(new ObjectId(ID)).name(name).version(version).build();
+    }
+}
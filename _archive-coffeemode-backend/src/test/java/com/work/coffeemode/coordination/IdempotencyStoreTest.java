@@ -0,0 +1,129 @@
+package com.work.coffeemode.coordination;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.work.coffeemode.coordination.IdempotencyStore.Outcome;
+import com.work.coffeemode.exception.InvalidRequestException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IdempotencyStoreTest {
+
+    private static final Duration TTL = Duration.ofHours(24);
+    private static final Duration LEASE_TIME = Duration.ofSeconds(30);
+    private static final String RECORD = "coffeemode:idem:create-cafe:uid:alice:key-1";
+
+    private final AtomicInteger runs = new AtomicInteger();
+    private InMemoryRedis redis;
+    private IdempotencyStore store;
+
+    @BeforeEach
+    void setUp() {
+        redis = new InMemoryRedis();
+        store = new IdempotencyStore(redis.template(), new LeaseLock(redis.template()), new ObjectMapper(), TTL,
+                LEASE_TIME, Duration.ofMillis(50));
+    }
+
+    @Test
+    void retryReplaysTheFirstOutcomeWithoutRunningAgain() {
+        Outcome first = store.execute("create-cafe", "uid:alice", "key-1", body("Blue Bottle"), () -> created("c1"));
+        Outcome retry = store.execute("create-cafe", "uid:alice", "key-1", body("Blue Bottle"), () -> created("c2"));
+
+        assertThat(first).isEqualTo(new Outcome("c1", 201, false));
+        assertThat(retry).isEqualTo(new Outcome("c1", 201, true));
+        assertThat(runs).hasValue(1);
+        assertThat(redis.hash(RECORD)).containsEntry("fence", "1").containsEntry("resource", "c1");
+    }
+
+    @Test
+    void fingerprintIgnoresMapOrder() {
+        store.execute("create-cafe", "uid:alice", "key-1", Map.of("a", 1, "b", 2), () -> created("c1"));
+
+        Outcome retry = store.execute("create-cafe", "uid:alice", "key-1", Map.of("b", 2, "a", 1),
+                () -> created("c2"));
+
+        assertThat(retry.replayed()).isTrue();
+    }
+
+    @Test
+    void keyReusedForAnotherBodyIsRejected() {
+        store.execute("create-cafe", "uid:alice", "key-1", body("Blue Bottle"), () -> created("c1"));
+
+        assertThatThrownBy(() -> store.execute("create-cafe", "uid:alice", "key-1", body("Harbour Roasters"),
+                () -> created("c2")))
+                .isInstanceOf(InvalidRequestException.class);
+        assertThat(runs).hasValue(1);
+    }
+
+    @Test
+    void keysAreScopedToTheCaller() {
+        store.execute("create-cafe", "uid:alice", "key-1", body("Blue Bottle"), () -> created("c1"));
+
+        Outcome other = store.execute("create-cafe", "uid:bob", "key-1", body("Blue Bottle"), () -> created("c2"));
+
+        assertThat(other).isEqualTo(new Outcome("c2", 201, false));
+    }
+
+    @Test
+    void attemptThatOutlivedItsLeaseDoesNotOverwriteItsSuccessor() {
+        Outcome stalled = store.execute("create-cafe", "uid:alice", "key-1", body("Blue Bottle"), () -> {
+            // The lease runs out mid-write and a retry takes over and finishes first
+            redis.advance(LEASE_TIME.plusSeconds(1));
+            store.execute("create-cafe", "uid:alice", "key-1", body("Blue Bottle"), () -> created("c2"));
+            return created("c1");
+        });
+
+        assertThat(stalled.resourceId()).isEqualTo("c1");
+        assertThat(redis.hash(RECORD)).containsEntry("fence", "2").containsEntry("resource", "c2");
+        assertThat(store.execute("create-cafe", "uid:alice", "key-1", body("Blue Bottle"), () -> created("c3")))
+                .isEqualTo(new Outcome("c2", 201, true));
+    }
+
+    @Test
+    void recordExpiresAfterTheTtl() {
+        store.execute("create-cafe", "uid:alice", "key-1", body("Blue Bottle"), () -> created("c1"));
+        redis.advance(TTL.plusSeconds(1));
+
+        Outcome later = store.execute("create-cafe", "uid:alice", "key-1", body("Blue Bottle"), () -> created("c2"));
+
+        assertThat(later).isEqualTo(new Outcome("c2", 201, false));
+        // The fencing counter outlived the record, so tokens kept growing
+        assertThat(redis.hash(RECORD)).containsEntry("fence", "2");
+    }
+
+    @Test
+    void withoutRedisOutcomesAreKeptOnThisNode() {
+        redis.setDown(true);
+        store.execute("create-cafe", "uid:alice", "key-1", body("Blue Bottle"), () -> created("c1"));
+
+        Outcome retry = store.execute("create-cafe", "uid:alice", "key-1", body("Blue Bottle"), () -> created("c2"));
+
+        assertThat(retry).isEqualTo(new Outcome("c1", 201, true));
+    }
+
+    @Test
+    void keyMustBeOneTo255Characters() {
+        assertThatThrownBy(() -> store.execute("create-cafe", "uid:alice", " ", body("Blue Bottle"),
+                () -> created("c1")))
+                .isInstanceOf(InvalidRequestException.class);
+        assertThatThrownBy(() -> store.execute("create-cafe", "uid:alice", "k".repeat(256), body("Blue Bottle"),
+                () -> created("c1")))
+                .isInstanceOf(InvalidRequestException.class);
+        assertThat(runs).hasValue(0);
+    }
+
+    private Outcome created(String resourceId) {
+        runs.incrementAndGet();
+        return new Outcome(resourceId, 201, false);
+    }
+
+    private static Map<String, Object> body(String name) {
+        return Map.of("name", name, "googlePlaceId", "place-1");
+    }
+}
@@ -0,0 +1,214 @@
+package com.work.coffeemode.coordination;
+
+import org.luaj.vm2.Globals;
+import org.luaj.vm2.LuaError;
+import org.luaj.vm2.LuaTable;
+import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.Varargs;
+import org.luaj.vm2.lib.VarArgFunction;
+import org.luaj.vm2.lib.jse.JsePlatform;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Just enough of Redis to run the scripts in {@code src/main/resources/scripts} for real: strings
+ * and hashes with millisecond expiry on a clock the test moves, behind a mocked
+ * {@link StringRedisTemplate}. Scripts run in LuaJ with the commands they use bound to
+ * {@code redis.call}, and replies converted the way Redis converts them.
+ */
+final class InMemoryRedis {
+
+    private final Map<String, Object> values = new HashMap<>();
+    private final Map<String, Long> expiresAt = new HashMap<>();
+    private long now = 1_700_000_000_000L;
+    private boolean down;
+
+    @SuppressWarnings("unchecked")
+    StringRedisTemplate template() {
+        StringRedisTemplate template = mock(StringRedisTemplate.class);
+        HashOperations<String, Object, Object> hashes = mock(HashOperations.class);
+        when(template.<Object, Object>opsForHash()).thenReturn(hashes);
+        when(hashes.entries(anyString())).thenAnswer(invocation -> {
+            available();
+            Map<String, String> hash = hash(invocation.getArgument(0));
+            return hash == null ? Map.of() : new LinkedHashMap<Object, Object>(hash);
+        });
+        when(template.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenAnswer(invocation -> {
+            available();
+            RedisScript<?> script = invocation.getArgument(0);
+            return eval(script.getScriptAsString(), invocation.getArgument(1),
+                    (Object[]) invocation.getRawArguments()[2]);
+        });
+        return template;
+    }
+
+    void advance(Duration duration) {
+        now += duration.toMillis();
+    }
+
+    void setDown(boolean down) {
+        this.down = down;
+    }
+
+    String get(String key) {
+        return values.get(live(key)) instanceof String value ? value : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    Map<String, String> hash(String key) {
+        return values.get(live(key)) instanceof Map<?, ?> hash ? (Map<String, String>) hash : null;
+    }
+
+    private void available() {
+        if (down) {
+            throw new RedisConnectionFailureException("Unable to connect to Redis");
+        }
+    }
+
+    private Object eval(String source, List<String> keys, Object[] args) {
+        Globals globals = JsePlatform.standardGlobals();
+        globals.set("KEYS", table(keys.toArray()));
+        globals.set("ARGV", table(args));
+        LuaTable redis = new LuaTable();
+        redis.set("call", new VarArgFunction() {
+            @Override
+            public Varargs invoke(Varargs call) {
+                return InMemoryRedis.this.call(call);
+            }
+        });
+        globals.set("redis", redis);
+        // Redis runs Lua 5.1, where unpack is a global
+        if (globals.get("unpack").isnil()) {
+            globals.set("unpack", globals.get("table").get("unpack"));
+        }
+        return reply(globals.load(source, "script").call());
+    }
+
+    private LuaValue call(Varargs call) {
+        String command = call.checkjstring(1).toUpperCase(Locale.ROOT);
+        String key = call.narg() > 1 ? live(call.arg(2).tojstring()) : null;
+        switch (command) {
+            case "SET" -> {
+                long px = -1;
+                boolean nx = false;
+                for (int i = 4; i <= call.narg(); i++) {
+                    String option = call.arg(i).tojstring().toUpperCase(Locale.ROOT);
+                    if (option.equals("NX")) {
+                        nx = true;
+                    } else if (option.equals("PX")) {
+                        px = Long.parseLong(call.arg(++i).tojstring());
+                    }
+                }
+                if (nx && values.containsKey(key)) {
+                    return LuaValue.FALSE;
+                }
+                values.put(key, call.arg(3).tojstring());
+                expiresAt.remove(key);
+                if (px >= 0) {
+                    expiresAt.put(key, now + px);
+                }
+                LuaTable ok = new LuaTable();
+                ok.set("ok", "OK");
+                return ok;
+            }
+            case "GET" -> {
+                return values.get(key) instanceof String value ? LuaValue.valueOf(value) : LuaValue.FALSE;
+            }
+            case "DEL" -> {
+                int deleted = 0;
+                for (int i = 2; i <= call.narg(); i++) {
+                    String next = live(call.arg(i).tojstring());
+                    expiresAt.remove(next);
+                    deleted += values.remove(next) != null ? 1 : 0;
+                }
+                return LuaValue.valueOf(deleted);
+            }
+            case "INCR" -> {
+                long next = values.containsKey(key) ? Long.parseLong((String) values.get(key)) + 1 : 1;
+                values.put(key, Long.toString(next));
+                return LuaValue.valueOf(next);
+            }
+            case "PEXPIRE" -> {
+                if (!values.containsKey(key)) {
+                    return LuaValue.valueOf(0);
+                }
+                expiresAt.put(key, now + Long.parseLong(call.arg(3).tojstring()));
+                return LuaValue.valueOf(1);
+            }
+            case "HGET" -> {
+                String value = hash(key) != null ? hash(key).get(call.arg(3).tojstring()) : null;
+                return value != null ? LuaValue.valueOf(value) : LuaValue.FALSE;
+            }
+            case "HSET" -> {
+                Map<String, String> hash = hash(key);
+                if (hash == null) {
+                    hash = new LinkedHashMap<>();
+                    values.put(key, hash);
+                }
+                int added = 0;
+                for (int i = 3; i < call.narg(); i += 2) {
+                    added += hash.put(call.arg(i).tojstring(), call.arg(i + 1).tojstring()) == null ? 1 : 0;
+                }
+                return LuaValue.valueOf(added);
+            }
+            case "TIME" -> {
+                return LuaValue.tableOf(new LuaValue[] {
+                        LuaValue.valueOf(Long.toString(now / 1000)),
+                        LuaValue.valueOf(Long.toString(now % 1000 * 1000))});
+            }
+            default -> throw new LuaError("Unsupported command " + command);
+        }
+    }
+
+    // Drops the key first if it has expired
+    private String live(String key) {
+        Long expiry = expiresAt.get(key);
+        if (expiry != null && expiry <= now) {
+            values.remove(key);
+            expiresAt.remove(key);
+        }
+        return key;
+    }
+
+    private static LuaTable table(Object[] items) {
+        LuaTable table = new LuaTable();
+        for (int i = 0; i < items.length; i++) {
+            table.set(i + 1, LuaValue.valueOf(String.valueOf(items[i])));
+        }
+        return table;
+    }
+
+    // Lua to Redis reply: numbers become integers, true 1, false and nil null
+    private static Object reply(LuaValue value) {
+        if (value.isnil() || value.isboolean()) {
+            return value.toboolean() ? 1L : null;
+        }
+        if (value.type() == LuaValue.TNUMBER) {
+            return value.tolong();
+        }
+        if (value.istable()) {
+            List<Object> items = new ArrayList<>();
+            for (int i = 1; i <= value.length(); i++) {
+                items.add(reply(value.get(i)));
+            }
+            return items;
+        }
+        return value.tojstring();
+    }
+}
@@ -0,0 +1,87 @@
+package com.work.coffeemode.coordination;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LeaseLockTest {
+
+    private static final Duration LEASE_TIME = Duration.ofSeconds(10);
+
+    private InMemoryRedis redis;
+    private LeaseLock leaseLock;
+
+    @BeforeEach
+    void setUp() {
+        redis = new InMemoryRedis();
+        leaseLock = new LeaseLock(redis.template());
+    }
+
+    @Test
+    void heldLeaseIsRefused() {
+        LeaseLock.Lease lease = leaseLock.tryAcquire("job", LEASE_TIME);
+
+        assertThat(lease).isNotNull();
+        assertThat(lease.isLocal()).isFalse();
+        assertThat(leaseLock.tryAcquire("job", LEASE_TIME)).isNull();
+        assertThat(leaseLock.tryAcquire("other-job", LEASE_TIME)).isNotNull();
+    }
+
+    @Test
+    void releasedLeaseCanBeTakenWithTheNextFencingToken() {
+        LeaseLock.Lease first = leaseLock.tryAcquire("job", LEASE_TIME);
+        first.close();
+
+        LeaseLock.Lease second = leaseLock.tryAcquire("job", LEASE_TIME);
+
+        assertThat(redis.get("coffeemode:lease:job")).isNotNull();
+        assertThat(second.getFencingToken()).isEqualTo(first.getFencingToken() + 1);
+    }
+
+    @Test
+    void expiredLeaseGoesToTheNextCallerAndTheOldHolderCannotReleaseIt() {
+        LeaseLock.Lease stalled = leaseLock.tryAcquire("job", LEASE_TIME);
+        redis.advance(LEASE_TIME.plusMillis(1));
+
+        LeaseLock.Lease successor = leaseLock.tryAcquire("job", LEASE_TIME);
+        stalled.close();
+
+        assertThat(successor).isNotNull();
+        assertThat(successor.getFencingToken()).isGreaterThan(stalled.getFencingToken());
+        assertThat(leaseLock.tryAcquire("job", LEASE_TIME)).isNull();
+    }
+
+    @Test
+    void acquireGivesUpWhenTheWaitRunsOut() {
+        leaseLock.tryAcquire("job", LEASE_TIME);
+
+        assertThat(leaseLock.acquire("job", LEASE_TIME, Duration.ofMillis(50))).isNull();
+    }
+
+    @Test
+    void fencingCounterOutlivesTheLeaseForItsRetention() {
+        leaseLock.tryAcquire("job", LEASE_TIME, Duration.ofMinutes(5)).close();
+        redis.advance(Duration.ofMinutes(4));
+        leaseLock.tryAcquire("job", LEASE_TIME, Duration.ofMinutes(5)).close();
+
+        assertThat(redis.get("coffeemode:lease:job:fence")).isEqualTo("2");
+        // Each acquisition restarts the retention; after a full period of disuse the counter is gone
+        redis.advance(Duration.ofMinutes(5));
+        assertThat(redis.get("coffeemode:lease:job:fence")).isNull();
+    }
+
+    @Test
+    void redisFailureFallsBackToNodeLocalLeases() {
+        redis.setDown(true);
+
+        LeaseLock.Lease lease = leaseLock.tryAcquire("job", LEASE_TIME);
+
+        assertThat(lease.isLocal()).isTrue();
+        assertThat(leaseLock.tryAcquire("job", LEASE_TIME)).isNull();
+        lease.close();
+        assertThat(leaseLock.tryAcquire("job", LEASE_TIME)).isNotNull();
+    }
+}
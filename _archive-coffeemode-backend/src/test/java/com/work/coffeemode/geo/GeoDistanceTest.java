@@ -0,0 +1,32 @@
+package com.work.coffeemode.geo;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class GeoDistanceTest {
+
+    @Test
+    void oneDegreeOfLatitude() {
+        assertThat(GeoDistance.meters(31, 121, 32, 121)).isCloseTo(111_195, within(1.0));
+    }
+
+    @Test
+    void longitudeShrinksWithLatitude() {
+        assertThat(GeoDistance.meters(60, 10, 60, 11)).isCloseTo(111_195 * 0.5, within(100.0));
+    }
+
+    @Test
+    void symmetricAndZeroForTheSamePoint() {
+        assertThat(GeoDistance.meters(31.23, 121.47, 31.23, 121.47)).isZero();
+        assertThat(GeoDistance.meters(-33.87, 151.21, 51.51, -0.13))
+                .isEqualTo(GeoDistance.meters(51.51, -0.13, -33.87, 151.21));
+    }
+
+    @Test
+    void antipodesAreHalfTheCircumference() {
+        assertThat(GeoDistance.meters(0, 0, 0, 180)).isCloseTo(Math.PI * GeoDistance.EARTH_RADIUS_METERS,
+                within(1.0));
+    }
+}
@@ -0,0 +1,181 @@
+package com.work.coffeemode.image;
+
+import com.mongodb.client.result.UpdateResult;
+import com.work.coffeemode.cache.CacheInvalidationBus;
+import com.work.coffeemode.dto.cafe.ImageDTO;
+import com.work.coffeemode.exception.CafeNotFoundException;
+import com.work.coffeemode.exception.InvalidRequestException;
+import com.work.coffeemode.exception.TooManyRequestsException;
+import com.work.coffeemode.model.Cafe;
+import com.work.coffeemode.sync.ChangeSequence;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.util.unit.DataSize;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ImagePipelineTest {
+
+    private static final String CAFE_ID = new ObjectId().toHexString();
+
+    @TempDir
+    private Path root;
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final CacheInvalidationBus invalidationBus = mock(CacheInvalidationBus.class);
+    private ImagePipeline pipeline;
+
+    private ImagePipeline pipeline(ObjectStore objectStore, int workers, int queueCapacity, DataSize maxUpload) {
+        when(mongoTemplate.exists(any(Query.class), eq(Cafe.class))).thenReturn(true);
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(Cafe.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+        pipeline = new ImagePipeline(objectStore, mongoTemplate, mock(ChangeSequence.class), invalidationBus,
+                new SimpleMeterRegistry(), workers, queueCapacity, maxUpload, 320, 1280, 16, Duration.ofSeconds(5));
+        return pipeline;
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (pipeline != null) {
+            pipeline.stop();
+        }
+    }
+
+    @Test
+    void uploadIsStoredAndProcessedIntoVariants() throws IOException {
+        LocalObjectStore store = new LocalObjectStore(root, "/images");
+        ImageDTO image = pipeline(store, 1, 4, DataSize.ofMegabytes(15))
+                .accept(CAFE_ID, "image/png", png(2000, 1000), "Latte art");
+
+        assertThat(image.getStatus()).isEqualTo(ImageDTO.Status.PROCESSING);
+        assertThat(image.getUrl()).endsWith("/" + image.getImageId() + "/original.png");
+        Document set = finished();
+        assertThat(set.get("images.$[image].status")).isEqualTo(ImageDTO.Status.READY);
+        assertThat(set.get("images.$[image].width")).isEqualTo(2000);
+        assertThat(set.get("images.$[image].placeholder")).asString().startsWith("data:image/");
+        @SuppressWarnings("unchecked")
+        List<ImageDTO.Variant> variants = (List<ImageDTO.Variant>) set.get("images.$[image].variants");
+        assertThat(variants).extracting(ImageDTO.Variant::getName, ImageDTO.Variant::getWidth)
+                .containsExactly(tuple(ImageDTO.THUMBNAIL, 320), tuple(ImageDTO.MEDIUM, 1280));
+        Path imageDir = root.resolve("cafes/" + CAFE_ID + "/" + image.getImageId());
+        assertThat(imageDir.resolve("thumbnail.jpg")).exists();
+        assertThat(imageDir.resolve("medium.jpg")).exists();
+    }
+
+    @Test
+    void unreadableImageIsMarkedFailed() throws IOException {
+        pipeline(new LocalObjectStore(root, "/images"), 1, 4, DataSize.ofMegabytes(15))
+                .accept(CAFE_ID, "image/jpeg", new ByteArrayInputStream(new byte[] {1, 2, 3}), null);
+
+        assertThat(finished().get("images.$[image].status")).isEqualTo(ImageDTO.Status.FAILED);
+    }
+
+    @Test
+    void otherContentTypesAreRejected() throws IOException {
+        pipeline(new LocalObjectStore(root, "/images"), 1, 4, DataSize.ofMegabytes(15));
+
+        assertThatThrownBy(() -> pipeline.accept(CAFE_ID, "image/gif", png(10, 10), null))
+                .isInstanceOf(InvalidRequestException.class);
+    }
+
+    @Test
+    void unknownCafeIsNotFound() throws IOException {
+        pipeline(new LocalObjectStore(root, "/images"), 1, 4, DataSize.ofMegabytes(15));
+        when(mongoTemplate.exists(any(Query.class), eq(Cafe.class))).thenReturn(false);
+
+        assertThatThrownBy(() -> pipeline.accept(CAFE_ID, "image/png", png(10, 10), null))
+                .isInstanceOf(CafeNotFoundException.class);
+    }
+
+    @Test
+    void oversizedUploadIsRefusedWhileStreaming() throws IOException {
+        pipeline(new LocalObjectStore(root, "/images"), 1, 4, DataSize.ofKilobytes(1));
+
+        assertThatThrownBy(() -> pipeline.accept(CAFE_ID, "image/png",
+                new ByteArrayInputStream(new byte[64 * 1024]), null))
+                .isInstanceOf(InvalidRequestException.class);
+        try (Stream<Path> files = Files.walk(root)) {
+            assertThat(files.filter(Files::isRegularFile)).isEmpty();
+        }
+    }
+
+    @Test
+    void fullQueueRefusesUploadsBeforeReadingThem() throws IOException {
+        CountDownLatch release = new CountDownLatch(1);
+        ObjectStore blocking = new LocalObjectStore(root, "/images") {
+            @Override
+            public InputStream open(String key) throws IOException {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.open(key);
+            }
+        };
+        pipeline(blocking, 1, 1, DataSize.ofMegabytes(15));
+        try {
+            // The first runs on the only worker and blocks there, the second fills the queue
+            pipeline.accept(CAFE_ID, "image/png", png(10, 10), null);
+            pipeline.accept(CAFE_ID, "image/png", png(10, 10), null);
+
+            InputStream unread = mock(InputStream.class);
+            assertThatThrownBy(() -> pipeline.accept(CAFE_ID, "image/png", unread, null))
+                    .isInstanceOf(TooManyRequestsException.class);
+            verify(unread, never()).read(any(byte[].class), anyInt(), anyInt());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    /**
+     * The {@code $set} of the update that finished processing: the second write after the push.
+     */
+    private Document finished() {
+        ArgumentCaptor<Update> updates = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate, timeout(5000).times(2)).updateFirst(any(Query.class), updates.capture(),
+                eq(Cafe.class));
+        return updates.getAllValues().get(1).getUpdateObject().get("$set", Document.class);
+    }
+
+    private static InputStream png(int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < width; x += 7) {
+            image.setRGB(x, height / 2, 0xC08040);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return new ByteArrayInputStream(out.toByteArray());
+    }
+}
@@ -0,0 +1,73 @@
+package com.work.coffeemode.linking;
+
+import com.work.coffeemode.geo.GeoDistance;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GeoGridTest {
+
+    private static final double CELL_METERS = 500;
+
+    @ParameterizedTest
+    @CsvSource({
+            "31.2304, 121.4737",   // Shanghai
+            "-33.8688, 151.2093",  // Sydney: negative latitudes
+            "51.5072, -0.1276",    // London: straddles the prime meridian
+            "64.1466, -21.9426"    // Reykjavik: narrow cells far north
+    })
+    void findsEveryPointWithinOneCell(double latitude, double longitude) {
+        GeoGrid grid = new GeoGrid(CELL_METERS);
+        Random random = new Random(42);
+        List<double[]> points = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            // Spread over about three cells each way
+            double lat = latitude + (random.nextDouble() - 0.5) * 6 * CELL_METERS / GeoDistance.METERS_PER_DEGREE;
+            double lon = longitude + (random.nextDouble() - 0.5) * 6 * CELL_METERS
+                    / (GeoDistance.METERS_PER_DEGREE * Math.cos(Math.toRadians(latitude)));
+            points.add(new double[] {lat, lon});
+            grid.add(i, lat, lon);
+        }
+
+        for (int q = 0; q < 200; q++) {
+            double[] query = points.get(q);
+            Set<Integer> near = new HashSet<>();
+            grid.forEachNear(query[0], query[1], near::add);
+            for (int i = 0; i < points.size(); i++) {
+                double meters = GeoDistance.meters(query[0], query[1], points.get(i)[0], points.get(i)[1]);
+                // Just inside the cell size: cells are only square at their row's centre latitude
+                if (meters <= CELL_METERS * 0.99) {
+                    assertThat(near).as("point %d, %.1f m from query %d", i, meters, q).contains(i);
+                }
+            }
+        }
+    }
+
+    @Test
+    void skipsDistantPoints() {
+        GeoGrid grid = new GeoGrid(CELL_METERS);
+        grid.add(1, 31.2304, 121.4737);
+        grid.add(2, 31.2504, 121.4737);
+
+        List<Integer> near = new ArrayList<>();
+        grid.forEachNear(31.2304, 121.4737, near::add);
+
+        assertThat(near).containsExactly(1);
+    }
+
+    @Test
+    void emptyGridFindsNothing() {
+        List<Integer> near = new ArrayList<>();
+        new GeoGrid(CELL_METERS).forEachNear(0, 0, near::add);
+
+        assertThat(near).isEmpty();
+    }
+}
@@ -0,0 +1,209 @@
+package com.work.coffeemode.linking;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.WriteModel;
+import com.work.coffeemode.cache.CacheInvalidationBus;
+import com.work.coffeemode.cache.CacheInvalidationEvent;
+import com.work.coffeemode.client.GooglePlacesClient;
+import com.work.coffeemode.sync.ChangeSequence;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RedNoteLinkerTest {
+
+    private static final ObjectId BLUE_BOTTLE = new ObjectId();
+    private static final ObjectId HARBOUR = new ObjectId();
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final ChangeSequence changeSequence = mock(ChangeSequence.class);
+    private final CacheInvalidationBus invalidationBus = mock(CacheInvalidationBus.class);
+    @SuppressWarnings("unchecked")
+    private final MongoCollection<Document> cafes = mock(MongoCollection.class);
+    @SuppressWarnings("unchecked")
+    private final MongoCollection<Document> pois = mock(MongoCollection.class);
+    @SuppressWarnings("unchecked")
+    private final MongoCollection<Document> reviews = mock(MongoCollection.class);
+    private RedNoteLinker linker;
+
+    @BeforeEach
+    void setUp() {
+        when(mongoTemplate.getCollection("cafes")).thenReturn(cafes);
+        when(mongoTemplate.getCollection("cafe_rednote_pois")).thenReturn(pois);
+        when(mongoTemplate.getCollection("rednote_link_reviews")).thenReturn(reviews);
+        FindIterable<Document> noReviews = found(List.of());
+        when(reviews.find(any(Bson.class))).thenReturn(noReviews);
+        FindIterable<Document> twoPois = found(List.of(
+                place(null, "rb-1", "Blue Bottle", "1 Nanjing Road", 121.4700, 31.2300),
+                place(null, "rb-2", "Harbour Roasters", "88 Bund Road", 121.4900, 31.2400)));
+        when(pois.find()).thenReturn(twoPois);
+        // Last number of the reserved block: the two links take 100 and 101
+        when(changeSequence.reserve(ChangeSequence.CAFES, 2)).thenReturn(101L);
+        linker = new RedNoteLinker(mongoTemplate, changeSequence, invalidationBus, mock(GooglePlacesClient.class),
+                300, 0.8, 0.5, 0.1, 0, 4);
+    }
+
+    @Test
+    void linksAreWrittenGuardedWithTheirOwnChangeSequenceNumbers() {
+        cafesFound(List.of());
+        when(cafes.bulkWrite(anyList(), any(BulkWriteOptions.class))).thenReturn(modified(2));
+
+        RedNoteLinker.LinkReport report = linker.run();
+
+        assertThat(report.linked()).isEqualTo(2);
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<WriteModel<Document>>> writes = ArgumentCaptor.forClass(List.class);
+        verify(cafes).bulkWrite(writes.capture(), any(BulkWriteOptions.class));
+        assertThat(writes.getValue()).hasSize(2).allSatisfy(write -> {
+            UpdateOneModel<Document> update = (UpdateOneModel<Document>) write;
+            assertThat(update.getFilter().toBsonDocument().toJson()).contains("\"externalReferences.redbookId\": null");
+        });
+        assertThat(writes.getValue().stream()
+                .map(write -> ((UpdateOneModel<Document>) write).getUpdate().toBsonDocument()
+                        .getDocument("$set").getInt64("changeSeq").getValue())
+                .toList()).containsExactlyInAnyOrder(100L, 101L);
+    }
+
+    @Test
+    void everyCafeIsInvalidatedWhenTheWholeBatchApplied() {
+        cafesFound(List.of());
+        when(cafes.bulkWrite(anyList(), any(BulkWriteOptions.class))).thenReturn(modified(2));
+
+        linker.run();
+
+        assertThat(invalidated()).containsExactlyInAnyOrder(BLUE_BOTTLE.toHexString(), HARBOUR.toHexString());
+        // Loading only: the counts already say every write applied
+        verify(cafes, times(2)).find(any(Bson.class));
+    }
+
+    @Test
+    void onlyCafesThisBatchWroteAreInvalidated() {
+        // Harbour Roasters was linked by hand between loading and writing, so the guard skipped it
+        cafesFound(List.of(new Document("_id", BLUE_BOTTLE)));
+        when(cafes.bulkWrite(anyList(), any(BulkWriteOptions.class))).thenReturn(modified(1));
+
+        RedNoteLinker.LinkReport report = linker.run();
+
+        assertThat(report.linked()).isEqualTo(1);
+        assertThat(invalidated()).containsExactly(BLUE_BOTTLE.toHexString());
+        ArgumentCaptor<Bson> deleted = ArgumentCaptor.forClass(Bson.class);
+        verify(reviews, times(2)).deleteMany(deleted.capture());
+        String linkedReviews = deleted.getAllValues().get(0).toBsonDocument().toJson();
+        assertThat(linkedReviews).contains("rb-1").doesNotContain("rb-2");
+    }
+
+    @Test
+    void nothingIsInvalidatedWhenNoWriteApplied() {
+        cafesFound(List.of());
+        when(cafes.bulkWrite(anyList(), any(BulkWriteOptions.class))).thenReturn(modified(0));
+
+        RedNoteLinker.LinkReport report = linker.run();
+
+        assertThat(report.linked()).isZero();
+        verify(invalidationBus, never()).publish(any());
+        // Only the sweep of stale reviews; none were resolved by a link
+        verify(reviews, times(1)).deleteMany(any(Bson.class));
+    }
+
+    @Test
+    void partlyFailedBatchInvalidatesWhatWasWritten() {
+        cafesFound(List.of(new Document("_id", HARBOUR)));
+        when(cafes.bulkWrite(anyList(), any(BulkWriteOptions.class))).thenThrow(new MongoBulkWriteException(
+                modified(1), List.of(new BulkWriteError(121, "Document failed validation", new BsonDocument(), 0)),
+                null, new ServerAddress(), Set.of()));
+
+        RedNoteLinker.LinkReport report = linker.run();
+
+        assertThat(report.linked()).isEqualTo(1);
+        assertThat(invalidated()).containsExactly(HARBOUR.toHexString());
+    }
+
+    /**
+     * Unlinked cafes to load, then what the re-query of a partly applied batch finds.
+     */
+    private void cafesFound(List<Document> written) {
+        FindIterable<Document> linked = found(List.of());
+        FindIterable<Document> unlinked = found(List.of(
+                place(BLUE_BOTTLE, null, "Blue Bottle", "1 Nanjing Road", 121.4700, 31.2300),
+                place(HARBOUR, null, "Harbour Roasters", "88 Bund Road", 121.4900, 31.2400)));
+        FindIterable<Document> rewritten = found(written);
+        when(cafes.find(any(Bson.class))).thenReturn(linked, unlinked, rewritten);
+    }
+
+    private List<String> invalidated() {
+        ArgumentCaptor<CacheInvalidationEvent> events = ArgumentCaptor.forClass(CacheInvalidationEvent.class);
+        verify(invalidationBus, atLeast(0)).publish(events.capture());
+        return events.getAllValues().stream().map(CacheInvalidationEvent::getDocumentId).toList();
+    }
+
+    private static BulkWriteResult modified(int count) {
+        return BulkWriteResult.acknowledged(0, count, 0, count, List.of(), List.of());
+    }
+
+    private static Document place(ObjectId id, String redbookId, String name, String address, double longitude,
+            double latitude) {
+        Document doc = new Document("name", name)
+                .append("address", address)
+                .append("location", new Document("type", "Point").append("coordinates", List.of(longitude, latitude)));
+        if (id != null) {
+            doc.append("_id", id);
+        }
+        if (redbookId != null) {
+            doc.append("redbookId", redbookId);
+        }
+        return doc;
+    }
+
+    /**
+     * A find result over {@code docs}; projection, batch size and the like return the same iterable.
+     */
+    @SuppressWarnings("unchecked")
+    private static FindIterable<Document> found(List<Document> docs) {
+        return mock(FindIterable.class, invocation -> switch (invocation.getMethod().getName()) {
+            case "iterator", "cursor" -> cursor(docs.iterator());
+            case "forEach" -> {
+                docs.forEach((Consumer<Document>) invocation.getArgument(0));
+                yield null;
+            }
+            default -> invocation.getMethod().getReturnType().isInstance(invocation.getMock())
+                    ? invocation.getMock() : null;
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static MongoCursor<Document> cursor(Iterator<Document> docs) {
+        return mock(MongoCursor.class, invocation -> switch (invocation.getMethod().getName()) {
+            case "hasNext" -> docs.hasNext();
+            case "next" -> docs.next();
+            default -> null;
+        });
+    }
+}
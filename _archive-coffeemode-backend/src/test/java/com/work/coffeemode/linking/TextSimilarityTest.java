@@ -0,0 +1,75 @@
+package com.work.coffeemode.linking;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class TextSimilarityTest {
+
+    @Test
+    void namesDropGenericWordsPunctuationAndCase() {
+        assertThat(TextSimilarity.normalizeName("Blue Bottle Coffee (上海店)")).isEqualTo("bluebottle上海");
+        assertThat(TextSimilarity.normalizeName("Café de Flore")).isEqualTo("deflore");
+        assertThat(TextSimilarity.normalizeName(null)).isEmpty();
+    }
+
+    @Test
+    void fullWidthLettersAndDigitsFoldToAscii() {
+        assertThat(TextSimilarity.normalizeName("ＢＬＵＥ　１")).isEqualTo("blue1");
+    }
+
+    @Test
+    void sameCafeFromTwoSourcesScoresOne() {
+        long[] poi = TextSimilarity.bigrams(TextSimilarity.normalizeName("星巴克咖啡(南京西路店)"));
+        long[] cafe = TextSimilarity.bigrams(TextSimilarity.normalizeName("星巴克 南京西路"));
+
+        assertThat(TextSimilarity.jaccard(poi, cafe)).isEqualTo(1.0);
+    }
+
+    @Test
+    void addressesKeepEverythingButPunctuation() {
+        assertThat(TextSimilarity.normalizeAddress("上海市静安区南京西路1266号, 2F"))
+                .isEqualTo("上海市静安区南京西路1266号2f");
+    }
+
+    @Test
+    void roadKeySkipsAdministrativePrefixes() {
+        assertThat(TextSimilarity.roadKey("上海市静安区南京西路1266号")).isEqualTo("南京西路");
+        assertThat(TextSimilarity.roadKey("静安区 南京西路 1266号")).isEqualTo("南京西路");
+    }
+
+    @Test
+    void roadKeyExpandsLatinAbbreviations() {
+        assertThat(TextSimilarity.roadKey("1266 Nanjing W Rd, Jing'an")).isEqualTo("nanjing w road");
+        assertThat(TextSimilarity.roadKey("12 Fuxing Ave.")).isEqualTo("fuxing avenue");
+    }
+
+    @Test
+    void roadKeyIsNullWithoutARoad() {
+        assertThat(TextSimilarity.roadKey("")).isNull();
+        assertThat(TextSimilarity.roadKey(null)).isNull();
+        assertThat(TextSimilarity.roadKey("Shanghai Tower")).isNull();
+    }
+
+    @Test
+    void bigramsAreSortedAndDistinct() {
+        long[] grams = TextSimilarity.bigrams("abab");
+
+        assertThat(grams).hasSize(2).isSorted();
+        assertThat(TextSimilarity.bigrams("a")).hasSize(1);
+        assertThat(TextSimilarity.bigrams("")).isEmpty();
+    }
+
+    @Test
+    void jaccardOfGramSets() {
+        long[] abc = TextSimilarity.bigrams("abc");
+        long[] abd = TextSimilarity.bigrams("abd");
+        long[] xyz = TextSimilarity.bigrams("xyz");
+
+        assertThat(TextSimilarity.jaccard(abc, abc)).isEqualTo(1.0);
+        assertThat(TextSimilarity.jaccard(abc, abd)).isCloseTo(1.0 / 3, within(1e-9));
+        assertThat(TextSimilarity.jaccard(abc, xyz)).isZero();
+        assertThat(TextSimilarity.jaccard(abc, TextSimilarity.bigrams(""))).isZero();
+    }
+}
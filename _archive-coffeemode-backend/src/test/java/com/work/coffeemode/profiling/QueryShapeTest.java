@@ -0,0 +1,91 @@
+package com.work.coffeemode.profiling;
+
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class QueryShapeTest {
+
+    @Test
+    void replacesFilterLiteralsButKeepsSortAndProjection() {
+        BsonDocument find = BsonDocument.parse("""
+                {find: "cafes", filter: {name: "Blue Bottle", averageRating: {$gte: 4.5}},
+                 sort: {averageRating: -1}, projection: {name: 1}, $db: "coffeemode"}""");
+
+        assertThat(QueryShape.of("find", find)).isEqualTo(
+                "cafes.find filter={name: ?, averageRating: {$gte: ?}} sort={averageRating: -1} projection={name: 1}");
+    }
+
+    @Test
+    void inListsOfAnyLengthShareAShape() {
+        BsonDocument two = BsonDocument.parse("{find: 'cafes', filter: {_id: {$in: [1, 2]}}}");
+        BsonDocument five = BsonDocument.parse("{find: 'cafes', filter: {_id: {$in: [1, 2, 3, 4, 5]}}}");
+
+        assertThat(QueryShape.of("find", two)).isEqualTo("cafes.find filter={_id: {$in: [?]}}")
+                .isEqualTo(QueryShape.of("find", five));
+    }
+
+    @Test
+    void keepsTheStructureOfArraysOfDocuments() {
+        BsonDocument find = BsonDocument.parse("{find: 'cafes', filter: {$or: [{a: 1}, {b: 'x'}]}}");
+
+        assertThat(QueryShape.of("find", find)).isEqualTo("cafes.find filter={$or: [{a: ?}, {b: ?}]}");
+    }
+
+    @Test
+    void shapesPipelines() {
+        BsonDocument aggregate = BsonDocument.parse("""
+                {aggregate: "cafes", pipeline: [{$match: {city: "Shanghai"}}, {$limit: 20}], cursor: {}}""");
+
+        assertThat(QueryShape.of("aggregate", aggregate))
+                .isEqualTo("cafes.aggregate pipeline=[{$match: {city: ?}}, {$limit: ?}]");
+    }
+
+    @Test
+    void databaseLevelAggregatesHaveNoCollection() {
+        BsonDocument aggregate = BsonDocument.parse("{aggregate: 1, pipeline: [{$currentOp: {}}]}");
+
+        assertThat(QueryShape.of("aggregate", aggregate)).isEqualTo("-.aggregate pipeline=[{$currentOp: {}}]");
+    }
+
+    @Test
+    void writesAreShapedByTheirFirstStatement() {
+        BsonDocument update = BsonDocument.parse("""
+                {update: "cafes", updates: [{q: {_id: 1}, u: {$inc: {version: 1}}}, {q: {name: "x"}, u: {}}]}""");
+        BsonDocument delete = BsonDocument.parse(
+                "{delete: 'cafe_tombstones', deletes: [{q: {changeSeq: {$lt: 9}}, limit: 0}]}");
+
+        assertThat(QueryShape.of("update", update)).isEqualTo("cafes.update q={_id: ?}");
+        assertThat(QueryShape.of("delete", delete)).isEqualTo("cafe_tombstones.delete q={changeSeq: {$lt: ?}}");
+    }
+
+    @Test
+    void findAndModifyIncludesTheUpdateShape() {
+        BsonDocument command = BsonDocument.parse("""
+                {findAndModify: "counters", query: {_id: "cafes"}, update: {$inc: {seq: 1}}, new: true}""");
+
+        assertThat(QueryShape.of("findAndModify", command))
+                .isEqualTo("counters.findAndModify query={_id: ?} update={$inc: {seq: ?}}");
+    }
+
+    @Test
+    void ignoresCommandsThatAreNotQueries() {
+        assertThat(QueryShape.of("insert", BsonDocument.parse("{insert: 'cafes', documents: [{}]}"))).isNull();
+        assertThat(QueryShape.of("hello", BsonDocument.parse("{hello: 1}"))).isNull();
+    }
+
+    @Test
+    void explainableCopyDropsSessionFieldsAndExtraStatements() {
+        BsonDocument update = BsonDocument.parse("""
+                {update: "cafes", updates: [{q: {_id: 1}, u: {}}, {q: {_id: 2}, u: {}}],
+                 $db: "coffeemode", lsid: {id: 1}, txnNumber: 3, ordered: true}""");
+
+        BsonDocument explainable = QueryShape.explainable("update", update);
+
+        assertThat(explainable).isEqualTo(BsonDocument.parse(
+                "{update: 'cafes', updates: [{q: {_id: 1}, u: {}}], ordered: true}"));
+        // The original is left alone
+        assertThat(update.getArray("updates")).hasSize(2);
+    }
+}
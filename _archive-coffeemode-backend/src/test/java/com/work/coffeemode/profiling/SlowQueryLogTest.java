@@ -0,0 +1,89 @@
+package com.work.coffeemode.profiling;
+
+import com.mongodb.ServerAddress;
+import com.mongodb.connection.ClusterId;
+import com.mongodb.connection.ConnectionDescription;
+import com.mongodb.connection.ServerId;
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class SlowQueryLogTest {
+
+    private static final ConnectionDescription CONNECTION =
+            new ConnectionDescription(new ServerId(new ClusterId(), new ServerAddress()));
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(150);
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(5);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @SuppressWarnings("unchecked")
+    private final SlowQueryLog slowQueryLog = new SlowQueryLog(mock(ObjectProvider.class), meterRegistry, true,
+            Duration.ofMillis(100), Duration.ofMinutes(5), 500);
+
+    @Test
+    void fastCommandsAreNotRecorded() {
+        run(1, find("Blue Bottle"), FAST);
+
+        assertThat(slowQueryLog.snapshot()).isEmpty();
+    }
+
+    @Test
+    void slowCommandsAreRecordedPerShape() {
+        run(1, find("Blue Bottle"), SLOW);
+        run(2, find("Harbour Roasters"), SLOW * 2);
+
+        assertThat(slowQueryLog.snapshot()).singleElement().satisfies(query -> {
+            assertThat(query.shape()).isEqualTo("cafes.find filter={name: ?}");
+            assertThat(query.collection()).isEqualTo("cafes");
+            assertThat(query.count()).isEqualTo(2);
+            assertThat(query.maxMillis()).isEqualTo(300);
+        });
+        assertThat(meterRegistry.get("mongodb.slow.commands").tag("collection", "cafes").counter().count())
+                .isEqualTo(2);
+    }
+
+    @Test
+    void commandIsShapedFromACopyTakenAtStart() {
+        BsonDocument command = find("Blue Bottle");
+        slowQueryLog.commandStarted(new CommandStartedEvent(null, 1, 1, CONNECTION, "coffeemode", "find", command));
+        // The driver releases the buffer behind the event's document once the callback returns
+        command.clear();
+        slowQueryLog.commandFailed(new CommandFailedEvent(null, 1, 1, CONNECTION, "coffeemode", "find", SLOW,
+                new IllegalStateException("timed out")));
+
+        assertThat(slowQueryLog.snapshot()).singleElement()
+                .extracting(SlowQueryLog.SlowQuery::shape).isEqualTo("cafes.find filter={name: ?}");
+    }
+
+    @Test
+    void commandsWithoutAShapeAreIgnored() {
+        run(1, BsonDocument.parse("{insert: 'cafes', documents: []}"), SLOW);
+
+        assertThat(slowQueryLog.snapshot()).isEmpty();
+    }
+
+    private void run(int requestId, BsonDocument command, long elapsedNanos) {
+        String commandName = command.getFirstKey();
+        slowQueryLog.commandStarted(new CommandStartedEvent(null, requestId, requestId, CONNECTION, "coffeemode",
+                commandName, command));
+        slowQueryLog.commandSucceeded(new CommandSucceededEvent(null, requestId, requestId, CONNECTION,
+                "coffeemode", commandName, new BsonDocument(), elapsedNanos));
+    }
+
+    private static BsonDocument find(String name) {
+        return new BsonDocument("find", new BsonString("cafes"))
+                .append("filter", new BsonDocument("name", new BsonString(name)));
+    }
+}
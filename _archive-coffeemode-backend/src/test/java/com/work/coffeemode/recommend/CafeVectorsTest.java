@@ -0,0 +1,96 @@
+package com.work.coffeemode.recommend;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class CafeVectorsTest {
+
+    @Test
+    void spanReadsTwelveHourTimes() {
+        assertThat(CafeVectors.span("8:00 AM – 6:00 PM")).containsExactly(8, 18);
+        assertThat(CafeVectors.span("12:00 PM – 12:00 AM")).containsExactly(12, 24);
+    }
+
+    @Test
+    void spanLendsAMeridiemToTheTimeBeforeIt() {
+        assertThat(CafeVectors.span("9:00 – 11:30 AM")).containsExactly(9, 11.5);
+    }
+
+    @Test
+    void spanReadsTwentyFourHourTimes() {
+        assertThat(CafeVectors.span("07:30-22:00")).containsExactly(7.5, 22);
+        assertThat(CafeVectors.span("周一 08：00–20：00")).containsExactly(8, 20);
+    }
+
+    @Test
+    void spanRunsPastMidnight() {
+        assertThat(CafeVectors.span("18:00 – 2:00")).containsExactly(18, 26);
+    }
+
+    @Test
+    void spanCoversSplitOpeningHours() {
+        assertThat(CafeVectors.span("10:00 AM – 2:00 PM, 5:00 – 10:00 PM")).containsExactly(10, 22);
+    }
+
+    @Test
+    void spanOfRoundTheClockAndClosedDays() {
+        assertThat(CafeVectors.span("Open 24 hours")).containsExactly(0, 24);
+        assertThat(CafeVectors.span("24小时营业")).containsExactly(0, 24);
+        assertThat(CafeVectors.span("Closed")).isNull();
+        assertThat(CafeVectors.span("休息")).isNull();
+        assertThat(CafeVectors.span("by appointment")).isNull();
+    }
+
+    @Test
+    void encodesUnitVectors() {
+        float[] vector = CafeVectors.encode(cafe(new Document("wifiAvailable", true).append("quietnessLevel", 1)));
+
+        double length = 0;
+        for (float x : vector) {
+            length += x * x;
+        }
+        assertThat(vector).hasSize(CafeVectors.DIMENSIONS);
+        assertThat(Math.sqrt(length)).isCloseTo(1, within(1e-5));
+    }
+
+    @Test
+    void legacyLabelsEncodeLikeTheirCodes() {
+        float[] coded = CafeVectors.encode(cafe(new Document("quietnessLevel", 1).append("temperature", 2)));
+        float[] labelled = CafeVectors.encode(cafe(new Document("quietnessLevel", "quiet")
+                .append("temperature", "just right")));
+
+        assertThat(labelled).containsExactly(coded);
+    }
+
+    @Test
+    void unknownFeatureValuesCountAsNotRecorded() {
+        float[] unknown = CafeVectors.encode(cafe(new Document("quietnessLevel", "deafening").append("temperature", 7)
+                .append("wifiAvailable", "yes")));
+        float[] missing = CafeVectors.encode(cafe(new Document()));
+
+        assertThat(unknown).containsExactly(missing);
+    }
+
+    @Test
+    void coordinatesAreNullUnlessTwoNumbers() {
+        assertThat(CafeVectors.coordinates(cafe(new Document()))).containsExactly(121.47, 31.23);
+        assertThat(CafeVectors.coordinates(new Document())).isNull();
+        assertThat(CafeVectors.coordinates(new Document("location",
+                new Document("coordinates", List.of("121.47", "31.23"))))).isNull();
+        assertThat(CafeVectors.coordinates(new Document("location", "somewhere"))).isNull();
+    }
+
+    private static Document cafe(Document features) {
+        return new Document("name", "Blue Bottle")
+                .append("features", features)
+                .append("averageRating", 4.6)
+                .append("totalReviews", 120)
+                .append("openingHours", new Document("Monday", "8:00 AM – 6:00 PM").append("Sunday", "Closed"))
+                .append("location", new Document("type", "Point").append("coordinates", List.of(121.47, 31.23)));
+    }
+}
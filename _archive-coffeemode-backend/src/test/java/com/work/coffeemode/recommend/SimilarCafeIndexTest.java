@@ -0,0 +1,137 @@
+package com.work.coffeemode.recommend;
+
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.CountOptions;
+import com.work.coffeemode.cache.CacheInvalidationBus;
+import com.work.coffeemode.dto.cafe.SimilarCafe;
+import com.work.coffeemode.dto.cafe.SimilarCafesRequest;
+import com.work.coffeemode.exception.CafeNotFoundException;
+import com.work.coffeemode.exception.ServiceUnavailableException;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SimilarCafeIndexTest {
+
+    private static final ObjectId BLUE_BOTTLE = new ObjectId();
+    private static final ObjectId HARBOUR = new ObjectId();
+    private static final ObjectId CORNER = new ObjectId();
+
+    @SuppressWarnings("unchecked")
+    private final MongoCollection<Document> cafes = mock(MongoCollection.class);
+    private SimilarCafeIndex index;
+
+    @BeforeEach
+    void setUp() {
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+        when(mongoTemplate.getCollection("cafes")).thenReturn(cafes);
+        when(cafes.estimatedDocumentCount()).thenReturn(3L);
+        List<Document> indexed = List.of(
+                cafe(BLUE_BOTTLE, "Blue Bottle", 121.470, 31.230),
+                cafe(HARBOUR, "Harbour Roasters", 121.490, 31.240),
+                cafe(CORNER, "Corner Cafe", 121.480, 31.220));
+        when(cafes.find()).thenAnswer(invocation -> found(indexed));
+        index = new SimilarCafeIndex(mongoTemplate, mock(CacheInvalidationBus.class), Duration.ofHours(6), 8, 10);
+    }
+
+    @AfterEach
+    void tearDown() {
+        index.stop();
+    }
+
+    @Test
+    void answersUnavailableUntilTheFirstBuild() {
+        assertThatThrownBy(() -> index.similar(BLUE_BOTTLE.toHexString(), new SimilarCafesRequest()))
+                .isInstanceOfSatisfying(ServiceUnavailableException.class,
+                        e -> assertThat(e.getRetryAfter()).isPositive());
+    }
+
+    @Test
+    void indexedCafeGetsTheOthersMostSimilarFirst() throws InterruptedException {
+        built();
+
+        List<SimilarCafe> similar = index.similar(BLUE_BOTTLE.toHexString(), new SimilarCafesRequest());
+
+        assertThat(similar).extracting(SimilarCafe::getCafeId)
+                .containsExactlyInAnyOrder(HARBOUR.toHexString(), CORNER.toHexString());
+        assertThat(similar.get(0).getScore()).isGreaterThanOrEqualTo(similar.get(1).getScore());
+    }
+
+    @Test
+    void unknownCafeIsNotFoundOnceBuilt() throws InterruptedException {
+        built();
+        when(cafes.countDocuments(any(Bson.class), any(CountOptions.class))).thenReturn(0L);
+
+        assertThatThrownBy(() -> index.similar(new ObjectId().toHexString(), new SimilarCafesRequest()))
+                .isInstanceOf(CafeNotFoundException.class);
+    }
+
+    @Test
+    void cafeAddedSinceTheBuildHasNoRecommendationsYet() throws InterruptedException {
+        built();
+        when(cafes.countDocuments(any(Bson.class), any(CountOptions.class))).thenReturn(1L);
+
+        assertThat(index.similar(new ObjectId().toHexString(), new SimilarCafesRequest())).isEmpty();
+    }
+
+    @Test
+    void malformedIdIsNotFoundEvenBeforeTheBuild() {
+        assertThatThrownBy(() -> index.similar("not-an-id", new SimilarCafesRequest()))
+                .isInstanceOf(CafeNotFoundException.class);
+    }
+
+    private void built() throws InterruptedException {
+        index.start();
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!index.isReady() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(index.isReady()).isTrue();
+    }
+
+    private static Document cafe(ObjectId id, String name, double longitude, double latitude) {
+        return new Document("_id", id)
+                .append("name", name)
+                .append("location", new Document("type", "Point").append("coordinates", List.of(longitude, latitude)))
+                .append("features", new Document("wifiAvailable", true))
+                .append("averageRating", 4.5)
+                .append("totalReviews", 120);
+    }
+
+    /**
+     * A find result over {@code docs}; projection, batch size and the like return the same iterable.
+     */
+    @SuppressWarnings("unchecked")
+    private static FindIterable<Document> found(List<Document> docs) {
+        return mock(FindIterable.class, invocation -> switch (invocation.getMethod().getName()) {
+            case "iterator", "cursor" -> cursor(docs.iterator());
+            default -> invocation.getMethod().getReturnType().isInstance(invocation.getMock())
+                    ? invocation.getMock() : null;
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static MongoCursor<Document> cursor(Iterator<Document> docs) {
+        return mock(MongoCursor.class, invocation -> switch (invocation.getMethod().getName()) {
+            case "hasNext" -> docs.hasNext();
+            case "next" -> docs.next();
+            default -> null;
+        });
+    }
+}
@@ -0,0 +1,215 @@
+package com.work.coffeemode.search;
+
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.work.coffeemode.cache.CacheInvalidationBus;
+import com.work.coffeemode.cache.CacheInvalidationEvent;
+import com.work.coffeemode.cache.CacheInvalidationEvent.Source;
+import com.work.coffeemode.dto.cafe.MenuSearchHit;
+import com.work.coffeemode.dto.cafe.MenuSearchRequest;
+import com.work.coffeemode.exception.InvalidRequestException;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@SuppressWarnings("unchecked")
+class MenuIndexTest {
+
+    private static final ObjectId BLUE = new ObjectId();
+    private static final ObjectId HARBOUR = new ObjectId();
+    private static final ObjectId BLUE_POI = new ObjectId();
+    private static final ObjectId HARBOUR_POI = new ObjectId();
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final MongoCollection<Document> cafes = mock(MongoCollection.class);
+    private final MongoCollection<Document> pois = mock(MongoCollection.class);
+    private MenuIndex index;
+
+    @BeforeEach
+    void setUp() {
+        when(mongoTemplate.getCollection("cafes")).thenReturn(cafes);
+        when(mongoTemplate.getCollection("cafe_rednote_pois")).thenReturn(pois);
+        index = new MenuIndex(mongoTemplate, new CacheInvalidationBus("test-node"), Duration.ofHours(6));
+
+        stored(cafes, cafe(BLUE, "Blue Bottle", "rb-blue", 121.4700, 31.2300),
+                cafe(HARBOUR, "Harbour Roasters", "rb-harbour", 121.5000, 31.2400));
+        stored(pois, poi(BLUE_POI, "rb-blue", dish("Oat Latte", 32, "Coffee"), dish("Americano", 25, "Coffee"),
+                        dish("燕麦拿铁", 30, "咖啡")),
+                poi(HARBOUR_POI, "rb-harbour", dish("Lattes", 28, "coffee "), dish("Matcha Latte", 36, "Tea")));
+        index.rebuild();
+    }
+
+    @Test
+    void findsTheCheapestMatchingDishPerCafe() {
+        List<MenuSearchHit> hits = index.search(request("latte"));
+
+        assertThat(hits).extracting(MenuSearchHit::getCafeName, MenuSearchHit::getDish, MenuSearchHit::getPrice)
+                .containsExactly(
+                        tuple("Harbour Roasters", "Lattes", 28.0),
+                        tuple("Blue Bottle", "Oat Latte", 32.0));
+    }
+
+    @Test
+    void matchesChineseByBigrams() {
+        assertThat(index.search(request("拿铁"))).extracting(MenuSearchHit::getDish).containsExactly("燕麦拿铁");
+    }
+
+    @Test
+    void priceRangeIncludesBothBounds() {
+        MenuSearchRequest request = request("latte");
+        request.setMinPrice(32.0);
+        request.setMaxPrice(36.0);
+
+        assertThat(index.search(request)).extracting(MenuSearchHit::getDish)
+                .containsExactly("Oat Latte", "Matcha Latte");
+    }
+
+    @Test
+    void priceRangeExcludesPricesJustOutside() {
+        MenuSearchRequest request = request("latte");
+        request.setMinPrice(28.01);
+        request.setMaxPrice(31.99);
+
+        assertThat(index.search(request)).isEmpty();
+    }
+
+    @Test
+    void categoriesMatchWhateverTheirCaseAndSpacing() {
+        MenuSearchRequest request = new MenuSearchRequest();
+        request.setCategory("COFFEE");
+        request.setMaxPrice(28.0);
+
+        assertThat(index.search(request)).extracting(MenuSearchHit::getDish).containsExactly("Americano", "Lattes");
+    }
+
+    @Test
+    void radiusLimitsCafesByDistance() {
+        MenuSearchRequest request = request("latte");
+        request.setLatitude(31.2300);
+        request.setLongitude(121.4700);
+        request.setRadiusInKm(1.0);
+
+        List<MenuSearchHit> hits = index.search(request);
+
+        assertThat(hits).extracting(MenuSearchHit::getCafeName).containsExactly("Blue Bottle");
+        assertThat(hits.get(0).getDistanceInKm()).isEqualTo(0.0);
+    }
+
+    @Test
+    void requiresATermOrACategory() {
+        assertThatThrownBy(() -> index.search(request("  ")))
+                .isInstanceOf(InvalidRequestException.class);
+    }
+
+    @Test
+    void changedPoiReplacesOnlyThatCafesDishes() {
+        stored(pois, poi(BLUE_POI, "rb-blue", dish("Flat White", 30, "Coffee")));
+
+        index.apply(CacheInvalidationEvent.upsert(Source.REDNOTE_POI, BLUE_POI.toHexString(), null));
+
+        assertThat(index.search(request("latte"))).extracting(MenuSearchHit::getCafeName)
+                .containsExactly("Harbour Roasters");
+        assertThat(index.search(request("flat white"))).extracting(MenuSearchHit::getCafeName)
+                .containsExactly("Blue Bottle");
+        // No dish is left in the Chinese postings, so they are gone rather than empty
+        assertThat(index.search(request("拿铁"))).isEmpty();
+        MenuSearchRequest coffee = new MenuSearchRequest();
+        coffee.setCategory("coffee");
+        assertThat(index.search(coffee)).extracting(MenuSearchHit::getDish).containsExactly("Lattes", "Flat White");
+    }
+
+    @Test
+    void deletedPoiDropsItsDishes() {
+        index.apply(CacheInvalidationEvent.delete(Source.REDNOTE_POI, HARBOUR_POI.toHexString()));
+
+        assertThat(index.search(request("latte"))).extracting(MenuSearchHit::getCafeName)
+                .containsExactly("Blue Bottle");
+    }
+
+    @Test
+    void deletedCafeDropsItsDishes() {
+        index.apply(CacheInvalidationEvent.delete(Source.CAFE, BLUE.toHexString()));
+
+        assertThat(index.search(request("latte"))).extracting(MenuSearchHit::getCafeName)
+                .containsExactly("Harbour Roasters");
+    }
+
+    @Test
+    void cafeRelinkedToAnotherPoiTakesItsDishes() {
+        ObjectId otherPoi = new ObjectId();
+        stored(cafes, cafe(BLUE, "Blue Bottle", "rb-other", 121.4700, 31.2300));
+        stored(pois, poi(otherPoi, "rb-other", dish("Cortado", 27, "Coffee")));
+
+        index.apply(CacheInvalidationEvent.upsert(Source.CAFE, BLUE.toHexString(), null));
+
+        assertThat(index.search(request("cortado"))).extracting(MenuSearchHit::getCafeName)
+                .containsExactly("Blue Bottle");
+        assertThat(index.search(request("oat latte"))).isEmpty();
+    }
+
+    @Test
+    void rebuildSkipsMalformedEntriesAndKeepsTheRest() {
+        Document broken = new Document("_id", new ObjectId()).append("redbookId", "rb-harbour")
+                .append("menuHighlights", List.of("not a dish", dish("Mocha", 0, null).append("price", "cheap")));
+        stored(pois, poi(BLUE_POI, "rb-blue", dish("Oat Latte", 32, "Coffee")), broken);
+
+        index.rebuild();
+
+        assertThat(index.search(request("latte"))).extracting(MenuSearchHit::getDish).containsExactly("Oat Latte");
+        // An unreadable price counts as unknown (0) rather than dropping the dish
+        assertThat(index.search(request("mocha"))).extracting(MenuSearchHit::getPrice).containsExactly(0.0);
+    }
+
+    private static MenuSearchRequest request(String q) {
+        MenuSearchRequest request = new MenuSearchRequest();
+        request.setQ(q);
+        return request;
+    }
+
+    private static Document cafe(ObjectId id, String name, String redbookId, double longitude, double latitude) {
+        return new Document("_id", id)
+                .append("name", name)
+                .append("location", new Document("type", "Point").append("coordinates", List.of(longitude, latitude)))
+                .append("externalReferences", new Document("redbookId", redbookId));
+    }
+
+    private static Document poi(ObjectId id, String redbookId, Document... dishes) {
+        return new Document("_id", id).append("redbookId", redbookId).append("menuHighlights", List.of(dishes));
+    }
+
+    private static Document dish(String name, double price, String category) {
+        Document dish = new Document("name", name).append("price", price);
+        return category == null ? dish : dish.append("category", category);
+    }
+
+    // Every find on the collection, whatever the filter, yields these documents
+    private static void stored(MongoCollection<Document> collection, Document... documents) {
+        FindIterable<Document> found = mock(FindIterable.class, RETURNS_SELF);
+        when(found.iterator()).thenAnswer(invocation -> cursor(List.of(documents).iterator()));
+        when(found.first()).thenReturn(documents.length == 0 ? null : documents[0]);
+        when(collection.find(any(Bson.class))).thenReturn(found);
+    }
+
+    private static MongoCursor<Document> cursor(Iterator<Document> documents) {
+        MongoCursor<Document> cursor = mock(MongoCursor.class);
+        when(cursor.hasNext()).thenAnswer(invocation -> documents.hasNext());
+        when(cursor.next()).thenAnswer(invocation -> documents.next());
+        return cursor;
+    }
+}
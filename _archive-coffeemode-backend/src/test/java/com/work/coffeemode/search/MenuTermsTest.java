@@ -0,0 +1,50 @@
+package com.work.coffeemode.search;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MenuTermsTest {
+
+    @Test
+    void splitsLatinTextIntoLowerCaseWords() {
+        assertThat(MenuTerms.of("Iced Oat-Milk LATTE")).containsExactly("iced", "oat", "milk", "latte");
+    }
+
+    @Test
+    void dropsATrailingPluralS() {
+        assertThat(MenuTerms.of("Lattes")).containsExactly("latte");
+        // Short words and "ss" endings are left alone
+        assertThat(MenuTerms.of("gas espresso glass")).containsExactly("gas", "espresso", "glass");
+    }
+
+    @Test
+    void splitsChineseIntoBigrams() {
+        assertThat(MenuTerms.of("燕麦拿铁")).containsExactly("燕麦", "麦拿", "拿铁");
+        assertThat(MenuTerms.of("茶")).containsExactly("茶");
+    }
+
+    @Test
+    void separatesMixedScripts() {
+        assertThat(MenuTerms.of("Dirty拿铁")).containsExactly("dirty", "拿铁");
+    }
+
+    @Test
+    void normalisesFullWidthCharacters() {
+        assertThat(MenuTerms.of("ＬＡＴＴＥ")).containsExactly("latte");
+    }
+
+    @Test
+    void handlesMissingText() {
+        assertThat(MenuTerms.of(null)).isEmpty();
+        assertThat(MenuTerms.of(" - ")).isEmpty();
+    }
+
+    @Test
+    void categoriesCompareAsAWhole() {
+        assertThat(MenuTerms.category(" Cold  Brews ")).isEqualTo("cold brew");
+        assertThat(MenuTerms.category("cold brew")).isEqualTo("cold brew");
+        assertThat(MenuTerms.category("  ")).isNull();
+        assertThat(MenuTerms.category(null)).isNull();
+    }
+}
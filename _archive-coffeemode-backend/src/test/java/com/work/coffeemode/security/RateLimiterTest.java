@@ -0,0 +1,131 @@
+package com.work.coffeemode.security;
+
+import com.work.coffeemode.security.RateLimiter.Decision;
+import com.work.coffeemode.security.RateLimiter.RouteClass;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RateLimiterTest {
+
+    // 60 per minute with a burst of 3: one every second, three back to back
+    private static final long EMISSION_MILLIS = 1000;
+    private static final long TOLERANCE_MILLIS = 2000;
+
+    private StringRedisTemplate redisTemplate;
+    private RateLimiter rateLimiter;
+
+    @BeforeEach
+    void setUp() {
+        redisTemplate = mock(StringRedisTemplate.class);
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("coffeemode.rate-limit.write.per-minute", "60")
+                .withProperty("coffeemode.rate-limit.write.burst", "3");
+        rateLimiter = new RateLimiter(redisTemplate, environment);
+    }
+
+    @Test
+    void localFallbackAllowsTheBurstThenRefusesWithRetryAfter() {
+        redisDown();
+
+        for (int i = 0; i < 3; i++) {
+            Decision decision = rateLimiter.tryAcquire(RouteClass.WRITE, List.of("ip:203.0.113.7"));
+            assertThat(decision.allowed()).isTrue();
+            assertThat(decision.local()).isTrue();
+        }
+        Decision refused = rateLimiter.tryAcquire(RouteClass.WRITE, List.of("ip:203.0.113.7"));
+
+        assertThat(refused.allowed()).isFalse();
+        assertThat(refused.local()).isTrue();
+        assertThat(refused.retryAfterMillis()).isPositive().isLessThanOrEqualTo(EMISSION_MILLIS);
+    }
+
+    @Test
+    void localFallbackChargesAllSubjectsOrNone() {
+        redisDown();
+        for (int i = 0; i < 3; i++) {
+            rateLimiter.tryAcquire(RouteClass.WRITE, List.of("ip:203.0.113.7"));
+        }
+
+        Decision refused = rateLimiter.tryAcquire(RouteClass.WRITE, List.of("ip:203.0.113.7", "uid:alice"));
+
+        assertThat(refused.allowed()).isFalse();
+        // The refused request must not have used up any of alice's burst
+        for (int i = 0; i < 3; i++) {
+            assertThat(rateLimiter.tryAcquire(RouteClass.WRITE, List.of("uid:alice")).allowed()).isTrue();
+        }
+        assertThat(rateLimiter.tryAcquire(RouteClass.WRITE, List.of("uid:alice")).allowed()).isFalse();
+    }
+
+    @Test
+    void localLimitsAreSeparatePerRouteClass() {
+        redisDown();
+        for (int i = 0; i < 3; i++) {
+            rateLimiter.tryAcquire(RouteClass.WRITE, List.of("ip:203.0.113.7"));
+        }
+
+        assertThat(rateLimiter.tryAcquire(RouteClass.WRITE, List.of("ip:203.0.113.7")).allowed()).isFalse();
+        assertThat(rateLimiter.tryAcquire(RouteClass.READ, List.of("ip:203.0.113.7")).allowed()).isTrue();
+    }
+
+    @Test
+    void redisFailureSwitchesToLocalLimitsWithoutRetryingEveryRequest() {
+        redisDown();
+
+        rateLimiter.tryAcquire(RouteClass.WRITE, List.of("ip:203.0.113.7"));
+        rateLimiter.tryAcquire(RouteClass.WRITE, List.of("ip:203.0.113.7"));
+
+        verify(redisTemplate, times(1)).execute(any(RedisScript.class), anyList(), any(Object[].class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void redisChecksEverySubjectInOneScriptCall() {
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class)))
+                .thenReturn(List.of(1L, 0L));
+
+        Decision decision = rateLimiter.tryAcquire(RouteClass.WRITE, List.of("ip:203.0.113.7", "uid:alice"));
+
+        assertThat(decision.allowed()).isTrue();
+        assertThat(decision.local()).isFalse();
+        ArgumentCaptor<List<String>> keys = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<Object[]> args = ArgumentCaptor.forClass(Object[].class);
+        verify(redisTemplate).execute(any(RedisScript.class), keys.capture(), args.capture());
+        assertThat(keys.getValue()).containsExactly("coffeemode:rl:write:ip:203.0.113.7",
+                "coffeemode:rl:write:uid:alice");
+        // Emission interval and burst tolerance per key
+        assertThat(args.getValue()).containsExactly(Long.toString(EMISSION_MILLIS),
+                Long.toString(TOLERANCE_MILLIS), Long.toString(EMISSION_MILLIS), Long.toString(TOLERANCE_MILLIS));
+    }
+
+    @Test
+    void redisRefusalCarriesTheScriptsRetryAfter() {
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class)))
+                .thenReturn(List.of(0L, 750L));
+
+        Decision decision = rateLimiter.tryAcquire(RouteClass.WRITE, List.of("ip:203.0.113.7"));
+
+        assertThat(decision.allowed()).isFalse();
+        assertThat(decision.retryAfterMillis()).isEqualTo(750);
+        assertThat(decision.local()).isFalse();
+    }
+
+    private void redisDown() {
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class)))
+                .thenThrow(new RedisConnectionFailureException("Unable to connect to Redis"));
+    }
+}
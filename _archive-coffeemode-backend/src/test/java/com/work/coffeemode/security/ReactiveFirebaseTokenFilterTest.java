@@ -0,0 +1,108 @@
+package com.work.coffeemode.security;
+
+import com.google.firebase.ErrorCode;
+import com.google.firebase.auth.FirebaseAuthException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReactiveFirebaseTokenFilterTest {
+
+    private final IdTokenVerifier verifier = mock(IdTokenVerifier.class);
+    private final AtomicInteger handled = new AtomicInteger();
+    private WebTestClient client;
+
+    @BeforeEach
+    void setUp() {
+        VerifiedTokenCache tokenCache = new VerifiedTokenCache(verifier, new SimpleMeterRegistry(), 100,
+                Duration.ofMinutes(5));
+        // Answers with the UID the handler sees, or "anonymous"
+        client = WebTestClient.bindToRouterFunction(RouterFunctions.route()
+                        .route(request -> true, request -> {
+                            handled.incrementAndGet();
+                            return ReactiveSecurityContextHolder.getContext()
+                                    .map(SecurityContext::getAuthentication)
+                                    .map(Authentication::getName)
+                                    .defaultIfEmpty("anonymous")
+                                    .flatMap(name -> ServerResponse.ok().bodyValue(name));
+                        })
+                        .build())
+                .webFilter(new ReactiveFirebaseTokenFilter(tokenCache))
+                .build();
+    }
+
+    @Test
+    void authenticatedWriteRunsTheHandlerOnce() throws Exception {
+        when(verifier.verify("good-token")).thenReturn(token("alice"));
+
+        client.post().uri("/api/cafes")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer good-token")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class).isEqualTo("alice");
+
+        assertThat(handled).hasValue(1);
+    }
+
+    @Test
+    void cachedTokenIsAcceptedWithoutVerifyingAgain() throws Exception {
+        when(verifier.verify("good-token")).thenReturn(token("alice"));
+        for (int i = 0; i < 2; i++) {
+            client.put().uri("/api/cafes/1")
+                    .header(HttpHeaders.AUTHORIZATION, "Bearer good-token")
+                    .exchange()
+                    .expectBody(String.class).isEqualTo("alice");
+        }
+
+        assertThat(handled).hasValue(2);
+        verify(verifier).verify("good-token");
+    }
+
+    @Test
+    void rejectedTokenLeavesTheWriteAnonymousAndRunsItOnce() throws Exception {
+        when(verifier.verify("bad-token")).thenThrow(
+                new FirebaseAuthException(ErrorCode.INVALID_ARGUMENT, "Invalid token", null, null, null));
+
+        client.delete().uri("/api/cafes/1")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer bad-token")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class).isEqualTo("anonymous");
+
+        assertThat(handled).hasValue(1);
+    }
+
+    @Test
+    void readsAreNotVerified() throws Exception {
+        client.get().uri("/api/cafes")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer good-token")
+                .exchange()
+                .expectBody(String.class).isEqualTo("anonymous");
+
+        verify(verifier, never()).verify(anyString());
+        assertThat(handled).hasValue(1);
+    }
+
+    private static VerifiedToken token(String uid) {
+        return new VerifiedToken(FirebasePrincipal.builder().uid(uid).build(),
+                Instant.now().plus(Duration.ofHours(1)), "kid-1");
+    }
+}
@@ -0,0 +1,135 @@
+package com.work.coffeemode.service.impl;
+
+import com.work.coffeemode.cache.CacheInvalidationBus;
+import com.work.coffeemode.cache.CacheInvalidationEvent;
+import com.work.coffeemode.coordination.LeaseLock;
+import com.work.coffeemode.model.Cafe;
+import com.work.coffeemode.repository.CafeRepository;
+import com.work.coffeemode.service.CafeService.Creation;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CafeServiceImplTest {
+
+    @Mock
+    private CafeRepository cafeRepository;
+
+    @Mock
+    private CacheInvalidationBus invalidationBus;
+
+    @Mock
+    private LeaseLock leaseLock;
+
+    @InjectMocks
+    private CafeServiceImpl cafeService;
+
+    @Test
+    void existingCafeForThePlaceIsReturnedWithoutWriting() {
+        LeaseLock.Lease lease = leased();
+        Cafe existing = cafe("place-1");
+        when(cafeRepository.findByExternalReferencesGooglePlace("place-1")).thenReturn(Optional.of(existing));
+
+        Creation creation = cafeService.createCafeIfAbsent(cafe("place-1"));
+
+        assertThat(creation).isEqualTo(new Creation(existing, false));
+        verify(cafeRepository, never()).save(any());
+        verify(lease).close();
+    }
+
+    @Test
+    void newPlaceIsWrittenUnderItsLease() {
+        LeaseLock.Lease lease = leased();
+        Cafe cafe = cafe("place-1");
+        when(cafeRepository.findByExternalReferencesGooglePlace("place-1")).thenReturn(Optional.empty());
+        when(cafeRepository.save(cafe)).thenReturn(cafe);
+
+        Creation creation = cafeService.createCafeIfAbsent(cafe);
+
+        assertThat(creation).isEqualTo(new Creation(cafe, true));
+        verify(leaseLock).acquire(eq("cafe:google-place:place-1"), any(Duration.class), any(Duration.class));
+        verify(invalidationBus).publish(any(CacheInvalidationEvent.class));
+        verify(lease).close();
+    }
+
+    @Test
+    void duplicateKeyReturnsTheCafeThatWon() {
+        leased();
+        Cafe winner = cafe("place-1");
+        when(cafeRepository.findByExternalReferencesGooglePlace("place-1"))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(winner));
+        when(cafeRepository.save(any())).thenThrow(new DuplicateKeyException("E11000 duplicate key"));
+
+        Creation creation = cafeService.createCafeIfAbsent(cafe("place-1"));
+
+        assertThat(creation).isEqualTo(new Creation(winner, false));
+        verifyNoInteractions(invalidationBus);
+    }
+
+    @Test
+    void duplicateKeyWithoutAWinnerIsRethrown() {
+        leased();
+        when(cafeRepository.findByExternalReferencesGooglePlace("place-1")).thenReturn(Optional.empty());
+        when(cafeRepository.save(any())).thenThrow(new DuplicateKeyException("E11000 duplicate key"));
+
+        assertThatThrownBy(() -> cafeService.createCafeIfAbsent(cafe("place-1")))
+                .isInstanceOf(DuplicateKeyException.class);
+    }
+
+    @Test
+    void leaseNotAcquiredInTimeLeavesTheDecisionToTheUniqueIndex() {
+        when(leaseLock.acquire(anyString(), any(Duration.class), any(Duration.class))).thenReturn(null);
+        Cafe winner = cafe("place-1");
+        when(cafeRepository.findByExternalReferencesGooglePlace("place-1"))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(winner));
+        when(cafeRepository.save(any())).thenThrow(new DuplicateKeyException("E11000 duplicate key"));
+
+        Creation creation = cafeService.createCafeIfAbsent(cafe("place-1"));
+
+        assertThat(creation).isEqualTo(new Creation(winner, false));
+    }
+
+    @Test
+    void cafeWithoutAGooglePlaceIsCreatedWithoutALease() {
+        Cafe cafe = Cafe.builder().name("Corner Cafe").build();
+        when(cafeRepository.save(cafe)).thenReturn(cafe);
+
+        assertThat(cafeService.createCafeIfAbsent(cafe)).isEqualTo(new Creation(cafe, true));
+        verifyNoInteractions(leaseLock);
+    }
+
+    private LeaseLock.Lease leased() {
+        LeaseLock.Lease lease = mock(LeaseLock.Lease.class);
+        when(leaseLock.acquire(anyString(), any(Duration.class), any(Duration.class))).thenReturn(lease);
+        return lease;
+    }
+
+    private static Cafe cafe(String placeId) {
+        return Cafe.builder()
+                .id(new ObjectId())
+                .name("Blue Bottle")
+                .externalReferences(Cafe.ExternalReferences.builder().googlePlace(placeId).build())
+                .build();
+    }
+}
@@ -0,0 +1,125 @@
+package com.work.coffeemode.service.impl;
+
+import com.work.coffeemode.dto.cafe.CafeSyncResponse;
+import com.work.coffeemode.exception.InvalidRequestException;
+import com.work.coffeemode.model.Cafe;
+import com.work.coffeemode.model.CafeTombstone;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CafeSyncServiceImplTest {
+
+    private static final Instant SETTLED = Instant.parse("2026-01-01T12:00:00Z");
+    private static final Instant OLD = SETTLED.minusSeconds(60);
+    private static final Instant RECENT = SETTLED.plusSeconds(1);
+
+    @Test
+    void interleavesCafesAndTombstonesInChangeOrder() {
+        Cafe first = cafe(11, OLD);
+        Cafe third = cafe(13, OLD);
+        CafeTombstone second = tombstone(12, OLD);
+
+        CafeSyncResponse response = CafeSyncServiceImpl.merge(10, 10, List.of(first, third), List.of(second),
+                SETTLED);
+
+        assertThat(response.getCafes()).containsExactly(first, third);
+        assertThat(response.getDeletedIds()).containsExactly(second.getStringId());
+        assertThat(response.getSyncToken()).isEqualTo("13");
+        assertThat(response.isHasMore()).isFalse();
+    }
+
+    @Test
+    void fullPageAdvancesTheTokenToItsLastChangeAndHasMore() {
+        // The callers fetch pageSize + 1 rows from each side
+        List<Cafe> cafes = List.of(cafe(1, OLD), cafe(2, OLD), cafe(4, OLD));
+        List<CafeTombstone> tombstones = List.of(tombstone(3, OLD));
+
+        CafeSyncResponse response = CafeSyncServiceImpl.merge(0, 3, cafes, tombstones, SETTLED);
+
+        assertThat(response.getCafes()).extracting(Cafe::getChangeSeq).containsExactly(1L, 2L);
+        assertThat(response.getDeletedIds()).hasSize(1);
+        assertThat(response.getSyncToken()).isEqualTo("3");
+        assertThat(response.isHasMore()).isTrue();
+    }
+
+    @Test
+    void tokenStopsBeforeTheFirstUnsettledChange() {
+        // 22 is too recent to rule out a write numbered below it still being in flight: all three
+        // are returned, but the token stays at 21
+        List<Cafe> cafes = List.of(cafe(21, OLD), cafe(22, RECENT), cafe(23, OLD));
+
+        CafeSyncResponse response = CafeSyncServiceImpl.merge(20, 10, cafes, List.of(), SETTLED);
+
+        assertThat(response.getCafes()).hasSize(3);
+        assertThat(response.getSyncToken()).isEqualTo("21");
+    }
+
+    @Test
+    void unsettledTombstonesBlockTheTokenToo() {
+        CafeSyncResponse response = CafeSyncServiceImpl.merge(5, 10, List.of(cafe(7, OLD)),
+                List.of(tombstone(6, RECENT)), SETTLED);
+
+        assertThat(response.getDeletedIds()).hasSize(1);
+        assertThat(response.getSyncToken()).isEqualTo("5");
+    }
+
+    @Test
+    void noMorePagesWhileNothingOnThisOneHasSettled() {
+        List<Cafe> cafes = List.of(cafe(1, RECENT), cafe(2, RECENT), cafe(3, RECENT));
+
+        CafeSyncResponse response = CafeSyncServiceImpl.merge(0, 2, cafes, List.of(), SETTLED);
+
+        assertThat(response.getCafes()).hasSize(2);
+        assertThat(response.getSyncToken()).isEqualTo("0");
+        // Another page would repeat this one
+        assertThat(response.isHasMore()).isFalse();
+    }
+
+    @Test
+    void backfilledCafesWithoutATimestampCountAsSettled() {
+        CafeSyncResponse response = CafeSyncServiceImpl.merge(0, 10, List.of(cafe(1, null)), List.of(), SETTLED);
+
+        assertThat(response.getSyncToken()).isEqualTo("1");
+    }
+
+    @Test
+    void emptyPageKeepsTheToken() {
+        CafeSyncResponse response = CafeSyncServiceImpl.merge(42, 10, List.of(), List.of(), SETTLED);
+
+        assertThat(response.getCafes()).isEmpty();
+        assertThat(response.getDeletedIds()).isEmpty();
+        assertThat(response.getSyncToken()).isEqualTo("42");
+        assertThat(response.isHasMore()).isFalse();
+    }
+
+    @Test
+    void parsesTokens() {
+        assertThat(CafeSyncServiceImpl.parseToken(null)).isZero();
+        assertThat(CafeSyncServiceImpl.parseToken(" ")).isZero();
+        assertThat(CafeSyncServiceImpl.parseToken("123")).isEqualTo(123);
+        assertThatThrownBy(() -> CafeSyncServiceImpl.parseToken("-1")).isInstanceOf(InvalidRequestException.class);
+        assertThatThrownBy(() -> CafeSyncServiceImpl.parseToken("abc")).isInstanceOf(InvalidRequestException.class);
+    }
+
+    @Test
+    void clampsPageSize() {
+        assertThat(CafeSyncServiceImpl.pageSize(null)).isEqualTo(500);
+        assertThat(CafeSyncServiceImpl.pageSize(0)).isEqualTo(500);
+        assertThat(CafeSyncServiceImpl.pageSize(50)).isEqualTo(50);
+        assertThat(CafeSyncServiceImpl.pageSize(5000)).isEqualTo(1000);
+    }
+
+    private static Cafe cafe(long changeSeq, Instant updatedAt) {
+        return Cafe.builder().id(new ObjectId()).changeSeq(changeSeq).updatedAt(updatedAt).build();
+    }
+
+    private static CafeTombstone tombstone(long changeSeq, Instant deletedAt) {
+        return CafeTombstone.builder().id(new ObjectId()).changeSeq(changeSeq).deletedAt(deletedAt).build();
+    }
+}
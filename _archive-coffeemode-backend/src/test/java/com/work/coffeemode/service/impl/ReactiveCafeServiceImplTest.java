@@ -0,0 +1,95 @@
+package com.work.coffeemode.service.impl;
+
+import com.work.coffeemode.cache.CacheInvalidationBus;
+import com.work.coffeemode.coordination.LeaseLock;
+import com.work.coffeemode.model.Cafe;
+import com.work.coffeemode.repository.reactive.ReactiveCafeRepository;
+import com.work.coffeemode.service.CafeService.Creation;
+import com.work.coffeemode.service.ReactiveCafeSyncService;
+import com.work.coffeemode.sync.ReactiveChangeSequence;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReactiveCafeServiceImplTest {
+
+    private final ReactiveCafeRepository cafeRepository = mock(ReactiveCafeRepository.class);
+    private final LeaseLock leaseLock = mock(LeaseLock.class);
+    private final LeaseLock.Lease lease = mock(LeaseLock.Lease.class);
+    private ReactiveCafeServiceImpl cafeService;
+
+    @BeforeEach
+    void setUp() {
+        when(leaseLock.acquire(anyString(), any(Duration.class), any(Duration.class))).thenReturn(lease);
+        cafeService = new ReactiveCafeServiceImpl(cafeRepository, mock(ReactiveMongoTemplate.class),
+                mock(ReactiveCafeSyncService.class), mock(ReactiveChangeSequence.class),
+                mock(CacheInvalidationBus.class), leaseLock);
+    }
+
+    @Test
+    void existingCafeForThePlaceIsReturnedWithoutWriting() {
+        Cafe existing = cafe("place-1");
+        when(cafeRepository.findByExternalReferencesGooglePlace("place-1")).thenReturn(Mono.just(existing));
+
+        Creation creation = cafeService.createCafeIfAbsent(cafe("place-1")).block();
+
+        assertThat(creation).isEqualTo(new Creation(existing, false));
+        verify(cafeRepository, never()).save(any());
+        verify(leaseLock).acquire(eq("cafe:google-place:place-1"), any(Duration.class), any(Duration.class));
+        verify(lease).close();
+    }
+
+    @Test
+    void newPlaceIsWrittenUnderItsLease() {
+        Cafe cafe = cafe("place-1");
+        when(cafeRepository.findByExternalReferencesGooglePlace("place-1")).thenReturn(Mono.empty());
+        when(cafeRepository.save(cafe)).thenReturn(Mono.just(cafe));
+
+        assertThat(cafeService.createCafeIfAbsent(cafe).block()).isEqualTo(new Creation(cafe, true));
+        verify(lease).close();
+    }
+
+    @Test
+    void duplicateKeyReturnsTheCafeThatWon() {
+        Cafe winner = cafe("place-1");
+        when(cafeRepository.findByExternalReferencesGooglePlace("place-1"))
+                .thenReturn(Mono.empty())
+                .thenReturn(Mono.just(winner));
+        when(cafeRepository.save(any())).thenReturn(Mono.error(new DuplicateKeyException("E11000 duplicate key")));
+
+        assertThat(cafeService.createCafeIfAbsent(cafe("place-1")).block()).isEqualTo(new Creation(winner, false));
+        verify(lease).close();
+    }
+
+    @Test
+    void leaseNotAcquiredInTimeStillCreates() {
+        when(leaseLock.acquire(anyString(), any(Duration.class), any(Duration.class))).thenReturn(null);
+        Cafe cafe = cafe("place-1");
+        when(cafeRepository.findByExternalReferencesGooglePlace("place-1")).thenReturn(Mono.empty());
+        when(cafeRepository.save(cafe)).thenReturn(Mono.just(cafe));
+
+        assertThat(cafeService.createCafeIfAbsent(cafe).block()).isEqualTo(new Creation(cafe, true));
+    }
+
+    private static Cafe cafe(String placeId) {
+        return Cafe.builder()
+                .id(new ObjectId())
+                .name("Blue Bottle")
+                .externalReferences(Cafe.ExternalReferences.builder().googlePlace(placeId).build())
+                .build();
+    }
+}
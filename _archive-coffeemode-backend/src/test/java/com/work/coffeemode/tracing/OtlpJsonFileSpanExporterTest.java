@@ -0,0 +1,52 @@
+package com.work.coffeemode.tracing;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OtlpJsonFileSpanExporterTest {
+
+    @TempDir
+    private Path dir;
+
+    @Test
+    void eachExportIsOneOtlpJsonRequestLine() throws Exception {
+        Path file = dir.resolve("traces/spans.jsonl");
+        String traceId;
+        try (SdkTracerProvider tracerProvider = SdkTracerProvider.builder()
+                .addSpanProcessor(SimpleSpanProcessor.create(new OtlpJsonFileSpanExporter(file)))
+                .build()) {
+            Tracer tracer = tracerProvider.get("test");
+            Span span = tracer.spanBuilder("GET /api/cafes").startSpan();
+            traceId = span.getSpanContext().getTraceId();
+            span.end();
+            tracer.spanBuilder("GET /api/cafes/{id}").startSpan().end();
+        }
+
+        List<String> lines = Files.readAllLines(file);
+        assertThat(lines).hasSize(2);
+        JsonNode request = new ObjectMapper().readTree(lines.get(0));
+        JsonNode span = request.at("/resourceSpans/0/scopeSpans/0/spans/0");
+        assertThat(span.get("name").asText()).isEqualTo("GET /api/cafes");
+        assertThat(span.get("traceId").asText()).isEqualTo(traceId);
+    }
+
+    @Test
+    void exportAfterShutdownFails() throws Exception {
+        OtlpJsonFileSpanExporter exporter = new OtlpJsonFileSpanExporter(dir.resolve("spans.jsonl"));
+        exporter.shutdown();
+
+        assertThat(exporter.export(List.of()).isSuccess()).isFalse();
+    }
+}
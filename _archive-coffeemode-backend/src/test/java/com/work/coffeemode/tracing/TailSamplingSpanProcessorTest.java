@@ -0,0 +1,156 @@
+package com.work.coffeemode.tracing;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.TraceFlags;
+import io.opentelemetry.api.trace.TraceState;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.ReadableSpan;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.SpanProcessor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TailSamplingSpanProcessorTest {
+
+    private static final Duration SLOW = Duration.ofMillis(500);
+    private static final Instant START = Instant.parse("2026-01-01T00:00:00Z");
+
+    private final SpanProcessor delegate = mock(SpanProcessor.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private SdkTracerProvider tracerProvider;
+    private Tracer tracer;
+
+    private void sampling(double keepRatio, int maxSpansPerTrace) {
+        when(delegate.shutdown()).thenReturn(CompletableResultCode.ofSuccess());
+        tracerProvider = SdkTracerProvider.builder()
+                .addSpanProcessor(new TailSamplingSpanProcessor(delegate, SLOW, keepRatio, 100, maxSpansPerTrace,
+                        Duration.ofMinutes(1), meterRegistry))
+                .build();
+        tracer = tracerProvider.get("test");
+    }
+
+    @AfterEach
+    void tearDown() {
+        tracerProvider.close();
+    }
+
+    @Test
+    void fastSuccessfulTraceIsDropped() {
+        sampling(0, 10);
+        Span root = start("GET /api/cafes", null);
+        start("mongo find", root).end(START.plusMillis(5));
+        root.end(START.plusMillis(10));
+
+        verify(delegate, never()).onEnd(any());
+        assertThat(decisions("dropped")).isEqualTo(1);
+    }
+
+    @Test
+    void slowRootKeepsTheWholeTrace() {
+        sampling(0, 10);
+        Span root = start("GET /api/cafes", null);
+        start("mongo find", root).end(START.plusMillis(400));
+        root.end(START.plus(SLOW));
+
+        assertThat(exportedNames()).containsExactly("mongo find", "GET /api/cafes");
+        assertThat(decisions("slow")).isEqualTo(1);
+    }
+
+    @Test
+    void errorInAChildKeepsAFastTrace() {
+        sampling(0, 10);
+        Span root = start("GET /api/cafes", null);
+        start("mongo find", root).setStatus(StatusCode.ERROR).end(START.plusMillis(5));
+        root.end(START.plusMillis(10));
+
+        assertThat(exportedNames()).containsExactly("mongo find", "GET /api/cafes");
+        assertThat(decisions("error")).isEqualTo(1);
+    }
+
+    @Test
+    void baselineShareKeepsOrdinaryTraces() {
+        sampling(1, 10);
+        start("GET /api/cafes", null).end(START.plusMillis(10));
+
+        assertThat(exportedNames()).containsExactly("GET /api/cafes");
+        assertThat(decisions("baseline")).isEqualTo(1);
+    }
+
+    @Test
+    void spansEndingAfterTheirRootFollowItsDecision() {
+        sampling(0, 10);
+        Span keptRoot = start("POST /api/cafes", null);
+        Span keptLate = start("cache invalidation", keptRoot);
+        keptRoot.end(START.plus(SLOW));
+        keptLate.end(START.plusSeconds(1));
+
+        Span droppedRoot = start("GET /api/cafes", null);
+        Span droppedLate = start("cache invalidation", droppedRoot);
+        droppedRoot.end(START.plusMillis(10));
+        droppedLate.end(START.plusSeconds(1));
+
+        assertThat(exportedNames()).containsExactly("POST /api/cafes", "cache invalidation");
+    }
+
+    @Test
+    void spansOverThePerTraceCapAreDroppedButStillCountErrors() {
+        sampling(0, 2);
+        Span root = start("GET /api/cafes", null);
+        start("mongo find 1", root).end(START.plusMillis(1));
+        start("mongo find 2", root).end(START.plusMillis(2));
+        start("mongo find 3", root).setStatus(StatusCode.ERROR).end(START.plusMillis(3));
+        root.end(START.plusMillis(10));
+
+        assertThat(exportedNames()).containsExactly("mongo find 1", "mongo find 2", "GET /api/cafes");
+        assertThat(meterRegistry.get("tracing.tail.overflow.spans").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void spanWithARemoteParentDecidesForThisService() {
+        sampling(0, 10);
+        SpanContext remote = SpanContext.createFromRemoteParent("0af7651916cd43dd8448eb211c80319c",
+                "b7ad6b7169203331", TraceFlags.getSampled(), TraceState.getDefault());
+        Span root = tracer.spanBuilder("GET /api/cafes")
+                .setParent(Context.root().with(Span.wrap(remote)))
+                .setStartTimestamp(START)
+                .startSpan();
+        root.end(START.plus(SLOW));
+
+        assertThat(exportedNames()).containsExactly("GET /api/cafes");
+    }
+
+    private Span start(String name, Span parent) {
+        return tracer.spanBuilder(name)
+                .setParent(parent == null ? Context.root() : Context.root().with(parent))
+                .setStartTimestamp(START)
+                .startSpan();
+    }
+
+    private List<String> exportedNames() {
+        ArgumentCaptor<ReadableSpan> spans = ArgumentCaptor.forClass(ReadableSpan.class);
+        verify(delegate, atLeast(0)).onEnd(spans.capture());
+        return spans.getAllValues().stream().map(ReadableSpan::getName).toList();
+    }
+
+    private double decisions(String decision) {
+        return meterRegistry.get("tracing.tail.traces").tag("decision", decision).counter().count();
+    }
+}